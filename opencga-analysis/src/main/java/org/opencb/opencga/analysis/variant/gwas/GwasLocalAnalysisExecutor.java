@@ -4,9 +4,8 @@ import org.apache.commons.lang.StringUtils;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
-import org.opencb.biodata.models.variant.stats.VariantStats;
-import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
 import org.opencb.commons.ProgressLogger;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.run.ParallelTaskRunner;
@@ -25,6 +24,7 @@ import org.opencb.oskar.analysis.stats.FisherTestResult;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 @ToolExecutor(id = "opencga-local",
         tool = GwasAnalysis.ID,
@@ -32,6 +32,9 @@ import java.util.concurrent.ExecutionException;
         framework = ToolExecutor.Framework.LOCAL)
 public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implements VariantStorageAnalysisExecutor {
 
+    public static final String NUM_TASKS = "numTasks";
+    public static final String BATCH_SIZE = "batchSize";
+
     @Override
     public void run() throws ToolException {
         List<String> sampleList1 = getSampleList1();
@@ -47,21 +50,26 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
 
             ProgressLogger progressLogger = new ProgressLogger("Processed variants:");
 
-            Task<Variant, String> task = Task.forEach(this::computeFisherTest)
-                    .then((Task<String, String>) batch -> {
-                progressLogger.increment(batch.size());
-                return batch;
-            });
+            // One task per thread. Each task reuses its own genotype buffers
+            Supplier<Task<Variant, String>> taskSupplier = () -> {
+                PackedGenotypeAlleleCounter counter = new PackedGenotypeAlleleCounter(sampleList1, sampleList2);
+                return Task.<Variant, String>forEach(variant -> computeFisherTest(variant, counter))
+                        .then((Task<String, String>) batch -> {
+                            progressLogger.increment(batch.size());
+                            return batch;
+                        });
+            };
 
             // TODO: Write header
             StringDataWriter writer = new StringDataWriter(getOutputFile(), true);
 
+            ObjectMap executorParams = getExecutorParams() == null ? new ObjectMap() : getExecutorParams();
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                    .setNumTasks(4)
-                    .setBatchSize(100)
+                    .setNumTasks(executorParams.getInt(NUM_TASKS, Runtime.getRuntime().availableProcessors()))
+                    .setBatchSize(executorParams.getInt(BATCH_SIZE, 100))
                     .setSorted(true)
                     .build();
-            ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, task, writer, config);
+            ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, taskSupplier, writer, config);
 
             ptr.run();
         } catch (CatalogException | ExecutionException | StorageEngineException e) {
@@ -69,14 +77,13 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         }
     }
 
-    private String computeFisherTest(Variant variant) {
-        VariantStats caseStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList1());
-        VariantStats controlStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList2());
+    private String computeFisherTest(Variant variant, PackedGenotypeAlleleCounter counter) {
+        PackedGenotypeAlleleCounter.AlleleCounts counts = counter.count(variant.getStudies().get(0));
 
-        int a = caseStats.getRefAlleleCount(); // case #REF
-        int b = controlStats.getRefAlleleCount(); // control #REF
-        int c = caseStats.getAltAlleleCount(); // case #ALT
-        int d = controlStats.getAltAlleleCount(); // control #ALT
+        int a = counts.getCasesRef(); // case #REF
+        int b = counts.getControlsRef(); // control #REF
+        int c = counts.getCasesAlt(); // case #ALT
+        int d = counts.getControlsAlt(); // control #ALT
 
         if (a + b + c + d == 0) {
             return null;
@@ -113,10 +120,10 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
                 variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
                 String.join(",", genes),
                 a, b, c, d,
-                caseStats.getAlleleCount(),
-                controlStats.getAlleleCount(),
-                caseStats.getAltAlleleFreq(),
-                controlStats.getAltAlleleFreq(),
+                counts.getCasesAlleles(),
+                counts.getControlsAlleles(),
+                counts.getCasesAltFreq(),
+                counts.getControlsAltFreq(),
                 fisherTestResult.getpValue(),
                 fisherTestResult.getOddRatio()
         );
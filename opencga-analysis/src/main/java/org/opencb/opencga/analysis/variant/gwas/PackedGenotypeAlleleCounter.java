@@ -0,0 +1,218 @@
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
+
+import java.util.*;
+
+/**
+ * Count the reference and alternate alleles of two groups of samples (cases and controls) from a {@link StudyEntry}.
+ *
+ * The genotypes of each variant are packed in two bit planes, using 2 bits per sample:
+ * <ul>
+ *     <li>00 : 0/0</li>
+ *     <li>01 : 0/1</li>
+ *     <li>10 : 1/1</li>
+ *     <li>11 : Any other genotype. Missing, multi-allelic or non diploid</li>
+ * </ul>
+ * Allele counts of the common genotypes are obtained with bit counts over the precomputed masks of each group.
+ * Only the genotypes from the last group are parsed. Results are the same as with
+ * {@link org.opencb.biodata.tools.variant.stats.VariantStatsCalculator}.
+ *
+ * This class is not thread safe.
+ */
+class PackedGenotypeAlleleCounter {
+
+    private static final int OTHER = 3;
+
+    private final Collection<String> cases;
+    private final Collection<String> controls;
+
+    private Map<String, Integer> samplesPosition;
+    private long[] casesMask;
+    private long[] controlsMask;
+    private long[] low;
+    private long[] high;
+    private final Map<String, int[]> otherGenotypes = new HashMap<>();
+
+    PackedGenotypeAlleleCounter(Collection<String> cases, Collection<String> controls) {
+        this.cases = cases;
+        this.controls = controls;
+    }
+
+    public AlleleCounts count(StudyEntry studyEntry) {
+        AlleleCounts counts = new AlleleCounts();
+        Integer gtIdx = studyEntry.getFormatPositions().get("GT");
+        if (gtIdx == null) {
+            return counts;
+        }
+        updateMasks(studyEntry.getSamplesPosition());
+
+        List<List<String>> samplesData = studyEntry.getSamplesData();
+        Arrays.fill(low, 0);
+        Arrays.fill(high, 0);
+        int sampleIdx = 0;
+        for (List<String> sampleData : samplesData) {
+            int code = encode(sampleData.get(gtIdx));
+            // Shift distance is implicitly masked to the 6 lowest bits
+            long bit = 1L << sampleIdx;
+            if ((code & 1) != 0) {
+                low[sampleIdx >>> 6] |= bit;
+            }
+            if ((code & 2) != 0) {
+                high[sampleIdx >>> 6] |= bit;
+            }
+            sampleIdx++;
+        }
+
+        for (int w = 0; w < low.length; w++) {
+            long homRef = ~(low[w] | high[w]);
+            long het = low[w] & ~high[w];
+            long homAlt = high[w] & ~low[w];
+            long other = low[w] & high[w];
+
+            int casesHomRef = Long.bitCount(homRef & casesMask[w]);
+            int casesHet = Long.bitCount(het & casesMask[w]);
+            int casesHomAlt = Long.bitCount(homAlt & casesMask[w]);
+            counts.casesRef += casesHomRef * 2 + casesHet;
+            counts.casesAlt += casesHomAlt * 2 + casesHet;
+            counts.casesAlleles += (casesHomRef + casesHet + casesHomAlt) * 2;
+
+            int controlsHomRef = Long.bitCount(homRef & controlsMask[w]);
+            int controlsHet = Long.bitCount(het & controlsMask[w]);
+            int controlsHomAlt = Long.bitCount(homAlt & controlsMask[w]);
+            counts.controlsRef += controlsHomRef * 2 + controlsHet;
+            counts.controlsAlt += controlsHomAlt * 2 + controlsHet;
+            counts.controlsAlleles += (controlsHomRef + controlsHet + controlsHomAlt) * 2;
+
+            long bits = other & (casesMask[w] | controlsMask[w]);
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                String gt = samplesData.get((w << 6) + bit).get(gtIdx);
+                int[] alleles = otherGenotypes.computeIfAbsent(gt, k -> new Genotype(k).getAllelesIdx());
+                if ((casesMask[w] & (1L << bit)) != 0) {
+                    counts.addCases(alleles);
+                }
+                if ((controlsMask[w] & (1L << bit)) != 0) {
+                    counts.addControls(alleles);
+                }
+                bits &= bits - 1;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Fast encoding of the genotype. Returns {@link #OTHER} if the genotype is not diploid with alleles 0 and 1.
+     *
+     * @param gt Genotype
+     * @return  2 bit code
+     */
+    static int encode(String gt) {
+        if (gt.length() != 3) {
+            return OTHER;
+        }
+        char separator = gt.charAt(1);
+        if (separator != '/' && separator != '|') {
+            return OTHER;
+        }
+        int a1 = gt.charAt(0) - '0';
+        int a2 = gt.charAt(2) - '0';
+        if ((a1 & ~1) != 0 || (a2 & ~1) != 0) {
+            return OTHER;
+        }
+        // 0/0 -> 0 , 0/1 or 1/0 -> 1 , 1/1 -> 2
+        return a1 + a2;
+    }
+
+    private void updateMasks(Map<String, Integer> samplesPosition) {
+        // The samples position is usually shared between all the variants of the same study.
+        if (this.samplesPosition == samplesPosition) {
+            return;
+        }
+        this.samplesPosition = samplesPosition;
+        int words = (samplesPosition.size() + 63) >>> 6;
+        casesMask = buildMask(samplesPosition, cases, words);
+        controlsMask = buildMask(samplesPosition, controls, words);
+        low = new long[words];
+        high = new long[words];
+    }
+
+    private static long[] buildMask(Map<String, Integer> samplesPosition, Collection<String> samples, int words) {
+        long[] mask = new long[words];
+        for (String sample : samples) {
+            Integer position = samplesPosition.get(sample);
+            if (position != null) {
+                mask[position >>> 6] |= 1L << position;
+            }
+        }
+        return mask;
+    }
+
+    public static class AlleleCounts {
+        private int casesRef;
+        private int casesAlt;
+        private int casesAlleles;
+        private int controlsRef;
+        private int controlsAlt;
+        private int controlsAlleles;
+
+        private void addCases(int[] alleles) {
+            for (int allele : alleles) {
+                if (allele >= 0) {
+                    casesAlleles++;
+                    if (allele == 0) {
+                        casesRef++;
+                    } else if (allele == 1) {
+                        casesAlt++;
+                    }
+                }
+            }
+        }
+
+        private void addControls(int[] alleles) {
+            for (int allele : alleles) {
+                if (allele >= 0) {
+                    controlsAlleles++;
+                    if (allele == 0) {
+                        controlsRef++;
+                    } else if (allele == 1) {
+                        controlsAlt++;
+                    }
+                }
+            }
+        }
+
+        public int getCasesRef() {
+            return casesRef;
+        }
+
+        public int getCasesAlt() {
+            return casesAlt;
+        }
+
+        public int getCasesAlleles() {
+            return casesAlleles;
+        }
+
+        public float getCasesAltFreq() {
+            return casesAlleles == 0 ? 0 : ((float) casesAlt) / casesAlleles;
+        }
+
+        public int getControlsRef() {
+            return controlsRef;
+        }
+
+        public int getControlsAlt() {
+            return controlsAlt;
+        }
+
+        public int getControlsAlleles() {
+            return controlsAlleles;
+        }
+
+        public float getControlsAltFreq() {
+            return controlsAlleles == 0 ? 0 : ((float) controlsAlt) / controlsAlleles;
+        }
+    }
+}
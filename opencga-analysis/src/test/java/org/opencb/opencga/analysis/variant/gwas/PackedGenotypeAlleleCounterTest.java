@@ -0,0 +1,85 @@
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PackedGenotypeAlleleCounterTest {
+
+    private static final String[] GENOTYPES = {"0/0", "0/1", "1/0", "1/1", "0|0", "0|1", "1|0", "1|1",
+            "./.", "./1", "0/2", "1/2", "2/2", "0", "1", ".", "0/1/1"};
+
+    @Test
+    public void testEncode() {
+        assertEquals(0, PackedGenotypeAlleleCounter.encode("0/0"));
+        assertEquals(1, PackedGenotypeAlleleCounter.encode("0|1"));
+        assertEquals(1, PackedGenotypeAlleleCounter.encode("1/0"));
+        assertEquals(2, PackedGenotypeAlleleCounter.encode("1|1"));
+        assertEquals(3, PackedGenotypeAlleleCounter.encode("./."));
+        assertEquals(3, PackedGenotypeAlleleCounter.encode("1/2"));
+        assertEquals(3, PackedGenotypeAlleleCounter.encode("0-1"));
+        assertEquals(3, PackedGenotypeAlleleCounter.encode("1"));
+        assertEquals(3, PackedGenotypeAlleleCounter.encode("0/10"));
+    }
+
+    @Test
+    public void testCount() {
+        Random random = new Random(1);
+        for (int numSamples : new int[]{1, 63, 64, 65, 200, 1000}) {
+            List<String> samples = new ArrayList<>(numSamples);
+            List<String> cases = new ArrayList<>();
+            List<String> controls = new ArrayList<>();
+            for (int i = 0; i < numSamples; i++) {
+                String sample = "S" + i;
+                samples.add(sample);
+                // Some samples are not in any group
+                int group = random.nextInt(5);
+                if (group < 2) {
+                    cases.add(sample);
+                } else if (group < 4) {
+                    controls.add(sample);
+                }
+            }
+
+            PackedGenotypeAlleleCounter counter = new PackedGenotypeAlleleCounter(cases, controls);
+            for (int v = 0; v < 20; v++) {
+                Variant variant = new Variant("1:" + (v + 1000) + ":A:C");
+                StudyEntry studyEntry = new StudyEntry("s1");
+                studyEntry.setFormatAsString("GT");
+                for (String sample : samples) {
+                    // Increase probability of common genotypes
+                    int idx = random.nextInt(GENOTYPES.length * 2);
+                    String gt = GENOTYPES[idx < GENOTYPES.length ? idx : idx % 4];
+                    studyEntry.addSampleData(sample, Collections.singletonMap("GT", gt));
+                }
+                variant.addStudyEntry(studyEntry);
+
+                PackedGenotypeAlleleCounter.AlleleCounts counts = counter.count(studyEntry);
+                VariantStats casesStats = VariantStatsCalculator.calculate(variant, studyEntry, cases);
+                VariantStats controlsStats = VariantStatsCalculator.calculate(variant, studyEntry, controls);
+
+                assertEquals(casesStats.getRefAlleleCount().intValue(), counts.getCasesRef());
+                assertEquals(casesStats.getAltAlleleCount().intValue(), counts.getCasesAlt());
+                assertEquals(casesStats.getAlleleCount().intValue(), counts.getCasesAlleles());
+                assertEquals(controlsStats.getRefAlleleCount().intValue(), counts.getControlsRef());
+                assertEquals(controlsStats.getAltAlleleCount().intValue(), counts.getControlsAlt());
+                assertEquals(controlsStats.getAlleleCount().intValue(), counts.getControlsAlleles());
+                if (counts.getCasesAlleles() > 0) {
+                    assertEquals(casesStats.getAltAlleleFreq(), counts.getCasesAltFreq(), 0.0001);
+                }
+                if (counts.getControlsAlleles() > 0) {
+                    assertEquals(controlsStats.getAltAlleleFreq(), counts.getControlsAltFreq(), 0.0001);
+                }
+            }
+        }
+    }
+}
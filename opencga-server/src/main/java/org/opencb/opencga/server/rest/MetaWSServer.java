@@ -27,6 +27,7 @@ import org.opencb.opencga.server.rest.analysis.AlignmentAnalysisWSService;
 import org.opencb.opencga.server.rest.analysis.VariantAnalysisWSService;
 import org.opencb.opencga.server.rest.ga4gh.Ga4ghWSServer;
 import org.opencb.opencga.server.rest.operations.OperationsWSService;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
@@ -90,6 +91,25 @@ public class MetaWSServer extends OpenCGAWSServer {
         return createOkResponse(queryResult);
     }
 
+    @GET
+    @Path("/metrics")
+    @Produces({"text/plain", "application/json"})
+    @ApiOperation(httpMethod = "GET", value = "Storage pipeline metrics: throughput, batch latency and queue depth of each stage.")
+    public Response metrics(@ApiParam(value = "Output format", allowableValues = "prometheus,json")
+                            @DefaultValue("prometheus") @QueryParam("format") String format) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        if ("json".equalsIgnoreCase(format)) {
+            DataResult<Map<String, Object>> queryResult = new DataResult<>();
+            queryResult.setTime(0);
+            queryResult.setResults(Collections.singletonList(registry.snapshot()));
+            return createOkResponse(queryResult);
+        } else if ("prometheus".equalsIgnoreCase(format)) {
+            return Response.ok(registry.toPrometheus(), "text/plain; version=0.0.4").build();
+        } else {
+            return createErrorResponse(new IllegalArgumentException("Unknown format '" + format + "'. Expected one of [prometheus, json]"));
+        }
+    }
+
     @GET
     @Path("/fail")
     @ApiOperation(httpMethod = "GET", value = "Ping Opencga webservices.")
@@ -0,0 +1,70 @@
+package org.opencb.opencga.storage.core.io.bit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare reading values one by one against the bulk read.
+ *
+ * Run with: mvn test -P jmh -pl opencga-storage/opencga-storage-core -Djmh.args=BitInputStreamBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitInputStreamBenchmark {
+
+    private static final int NUM_BYTES = 4096;
+
+    @Param({"1", "2", "3", "4", "8"})
+    public int bits;
+
+    private byte[] bytes;
+    private byte[] dst;
+    private int numValues;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[NUM_BYTES];
+        new Random(1).nextBytes(bytes);
+        numValues = NUM_BYTES * Byte.SIZE / bits;
+        dst = new byte[numValues];
+    }
+
+    @Benchmark
+    public void readByte(Blackhole blackhole) {
+        BitInputStream is = new BitInputStream(bytes);
+        for (int i = 0; i < numValues; i++) {
+            dst[i] = is.readByte(bits);
+        }
+        blackhole.consume(dst);
+    }
+
+    @Benchmark
+    public void readBytes(Blackhole blackhole) {
+        BitInputStream is = new BitInputStream(bytes);
+        is.readBytes(numValues, bits, dst, 0);
+        blackhole.consume(dst);
+    }
+
+    @Benchmark
+    public byte[] writeByte() {
+        BitOutputStream os = new BitOutputStream(NUM_BYTES);
+        for (int i = 0; i < numValues; i++) {
+            os.write(dst[i], bits);
+        }
+        return os.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeBytes() {
+        BitOutputStream os = new BitOutputStream(NUM_BYTES);
+        os.write(dst, 0, numValues, bits);
+        return os.toByteArray();
+    }
+}
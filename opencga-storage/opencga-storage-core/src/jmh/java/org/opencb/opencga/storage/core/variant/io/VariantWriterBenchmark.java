@@ -0,0 +1,88 @@
+package org.opencb.opencga.storage.core.variant.io;
+
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the variant writers, writing into a null output stream.
+ *
+ * Run with: mvn test -P jmh -pl opencga-storage/opencga-storage-core -Djmh.args=VariantWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantWriterBenchmark {
+
+    private static final int NUM_SAMPLES = 100;
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] GENOTYPES = {"0/0", "0/1", "1/1", "./."};
+
+    @Param({"VCF", "AVRO", "AVRO_GZ", "JSON"})
+    public VariantWriterFactory.VariantOutputFormat format;
+
+    private DataWriter<Variant> writer;
+    private List<Variant> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager mm = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = mm.createStudy("study").getId();
+        List<String> samples = new ArrayList<>(NUM_SAMPLES);
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            samples.add("S" + i);
+        }
+        mm.addIndexedFiles(studyId, Collections.singletonList(mm.registerFile(studyId, "F1", samples)));
+
+        Random random = new Random(1);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Variant variant = new Variant("1:" + (1000 + i * 10) + ":A:" + (i % 10 == 0 ? "CT" : "C"));
+            StudyEntry studyEntry = new StudyEntry("study");
+            studyEntry.setFormatAsString("GT");
+            for (String sample : samples) {
+                studyEntry.addSampleData(sample, Collections.singletonMap("GT", GENOTYPES[random.nextInt(GENOTYPES.length)]));
+            }
+            variant.addStudyEntry(studyEntry);
+            batch.add(variant);
+        }
+
+        writer = new VariantWriterFactory(mm).newDataWriter(format, new NullOutputStream(), new Query(), new QueryOptions());
+        writer.open();
+        writer.pre();
+    }
+
+    @TearDown
+    public void tearDown() {
+        writer.post();
+        writer.close();
+    }
+
+    @Benchmark
+    public boolean write() {
+        return writer.write(batch);
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.opencb.biodata.models.core.Region;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+
+/**
+ * Benchmark the query pre-processing. Uses the dummy metadata manager, so no database is required.
+ *
+ * Run with: mvn test -P jmh -pl opencga-storage/opencga-storage-core -Djmh.args=VariantQueryParserBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantQueryParserBenchmark {
+
+    private static final int NUM_SAMPLES = 100;
+
+    private VariantQueryParser parser;
+    private Query query;
+    private String genotypeFilter;
+    private String regions;
+
+    @Setup
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager mm = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = mm.createStudy("study").getId();
+        List<String> samples = new ArrayList<>(NUM_SAMPLES);
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            samples.add("S" + i);
+        }
+        mm.addIndexedFiles(studyId, Collections.singletonList(mm.registerFile(studyId, "F1", samples)));
+        mm.updateStudyMetadata("study", studyMetadata -> {
+            studyMetadata.getAttributes().put(VariantStorageOptions.LOADED_GENOTYPES.key(), "./.,0/0,0/1,1/1");
+            return studyMetadata;
+        });
+        parser = new VariantQueryParser(null, mm);
+
+        genotypeFilter = "S1:0/1,1/1;S2:0/1;S3:!0/0;S4:1/1";
+        regions = "1:1000-2000,2:3000-4000,3:5000-6000,X:100-10000,22";
+        query = new Query()
+                .append(STUDY.key(), "study")
+                .append(GENOTYPE.key(), genotypeFilter)
+                .append(REGION.key(), regions)
+                .append(TYPE.key(), "SNV,INDEL")
+                .append(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained,lof")
+                .append(ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:ALL<0.01;GNOMAD_GENOMES:ALL<0.01");
+    }
+
+    @Benchmark
+    public Query preProcessQuery() {
+        return parser.preProcessQuery(query, new QueryOptions());
+    }
+
+    @Benchmark
+    public Map<Object, List<String>> parseGenotypeFilter() {
+        Map<Object, List<String>> map = new HashMap<>();
+        VariantQueryUtils.parseGenotypeFilter(genotypeFilter, map);
+        return map;
+    }
+
+    @Benchmark
+    public List<Region> parseRegions() {
+        return Region.parseRegions(regions);
+    }
+}
@@ -16,182 +16,388 @@
 
 package org.opencb.opencga.storage.core.cache;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.esotericsoftware.kryo.serializers.MapSerializer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
-import org.opencb.commons.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.config.CacheConfiguration;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
-import org.redisson.Config;
-import org.redisson.Redisson;
-import org.redisson.RedissonClient;
-import org.redisson.client.RedisConnectionException;
-import org.redisson.codec.JsonJacksonCodec;
-import org.redisson.codec.KryoCodec;
-import org.redisson.core.RKeys;
-import org.redisson.core.RMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Two tier cache for query results.
+ *
+ * Results are serialized with Kryo, so cached values are isolated from the callers and can be weighed by their size.
+ * The first tier is a size-bounded in-memory cache. The second tier is an optional {@link RemoteCache}.
+ *
  * Created by wasim on 26/10/16.
  */
 public class CacheManager {
 
-    private StorageConfiguration storageConfiguration;
+    public static final String CACHE = "cache";
+
+    private static final String PREFIX_DATABASE_KEY = "ocga:";
+    private static final Set<String> IGNORED_OPTIONS = new HashSet<>(Arrays.asList(CACHE, "sId", QueryOptions.TIMEOUT));
 
-    private Config redissonConfig;
-    private Set<String> allowedTypesSet;
-    private RedissonClient redissonClient;
-    private boolean redisState;
+    private final CacheConfiguration cacheConfiguration;
+    private final Set<String> allowedTypesSet;
+    private final Cache<String, byte[]> localCache;
+    private final RemoteCache remoteCache;
+    private volatile boolean remoteState;
 
+    private final AtomicLong remoteHits = new AtomicLong();
+    private final AtomicLong remoteMisses = new AtomicLong();
+    private final AtomicLong serializationErrors = new AtomicLong();
 
-    private static final String PREFIX_DATABASE_KEY = "ocga:";
+    private final ThreadLocal<Kryo> kryo = ThreadLocal.withInitial(CacheManager::buildKryo);
+
+    private static Logger logger = LoggerFactory.getLogger(CacheManager.class);
 
     public CacheManager() {
+        this(null);
     }
 
     public CacheManager(StorageConfiguration configuration) {
-
-        CacheConfiguration cache;
-
         if (configuration != null && configuration.getCache() != null) {
+            cacheConfiguration = configuration.getCache();
+        } else {
+            cacheConfiguration = new CacheConfiguration().setActive(false);
+        }
 
-            this.storageConfiguration = configuration;
-
-            cache = configuration.getCache();
-            redissonConfig = new Config();
-
-            String host = (StringUtils.isNotEmpty(cache.getHost()))
-                    ? cache.getHost()
-                    : CacheConfiguration.DEFAULT_HOST;
-            redissonConfig.useSingleServer().setAddress(host);
-
-            String codec = (StringUtils.isNotEmpty(cache.getSerialization()))
-                    ? cache.getSerialization()
-                    : CacheConfiguration.DEFAULT_SERIALIZATION;
-
-            this.allowedTypesSet = new HashSet<>(Arrays.asList(cache.getAllowedTypes().split(",")));
-
-
-            if (StringUtils.isNotEmpty(cache.getPassword())) {
-                redissonConfig.useSingleServer().setPassword(cache.getPassword());
-            }
-
-            if ("KRYO".equalsIgnoreCase(codec)) {
-                redissonConfig.setCodec(new KryoCodec());
-            } else {
-                redissonConfig.setCodec(new JsonJacksonCodec());
+        String allowedTypes = StringUtils.isNotEmpty(cacheConfiguration.getAllowedTypes())
+                ? cacheConfiguration.getAllowedTypes()
+                : CacheConfiguration.DEFAULT_ALLOWED_TYPE;
+        allowedTypesSet = new HashSet<>(Arrays.asList(allowedTypes.split(",")));
+
+        if (cacheConfiguration.isActive() && cacheConfiguration.getLocalMaxSize() > 0) {
+            CacheBuilder<String, byte[]> builder = CacheBuilder.newBuilder()
+                    .maximumWeight(cacheConfiguration.getLocalMaxSize())
+                    .weigher((String key, byte[] value) -> key.length() + value.length)
+                    .recordStats();
+            if (cacheConfiguration.getExpireAfterWrite() > 0) {
+                builder.expireAfterWrite(cacheConfiguration.getExpireAfterWrite(), TimeUnit.MILLISECONDS);
             }
+            localCache = builder.build();
+        } else {
+            localCache = null;
+        }
 
-            redisState = true;
-
-//            redissonClient = Redisson.create(redissonConfig);
-            redissonClient = null;
+        if (cacheConfiguration.isActive() && StringUtils.isNotEmpty(cacheConfiguration.getRemote())) {
+            remoteCache = buildRemoteCache(cacheConfiguration);
+            remoteState = true;
+        } else {
+            remoteCache = null;
+            remoteState = false;
         }
     }
 
+    private static RemoteCache buildRemoteCache(CacheConfiguration cacheConfiguration) {
+        String remote = cacheConfiguration.getRemote();
+        if ("redis".equalsIgnoreCase(remote)) {
+            return new RedisRemoteCache(cacheConfiguration);
+        }
+        try {
+            Class<? extends RemoteCache> clazz = Class.forName(remote).asSubclass(RemoteCache.class);
+            return clazz.getConstructor(CacheConfiguration.class).newInstance(cacheConfiguration);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unable to create remote cache '" + remote + "'", e);
+        }
+    }
 
-    public <T> QueryResult<T> get(String key) {
-
-        QueryResult<T> queryResult = new QueryResult<>();
-        if (isActive()) {
-            long start = System.currentTimeMillis();
-            RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-
+    /**
+     * Get a cached result.
+     *
+     * @param key Cache key, from {@link #createKey}
+     * @param <T> Result type
+     * @return Cached result, or null if missing
+     */
+    public <T extends DataResult> T get(String key) {
+        if (!isActive()) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        byte[] bytes = localCache == null ? null : localCache.getIfPresent(key);
+        if (bytes == null && isRemoteActive()) {
             try {
-                // We only retrieve the first field of the HASH, which is the only one that exist.
-                Map<Integer, Map<String, Object>> result = map.getAll(new HashSet<>(Collections.singletonList(0)));
-
-                if (result != null && !result.isEmpty()) {
-                    Object resultMap = result.get(0).get("result");
-                    queryResult = (QueryResult<T>) resultMap;
-                    queryResult.setDbTime((int) (System.currentTimeMillis() - start));
+                bytes = remoteCache.get(key);
+            } catch (IOException e) {
+                disableRemote(e);
+            }
+            if (bytes == null) {
+                remoteMisses.incrementAndGet();
+            } else {
+                remoteHits.incrementAndGet();
+                if (localCache != null) {
+                    localCache.put(key, bytes);
                 }
-            } catch (RedisConnectionException e) {
-                redisState = false;
-                queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
-                return queryResult;
             }
         }
-        return queryResult;
+        if (bytes == null) {
+            return null;
+        }
+        T result = deserialize(bytes);
+        if (result == null) {
+            // Corrupted entry
+            invalidate(key);
+        } else {
+            result.setTime((int) (System.currentTimeMillis() - start));
+        }
+        return result;
     }
 
-    public void set(String key, Query query, QueryResult queryResult) {
-
-        if (isActive()) {
-            if (queryResult.getDbTime() >= storageConfiguration.getCache().getSlowThreshold()
-                    && queryResult.getResult().size() >= storageConfiguration.getCache().getMaxResultSize()) {
-                RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-                Map<String, Object> record = new HashMap<>();
-                record.put("query", query);
-                record.put("result", queryResult);
-                try {
-                    map.fastPut(0, record);
-                } catch (RedisConnectionException e) {
-                    redisState = false;
-                    queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
-                }
+    /**
+     * Store a result in the cache.
+     * Only results slower than {@link CacheConfiguration#getSlowThreshold()} and with less results than
+     * {@link CacheConfiguration#getMaxResultSize()} are cached.
+     *
+     * @param key    Cache key, from {@link #createKey}
+     * @param query  Executed query
+     * @param result Query result
+     */
+    public void set(String key, Query query, DataResult<?> result) {
+        if (!isActive() || result == null) {
+            return;
+        }
+        if (result.getTime() < cacheConfiguration.getSlowThreshold()
+                || result.getNumResults() > cacheConfiguration.getMaxResultSize()) {
+            return;
+        }
+        byte[] bytes = serialize(result);
+        if (bytes == null) {
+            return;
+        }
+        if (localCache != null) {
+            localCache.put(key, bytes);
+        }
+        if (isRemoteActive()) {
+            try {
+                remoteCache.put(key, bytes, cacheConfiguration.getExpireAfterWrite());
+            } catch (IOException e) {
+                disableRemote(e);
             }
         }
+        logger.debug("Cached result of query {} with key {}", query == null ? "" : query.toJson(), key);
     }
 
-    public String createKey(String studyId, String allowedType, Query query, QueryOptions queryOptions) {
-
-        queryOptions.remove("cache");
-        queryOptions.remove("sId");
-
-        StringBuilder key = new StringBuilder(PREFIX_DATABASE_KEY);
-        key.append(studyId).append(":").append(allowedType);
-        SortedMap<String, SortedSet<Object>> map = new TreeMap<>();
-
-        for (String item : query.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(query.getAsStringList(item)));
+    /**
+     * Build a cache key from a query. The key does not depend on the order of the parameters.
+     *
+     * @param namespace    Namespace of the key, e.g. the database name
+     * @param allowedType  Type of the cached object. See {@link #isTypeAllowed}
+     * @param query        Query
+     * @param queryOptions Query options
+     * @return Cache key
+     */
+    public String createKey(String namespace, String allowedType, Query query, QueryOptions queryOptions) {
+        StringBuilder key = new StringBuilder(getKeyPrefix(namespace));
+        key.append(allowedType);
+
+        SortedMap<String, String> map = new TreeMap<>();
+        if (query != null) {
+            for (Map.Entry<String, Object> entry : query.entrySet()) {
+                if (isValidValue(entry.getValue())) {
+                    map.put("q." + entry.getKey(), query.getString(entry.getKey()));
+                }
+            }
         }
-
-        for (String item : queryOptions.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(queryOptions.getAsStringList(item)));
+        if (queryOptions != null) {
+            for (Map.Entry<String, Object> entry : queryOptions.entrySet()) {
+                if (!IGNORED_OPTIONS.contains(entry.getKey()) && isValidValue(entry.getValue())) {
+                    map.put("o." + entry.getKey(), queryOptions.getString(entry.getKey()));
+                }
+            }
         }
 
         String sha1 = DigestUtils.sha1Hex(map.toString());
         key.append(":").append(sha1);
 
-        queryOptions.add("cache", "true");
         return key.toString();
     }
 
+    private static boolean isValidValue(Object value) {
+        if (value == null) {
+            return false;
+        } else if (value instanceof Collection) {
+            return !((Collection) value).isEmpty();
+        } else {
+            return !value.toString().isEmpty();
+        }
+    }
+
     public boolean isActive() {
-        return storageConfiguration.getCache().isActive() && redisState;
+        return cacheConfiguration.isActive() && (localCache != null || isRemoteActive());
+    }
+
+    private boolean isRemoteActive() {
+        return remoteCache != null && remoteState;
     }
 
     public boolean isTypeAllowed(String type) {
         return allowedTypesSet.contains(type);
     }
 
+    public void invalidate(String key) {
+        if (localCache != null) {
+            localCache.invalidate(key);
+        }
+    }
+
     public void clear() {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(PREFIX_DATABASE_KEY + "*");
+        clearByPrefix(PREFIX_DATABASE_KEY);
+    }
+
+    /**
+     * Remove all the results cached for a given namespace.
+     *
+     * @param namespace Namespace used to create the keys
+     */
+    public void clear(String namespace) {
+        clearByPrefix(getKeyPrefix(namespace));
     }
 
-    public void clear(Pattern pattern) {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(pattern.toString());
+    private void clearByPrefix(String prefix) {
+        if (localCache != null) {
+            localCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        if (isRemoteActive()) {
+            try {
+                remoteCache.clear(prefix);
+            } catch (IOException e) {
+                disableRemote(e);
+            }
+        }
+    }
+
+    /**
+     * @return Hit, miss and eviction counters of each tier
+     */
+    public ObjectMap getStats() {
+        ObjectMap stats = new ObjectMap("active", isActive());
+        if (localCache != null) {
+            CacheStats localStats = localCache.stats();
+            stats.put("local", new ObjectMap()
+                    .append("size", localCache.size())
+                    .append("hitCount", localStats.hitCount())
+                    .append("missCount", localStats.missCount())
+                    .append("evictionCount", localStats.evictionCount()));
+        }
+        if (remoteCache != null) {
+            stats.put("remote", new ObjectMap()
+                    .append("active", remoteState)
+                    .append("hitCount", remoteHits.get())
+                    .append("missCount", remoteMisses.get()));
+        }
+        stats.put("serializationErrors", serializationErrors.get());
+        return stats;
     }
 
     public void close() {
-        if (redissonClient != null) {
-            redissonClient.shutdown();
-            redissonClient = null;
+        if (localCache != null) {
+            localCache.invalidateAll();
+        }
+        if (remoteCache != null) {
+            try {
+                remoteCache.close();
+            } catch (IOException e) {
+                logger.warn("Error closing remote cache", e);
+            }
+        }
+    }
+
+    private String getKeyPrefix(String namespace) {
+        return PREFIX_DATABASE_KEY + (namespace == null ? "" : namespace) + ":";
+    }
+
+    private void disableRemote(IOException e) {
+        remoteState = false;
+        logger.warn("Unable to connect to remote cache. Disable remote cache.", e);
+    }
+
+    private static Kryo buildKryo() {
+        Kryo kryo = new Kryo();
+        // Use no-arg constructors if available. Fallback to objenesis otherwise.
+        Kryo.DefaultInstantiatorStrategy instantiatorStrategy = new Kryo.DefaultInstantiatorStrategy();
+        instantiatorStrategy.setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+        kryo.setInstantiatorStrategy(instantiatorStrategy);
+
+        // Default collection serializers can not create immutable collections like Arrays.asList or Collections.singletonList.
+        // Read them as regular mutable collections.
+        kryo.addDefaultSerializer(Collection.class, (k, type) -> new CollectionSerializer() {
+            @Override
+            protected Collection create(Kryo kryo, Input input, Class<Collection> type) {
+                if (hasNoArgConstructor(type)) {
+                    return super.create(kryo, input, type);
+                } else if (SortedSet.class.isAssignableFrom(type)) {
+                    return new TreeSet();
+                } else if (Set.class.isAssignableFrom(type)) {
+                    return new LinkedHashSet();
+                } else {
+                    return new ArrayList();
+                }
+            }
+        });
+        kryo.addDefaultSerializer(Map.class, (k, type) -> new MapSerializer() {
+            @Override
+            protected Map create(Kryo kryo, Input input, Class<Map> type) {
+                if (hasNoArgConstructor(type)) {
+                    return super.create(kryo, input, type);
+                } else if (SortedMap.class.isAssignableFrom(type)) {
+                    return new TreeMap();
+                } else {
+                    return new LinkedHashMap();
+                }
+            }
+        });
+        return kryo;
+    }
+
+    private static boolean hasNoArgConstructor(Class<?> type) {
+        try {
+            type.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private byte[] serialize(Object o) {
+        try {
+            Output output = new Output(4096, -1);
+            kryo.get().writeClassAndObject(output, o);
+            return output.toBytes();
+        } catch (RuntimeException e) {
+            serializationErrors.incrementAndGet();
+            logger.warn("Unable to serialize object of class " + o.getClass() + " for cache", e);
+            return null;
         }
     }
 
-    private synchronized RedissonClient getRedissonClient() {
-        if (redissonClient == null) {
-            redissonClient = Redisson.create(redissonConfig);
+    @SuppressWarnings("unchecked")
+    private <T> T deserialize(byte[] bytes) {
+        try {
+            return (T) kryo.get().readClassAndObject(new Input(bytes));
+        } catch (RuntimeException e) {
+            serializationErrors.incrementAndGet();
+            logger.warn("Unable to deserialize object from cache", e);
+            return null;
         }
-        return redissonClient;
     }
 
 }
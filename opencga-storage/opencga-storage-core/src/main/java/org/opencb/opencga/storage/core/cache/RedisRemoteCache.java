@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.opencga.storage.core.config.CacheConfiguration;
+import org.redisson.Config;
+import org.redisson.Redisson;
+import org.redisson.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.core.RBucket;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RemoteCache} backed by a single Redis server.
+ */
+public class RedisRemoteCache implements RemoteCache {
+
+    private final Config redissonConfig;
+    private RedissonClient redissonClient;
+
+    public RedisRemoteCache(CacheConfiguration cache) {
+        redissonConfig = new Config();
+
+        String host = (StringUtils.isNotEmpty(cache.getHost()))
+                ? cache.getHost()
+                : CacheConfiguration.DEFAULT_HOST;
+        redissonConfig.useSingleServer().setAddress(host);
+
+        if (StringUtils.isNotEmpty(cache.getPassword())) {
+            redissonConfig.useSingleServer().setPassword(cache.getPassword());
+        }
+        // Values are serialized by the CacheManager
+        redissonConfig.setCodec(ByteArrayCodec.INSTANCE);
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        try {
+            RBucket<byte[]> bucket = getRedissonClient().getBucket(key);
+            return bucket.get();
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to read from Redis cache", e);
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttlMillis) throws IOException {
+        try {
+            RBucket<byte[]> bucket = getRedissonClient().getBucket(key);
+            if (ttlMillis > 0) {
+                bucket.set(value, ttlMillis, TimeUnit.MILLISECONDS);
+            } else {
+                bucket.set(value);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to write into Redis cache", e);
+        }
+    }
+
+    @Override
+    public void clear(String keyPrefix) throws IOException {
+        try {
+            getRedissonClient().getKeys().deleteByPattern(keyPrefix + "*");
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to clear Redis cache", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+            redissonClient = null;
+        }
+    }
+
+    private synchronized RedissonClient getRedissonClient() {
+        if (redissonClient == null) {
+            redissonClient = Redisson.create(redissonConfig);
+        }
+        return redissonClient;
+    }
+}
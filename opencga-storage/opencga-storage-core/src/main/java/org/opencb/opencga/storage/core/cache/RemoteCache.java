@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Optional second tier of the {@link CacheManager}, shared between several processes.
+ * Values are already serialized by the {@link CacheManager}.
+ *
+ * Implementations must provide a public constructor accepting a
+ * {@link org.opencb.opencga.storage.core.config.CacheConfiguration}.
+ */
+public interface RemoteCache extends Closeable {
+
+    /**
+     * Get a value from the remote cache.
+     *
+     * @param key Cache key
+     * @return Serialized value, or null if missing
+     * @throws IOException if the remote cache is not reachable
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Store a value in the remote cache.
+     *
+     * @param key       Cache key
+     * @param value     Serialized value
+     * @param ttlMillis Time to live in milliseconds. Never expire if <= 0
+     * @throws IOException if the remote cache is not reachable
+     */
+    void put(String key, byte[] value, long ttlMillis) throws IOException;
+
+    /**
+     * Remove all the values starting with the given prefix.
+     *
+     * @param keyPrefix Key prefix
+     * @throws IOException if the remote cache is not reachable
+     */
+    void clear(String keyPrefix) throws IOException;
+
+}
@@ -16,6 +16,8 @@
 
 package org.opencb.opencga.storage.core.config;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by wasim on 26/10/16.
  */
@@ -40,12 +42,31 @@ public class CacheConfiguration {
      */
     private String allowedTypes;
 
-    public static final boolean DEFAULT_ACTVE = true;
+    /**
+     * Max size in bytes of the serialized results stored in the local in-memory cache. Disabled if 0.
+     */
+    private long localMaxSize;
+
+    /**
+     * Expire cached results after this amount of milliseconds. Never expire if 0.
+     */
+    private long expireAfterWrite;
+
+    /**
+     * Optional remote cache shared between processes. Accepted values are: empty (none), redis,
+     * or the class name of a {@link org.opencb.opencga.storage.core.cache.RemoteCache} implementation.
+     */
+    private String remote;
+
+    public static final boolean DEFAULT_ACTVE = false;
     public static final String DEFAULT_SERIALIZATION = "json";
     public static final String DEFAULT_ALLOWED_TYPE = "aln,var";
     public static final String DEFAULT_HOST = "localhost:6379";
     public static final String DEFAULT_PASSWORD = "";
     public static final int DEFAULT_MAX_FILE_SIZE = 500;
+    public static final long DEFAULT_LOCAL_MAX_SIZE = 128L * 1024 * 1024;
+    public static final long DEFAULT_EXPIRE_AFTER_WRITE = TimeUnit.MINUTES.toMillis(30);
+    public static final String DEFAULT_REMOTE = "";
 
     public CacheConfiguration() {
         this(DEFAULT_HOST, DEFAULT_ACTVE, DEFAULT_SERIALIZATION, 50, DEFAULT_MAX_FILE_SIZE, DEFAULT_PASSWORD,
@@ -61,6 +82,9 @@ public class CacheConfiguration {
         this.maxResultSize = maxFileSize;
         this.password = password;
         this.allowedTypes = allowedTypes;
+        this.localMaxSize = DEFAULT_LOCAL_MAX_SIZE;
+        this.expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+        this.remote = DEFAULT_REMOTE;
     }
 
     @Override
@@ -72,6 +96,9 @@ public class CacheConfiguration {
                 + ", slowThreshold=" + slowThreshold
                 + ", maxResultSize=" + maxResultSize
                 + ", allowedTypes='" + allowedTypes + '\''
+                + ", localMaxSize=" + localMaxSize
+                + ", expireAfterWrite=" + expireAfterWrite
+                + ", remote='" + remote + '\''
                 + '}');
         return sb.toString();
     }
@@ -138,4 +165,31 @@ public class CacheConfiguration {
         this.allowedTypes = allowedTypes;
         return this;
     }
+
+    public long getLocalMaxSize() {
+        return localMaxSize;
+    }
+
+    public CacheConfiguration setLocalMaxSize(long localMaxSize) {
+        this.localMaxSize = localMaxSize;
+        return this;
+    }
+
+    public long getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public CacheConfiguration setExpireAfterWrite(long expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+        return this;
+    }
+
+    public String getRemote() {
+        return remote;
+    }
+
+    public CacheConfiguration setRemote(String remote) {
+        this.remote = remote;
+        return this;
+    }
 }
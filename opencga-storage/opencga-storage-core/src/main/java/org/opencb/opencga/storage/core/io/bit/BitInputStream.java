@@ -1,5 +1,8 @@
 package org.opencb.opencga.storage.core.io.bit;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Read bits from a byte array.
  *
@@ -22,6 +25,7 @@ public class BitInputStream {
     private int remainingBits;
     private int idx;
     private int bitIdx;
+    private ByteBuffer longBuffer;
 
     public BitInputStream(byte[] value) {
         this(value, 0, value.length);
@@ -77,12 +81,61 @@ public class BitInputStream {
 
     public byte[] readBytes(int numValues, int valueBitLength) {
         byte[] bytes = new byte[numValues];
-        for (int i = 0; i < numValues; i++) {
-            bytes[i] = readByte(valueBitLength);
-        }
+        readBytes(numValues, valueBitLength, bytes, 0);
         return bytes;
     }
 
+    /**
+     * Read multiple values of up to 8 bits into a preallocated array.
+     *
+     * Values with a length of 1, 2, 4 or 8 bits never cross a byte boundary. Once the stream is aligned, these
+     * are unpacked reading 64 bits at a time.
+     *
+     * @param numValues      Number of values to read.
+     * @param valueBitLength Number of bits of each value.
+     * @param dst            Destination array
+     * @param dstOffset      Offset in the destination array
+     */
+    public void readBytes(int numValues, int valueBitLength, byte[] dst, int dstOffset) {
+        if (valueBitLength > Byte.SIZE) {
+            throw new IllegalArgumentException();
+        }
+        if (numValues * valueBitLength > remainingBits) {
+            throw new IllegalArgumentException();
+        }
+        int i = 0;
+        if (valueBitLength > 0 && Byte.SIZE % valueBitLength == 0) {
+            // Read values one by one until aligned to the next byte
+            while (i < numValues && bitIdx != 0) {
+                dst[dstOffset + i++] = readByte(valueBitLength);
+            }
+            if (valueBitLength == Byte.SIZE) {
+                int numBytes = numValues - i;
+                System.arraycopy(value, idx, dst, dstOffset + i, numBytes);
+                idx += numBytes;
+                remainingBits -= numBytes * Byte.SIZE;
+                i += numBytes;
+            } else {
+                int valuesPerLong = Long.SIZE / valueBitLength;
+                int mask = mask(valueBitLength);
+                while (numValues - i >= valuesPerLong) {
+                    // Bits are written from the least significant bit, so bytes are read in little endian
+                    long word = getLongBuffer().getLong(idx);
+                    for (int j = 0; j < valuesPerLong; j++) {
+                        dst[dstOffset + i + j] = (byte) (word & mask);
+                        word >>>= valueBitLength;
+                    }
+                    idx += Long.BYTES;
+                    remainingBits -= Long.SIZE;
+                    i += valuesPerLong;
+                }
+            }
+        }
+        while (i < numValues) {
+            dst[dstOffset + i++] = readByte(valueBitLength);
+        }
+    }
+
     public byte[] read(int length) {
         int bytes = length / Byte.SIZE;
         int bits = length % Byte.SIZE;
@@ -96,6 +149,13 @@ public class BitInputStream {
         return result;
     }
 
+    private ByteBuffer getLongBuffer() {
+        if (longBuffer == null) {
+            longBuffer = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return longBuffer;
+    }
+
     private static int mask(int i) {
         return (1 << i) - 1;
     }
@@ -53,6 +53,48 @@ public class BitOutputStream {
         }
     }
 
+    /**
+     * Write multiple values into the stream.
+     *
+     * Values with a length of 1, 2, 4 or 8 bits are packed a full byte at a time while the stream is aligned.
+     *
+     * @param values     Values to write.
+     * @param offset     Offset of the first value.
+     * @param length     Number of values to write.
+     * @param bitsLength Number of bits to write from each value. Up to 8.
+     */
+    public void write(byte[] values, int offset, int length, int bitsLength) {
+        if (bitsLength > Byte.SIZE) {
+            throw new IllegalArgumentException();
+        }
+        int i = offset;
+        int end = offset + length;
+        if (bitsLength > 0 && Byte.SIZE % bitsLength == 0) {
+            // Write values one by one until the buffer is empty
+            while (i < end && bufferCapacity != Byte.SIZE) {
+                write(values[i++], bitsLength);
+            }
+            if (bitsLength == Byte.SIZE) {
+                os.write(values, i, end - i);
+                i = end;
+            } else {
+                int valuesPerByte = Byte.SIZE / bitsLength;
+                int mask = mask(bitsLength);
+                while (end - i >= valuesPerByte) {
+                    int b = 0;
+                    for (int j = 0; j < valuesPerByte; j++) {
+                        b |= (values[i + j] & mask) << (j * bitsLength);
+                    }
+                    os.write(b);
+                    i += valuesPerByte;
+                }
+            }
+        }
+        while (i < end) {
+            write(values[i++], bitsLength);
+        }
+    }
+
     public byte[] toByteArray() {
         if (bufferCapacity != Byte.SIZE) {
             os.write(buffer);
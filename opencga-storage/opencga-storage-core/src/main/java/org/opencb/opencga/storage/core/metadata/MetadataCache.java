@@ -1,6 +1,12 @@
 package org.opencb.opencga.storage.core.metadata;
 
-import java.util.concurrent.ConcurrentHashMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 /**
@@ -8,12 +14,37 @@ import java.util.function.BiFunction;
  */
 public class MetadataCache<ID, R> {
 
-    private final ConcurrentHashMap<String, R> cache;
+    private final Cache<Key<ID>, R> cache;
+    private final ConcurrentMap<Key<ID>, R> map;
     private final BiFunction<Integer, ID, R> function;
 
+    /**
+     * Unbounded cache. Values are never evicted unless explicitly invalidated.
+     *
+     * @param function Function to compute the value for a missing key
+     */
     public MetadataCache(BiFunction<Integer, ID, R> function) {
+        this(function, 0, 0);
+    }
+
+    /**
+     * Bounded cache.
+     *
+     * @param function          Function to compute the value for a missing key
+     * @param maxSize           Max number of entries. Least recently used entries are evicted first. Unbounded if <= 0
+     * @param expireAfterAccess Expire entries not accessed for this amount of milliseconds. Never expire if <= 0
+     */
+    public MetadataCache(BiFunction<Integer, ID, R> function, long maxSize, long expireAfterAccess) {
         this.function = function;
-        this.cache = new ConcurrentHashMap<>();
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (maxSize > 0) {
+            builder.maximumSize(maxSize);
+        }
+        if (expireAfterAccess > 0) {
+            builder.expireAfterAccess(expireAfterAccess, TimeUnit.MILLISECONDS);
+        }
+        this.cache = builder.build();
+        this.map = cache.asMap();
     }
 
     /**
@@ -24,16 +55,16 @@ public class MetadataCache<ID, R> {
      * @return        Value
      */
     public R get(int studyId, ID id) {
-        String key = getKey(studyId, id);
+        Key<ID> key = new Key<>(studyId, id);
 
         // Avoid unnecessary synchronize blocks.
-        // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
+        // Cache::getIfPresent does not have any synchronization block
+        R r = cache.getIfPresent(key);
         if (r != null) {
             return r;
         } else {
-            // Use this method to avoid executing the function twice
-            return cache.computeIfAbsent(key, k -> this.function.apply(studyId, id));
+            // Null values are not stored. Concurrent misses might compute the same value twice
+            return map.computeIfAbsent(key, k -> this.function.apply(studyId, id));
         }
     }
 
@@ -46,14 +77,14 @@ public class MetadataCache<ID, R> {
      * @return Value
      */
     public R get(int studyId, ID id, R invalidValue) {
-        String key = getKey(studyId, id);
+        Key<ID> key = new Key<>(studyId, id);
 
         // Avoid unnecessary synchronize blocks.
-        // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
+        // Cache::getIfPresent does not have any synchronization block
+        R r = cache.getIfPresent(key);
         if (r == null || r.equals(invalidValue)) {
-            // Use this method to avoid executing the function twice
-            return cache.compute(key, (k, v) -> {
+            // Only replace the value if it is still missing or invalid
+            return map.compute(key, (k, v) -> {
                 if (v == null || v.equals(invalidValue)) {
                     return this.function.apply(studyId, id);
                 } else {
@@ -66,15 +97,66 @@ public class MetadataCache<ID, R> {
     }
 
     public void put(int studyId, ID id, R value) {
-        cache.put(getKey(studyId, id), value);
+        cache.put(new Key<>(studyId, id), value);
+    }
+
+    /**
+     * Remove a value from the cache. Will be recomputed on the next access.
+     *
+     * @param studyId Study id
+     * @param id      Resource id
+     */
+    public void invalidate(int studyId, ID id) {
+        cache.invalidate(new Key<>(studyId, id));
     }
 
     public void clear() {
-        cache.clear();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return Hit, miss and eviction counters since the creation of this cache.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
     }
 
-    private String getKey(int studyId, ID id) {
-        return studyId + "_" + id;
+    private static final class Key<ID> {
+        private final int studyId;
+        private final ID id;
+        private final int hashCode;
+
+        private Key(int studyId, ID id) {
+            this.studyId = studyId;
+            this.id = id;
+            this.hashCode = 31 * studyId + Objects.hashCode(id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key<?> key = (Key<?>) o;
+            return studyId == key.studyId && Objects.equals(id, key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return studyId + "_" + id;
+        }
     }
 
 }
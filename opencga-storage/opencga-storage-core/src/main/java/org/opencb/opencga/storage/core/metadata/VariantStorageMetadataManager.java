@@ -17,6 +17,7 @@
 package org.opencb.opencga.storage.core.metadata;
 
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Iterators;
@@ -62,6 +63,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private static final int DEFAULT_LOCK_DURATION = 1000;
     private static final int DEFAULT_TIMEOUT = 10000;
     public static final String SECONDARY_INDEX_PREFIX = "__SECONDARY_INDEX_COHORT_";
+    private static final String DATA_VERSION_COUNTER = "dataVersion";
 
     protected static Logger logger = LoggerFactory.getLogger(VariantStorageMetadataManager.class);
 
@@ -86,66 +88,74 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private final MetadataCache<Integer, String> cohortNameCache;
 
     public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory) {
+        this(dbAdaptorFactory, new ObjectMap());
+    }
+
+    public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory, ObjectMap options) {
         this.projectDBAdaptor = dbAdaptorFactory.buildProjectMetadataDBAdaptor();
         this.studyDBAdaptor = dbAdaptorFactory.buildStudyMetadataDBAdaptor();
         this.fileDBAdaptor = dbAdaptorFactory.buildFileMetadataDBAdaptor();
         this.sampleDBAdaptor = dbAdaptorFactory.buildSampleMetadataDBAdaptor();
         this.cohortDBAdaptor = dbAdaptorFactory.buildCohortMetadataDBAdaptor();
         this.taskDBAdaptor = dbAdaptorFactory.buildTaskDBAdaptor();
-        sampleIdCache = new MetadataCache<>(sampleDBAdaptor::getSampleId);
+        int cacheMaxSize = options.getInt(VariantStorageOptions.METADATA_CACHE_MAX_SIZE.key(),
+                VariantStorageOptions.METADATA_CACHE_MAX_SIZE.defaultValue());
+        int cacheExpire = options.getInt(VariantStorageOptions.METADATA_CACHE_EXPIRE_AFTER_ACCESS.key(),
+                VariantStorageOptions.METADATA_CACHE_EXPIRE_AFTER_ACCESS.defaultValue());
+        sampleIdCache = new MetadataCache<>(sampleDBAdaptor::getSampleId, cacheMaxSize, cacheExpire);
         sampleNameCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getName();
-        });
+        }, cacheMaxSize, cacheExpire);
         sampleIdIndexedCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.isIndexed();
-        });
+        }, cacheMaxSize, cacheExpire);
         sampleIdsFromFileIdCache = new MetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getSamples();
-        });
+        }, cacheMaxSize, cacheExpire);
 
-        fileIdCache = new MetadataCache<>(fileDBAdaptor::getFileId);
+        fileIdCache = new MetadataCache<>(fileDBAdaptor::getFileId, cacheMaxSize, cacheExpire);
         fileNameCache = new MetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getName();
-        });
+        }, cacheMaxSize, cacheExpire);
         fileIdIndexedCache = new MetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.isIndexed();
-        });
+        }, cacheMaxSize, cacheExpire);
         fileIdsFromSampleIdCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = getSampleMetadata(studyId, sampleId);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getFiles();
-        });
+        }, cacheMaxSize, cacheExpire);
 
-        cohortIdCache = new MetadataCache<>(cohortDBAdaptor::getCohortId);
+        cohortIdCache = new MetadataCache<>(cohortDBAdaptor::getCohortId, cacheMaxSize, cacheExpire);
         cohortNameCache = new MetadataCache<>((studyId, cohortId) -> {
             CohortMetadata cohortMetadata = cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
             if (cohortMetadata == null) {
                 throw VariantQueryException.cohortNotFound(cohortId, studyId, getAvailableCohorts(studyId));
             }
             return cohortMetadata.getName();
-        });
+        }, cacheMaxSize, cacheExpire);
     }
 
     public long lockStudy(int studyId) throws StorageEngineException {
@@ -183,6 +193,26 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         T update(T t) throws E;
     }
 
+    /**
+     * Current version of the data. Increased on every change in the metadata that may modify the result of the variant queries,
+     * i.e. new indexed files, new annotation or new statistics.
+     * The version is stored in the database, so changes made by other processes are also observed.
+     *
+     * @return Data version
+     * @throws StorageEngineException if the version can not be read
+     */
+    public int getDataVersion() throws StorageEngineException {
+        return projectDBAdaptor.getCounter(null, DATA_VERSION_COUNTER);
+    }
+
+    protected void increaseDataVersion() {
+        try {
+            projectDBAdaptor.generateId((Integer) null, DATA_VERSION_COUNTER);
+        } catch (StorageEngineException e) {
+            throw new IllegalStateException("Unable to increase the data version", e);
+        }
+    }
+
     public <E extends Exception> StudyMetadata updateStudyMetadata(Object study, UpdateFunction<StudyMetadata, E> updater)
             throws StorageEngineException, E {
         int studyId = getStudyId(study);
@@ -471,6 +501,8 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             boolean updateCounters = countersHash != newCountersHash;
 
             projectDBAdaptor.updateProjectMetadata(projectMetadata, updateCounters);
+            // Project metadata contains the annotation
+            increaseDataVersion();
             return projectMetadata;
         } finally {
             projectDBAdaptor.unLockProject(lock);
@@ -557,6 +589,14 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateFileMetadata(int studyId, FileMetadata file) {
         file.setStudyId(studyId);
         fileDBAdaptor.updateFileMetadata(studyId, file, null);
+        invalidateFileCaches(studyId, file);
+    }
+
+    private void invalidateFileCaches(int studyId, FileMetadata file) {
+        fileIdCache.invalidate(studyId, file.getName());
+        fileNameCache.invalidate(studyId, file.getId());
+        fileIdIndexedCache.invalidate(studyId, file.getId());
+        sampleIdsFromFileIdCache.invalidate(studyId, file.getId());
     }
 
     public <E extends Exception> FileMetadata updateFileMetadata(int studyId, int fileId, UpdateFunction<FileMetadata, E> update)
@@ -675,6 +715,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             logger.info("Register file " + name + " as INDEXED");
         }
         fileDBAdaptor.addIndexedFiles(studyId, fileIds);
+        increaseDataVersion();
     }
 
     public void removeIndexedFiles(int studyId, Collection<Integer> fileIds) throws StorageEngineException {
@@ -703,6 +744,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             });
         }
         fileDBAdaptor.removeIndexedFiles(studyId, fileIds);
+        increaseDataVersion();
     }
 
     public Iterator<FileMetadata> fileMetadataIterator(int studyId) {
@@ -716,6 +758,14 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample) {
         sample.setStudyId(studyId);
         sampleDBAdaptor.updateSampleMetadata(studyId, sample, null);
+        invalidateSampleCaches(studyId, sample);
+    }
+
+    private void invalidateSampleCaches(int studyId, SampleMetadata sample) {
+        sampleIdCache.invalidate(studyId, sample.getName());
+        sampleNameCache.invalidate(studyId, sample.getId());
+        sampleIdIndexedCache.invalidate(studyId, sample.getId());
+        fileIdsFromSampleIdCache.invalidate(studyId, sample.getId());
     }
 
     public <E extends Exception> SampleMetadata updateSampleMetadata(int studyId, int sampleId, UpdateFunction<SampleMetadata, E> update)
@@ -852,6 +902,10 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateCohortMetadata(int studyId, CohortMetadata cohort) {
         cohort.setStudyId(studyId);
         cohortDBAdaptor.updateCohortMetadata(studyId, cohort, null);
+        cohortIdCache.invalidate(studyId, cohort.getName());
+        cohortNameCache.invalidate(studyId, cohort.getId());
+        // Cohorts contain the status of the variant stats
+        increaseDataVersion();
     }
 
     public <E extends Exception> CohortMetadata updateCohortMetadata(int studyId, int cohortId, UpdateFunction<CohortMetadata, E> update)
@@ -873,7 +927,11 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         if (cohortId == null) {
             throw VariantQueryException.cohortNotFound(cohort.toString(), studyId, this);
         }
+        String cohortName = getCohortName(studyId, cohortId);
         cohortDBAdaptor.removeCohort(studyId, cohortId);
+        cohortIdCache.invalidate(studyId, cohortName);
+        cohortNameCache.invalidate(studyId, cohortId);
+        increaseDataVersion();
     }
 
     public Integer getCohortId(int studyId, String cohortName) {
@@ -1625,8 +1683,38 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Get hit, miss and eviction counters from all the metadata caches.
+     *
+     * @return ObjectMap with one entry per cache
+     */
+    public ObjectMap getCacheStats() {
+        ObjectMap stats = new ObjectMap();
+        addCacheStats(stats, "sampleId", sampleIdCache);
+        addCacheStats(stats, "sampleName", sampleNameCache);
+        addCacheStats(stats, "sampleIdIndexed", sampleIdIndexedCache);
+        addCacheStats(stats, "sampleIdsFromFileId", sampleIdsFromFileIdCache);
+        addCacheStats(stats, "fileId", fileIdCache);
+        addCacheStats(stats, "fileName", fileNameCache);
+        addCacheStats(stats, "fileIdIndexed", fileIdIndexedCache);
+        addCacheStats(stats, "fileIdsFromSampleId", fileIdsFromSampleIdCache);
+        addCacheStats(stats, "cohortId", cohortIdCache);
+        addCacheStats(stats, "cohortName", cohortNameCache);
+        return stats;
+    }
+
+    private void addCacheStats(ObjectMap stats, String name, MetadataCache<?, ?> cache) {
+        CacheStats cacheStats = cache.getStats();
+        stats.put(name, new ObjectMap()
+                .append("size", cache.size())
+                .append("hitCount", cacheStats.hitCount())
+                .append("missCount", cacheStats.missCount())
+                .append("evictionCount", cacheStats.evictionCount()));
+    }
+
     @Override
     public void close() throws IOException {
+        logger.debug("Metadata cache stats : {}", getCacheStats());
         studyDBAdaptor.close();
     }
 }
@@ -34,4 +34,14 @@ public interface ProjectMetadataAdaptor extends AutoCloseable {
     }
 
     int generateId(Integer studyId, String idType) throws StorageEngineException;
+
+    /**
+     * Read the current value of a counter, without modifying it.
+     *
+     * @param studyId   Study of the counter, if any
+     * @param idType    Counter type, as in {@link #generateId(Integer, String)}
+     * @return          Last value generated by the counter, or 0 if never used
+     * @throws StorageEngineException if the counter can not be read
+     */
+    int getCounter(Integer studyId, String idType) throws StorageEngineException;
 }
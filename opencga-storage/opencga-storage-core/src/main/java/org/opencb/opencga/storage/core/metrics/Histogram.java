@@ -0,0 +1,98 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non negative long values, with fixed memory usage.
+ *
+ * Values are stored in log-linear buckets: values lower than {@link #LINEAR_LIMIT} have their own bucket, and every power of two
+ * above is split in {@link #SUB_BUCKETS} buckets. Quantiles are estimated with a relative error lower than 1 / {@link #SUB_BUCKETS}.
+ */
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int LINEAR_BITS = Long.SIZE - Long.numberOfLeadingZeros(LINEAR_LIMIT - 1);
+    private static final int NUM_BUCKETS = LINEAR_LIMIT + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : ((double) getSum()) / count;
+    }
+
+    /**
+     * Estimate the value at the given quantile.
+     *
+     * @param quantile Quantile, between 0 and 1
+     * @return Estimated value, or 0 if empty
+     */
+    public double getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Invalid quantile " + quantile);
+        }
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long accumulated = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            accumulated += buckets.get(i);
+            if (accumulated >= rank) {
+                return Math.min(bucketMidpoint(i), getMax());
+            }
+        }
+        // Concurrent modification. Values recorded while iterating
+        return getMax();
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static double bucketMidpoint(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        double width = Math.pow(2, exponent - SUB_BUCKET_BITS);
+        double lower = (SUB_BUCKETS + subBucket) * width;
+        return lower + (width - 1) / 2;
+    }
+}
@@ -0,0 +1,250 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of counters, gauges and histograms.
+ *
+ * Metrics are identified by name and labels. Getting a metric that already exists returns the same instance.
+ * The content of the registry can be exported as a JSON friendly snapshot, or with the Prometheus text exposition format.
+ */
+public class MetricsRegistry {
+
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, StageMetrics> stages = new ConcurrentHashMap<>();
+
+    public enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    /**
+     * @return Registry shared by all the storage engines in the JVM
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the metrics of a pipeline stage, like "transform" or "load".
+     *
+     * @param stage Stage name
+     * @return Metrics of the stage
+     */
+    public StageMetrics stage(String stage) {
+        return stages.computeIfAbsent(stage, s -> new StageMetrics(this, s));
+    }
+
+    /**
+     * Get or create a counter.
+     *
+     * @param name      Metric name
+     * @param help      Metric description
+     * @param labels    Label names and values. e.g. "stage", "load"
+     * @return Counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).metrics.computeIfAbsent(labels(labels), k -> new Counter());
+    }
+
+    /**
+     * Get or create a histogram. Exported as a summary, with the quantiles {@link #QUANTILES}.
+     *
+     * @param name      Metric name
+     * @param help      Metric description
+     * @param scale     Factor to apply to the recorded values when exporting. e.g. 1e-9 to export nanoseconds as seconds
+     * @param labels    Label names and values. e.g. "stage", "load"
+     * @return Histogram
+     */
+    public Histogram histogram(String name, String help, double scale, String... labels) {
+        Family family = family(name, help, Type.SUMMARY);
+        family.scale = scale;
+        return (Histogram) family.metrics.computeIfAbsent(labels(labels), k -> new Histogram());
+    }
+
+    /**
+     * Register a gauge. If a gauge already exists with the same name and labels, it is replaced.
+     *
+     * @param name      Metric name
+     * @param help      Metric description
+     * @param gauge     Supplier of the current value
+     * @param labels    Label names and values. e.g. "stage", "load"
+     */
+    public void gauge(String name, String help, Supplier<? extends Number> gauge, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labels(labels), gauge);
+    }
+
+    /**
+     * JSON friendly snapshot of all the metrics.
+     *
+     * @return Map from metric name to the list of values for each combination of labels
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (Family family : families.values()) {
+            List<Map<String, Object>> values = new ArrayList<>(family.metrics.size());
+            for (Map.Entry<Labels, Object> entry : family.metrics.entrySet()) {
+                Map<String, Object> value = new LinkedHashMap<>();
+                value.put("labels", entry.getKey().asMap());
+                value.putAll(family.snapshot(entry.getValue()));
+                values.add(value);
+            }
+            snapshot.put(family.name, values);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Export all the metrics using the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return Metrics as text
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : families.values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+            for (Map.Entry<Labels, Object> entry : family.metrics.entrySet()) {
+                Labels labels = entry.getKey();
+                if (family.type == Type.SUMMARY) {
+                    Histogram histogram = (Histogram) entry.getValue();
+                    for (double quantile : QUANTILES) {
+                        sample(sb, family.name, labels.toPrometheus("quantile", String.valueOf(quantile)),
+                                histogram.getQuantile(quantile) * family.scale);
+                    }
+                    sample(sb, family.name + "_sum", labels.toPrometheus(), histogram.getSum() * family.scale);
+                    sample(sb, family.name + "_count", labels.toPrometheus(), histogram.getCount());
+                } else {
+                    sample(sb, family.name, labels.toPrometheus(), family.value(entry.getValue()));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+        }
+        return family;
+    }
+
+    private static Labels labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected pairs of label names and values. Got " + Arrays.toString(labels));
+        }
+        return new Labels(labels);
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private volatile double scale = 1;
+        private final ConcurrentMap<Labels, Object> metrics = new ConcurrentSkipListMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        private double value(Object metric) {
+            switch (type) {
+                case COUNTER:
+                    return ((Counter) metric).get();
+                case GAUGE:
+                    Number number = ((Supplier<? extends Number>) metric).get();
+                    return number == null ? Double.NaN : number.doubleValue();
+                default:
+                    throw new IllegalStateException("Unexpected metric type " + type);
+            }
+        }
+
+        private Map<String, Object> snapshot(Object metric) {
+            if (type == Type.SUMMARY) {
+                Histogram histogram = (Histogram) metric;
+                Map<String, Object> snapshot = new LinkedHashMap<>();
+                snapshot.put("count", histogram.getCount());
+                snapshot.put("sum", histogram.getSum() * scale);
+                snapshot.put("mean", histogram.getMean() * scale);
+                snapshot.put("max", histogram.getMax() * scale);
+                for (double quantile : QUANTILES) {
+                    snapshot.put("p" + Math.round(quantile * 100), histogram.getQuantile(quantile) * scale);
+                }
+                return snapshot;
+            } else {
+                double value = value(metric);
+                return Collections.singletonMap("value", Double.isNaN(value) ? null : value);
+            }
+        }
+    }
+
+    private static final class Labels implements Comparable<Labels> {
+        private final String[] labels;
+        private final String key;
+
+        private Labels(String[] labels) {
+            this.labels = labels;
+            this.key = String.join("\u0000", labels);
+        }
+
+        private Map<String, String> asMap() {
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < labels.length; i += 2) {
+                map.put(labels[i], labels[i + 1]);
+            }
+            return map;
+        }
+
+        private String toPrometheus(String... extra) {
+            if (labels.length == 0 && extra.length == 0) {
+                return "";
+            }
+            StringJoiner joiner = new StringJoiner(",", "{", "}");
+            for (String[] array : Arrays.asList(labels, extra)) {
+                for (int i = 0; i < array.length; i += 2) {
+                    joiner.add(array[i] + "=\"" + array[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"');
+                }
+            }
+            return joiner.toString();
+        }
+
+        @Override
+        public int compareTo(Labels o) {
+            return key.compareTo(o.key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Labels && key.equals(((Labels) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+}
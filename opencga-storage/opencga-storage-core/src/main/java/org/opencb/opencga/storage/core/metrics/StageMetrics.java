@@ -0,0 +1,292 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.Task;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of a pipeline stage executed with a ParallelTaskRunner, like "transform", "load" or "annotate".
+ *
+ * The metrics of a stage obtained from the {@link MetricsRegistry} are shared by all the executions of the stage, and never reset.
+ * Each execution of the stage uses its own metrics from {@link #newRun()}, which are also added to the metrics of the stage.
+ * Wrap the reader, the tasks and the writer of the runner with the instrument methods, in this order. One execution may
+ * instrument more than one runner, e.g. one per partition.
+ */
+public class StageMetrics {
+
+    public static final String PREFIX = "opencga_storage_";
+    public static final String STAGE_LABEL = "stage";
+
+    public static final String TRANSFORM = "transform";
+    public static final String LOAD = "load";
+    public static final String MERGE = "merge";
+    public static final String ANNOTATE = "annotate";
+    public static final String ANNOTATION_LOAD = "annotation_load";
+    public static final String STATS = "stats";
+    public static final String STATS_LOAD = "stats_load";
+    public static final String SECONDARY_INDEX = "secondary_index";
+
+    private final String stage;
+    // Metrics of the stage, for the metrics of one execution. Null for the metrics of the stage.
+    private final StageMetrics parent;
+    private final Counter records;
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+    private final Histogram batchLatency;
+
+    private final AtomicLong readQueueDepth = new AtomicLong();
+    private final AtomicLong writeQueueDepth = new AtomicLong();
+    private volatile boolean hasWriter;
+    private final AtomicLong firstBatchNanos = new AtomicLong();
+    private final AtomicLong lastBatchNanos = new AtomicLong();
+    private volatile StageMetrics lastRun;
+
+    StageMetrics(MetricsRegistry registry, String stage) {
+        this.stage = stage;
+        this.parent = null;
+        String[] labels = {STAGE_LABEL, stage};
+        records = registry.counter(PREFIX + "records_total", "Records processed", labels);
+        bytesRead = registry.counter(PREFIX + "bytes_read_total", "Bytes read from the input", labels);
+        bytesWritten = registry.counter(PREFIX + "bytes_written_total", "Bytes written to the output", labels);
+        batchLatency = registry.histogram(PREFIX + "batch_latency_seconds", "Time processing one batch", 1e-9, labels);
+        registry.gauge(PREFIX + "records_per_second", "Records processed per second in the last execution of the stage",
+                this::getRecordsPerSecond, labels);
+        registry.gauge(PREFIX + "read_queue_depth", "Batches read and waiting to be processed",
+                this::getReadQueueDepth, labels);
+        registry.gauge(PREFIX + "write_queue_depth", "Batches processed and waiting to be written",
+                this::getWriteQueueDepth, labels);
+    }
+
+    private StageMetrics(StageMetrics parent) {
+        this.stage = parent.stage;
+        this.parent = parent;
+        records = new Counter();
+        bytesRead = new Counter();
+        bytesWritten = new Counter();
+        batchLatency = new Histogram();
+    }
+
+    /**
+     * Start a new execution of the stage.
+     *
+     * @return Metrics of the execution. Also added to the metrics of the stage.
+     */
+    public StageMetrics newRun() {
+        StageMetrics stageMetrics = parent == null ? this : parent;
+        StageMetrics run = new StageMetrics(stageMetrics);
+        stageMetrics.lastRun = run;
+        return run;
+    }
+
+    public <T> DataReader<T> instrument(DataReader<T> reader) {
+        return new DataReader<T>() {
+            @Override
+            public boolean open() {
+                return reader.open();
+            }
+
+            @Override
+            public boolean close() {
+                return reader.close();
+            }
+
+            @Override
+            public boolean pre() {
+                return reader.pre();
+            }
+
+            @Override
+            public boolean post() {
+                return reader.post();
+            }
+
+            @Override
+            public List<T> read(int batchSize) {
+                List<T> batch = reader.read(batchSize);
+                if (batch != null && !batch.isEmpty()) {
+                    batchRead();
+                }
+                return batch;
+            }
+        };
+    }
+
+    public <T, R> Supplier<Task<T, R>> instrument(Supplier<? extends Task<T, R>> supplier) {
+        return () -> instrument(supplier.get());
+    }
+
+    public <T, R> Task<T, R> instrument(Task<T, R> task) {
+        return new Task<T, R>() {
+            @Override
+            public void pre() throws Exception {
+                task.pre();
+            }
+
+            @Override
+            public List<R> apply(List<T> batch) throws Exception {
+                batchStarted();
+                long start = System.nanoTime();
+                firstBatchNanos.compareAndSet(0, start);
+                try {
+                    return task.apply(batch);
+                } finally {
+                    long end = System.nanoTime();
+                    lastBatchNanos.accumulateAndGet(end, Math::max);
+                    batchFinished(end - start, batch.size(), hasWriter);
+                }
+            }
+
+            @Override
+            public List<R> drain() throws Exception {
+                return task.drain();
+            }
+
+            @Override
+            public void post() throws Exception {
+                task.post();
+            }
+        };
+    }
+
+    public <T> DataWriter<T> instrument(DataWriter<T> writer) {
+        if (writer == null) {
+            return null;
+        }
+        hasWriter = true;
+        return new DataWriter<T>() {
+            @Override
+            public boolean open() {
+                return writer.open();
+            }
+
+            @Override
+            public boolean close() {
+                return writer.close();
+            }
+
+            @Override
+            public boolean pre() {
+                return writer.pre();
+            }
+
+            @Override
+            public boolean post() {
+                return writer.post();
+            }
+
+            @Override
+            public boolean write(List<T> batch) {
+                try {
+                    return writer.write(batch);
+                } finally {
+                    batchWritten();
+                }
+            }
+        };
+    }
+
+    private void batchRead() {
+        readQueueDepth.incrementAndGet();
+        if (parent != null) {
+            parent.batchRead();
+        }
+    }
+
+    private void batchStarted() {
+        readQueueDepth.decrementAndGet();
+        if (parent != null) {
+            parent.batchStarted();
+        }
+    }
+
+    private void batchFinished(long latencyNanos, int batchSize, boolean pendingWrite) {
+        batchLatency.record(latencyNanos);
+        records.inc(batchSize);
+        if (pendingWrite) {
+            writeQueueDepth.incrementAndGet();
+        }
+        if (parent != null) {
+            parent.batchFinished(latencyNanos, batchSize, pendingWrite);
+        }
+    }
+
+    private void batchWritten() {
+        writeQueueDepth.decrementAndGet();
+        if (parent != null) {
+            parent.batchWritten();
+        }
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.inc(bytes);
+        if (parent != null) {
+            parent.addBytesRead(bytes);
+        }
+    }
+
+    public void addBytesWritten(long bytes) {
+        bytesWritten.inc(bytes);
+        if (parent != null) {
+            parent.addBytesWritten(bytes);
+        }
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    public double getRecordsPerSecond() {
+        StageMetrics run = lastRun;
+        if (run != null) {
+            return run.getRecordsPerSecond();
+        }
+        long first = firstBatchNanos.get();
+        long last = lastBatchNanos.get();
+        if (first == 0 || last <= first) {
+            return 0;
+        }
+        return records.get() / ((last - first) / 1e9);
+    }
+
+    public long getReadQueueDepth() {
+        return Math.max(0, readQueueDepth.get());
+    }
+
+    public long getWriteQueueDepth() {
+        return Math.max(0, writeQueueDepth.get());
+    }
+
+    public Histogram getBatchLatency() {
+        return batchLatency;
+    }
+
+    /**
+     * Summary of the metrics, to be included in the pipeline results.
+     *
+     * @return Snapshot of the metrics of this execution, or of all the executions of the stage
+     */
+    public ObjectMap snapshot() {
+        return new ObjectMap()
+                .append("records", records.get())
+                .append("recordsPerSecond", getRecordsPerSecond())
+                .append("batches", batchLatency.getCount())
+                .append("batchLatencyMeanMs", batchLatency.getMean() / 1e6)
+                .append("batchLatencyP50Ms", batchLatency.getQuantile(0.5) / 1e6)
+                .append("batchLatencyP90Ms", batchLatency.getQuantile(0.9) / 1e6)
+                .append("batchLatencyP99Ms", batchLatency.getQuantile(0.99) / 1e6)
+                .append("batchLatencyMaxMs", batchLatency.getMax() / 1e6)
+                .append("readQueueDepth", getReadQueueDepth())
+                .append("writeQueueDepth", getWriteQueueDepth())
+                .append("bytesRead", bytesRead.get())
+                .append("bytesWritten", bytesWritten.get());
+    }
+}
@@ -0,0 +1,184 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ParallelTaskRunner that tunes the number of active tasks and the batch size at runtime, within the configured bounds.
+ *
+ * The runner starts {@link Bounds#getMaxTasks()} threads, but only some of them are allowed to process a batch at the same time.
+ * The reader reads batches of the current batch size, regardless of the batch size of the runner configuration.
+ * A monitor thread samples the batches waiting to be processed, the batches waiting to be written and the task throughput:
+ * <ul>
+ *     <li>Batches waiting to be written: The writer is the bottleneck. Remove one task and increase the batch size.</li>
+ *     <li>Batches waiting to be processed: The tasks are the bottleneck. Add one task while the throughput improves.</li>
+ *     <li>No batches waiting to be processed: The reader is the bottleneck. Remove one task.</li>
+ * </ul>
+ * Otherwise, the batch size is adjusted so every batch takes between 100ms and 2s to be processed.
+ *
+ * Use {@link #newInstance} to create an adaptive runner only if {@link VariantStorageOptions#ADAPTIVE_RUNNER} is enabled.
+ */
+public class AdaptiveParallelTaskRunner<I, O> extends ParallelTaskRunner<I, O> {
+
+    private final AdaptiveParallelTaskRunnerMonitor monitor;
+
+    // Within this class, the simple name "Task" refers to the deprecated ParallelTaskRunner.Task
+    public AdaptiveParallelTaskRunner(DataReader<I> reader, Supplier<? extends org.opencb.commons.run.Task<I, O>> task,
+                                      DataWriter<O> writer, Config config, Bounds bounds) {
+        this(new AdaptiveParallelTaskRunnerMonitor(config, bounds), reader, task, writer, config);
+    }
+
+    private AdaptiveParallelTaskRunner(AdaptiveParallelTaskRunnerMonitor monitor, DataReader<I> reader,
+                                       Supplier<? extends org.opencb.commons.run.Task<I, O>> task, DataWriter<O> writer,
+                                       Config config) {
+        super(monitor.wrap(reader), monitor.wrap(task), monitor.wrap(writer), monitor.getRunnerConfig(config));
+        this.monitor = monitor;
+    }
+
+    /**
+     * Create a new ParallelTaskRunner. If {@link VariantStorageOptions#ADAPTIVE_RUNNER} is enabled, the number of tasks and the
+     * batch size from the config are used as initial values for an {@link AdaptiveParallelTaskRunner}.
+     *
+     * @param reader    Data reader
+     * @param task      Task, shared by all the threads
+     * @param writer    Data writer. Might be null
+     * @param config    ParallelTaskRunner config
+     * @param options   Options with the adaptive runner configuration
+     * @param <I>       Input type
+     * @param <O>       Output type
+     * @return  A new ParallelTaskRunner
+     */
+    public static <I, O> ParallelTaskRunner<I, O> newInstance(DataReader<I> reader, org.opencb.commons.run.Task<I, O> task,
+                                                              DataWriter<O> writer, Config config, ObjectMap options) {
+        if (isAdaptive(options)) {
+            return new AdaptiveParallelTaskRunner<>(reader, () -> task, writer, config, Bounds.from(config, options));
+        } else {
+            return new ParallelTaskRunner<>(reader, task, writer, config);
+        }
+    }
+
+    /**
+     * Create a new ParallelTaskRunner. If {@link VariantStorageOptions#ADAPTIVE_RUNNER} is enabled, the number of tasks and the
+     * batch size from the config are used as initial values for an {@link AdaptiveParallelTaskRunner}.
+     *
+     * @param reader    Data reader
+     * @param task      Task supplier. Called once per thread
+     * @param writer    Data writer. Might be null
+     * @param config    ParallelTaskRunner config
+     * @param options   Options with the adaptive runner configuration
+     * @param <I>       Input type
+     * @param <O>       Output type
+     * @return  A new ParallelTaskRunner
+     */
+    public static <I, O> ParallelTaskRunner<I, O> newInstance(DataReader<I> reader,
+                                                              Supplier<? extends org.opencb.commons.run.Task<I, O>> task,
+                                                              DataWriter<O> writer, Config config, ObjectMap options) {
+        if (isAdaptive(options)) {
+            return new AdaptiveParallelTaskRunner<>(reader, task, writer, config, Bounds.from(config, options));
+        } else {
+            return new ParallelTaskRunner<>(reader, task, writer, config);
+        }
+    }
+
+    public static boolean isAdaptive(ObjectMap options) {
+        return options != null && options.getBoolean(VariantStorageOptions.ADAPTIVE_RUNNER.key(),
+                VariantStorageOptions.ADAPTIVE_RUNNER.defaultValue());
+    }
+
+    // ParallelTaskRunner.run() delegates to this method
+    @Override
+    public void run(long timeout, TimeUnit unit) throws ExecutionException, InterruptedException {
+        ScheduledFuture<?> future = monitor.start();
+        try {
+            super.run(timeout, unit);
+        } finally {
+            future.cancel(false);
+            monitor.logSummary();
+        }
+    }
+
+    public int getNumTasks() {
+        return monitor.getNumTasks();
+    }
+
+    public int getBatchSize() {
+        return monitor.getBatchSize();
+    }
+
+    /**
+     * Bounds of the adaptive runner.
+     */
+    public static class Bounds {
+        private final int minTasks;
+        private final int maxTasks;
+        private final int minBatchSize;
+        private final int maxBatchSize;
+        private final long intervalMillis;
+
+        public Bounds(int minTasks, int maxTasks, int minBatchSize, int maxBatchSize, long intervalMillis) {
+            if (minTasks <= 0 || maxTasks < minTasks) {
+                throw new IllegalArgumentException("Invalid tasks bounds [" + minTasks + ", " + maxTasks + "]");
+            }
+            if (minBatchSize <= 0 || maxBatchSize < minBatchSize) {
+                throw new IllegalArgumentException("Invalid batch size bounds [" + minBatchSize + ", " + maxBatchSize + "]");
+            }
+            if (intervalMillis < AdaptiveParallelTaskRunnerMonitor.SAMPLES_PER_INTERVAL) {
+                throw new IllegalArgumentException("Invalid interval " + intervalMillis + "ms");
+            }
+            this.minTasks = minTasks;
+            this.maxTasks = maxTasks;
+            this.minBatchSize = minBatchSize;
+            this.maxBatchSize = maxBatchSize;
+            this.intervalMillis = intervalMillis;
+        }
+
+        public static Bounds from(Config config, ObjectMap options) {
+            int minTasks = options.getInt(VariantStorageOptions.ADAPTIVE_RUNNER_MIN_THREADS.key(),
+                    VariantStorageOptions.ADAPTIVE_RUNNER_MIN_THREADS.defaultValue());
+            int maxTasks = options.getInt(VariantStorageOptions.ADAPTIVE_RUNNER_MAX_THREADS.key(),
+                    VariantStorageOptions.ADAPTIVE_RUNNER_MAX_THREADS.defaultValue());
+            if (maxTasks <= 0) {
+                maxTasks = Runtime.getRuntime().availableProcessors();
+            }
+            maxTasks = Math.max(maxTasks, minTasks);
+            int factor = Math.max(1, options.getInt(VariantStorageOptions.ADAPTIVE_RUNNER_BATCH_SIZE_FACTOR.key(),
+                    VariantStorageOptions.ADAPTIVE_RUNNER_BATCH_SIZE_FACTOR.defaultValue()));
+            int interval = options.getInt(VariantStorageOptions.ADAPTIVE_RUNNER_INTERVAL.key(),
+                    VariantStorageOptions.ADAPTIVE_RUNNER_INTERVAL.defaultValue());
+            return new Bounds(minTasks, maxTasks, Math.max(config.getBatchSize() / factor, 1), config.getBatchSize() * factor, interval);
+        }
+
+        public int getMinTasks() {
+            return minTasks;
+        }
+
+        public int getMaxTasks() {
+            return maxTasks;
+        }
+
+        public int getMinBatchSize() {
+            return minBatchSize;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "tasks [" + minTasks + ", " + maxTasks + "], batchSize [" + minBatchSize + ", " + maxBatchSize + "]";
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collects the metrics of an {@link AdaptiveParallelTaskRunner} and adjusts the number of active tasks and the batch size.
+ */
+class AdaptiveParallelTaskRunnerMonitor {
+
+    static final long MIN_BATCH_TIME_MS = 100;
+    static final long MAX_BATCH_TIME_MS = 2000;
+    static final int SAMPLES_PER_INTERVAL = 10;
+    // Minimum relative throughput improvement required to keep adding tasks
+    private static final double MIN_IMPROVEMENT = 1.05;
+
+    private static final ScheduledExecutorService MONITOR_POOL = Executors.newScheduledThreadPool(1,
+            new BasicThreadFactory.Builder()
+                    .namingPattern("adaptive-runner-monitor-%d")
+                    .daemon(true)
+                    .build());
+    private static Logger logger = LoggerFactory.getLogger(AdaptiveParallelTaskRunner.class);
+
+    private final AdaptiveParallelTaskRunner.Bounds bounds;
+    private final int capacity;
+    private final ResizableSemaphore permits;
+    private boolean hasWriter;
+    private volatile int numTasks;
+    private volatile int batchSize;
+
+    private final AtomicLong readBatches = new AtomicLong();
+    private final AtomicLong startedBatches = new AtomicLong();
+    private final AtomicLong finishedBatches = new AtomicLong();
+    private final AtomicLong writtenBatches = new AtomicLong();
+    private final AtomicLong processedElements = new AtomicLong();
+    private final AtomicLong taskTimeNanos = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    // Only accessed from the monitor thread
+    private int samples;
+    private double pendingSum;
+    private double writePendingSum;
+    private long lastElements;
+    private long lastFinishedBatches;
+    private long lastTaskTimeNanos;
+    private long lastTimeNanos;
+    private double lastThroughput;
+    private Action lastAction = Action.NONE;
+    private int taskLimit;
+
+    private enum Action {
+        NONE, ADD_TASK, REMOVE_TASK
+    }
+
+    AdaptiveParallelTaskRunnerMonitor(ParallelTaskRunner.Config config, AdaptiveParallelTaskRunner.Bounds bounds) {
+        this.bounds = bounds;
+        this.capacity = config.getCapacity();
+        this.numTasks = Math.min(Math.max(config.getNumTasks(), bounds.getMinTasks()), bounds.getMaxTasks());
+        this.batchSize = Math.min(Math.max(config.getBatchSize(), bounds.getMinBatchSize()), bounds.getMaxBatchSize());
+        this.permits = new ResizableSemaphore(numTasks);
+        this.taskLimit = bounds.getMaxTasks();
+        logger.info("Adaptive ParallelTaskRunner with {}. Start with {} tasks and batchSize {}", bounds, numTasks, batchSize);
+    }
+
+    /**
+     * Runner config with one thread per possible task. The batch size is decided by the reader.
+     *
+     * @param config Original config
+     * @return Config for the underlying ParallelTaskRunner
+     */
+    ParallelTaskRunner.Config getRunnerConfig(ParallelTaskRunner.Config config) {
+        return new ParallelTaskRunner.Config(bounds.getMaxTasks(), bounds.getMaxBatchSize(), config.getCapacity(),
+                config.isAbortOnFail(), config.isSorted(), config.getReadQueuePutTimeout());
+    }
+
+    <T> DataReader<T> wrap(DataReader<T> reader) {
+        return new DataReader<T>() {
+            @Override
+            public boolean open() {
+                return reader.open();
+            }
+
+            @Override
+            public boolean close() {
+                return reader.close();
+            }
+
+            @Override
+            public boolean pre() {
+                return reader.pre();
+            }
+
+            @Override
+            public boolean post() {
+                return reader.post();
+            }
+
+            @Override
+            public List<T> read(int ignored) {
+                List<T> batch = reader.read(batchSize);
+                if (batch != null && !batch.isEmpty()) {
+                    readBatches.incrementAndGet();
+                }
+                return batch;
+            }
+        };
+    }
+
+    <T, R> Supplier<Task<T, R>> wrap(Supplier<? extends Task<T, R>> supplier) {
+        // Shared tasks are wrapped only once
+        Map<Task<T, R>, Task<T, R>> wrappers = Collections.synchronizedMap(new IdentityHashMap<>());
+        return () -> wrappers.computeIfAbsent(supplier.get(), this::wrap);
+    }
+
+    <T, R> Task<T, R> wrap(Task<T, R> task) {
+        return new Task<T, R>() {
+            @Override
+            public void pre() throws Exception {
+                task.pre();
+            }
+
+            @Override
+            public List<R> apply(List<T> batch) throws Exception {
+                permits.acquire();
+                try {
+                    startedBatches.incrementAndGet();
+                    long start = System.nanoTime();
+                    List<R> result = task.apply(batch);
+                    taskTimeNanos.addAndGet(System.nanoTime() - start);
+                    processedElements.addAndGet(batch.size());
+                    return result;
+                } finally {
+                    finishedBatches.incrementAndGet();
+                    permits.release();
+                }
+            }
+
+            @Override
+            public List<R> drain() throws Exception {
+                return task.drain();
+            }
+
+            @Override
+            public void post() throws Exception {
+                task.post();
+            }
+        };
+    }
+
+    <T> DataWriter<T> wrap(DataWriter<T> writer) {
+        if (writer == null) {
+            return null;
+        }
+        hasWriter = true;
+        return new DataWriter<T>() {
+            @Override
+            public boolean open() {
+                return writer.open();
+            }
+
+            @Override
+            public boolean close() {
+                return writer.close();
+            }
+
+            @Override
+            public boolean pre() {
+                return writer.pre();
+            }
+
+            @Override
+            public boolean post() {
+                return writer.post();
+            }
+
+            @Override
+            public boolean write(List<T> batch) {
+                boolean write = writer.write(batch);
+                writtenBatches.incrementAndGet();
+                return write;
+            }
+        };
+    }
+
+    ScheduledFuture<?> start() {
+        lastTimeNanos = System.nanoTime();
+        long period = bounds.getIntervalMillis() / SAMPLES_PER_INTERVAL;
+        return MONITOR_POOL.scheduleAtFixedRate(() -> {
+            try {
+                sample();
+            } catch (RuntimeException e) {
+                logger.warn("Error at adaptive ParallelTaskRunner monitor", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        pendingSum += readBatches.get() - startedBatches.get();
+        if (hasWriter) {
+            writePendingSum += finishedBatches.get() - writtenBatches.get();
+        }
+        if (++samples == SAMPLES_PER_INTERVAL) {
+            long now = System.nanoTime();
+            long elements = processedElements.get();
+            long finished = finishedBatches.get();
+            long taskTime = taskTimeNanos.get();
+            double throughput = (elements - lastElements) / ((now - lastTimeNanos) / 1e9);
+            double batchTimeMs = finished == lastFinishedBatches
+                    ? -1
+                    : (taskTime - lastTaskTimeNanos) / 1e6 / (finished - lastFinishedBatches);
+            adjust(pendingSum / SAMPLES_PER_INTERVAL, writePendingSum / SAMPLES_PER_INTERVAL, throughput, batchTimeMs);
+
+            samples = 0;
+            pendingSum = 0;
+            writePendingSum = 0;
+            lastElements = elements;
+            lastFinishedBatches = finished;
+            lastTaskTimeNanos = taskTime;
+            lastTimeNanos = now;
+        }
+    }
+
+    /**
+     * Adjust the number of active tasks and the batch size.
+     *
+     * @param pending       Average number of batches read and waiting to be processed
+     * @param writePending  Average number of batches processed and waiting to be written
+     * @param throughput    Elements processed per second
+     * @param batchTimeMs   Average time processing one batch, or -1 if no batch was processed
+     */
+    void adjust(double pending, double writePending, double throughput, double batchTimeMs) {
+        int newNumTasks = numTasks;
+        int newBatchSize = batchSize;
+        Action action = Action.NONE;
+        // Idle threads may hold one batch each
+        double maxPending = capacity + bounds.getMaxTasks() - numTasks;
+
+        if (writePending > capacity / 2.0) {
+            // Writer is the bottleneck. Less tasks, larger batches to write
+            newNumTasks--;
+            newBatchSize *= 2;
+            action = Action.REMOVE_TASK;
+        } else if (pending > maxPending / 2) {
+            // Tasks are the bottleneck
+            if (lastAction == Action.ADD_TASK && throughput < lastThroughput * MIN_IMPROVEMENT) {
+                // Last task did not improve the throughput. Revert, and do not try again with this batch size
+                newNumTasks--;
+                taskLimit = newNumTasks;
+                action = Action.REMOVE_TASK;
+            } else if (numTasks < taskLimit) {
+                newNumTasks++;
+                action = Action.ADD_TASK;
+            }
+        } else if (pending < 1) {
+            // Reader is the bottleneck. Release resources
+            newNumTasks--;
+            action = Action.REMOVE_TASK;
+        }
+
+        if (action != Action.ADD_TASK && batchTimeMs >= 0) {
+            if (batchTimeMs < MIN_BATCH_TIME_MS) {
+                newBatchSize = Math.max(newBatchSize, batchSize * 2);
+            } else if (batchTimeMs > MAX_BATCH_TIME_MS) {
+                newBatchSize = batchSize / 2;
+            }
+        }
+
+        newNumTasks = Math.min(Math.max(newNumTasks, bounds.getMinTasks()), bounds.getMaxTasks());
+        newBatchSize = Math.min(Math.max(newBatchSize, bounds.getMinBatchSize()), bounds.getMaxBatchSize());
+        if (newBatchSize != batchSize) {
+            // The best number of tasks may be different with the new batch size
+            taskLimit = bounds.getMaxTasks();
+        }
+        if (newNumTasks != numTasks || newBatchSize != batchSize) {
+            logger.info("Adaptive ParallelTaskRunner: tasks {} -> {}, batchSize {} -> {}. "
+                            + "Pending batches: {} to process, {} to write. Throughput: {} elements/s. Batch time: {}ms",
+                    numTasks, newNumTasks, batchSize, newBatchSize,
+                    String.format("%.1f", pending), String.format("%.1f", writePending),
+                    String.format("%.1f", throughput), String.format("%.1f", batchTimeMs));
+        }
+        lastAction = newNumTasks == numTasks ? Action.NONE : action;
+        lastThroughput = throughput;
+        setNumTasks(newNumTasks);
+        batchSize = newBatchSize;
+    }
+
+    private void setNumTasks(int newNumTasks) {
+        if (newNumTasks > numTasks) {
+            permits.release(newNumTasks - numTasks);
+        } else if (newNumTasks < numTasks) {
+            permits.reducePermits(numTasks - newNumTasks);
+        }
+        numTasks = newNumTasks;
+    }
+
+    void logSummary() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        logger.info("Adaptive ParallelTaskRunner finished with {} tasks and batchSize {}. Processed {} elements in {} batches. "
+                        + "Throughput: {} elements/s",
+                numTasks, batchSize, processedElements.get(), finishedBatches.get(),
+                String.format("%.1f", processedElements.get() / seconds));
+    }
+
+    int getNumTasks() {
+        return numTasks;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
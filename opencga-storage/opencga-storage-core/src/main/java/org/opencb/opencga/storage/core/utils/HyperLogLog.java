@@ -0,0 +1,98 @@
+package org.opencb.opencga.storage.core.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Approximate distinct counter with fixed memory usage.
+ *
+ * Uses 2^precision registers of one byte. The relative standard error is about 1.04 / sqrt(2^precision).
+ * Small cardinalities are estimated with linear counting. Not thread safe.
+ *
+ * See "HyperLogLog: the analysis of a near-optimal cardinality estimation algorithm", Flajolet et al. 2007
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 10;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16. Got " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public HyperLogLog add(String value) {
+        return addHash(HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong());
+    }
+
+    protected HyperLogLog addHash(long hash) {
+        int idx = (int) (hash >>> (Long.SIZE - precision));
+        // Guard bit to bound the rank to (64 - precision + 1)
+        long w = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(w) + 1);
+        if (rank > registers[idx]) {
+            registers[idx] = rank;
+        }
+        return this;
+    }
+
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Unable to merge HyperLogLog with different precision: "
+                    + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package org.opencb.opencga.storage.core.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Persistent key-value store, backed by an append-only data file and a memory-mapped hash index.
+ *
+ * The data file contains the records [keyLength, valueLength, key, value] in insertion order. The index is an open addressing
+ * hash table of [keyHash, recordOffset] slots, doubled when it is 70% full. Keys are compared with the record in the data file,
+ * so hash collisions do not return wrong values. Existing keys are never overwritten.
+ *
+ * The index is marked as dirty with the first write, and as clean on {@link #flush()} and {@link #close()}.
+ * A dirty index is rebuilt from the data file when opening the store, discarding any incomplete record at the end of the file.
+ * The directory is locked while the store is open, so it can not be shared between processes.
+ */
+public class MappedKeyValueStore implements Closeable {
+
+    public static final String DATA_FILE = "data.bin";
+    public static final String INDEX_FILE = "index.bin";
+    public static final String LOCK_FILE = "lock";
+
+    static final int INITIAL_CAPACITY = 1 << 16;
+    private static final double MAX_LOAD = 0.7;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static Logger logger = LoggerFactory.getLogger(MappedKeyValueStore.class);
+
+    private final Path dir;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final FileChannel data;
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private Index index;
+    private long dataLength;
+    private boolean dirty;
+
+    public MappedKeyValueStore(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        lockChannel = FileChannel.open(dir.resolve(LOCK_FILE), CREATE, WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Store " + dir + " is already in use");
+        }
+        this.lock = lock;
+        FileChannel data = null;
+        try {
+            data = FileChannel.open(dir.resolve(DATA_FILE), CREATE, READ, WRITE);
+            this.data = data;
+            index = Index.open(dir.resolve(INDEX_FILE));
+            if (index == null || !index.isClean() || index.getDataLength() != data.size()) {
+                rebuild();
+            }
+            dataLength = index.getDataLength();
+        } catch (IOException | RuntimeException e) {
+            if (index != null) {
+                index.close();
+            }
+            if (data != null) {
+                data.close();
+            }
+            lock.release();
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key   Key
+     * @return      Value, or null if the key is not in the store
+     * @throws IOException if there is an error reading the data file
+     */
+    public byte[] get(byte[] key) throws IOException {
+        long hash = hash(key);
+        rwLock.readLock().lock();
+        try {
+            for (long slot = index.slot(hash); !index.isEmpty(slot); slot = index.next(slot)) {
+                if (index.getHash(slot) == hash) {
+                    byte[] value = read(index.getOffset(slot), key);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a new key to the store.
+     *
+     * @param key   Key
+     * @param value Value
+     * @return      If the key was added. False if the key was already in the store
+     * @throws IOException if there is an error writing the data file or resizing the index
+     */
+    public boolean put(byte[] key, byte[] value) throws IOException {
+        long hash = hash(key);
+        rwLock.writeLock().lock();
+        try {
+            long slot = index.slot(hash);
+            for (; !index.isEmpty(slot); slot = index.next(slot)) {
+                if (index.getHash(slot) == hash && read(index.getOffset(slot), key) != null) {
+                    return false;
+                }
+            }
+            if (!dirty) {
+                index.markDirty();
+                dirty = true;
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + key.length + value.length);
+            record.putInt(key.length).putInt(value.length).put(key).put(value);
+            record.flip();
+            long offset = dataLength;
+            writeFully(record, offset);
+            dataLength += record.limit();
+            index.set(slot, hash, offset);
+            if (index.isFull()) {
+                index = resize(index);
+            }
+            return true;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    public long size() {
+        rwLock.readLock().lock();
+        try {
+            return index.size;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    public long getDataLength() {
+        rwLock.readLock().lock();
+        try {
+            return dataLength;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write all the changes to disk, and mark the index as clean.
+     *
+     * @throws IOException if there is an error writing the files
+     */
+    public void flush() throws IOException {
+        rwLock.writeLock().lock();
+        try {
+            if (dirty) {
+                data.force(false);
+                index.markClean(dataLength);
+                dirty = false;
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            index.close();
+            data.close();
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    static long hash(byte[] key) {
+        return HASH_FUNCTION.hashBytes(key).asLong();
+    }
+
+    private byte[] read(long offset, byte[] key) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, offset);
+        int keyLength = header.getInt(0);
+        int valueLength = header.getInt(Integer.BYTES);
+        if (keyLength != key.length) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(keyLength + valueLength);
+        readFully(record, offset + RECORD_HEADER_SIZE);
+        byte[] array = record.array();
+        for (int i = 0; i < keyLength; i++) {
+            if (array[i] != key[i]) {
+                return null;
+            }
+        }
+        return Arrays.copyOfRange(array, keyLength, array.length);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (data.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file " + dir.resolve(DATA_FILE) + " at position " + position);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            data.write(buffer, position + buffer.position());
+        }
+    }
+
+    private Index resize(Index index) throws IOException {
+        Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+        Index newIndex = Index.create(tmp, index.capacity * 2);
+        for (long slot = 0; slot < index.capacity; slot++) {
+            if (!index.isEmpty(slot)) {
+                newIndex.insert(index.getHash(slot), index.getOffset(slot));
+            }
+        }
+        index.close();
+        Files.move(tmp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return newIndex;
+    }
+
+    private void rebuild() throws IOException {
+        long length = data.size();
+        if (length > 0) {
+            logger.info("Rebuilding index of {}", dir);
+        }
+        if (index != null) {
+            index.close();
+        }
+        index = Index.create(dir.resolve(INDEX_FILE), INITIAL_CAPACITY);
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= length) {
+            header.clear();
+            readFully(header, offset);
+            int keyLength = header.getInt(0);
+            int valueLength = header.getInt(Integer.BYTES);
+            long end = offset + RECORD_HEADER_SIZE + keyLength + valueLength;
+            if (keyLength < 0 || valueLength < 0 || end > length) {
+                break;
+            }
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            readFully(key, offset + RECORD_HEADER_SIZE);
+            index.insert(hash(key.array()), offset);
+            if (index.isFull()) {
+                index = resize(index);
+            }
+            offset = end;
+        }
+        if (offset < length) {
+            logger.warn("Discarding {} bytes of incomplete records from {}", length - offset, dir.resolve(DATA_FILE));
+            data.truncate(offset);
+        }
+        data.force(false);
+        index.markClean(offset);
+    }
+
+    /**
+     * Memory-mapped open addressing hash table. Header: [magic, clean, capacity, size, dataLength]. Slots: [hash, offset + 1].
+     */
+    private static final class Index {
+        private static final int MAGIC = 0x4b565331;
+        private static final int HEADER_SIZE = 32;
+        private static final int SLOT_SIZE = Long.BYTES * 2;
+        private static final int SLOTS_PER_BUFFER_BITS = 26;
+        private static final long SLOTS_PER_BUFFER = 1L << SLOTS_PER_BUFFER_BITS;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer header;
+        private final MappedByteBuffer[] buffers;
+        private final long capacity;
+        private final long mask;
+        private long size;
+
+        private Index(FileChannel channel, long capacity) throws IOException {
+            this.channel = channel;
+            this.capacity = capacity;
+            mask = capacity - 1;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            buffers = new MappedByteBuffer[(int) ((capacity + SLOTS_PER_BUFFER - 1) / SLOTS_PER_BUFFER)];
+            for (int i = 0; i < buffers.length; i++) {
+                long slots = Math.min(SLOTS_PER_BUFFER, capacity - i * SLOTS_PER_BUFFER);
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * SLOTS_PER_BUFFER * SLOT_SIZE,
+                        slots * SLOT_SIZE);
+            }
+        }
+
+        static Index create(Path file, long capacity) throws IOException {
+            Files.deleteIfExists(file);
+            Index index = new Index(FileChannel.open(file, CREATE_NEW, READ, WRITE), capacity);
+            index.header.putInt(0, MAGIC);
+            index.header.putLong(8, capacity);
+            index.markDirty();
+            return index;
+        }
+
+        static Index open(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            FileChannel channel = FileChannel.open(file, READ, WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || channel.read(header, 0) != HEADER_SIZE) {
+                channel.close();
+                return null;
+            }
+            long capacity = header.getLong(8);
+            if (header.getInt(0) != MAGIC || capacity <= 0 || Long.bitCount(capacity) != 1
+                    || fileSize != HEADER_SIZE + capacity * SLOT_SIZE) {
+                channel.close();
+                return null;
+            }
+            Index index = new Index(channel, capacity);
+            index.size = header.getLong(16);
+            return index;
+        }
+
+        boolean isClean() {
+            return header.getInt(4) == 1;
+        }
+
+        long getDataLength() {
+            return header.getLong(24);
+        }
+
+        void markDirty() {
+            header.putInt(4, 0);
+            header.force();
+        }
+
+        void markClean(long dataLength) {
+            for (MappedByteBuffer buffer : buffers) {
+                buffer.force();
+            }
+            header.putLong(16, size);
+            header.putLong(24, dataLength);
+            header.putInt(4, 1);
+            header.force();
+        }
+
+        long slot(long hash) {
+            return hash & mask;
+        }
+
+        long next(long slot) {
+            return (slot + 1) & mask;
+        }
+
+        boolean isEmpty(long slot) {
+            return buffer(slot).getLong(position(slot) + Long.BYTES) == 0;
+        }
+
+        long getHash(long slot) {
+            return buffer(slot).getLong(position(slot));
+        }
+
+        long getOffset(long slot) {
+            return buffer(slot).getLong(position(slot) + Long.BYTES) - 1;
+        }
+
+        void set(long slot, long hash, long offset) {
+            MappedByteBuffer buffer = buffer(slot);
+            int position = position(slot);
+            buffer.putLong(position, hash);
+            buffer.putLong(position + Long.BYTES, offset + 1);
+            size++;
+        }
+
+        void insert(long hash, long offset) {
+            long slot = slot(hash);
+            while (!isEmpty(slot)) {
+                slot = next(slot);
+            }
+            set(slot, hash, offset);
+        }
+
+        boolean isFull() {
+            return size > capacity * MAX_LOAD;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        private MappedByteBuffer buffer(long slot) {
+            return buffers[(int) (slot >>> SLOTS_PER_BUFFER_BITS)];
+        }
+
+        private int position(long slot) {
+            return (int) (slot & (SLOTS_PER_BUFFER - 1)) * SLOT_SIZE;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.opencb.opencga.storage.core.variant;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.StopWatch;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.StudyEntry;
@@ -31,6 +32,7 @@ import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.results.VariantQueryResult;
 import org.opencb.opencga.storage.core.StorageEngine;
 import org.opencb.opencga.storage.core.StoragePipelineResult;
+import org.opencb.opencga.storage.core.cache.CacheManager;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.StoragePipelineException;
@@ -69,6 +71,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -87,9 +92,12 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
     private final AtomicReference<VariantSearchManager> variantSearchManager = new AtomicReference<>();
     private final List<VariantQueryExecutor> lazyVariantQueryExecutorsList = new ArrayList<>();
+    private final AtomicReference<CacheManager> cacheManager = new AtomicReference<>();
+    private final AtomicReference<ExecutorService> queryPrefetchExecutor = new AtomicReference<>();
     private CellBaseUtils cellBaseUtils;
 
     public static final String REMOVE_OPERATION_NAME = TaskMetadata.Type.REMOVE.name().toLowerCase();
+    private static final String CACHE_TYPE = "var";
 
     private Logger logger = LoggerFactory.getLogger(VariantStorageEngine.class);
 
@@ -919,7 +927,23 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         addDefaultLimit(options, getOptions());
         addDefaultSampleLimit(query, getOptions());
         query = preProcessQuery(query, options);
-        return getVariantQueryExecutor(query, options).get(query, options);
+
+        CacheManager cacheManager = getCacheManager();
+        if (!options.getBoolean(CacheManager.CACHE, true) || !cacheManager.isActive() || !cacheManager.isTypeAllowed(CACHE_TYPE)) {
+            return getVariantQueryExecutor(query, options).get(query, options);
+        }
+        String key;
+        try {
+            key = cacheManager.createKey(getCacheNamespace(), CACHE_TYPE, query, options);
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e);
+        }
+        VariantQueryResult<Variant> result = cacheManager.get(key);
+        if (result == null) {
+            result = getVariantQueryExecutor(query, options).get(query, options);
+            cacheManager.set(key, query, result);
+        }
+        return result;
     }
 
     @Override
@@ -957,7 +981,8 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         executors.add(new SamplesSearchIndexVariantQueryExecutor(
                 getDBAdaptor(), getVariantSearchManager(), getStorageEngineId(), dbName, configuration, getOptions()));
         executors.add(new SearchIndexVariantQueryExecutor(
-                getDBAdaptor(), getVariantSearchManager(), getStorageEngineId(), dbName, configuration, getOptions()));
+                getDBAdaptor(), getVariantSearchManager(), getStorageEngineId(), dbName, configuration, getOptions(),
+                getQueryPrefetchExecutor()));
         executors.add(new DBAdaptorVariantQueryExecutor(
                 getDBAdaptor(), getStorageEngineId(), getOptions()));
         return executors;
@@ -1017,9 +1042,74 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
     }
 
     public DataResult<Long> count(Query query) throws StorageEngineException {
+        return count(query, null);
+    }
+
+    public DataResult<Long> count(Query query, QueryOptions options) throws StorageEngineException {
         query = preProcessQuery(query, null);
         VariantQueryExecutor variantQueryExecutor = getVariantQueryExecutor(query, new QueryOptions(QueryOptions.COUNT, true));
-        return variantQueryExecutor.count(query);
+
+        CacheManager cacheManager = getCacheManager();
+        if (options != null && !options.getBoolean(CacheManager.CACHE, true)
+                || !cacheManager.isActive() || !cacheManager.isTypeAllowed(CACHE_TYPE)) {
+            return variantQueryExecutor.count(query);
+        }
+        String key = cacheManager.createKey(getCacheNamespace(), CACHE_TYPE + ".count", query, null);
+        DataResult<Long> result = cacheManager.get(key);
+        if (result == null) {
+            result = variantQueryExecutor.count(query);
+            cacheManager.set(key, query, result);
+        }
+        return result;
+    }
+
+    /**
+     * Thread pool shared by all the queries from this engine to fetch batches in background.
+     * Bounded by {@link VariantStorageOptions#INTERSECT_PREFETCH_THREADS}, and shut down when the engine is closed.
+     *
+     * @return ExecutorService
+     */
+    protected ExecutorService getQueryPrefetchExecutor() {
+        if (queryPrefetchExecutor.get() == null) {
+            synchronized (queryPrefetchExecutor) {
+                if (queryPrefetchExecutor.get() == null) {
+                    int threads = Math.max(1, getOptions().getInt(VariantStorageOptions.INTERSECT_PREFETCH_THREADS.key(),
+                            VariantStorageOptions.INTERSECT_PREFETCH_THREADS.defaultValue()));
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(),
+                            new BasicThreadFactory.Builder()
+                                    .namingPattern("variant-query-prefetch-%s")
+                                    .daemon(true)
+                                    .build());
+                    executor.allowCoreThreadTimeOut(true);
+                    queryPrefetchExecutor.set(executor);
+                }
+            }
+        }
+        return queryPrefetchExecutor.get();
+    }
+
+    public CacheManager getCacheManager() {
+        if (cacheManager.get() == null) {
+            synchronized (cacheManager) {
+                if (cacheManager.get() == null) {
+                    cacheManager.set(new CacheManager(configuration));
+                }
+            }
+        }
+        return cacheManager.get();
+    }
+
+    /**
+     * Namespace of the cached results. Contains the data version of the {@link VariantStorageMetadataManager}, read from the database,
+     * so results cached before any new indexed file, annotation or statistics are never returned, even if the change
+     * was made by another process.
+     *
+     * @return Cache namespace
+     * @throws StorageEngineException if the data version can not be read
+     */
+    private String getCacheNamespace() throws StorageEngineException {
+        return dbName + ":" + getMetadataManager().getDataVersion();
     }
 
     /**
@@ -1032,7 +1122,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
     public DataResult<FacetField> facet(Query query, QueryOptions options) {
         try {
             addDefaultLimit(options, getOptions());
-            return new VariantAggregationExecutor(getVariantSearchManager(), dbName, this, getMetadataManager())
+            return new VariantAggregationExecutor(getVariantSearchManager(), dbName, this, getMetadataManager(), getOptions())
                     .facet(query, options);
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
@@ -1050,6 +1140,14 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
             }
         }
         lazyVariantQueryExecutorsList.clear();
+        ExecutorService queryPrefetchExecutor = this.queryPrefetchExecutor.getAndSet(null);
+        if (queryPrefetchExecutor != null) {
+            queryPrefetchExecutor.shutdownNow();
+        }
+        CacheManager cacheManager = this.cacheManager.getAndSet(null);
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
     }
 }
 
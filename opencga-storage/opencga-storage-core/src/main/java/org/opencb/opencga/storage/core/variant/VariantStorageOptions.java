@@ -28,6 +28,14 @@ public enum VariantStorageOptions implements ConfigurationOption {
     LOAD_SPLIT_DATA("load.splitData", false),
     POST_LOAD_CHECK_SKIP("postLoad.skipCheck", false),
 
+    // Tune the number of threads and batch size of the ParallelTaskRunners at runtime.
+    // Configured numThreads and batchSize are used as initial values
+    ADAPTIVE_RUNNER("adaptiveRunner.enable", false),
+    ADAPTIVE_RUNNER_MIN_THREADS("adaptiveRunner.minThreads", 1),
+    ADAPTIVE_RUNNER_MAX_THREADS("adaptiveRunner.maxThreads", 0),             // Number of available processors if <= 0
+    ADAPTIVE_RUNNER_BATCH_SIZE_FACTOR("adaptiveRunner.batchSizeFactor", 4),  // Batch size between batchSize/factor and batchSize*factor
+    ADAPTIVE_RUNNER_INTERVAL("adaptiveRunner.interval", 10000),              // Millis between adjustments
+
     STATS_DEFAULT_GENOTYPE("stats.defaultGenotype", "0/0"), // Default genotype to be used for calculating stats.
     STATS_MULTI_ALLELIC("stats.multiAllelic", false),  // Include secondary alternates in the variant stats calculation
     STATS_CALCULATE("stats.calculate", false),          //Calculate stats on the postLoad step
@@ -45,6 +53,7 @@ public enum VariantStorageOptions implements ConfigurationOption {
     ANNOTATION_FILE_FORMAT("annotation.file.format", "json"),
     ANNOTATION_NUM_THREADS("annotation.numThreads", 8),
     ANNOTATION_OVERWEITE("annotation.overwrite"),
+    ANNOTATION_CACHE_DIR("annotation.cache.dir"), // Persistent annotation cache, shared between projects. Disabled if empty
 
     ANNOTATOR("annotator"),
     ANNOTATOR_CLASS("annotator.class"),
@@ -66,10 +75,18 @@ public enum VariantStorageOptions implements ConfigurationOption {
     INTERSECT_ACTIVE("search.intersect.active", true),                       // Allow intersect queries with the SearchEngine (Solr)
     INTERSECT_ALWAYS("search.intersect.always", false),                      // Force intersect queries
     INTERSECT_PARAMS_THRESHOLD("search.intersect.params.threshold", 3),      // Minimum number of QueryParams in the query to intersect
+    INTERSECT_PREFETCH_BATCHES("search.intersect.prefetch.batches", 0),      // Batches to fetch in advance from the storage. Sync if 0
+    INTERSECT_PREFETCH_THREADS("search.intersect.prefetch.threads", 4),      // Threads shared by all the queries to prefetch batches
 
     APPROXIMATE_COUNT_SAMPLING_SIZE("approximateCountSamplingSize", 1000),
     APPROXIMATE_COUNT("approximateCount", false),
 
+    AGGREGATION_THREADS("aggregation.threads", 4),                      // Threads to calculate aggregations iterating variants
+    AGGREGATION_PARTITION_SIZE("aggregation.partition.size", 10000000), // Size in bases of each region partition
+
+    METADATA_CACHE_MAX_SIZE("metadata.cache.maxSize", 10000),                       // Max entries per metadata cache. Unbounded if <= 0
+    METADATA_CACHE_EXPIRE_AFTER_ACCESS("metadata.cache.expireAfterAccess", 0),      // Millis. Never expire if <= 0
+
 
     /////////////
     // These params are stored in {@link org.opencb.opencga.storage.core.metadata.models.StudyMetadata#getAttributes}.
@@ -53,6 +53,9 @@ import org.opencb.opencga.storage.core.io.plain.StringDataReader;
 import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
+import org.opencb.opencga.storage.core.utils.AdaptiveParallelTaskRunner;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
@@ -270,7 +273,11 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
             throw StorageEngineException.ioException(e);
         }
         ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
-        stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.TRANSFORM).newRun();
+        stringReader.setReadBytesListener((totalRead, delta) -> {
+            progressLogger.increment(delta, "Bytes");
+            metrics.addBytesRead(delta);
+        });
 
         VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
 
@@ -300,7 +307,7 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
                 throw StorageEngineException.ioException(e);
             }
 
-            ptr = buildTransformPtr(parallelParse, stringReader, task, encoder, dataWriter, config);
+            ptr = buildTransformPtr(parallelParse, stringReader, task, encoder, dataWriter, config, metrics);
         } else if ("json".equals(format)) {
             Supplier<Task<Variant, String>> encoder = () -> Task.forEach(Variant::toJson);
 
@@ -317,7 +324,7 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
                 }
             }
 
-            ptr = buildTransformPtr(parallelParse, stringReader, task, encoder, dataWriter, config);
+            ptr = buildTransformPtr(parallelParse, stringReader, task, encoder, dataWriter, config, metrics);
         } else if ("proto".equals(format)) {
             ptr = transformProto(metadata, outputVariantsFile, stringReader, task);
         } else {
@@ -333,6 +340,14 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         stopWatch.stop();
 
         logger.info("Variants transformed in " + TimeUtils.durationToString(stopWatch));
+        if (!stdout) {
+            try {
+                metrics.addBytesWritten(ioConnectorProvider.size(outputVariantsFile));
+            } catch (IOException e) {
+                logger.warn("Unable to get size of " + outputVariantsFile, e);
+            }
+        }
+        getTransformStats().put("metrics", metrics.snapshot());
 
         try (OutputStream outputMetadataStream = ioConnectorProvider.newOutputStream(outputMetaFile)) {
             ObjectMapper jsonObjectMapper = new ObjectMapper();
@@ -357,22 +372,25 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
                                                      Supplier<Task<String, Variant>> task,
                                                      Supplier<Task<Variant, W>> encoder,
                                                      DataWriter<W> dataWriter,
-                                                     ParallelTaskRunner.Config config) {
+                                                     ParallelTaskRunner.Config config,
+                                                     StageMetrics metrics) {
 
         logger.info("Multi thread transform... [1 reading, {} transforming, 1 writing]", config.getNumTasks());
         if (parallelParse) {
-            return new ParallelTaskRunner<String, W>(
-                    stringReader,
-                    () -> task.get().then(encoder.get()),
-                    dataWriter,
-                    config
+            return AdaptiveParallelTaskRunner.newInstance(
+                    metrics.instrument(stringReader),
+                    metrics.instrument(() -> task.get().then(encoder.get())),
+                    metrics.instrument(dataWriter),
+                    config,
+                    options
             );
         } else {
-            return new ParallelTaskRunner<Variant, W>(
-                    stringReader.then(task.get()),
-                    encoder,
-                    dataWriter,
-                    config
+            return AdaptiveParallelTaskRunner.newInstance(
+                    metrics.instrument(stringReader.then(task.get())),
+                    metrics.instrument(encoder),
+                    metrics.instrument(dataWriter),
+                    config,
+                    options
             );
         }
     }
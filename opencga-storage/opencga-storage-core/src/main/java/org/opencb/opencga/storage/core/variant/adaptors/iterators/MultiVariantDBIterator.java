@@ -22,23 +22,32 @@ import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.function.BiFunction;
 
 /**
  * Iterates multiple variant iterators. Every time that voids one iterator, creates a new one using the iteratorFactory.
  *
+ * If {@link #PREFETCH_BATCHES} is greater than 0 and an executor is provided, the next batches are fetched in background
+ * while the current one is being consumed. The results of each batch are buffered in memory, and returned in the same order.
+ *
  * Created on 04/07/17.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
 public class MultiVariantDBIterator extends VariantDBIterator {
 
+    /**
+     * Number of batches to fetch in advance from the iteratorFactory. Fetch synchronously if 0.
+     */
+    public static final String PREFETCH_BATCHES = "multiIteratorPrefetchBatches";
+
     private final VariantQueryIterator queryIterator;
     private final QueryOptions options;
     private final BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory;
@@ -55,6 +64,15 @@ public class MultiVariantDBIterator extends VariantDBIterator {
     private Query query;
     private int numQueries;
     private Variant lastVariant = null;
+    // Variants from the primary iterator used to build the current query, and number of variants read up to that batch.
+    private List<Object> currentBatch = Collections.emptyList();
+    private int currentBatchTotalSizeCount;
+    // Number of variants from the primary iterator used to build the batches already consumed.
+    private int consumedBatchesTotalSizeCount;
+    private final int prefetchBatches;
+    private final ExecutorService prefetchExecutor;
+    private final Deque<PrefetchedBatch> prefetchedBatches = new ArrayDeque<>();
+    private long timeWaiting;
 
     /**
      * Creates a multi iterator given a iterator of variants. It will apply the query (if any) to all the variants in the iterator.
@@ -69,6 +87,24 @@ public class MultiVariantDBIterator extends VariantDBIterator {
     public MultiVariantDBIterator(Iterator<?> variantsIterator, int batchSize,
                                   Query query, QueryOptions options,
                                   BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory) {
+        this(variantsIterator, batchSize, query, options, iteratorFactory, null);
+    }
+
+    /**
+     * Creates a multi iterator given a iterator of variants, fetching the next batches in background if {@link #PREFETCH_BATCHES}
+     * is greater than 0.
+     *
+     * @param variantsIterator  Iterator with all the variants to filter.
+     * @param batchSize         Number of variants to use in each query
+     * @param query             Base query.
+     * @param options           Query options to be used with the iterator factory
+     * @param iteratorFactory   Iterator factory. See {@link VariantDBAdaptor#iterator()}
+     * @param prefetchExecutor  Executor to fetch the batches in background. Fetch synchronously if null.
+     */
+    public MultiVariantDBIterator(Iterator<?> variantsIterator, int batchSize,
+                                  Query query, QueryOptions options,
+                                  BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory,
+                                  ExecutorService prefetchExecutor) {
         this.variantsIterator = variantsIterator;
         this.queryIterator = new VariantQueryIterator(this.variantsIterator, query, batchSize);
         this.options = options == null ? new QueryOptions() : new QueryOptions(options);
@@ -91,6 +127,10 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         this.options.remove(QueryOptions.LIMIT);
         this.options.remove(QueryOptions.SKIP);
 
+        this.prefetchExecutor = prefetchExecutor;
+        prefetchBatches = prefetchExecutor == null ? 0 : Math.max(0, this.options.getInt(PREFETCH_BATCHES, 0));
+        this.options.remove(PREFETCH_BATCHES);
+
         query = null;
         numQueries = 0;
     }
@@ -100,6 +140,7 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         init();
         if (numResults >= maxResults) {
             terminateIterator();
+            cancelPrefetchedBatches();
             return false;
         } else if (!fetch(variantDBIterator::hasNext)) {
             nextVariantIterator();
@@ -118,21 +159,17 @@ public class MultiVariantDBIterator extends VariantDBIterator {
      * Get the next non-empty valid {@link #variantDBIterator}. If none, use {@link #emptyIterator()}
      */
     private void nextVariantIterator() {
+        if (prefetchBatches > 0) {
+            nextPrefetchedVariantIterator();
+            return;
+        }
         while (!fetch(variantDBIterator::hasNext) && fetch(queryIterator::hasNext)) {
             terminateIterator();
             numQueries++;
-            QueryOptions options;
-            int limit;
-            if (maxResults != Integer.MAX_VALUE) {
-                // We are expecting no more than maxResults - numResults
-                // Modify the limit in the query
-                limit = maxResults - numResults;
-                options = new QueryOptions(this.options).append(QueryOptions.LIMIT, limit);
-            } else {
-                limit = Integer.MAX_VALUE;
-                options = this.options;
-            }
-            query = fetch(() -> queryIterator.next(numResults, limit));
+            QueryOptions options = nextQueryOptions();
+            query = fetch(() -> queryIterator.next(numResults, options.getInt(QueryOptions.LIMIT, Integer.MAX_VALUE)));
+            currentBatch = queryIterator.lastBatch;
+            currentBatchTotalSizeCount = queryIterator.totalBatchSizeCount;
 
             variantDBIterator = fetch(() -> iteratorFactory.apply(query, options));
         }
@@ -141,6 +178,85 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         }
     }
 
+    /**
+     * Same as {@link #nextVariantIterator()}, but taking the iterators from the prefetched batches.
+     * Queries to the primary iterator are always executed from this thread.
+     */
+    private void nextPrefetchedVariantIterator() {
+        while (!fetch(variantDBIterator::hasNext) && (!prefetchedBatches.isEmpty() || fetch(queryIterator::hasNext))) {
+            terminateIterator();
+            consumedBatchesTotalSizeCount = currentBatchTotalSizeCount;
+            prefetch();
+            PrefetchedBatch batch = prefetchedBatches.poll();
+            query = batch.query;
+            currentBatch = batch.variants;
+            currentBatchTotalSizeCount = batch.totalSizeCount;
+            variantDBIterator = batch.get();
+            // Keep the queue full while the current batch is consumed
+            prefetch();
+        }
+        if (!fetch(variantDBIterator::hasNext)) {
+            terminateIterator();
+        }
+    }
+
+    /**
+     * Fill the queue of prefetched batches. The size of each batch is estimated from the remaining limit and the
+     * results of the batches already consumed, ignoring the batches still in flight.
+     */
+    private void prefetch() {
+        while (prefetchedBatches.size() < prefetchBatches && fetch(queryIterator::hasNext)) {
+            numQueries++;
+            QueryOptions options = nextQueryOptions();
+            Query query = fetch(() -> queryIterator.next(numResults, consumedBatchesTotalSizeCount,
+                    options.getInt(QueryOptions.LIMIT, Integer.MAX_VALUE)));
+            Future<VariantDBIterator> future = prefetchExecutor.submit(() -> fetchAll(query, options));
+            prefetchedBatches.add(new PrefetchedBatch(query, queryIterator.lastBatch, queryIterator.totalBatchSizeCount, future));
+        }
+    }
+
+    private QueryOptions nextQueryOptions() {
+        if (maxResults != Integer.MAX_VALUE) {
+            // We are expecting no more than maxResults - numResults
+            // Modify the limit in the query
+            return new QueryOptions(this.options).append(QueryOptions.LIMIT, maxResults - numResults);
+        } else {
+            return this.options;
+        }
+    }
+
+    /**
+     * Read all the variants from the query. Executed from the thread pool.
+     *
+     * @param query     Query to execute
+     * @param options   Query options
+     * @return          Iterator over the buffered results, with the fetching and converting times of the original iterator.
+     * @throws Exception if the iterator fails
+     */
+    private VariantDBIterator fetchAll(Query query, QueryOptions options) throws Exception {
+        long start = System.nanoTime();
+        List<Variant> variants = new ArrayList<>();
+        VariantDBIterator iterator = iteratorFactory.apply(query, options);
+        try {
+            while (iterator.hasNext()) {
+                variants.add(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+        VariantDBIterator bufferedIterator = VariantDBIterator.wrapper(variants.iterator());
+        bufferedIterator.setTimeConverting(iterator.getTimeConverting());
+        bufferedIterator.setTimeFetching(System.nanoTime() - start - iterator.getTimeConverting());
+        return bufferedIterator;
+    }
+
+    private void cancelPrefetchedBatches() {
+        for (PrefetchedBatch batch : prefetchedBatches) {
+            batch.future.cancel(true);
+        }
+        prefetchedBatches.clear();
+    }
+
     private void terminateIterator() {
         // Accumulate statistics from previous iterator.
         timeFetching += variantDBIterator.getTimeFetching();
@@ -195,8 +311,20 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         }
     }
 
+    /**
+     * Time blocked waiting for prefetched batches. When prefetching, the fetching and converting times
+     * are measured in the background threads, so they may add more than the total elapsed time.
+     *
+     * @param timeUnit  Time unit
+     * @return          Time waiting for the next batch
+     */
+    public long getTimeWaiting(TimeUnit timeUnit) {
+        return timeUnit.convert(timeWaiting, TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public void close() throws Exception {
+        cancelPrefetchedBatches();
         terminateIterator();
         super.close();
     }
@@ -214,15 +342,44 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         if (lastVariant != null) {
             int usedVariantsFromLastBatch = 0;
             String lastVariantStr = lastVariant.toString();
-            for (Object variant : queryIterator.lastBatch) {
+            for (Object variant : currentBatch) {
                 usedVariantsFromLastBatch++;
                 if (lastVariantStr.equals(variant.toString())) {
                     break;
                 }
             }
-            unusedVariantsFromLastBatch = queryIterator.lastBatch.size() - usedVariantsFromLastBatch;
+            unusedVariantsFromLastBatch = currentBatch.size() - usedVariantsFromLastBatch;
+        }
+        return currentBatchTotalSizeCount - unusedVariantsFromLastBatch;
+    }
+
+    private class PrefetchedBatch {
+        private final Query query;
+        private final List<Object> variants;
+        private final int totalSizeCount;
+        private final Future<VariantDBIterator> future;
+
+        PrefetchedBatch(Query query, List<Object> variants, int totalSizeCount, Future<VariantDBIterator> future) {
+            this.query = query;
+            this.variants = variants;
+            this.totalSizeCount = totalSizeCount;
+            this.future = future;
+        }
+
+        VariantDBIterator get() {
+            long start = System.nanoTime();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw VariantQueryException.internalException(e);
+            } catch (ExecutionException e) {
+                Throwables.propagateIfPossible(e.getCause());
+                throw VariantQueryException.internalException(e);
+            } finally {
+                timeWaiting += System.nanoTime() - start;
+            }
         }
-        return queryIterator.totalBatchSizeCount - unusedVariantsFromLastBatch;
     }
 
     private static class VariantQueryIterator implements Iterator<Query>, AutoCloseable {
@@ -262,6 +419,18 @@ public class MultiVariantDBIterator extends VariantDBIterator {
         }
 
         public Query next(final int numResults, final int limit) {
+            return next(numResults, totalBatchSizeCount, limit);
+        }
+
+        /**
+         * Get the next query, with a batch size estimated from the expected number of results.
+         *
+         * @param numResults    Number of results obtained from the first numVariants variants
+         * @param numVariants   Number of variants from the primary iterator used to get numResults
+         * @param limit         Number of results still expected
+         * @return              Next query
+         */
+        public Query next(final int numResults, final int numVariants, final int limit) {
             int batchSize;
 
             // Do not update `matchProbability` for the first batch
@@ -277,8 +446,8 @@ public class MultiVariantDBIterator extends VariantDBIterator {
 //            }
 //            firstBatch = false;
 //            lastQueryNumResults = numResults;
-            if (totalBatchSizeCount > 0) {
-                matchProbability = numResults / (float) totalBatchSizeCount;
+            if (numVariants > 0) {
+                matchProbability = numResults / (float) numVariants;
                 matchProbability *= 0.8;
             }
 
@@ -294,6 +463,7 @@ public class MultiVariantDBIterator extends VariantDBIterator {
                 }
             }
             logger.debug("numResults = " + numResults
+                    + " numVariants = " + numVariants
                     + " totalBatchSizeCount = " + totalBatchSizeCount
                     + " limit = " + limit
                     + " lastBatchSize = " + lastBatchSize
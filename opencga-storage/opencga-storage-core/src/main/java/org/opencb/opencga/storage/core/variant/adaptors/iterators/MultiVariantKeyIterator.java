@@ -13,12 +13,11 @@ import java.util.NoSuchElementException;
  */
 abstract class MultiVariantKeyIterator extends VariantDBIterator {
 
-    protected static final Comparator<Variant> VARIANT_COMPARATOR = Comparator.comparing(Variant::getChromosome)
-            .thenComparing(Variant::getStart)
-            .thenComparing(Variant::getEnd)
-            .thenComparing(Variant::getReference)
-            .thenComparing(Variant::getAlternate)
-            .thenComparing(Variant::toString);
+    /**
+     * Sort by chromosome, start, end, reference, alternate and toString.
+     * Compares the positions as primitives, as this comparator is evaluated several times per variant.
+     */
+    protected static final Comparator<Variant> VARIANT_COMPARATOR = MultiVariantKeyIterator::compareVariants;
 
     protected final List<VariantDBIterator> iterators;
     protected Variant next;
@@ -34,6 +33,26 @@ abstract class MultiVariantKeyIterator extends VariantDBIterator {
         iterators.forEach(this::addCloseable);
     }
 
+    static int compareVariants(Variant v1, Variant v2) {
+        int c = v1.getChromosome().compareTo(v2.getChromosome());
+        if (c == 0) {
+            c = Integer.compare(v1.getStart(), v2.getStart());
+        }
+        if (c == 0) {
+            c = Integer.compare(v1.getEnd(), v2.getEnd());
+        }
+        if (c == 0) {
+            c = v1.getReference().compareTo(v2.getReference());
+        }
+        if (c == 0) {
+            c = v1.getAlternate().compareTo(v2.getAlternate());
+        }
+        if (c == 0) {
+            c = v1.toString().compareTo(v2.toString());
+        }
+        return c;
+    }
+
     protected void checkInit() {
         if (!init) {
             init();
@@ -0,0 +1,153 @@
+package org.opencb.opencga.storage.core.variant.adaptors.iterators;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reads ahead the variants of another iterator from an executor, buffering up to a number of batches.
+ *
+ * The read ahead task does not wait for the consumer. It finishes when the buffer is full, and it is submitted again
+ * once the consumer takes a batch. This way, many iterators can share a small thread pool.
+ */
+public class PrefetchVariantDBIterator extends VariantDBIterator {
+
+    private static final List<Variant> END = new ArrayList<>(0);
+
+    private final VariantDBIterator iterator;
+    private final Executor executor;
+    private final int batchSize;
+    // Extra slot to always fit the END mark
+    private final BlockingQueue<List<Variant>> buffer;
+    private Iterator<Variant> batch = Collections.emptyIterator();
+    private boolean finished = false;
+    private int count = 0;
+
+    // Read ahead task status
+    private boolean running = false; // Guarded by this
+    private volatile boolean exhausted = false;
+    private volatile boolean closed = false;
+    private volatile RuntimeException exception = null;
+
+    /**
+     * @param iterator          Iterator to read
+     * @param executor          Executor to run the read ahead task
+     * @param batchSize         Number of variants of each batch
+     * @param bufferedBatches   Max number of batches to read ahead
+     */
+    public PrefetchVariantDBIterator(VariantDBIterator iterator, Executor executor, int batchSize, int bufferedBatches) {
+        this.iterator = iterator;
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+        buffer = new ArrayBlockingQueue<>(Math.max(1, bufferedBatches) + 1);
+        addCloseable(iterator);
+        schedule();
+    }
+
+    private synchronized void schedule() {
+        if (!running && !exhausted && !closed && buffer.remainingCapacity() > 1) {
+            running = true;
+            try {
+                executor.execute(this::readAhead);
+            } catch (RejectedExecutionException e) {
+                running = false;
+                finish(e);
+            }
+        }
+    }
+
+    private void readAhead() {
+        try {
+            while (!closed && !exhausted && buffer.remainingCapacity() > 1) {
+                List<Variant> variants = new ArrayList<>(batchSize);
+                while (variants.size() < batchSize && iterator.hasNext()) {
+                    variants.add(iterator.next());
+                }
+                if (!variants.isEmpty()) {
+                    buffer.add(variants);
+                }
+                if (variants.size() < batchSize) {
+                    finish(null);
+                }
+            }
+        } catch (RuntimeException e) {
+            finish(e);
+        } finally {
+            synchronized (this) {
+                running = false;
+                notifyAll();
+                // The consumer could have taken some batches since the last check
+                schedule();
+            }
+        }
+    }
+
+    private synchronized void finish(RuntimeException e) {
+        if (!exhausted) {
+            exception = e;
+            exhausted = true;
+            buffer.add(END);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!batch.hasNext() && !finished) {
+            schedule();
+            List<Variant> variants = fetch(() -> {
+                try {
+                    return buffer.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw VariantQueryException.internalException(e);
+                }
+            });
+            if (variants == END) {
+                finished = true;
+                if (exception != null) {
+                    throw exception;
+                }
+            } else {
+                batch = variants.iterator();
+                schedule();
+            }
+        }
+        return batch.hasNext();
+    }
+
+    @Override
+    public Variant next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        count++;
+        return batch.next();
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public long getTimeConverting() {
+        return iterator.getTimeConverting();
+    }
+
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        synchronized (this) {
+            // Wait for the read ahead task before closing the iterator
+            while (running) {
+                wait();
+            }
+        }
+        super.close();
+    }
+}
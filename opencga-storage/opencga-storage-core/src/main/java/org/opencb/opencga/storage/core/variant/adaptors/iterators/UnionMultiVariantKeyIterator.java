@@ -4,7 +4,7 @@ import org.opencb.biodata.models.variant.Variant;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.PriorityQueue;
 
 /**
  * Created on 03/07/18.
@@ -14,65 +14,47 @@ import java.util.Objects;
 public class UnionMultiVariantKeyIterator extends MultiVariantKeyIterator {
 
     protected List<Variant> variants;
+    // Heap with the index of the non exhausted iterators, sorted by their current variant
+    private final PriorityQueue<Integer> heap;
 
     public UnionMultiVariantKeyIterator(List<VariantDBIterator> iterators) {
         super(iterators);
         variants = new ArrayList<>(iterators.size());
+        heap = new PriorityQueue<>(Math.max(1, iterators.size()),
+                (i1, i2) -> VARIANT_COMPARATOR.compare(variants.get(i1), variants.get(i2)));
     }
 
     @Override
     protected void init() {
-        for (VariantDBIterator iterator : iterators) {
+        for (int i = 0; i < iterators.size(); i++) {
+            VariantDBIterator iterator = iterators.get(i);
             if (iterator.hasNext()) {
                 variants.add(iterator.next());
+                heap.add(i);
             } else {
                 // Mark as this iterator is over
                 variants.add(null);
             }
         }
-        next = variants.stream().filter(Objects::nonNull).min(VARIANT_COMPARATOR).orElse(null);
+        next = heap.isEmpty() ? null : variants.get(heap.peek());
     }
 
     @Override
     public void getNext() {
-
-        Variant nextMin = null;
-        //System.out.println("variants = " + variants);
-        //System.out.println("prev = " + prev);
-
-        // Find the smallest variant
-        for (int i = 0; i < iterators.size(); i++) {
+        // Increment all the iterators pointing to the previous variant. These are on the top of the heap.
+        while (!heap.isEmpty() && prev.sameGenomicVariant(variants.get(heap.peek()))) {
+            int i = heap.poll();
             VariantDBIterator iterator = iterators.get(i);
-            Variant variant = variants.get(i);
-            // Increment iterator if it was pointing to the previous variant
-            if (prev.sameGenomicVariant(variant)) {
-                if (iterator.hasNext()) {
-                    variant = iterator.next();
-                    //System.out.println("variants[" + i + "] = " + variant);
-                    variants.set(i, variant);
-                } else {
-                    //System.out.println("variants[" + i + "] = " + null);
-                    variant = null;
-                    variants.set(i, null);
-                }
-            }
-            if (variant != null) {
-                if (nextMin == null) {
-                    nextMin = variant;
-                } else {
-                    if (/*currentChromosome.equals(variant.getChromosome()) && */
-                            VARIANT_COMPARATOR.compare(variant, nextMin) < 0) {
-                        nextMin = variant;
-                    }
-                }
+            if (iterator.hasNext()) {
+                variants.set(i, iterator.next());
+                heap.add(i);
+            } else {
+                variants.set(i, null);
             }
         }
 
-
         prev = null;
-        next = nextMin;
-
-        //System.out.println("next = " + next);
+        next = heap.isEmpty() ? null : variants.get(heap.peek());
     }
 
 }
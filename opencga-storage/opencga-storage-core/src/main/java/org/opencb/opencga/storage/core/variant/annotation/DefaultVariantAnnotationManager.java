@@ -45,12 +45,17 @@ import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
+import org.opencb.opencga.storage.core.utils.AdaptiveParallelTaskRunner;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VepAnnotationCheckpoint;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VepVariantAnnotator;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
 import org.opencb.opencga.storage.core.variant.io.db.VariantAnnotationDBWriter;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
@@ -191,6 +196,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                 VariantStorageOptions.ANNOTATION_NUM_THREADS.key(),
                 VariantStorageOptions.ANNOTATION_NUM_THREADS.defaultValue());
 
+        VariantAnnotationCache cache = VariantAnnotationCache.open(variantAnnotator,
+                dbAdaptor.getMetadataManager().getProjectMetadata(), params);
         try {
             DataReader<Variant> variantDataReader = getVariantDataReader(query, iteratorQueryOptions, params);
             ProgressLogger progressLogger;
@@ -210,7 +217,11 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                 List<VariantAnnotation> variantAnnotationList;
                 long start = System.currentTimeMillis();
                 logger.debug("Annotating batch of {} genomic variants.", variantList.size());
-                variantAnnotationList = variantAnnotator.annotate(variantList);
+                if (cache == null) {
+                    variantAnnotationList = variantAnnotator.annotate(variantList);
+                } else {
+                    variantAnnotationList = cache.annotate(variantList, variantAnnotator);
+                }
                 progressLogger.increment(variantList.size(),
                         () -> ", up to position " + variantList.get(variantList.size() - 1).toString());
                 numAnnotationsToLoad.addAndGet(variantList.size());
@@ -237,11 +248,21 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                     .setBatchSize(batchSize)
                     .setAbortOnFail(true)
                     .setSorted(false).build();
-            ParallelTaskRunner<Variant, VariantAnnotation> parallelTaskRunner =
-                    new ParallelTaskRunner<>(variantDataReader, annotationTask, variantAnnotationDataWriter, config);
+            StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.ANNOTATE).newRun();
+            ParallelTaskRunner<Variant, VariantAnnotation> parallelTaskRunner = AdaptiveParallelTaskRunner.newInstance(
+                    metrics.instrument(variantDataReader), metrics.instrument(annotationTask),
+                    metrics.instrument(variantAnnotationDataWriter), config, params);
             parallelTaskRunner.run();
         } catch (ExecutionException e) {
             throw new VariantAnnotatorException("Error creating annotations", e);
+        } finally {
+            if (cache != null) {
+                try {
+                    cache.close();
+                } catch (IOException e) {
+                    logger.warn("Error closing annotation cache", e);
+                }
+            }
         }
 
         return fileUri;
@@ -291,6 +312,16 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
      */
     public void loadVariantAnnotation(URI uri, ObjectMap params) throws IOException, StorageEngineException {
 
+        if (variantAnnotator instanceof VepVariantAnnotator && VariantReaderUtils.isJson(uri.toString())) {
+            // VEP JSON output. Stream the file, with checkpoints
+            ProgressLogger progressLogger = new ProgressLogger("Loaded annotations: ", numAnnotationsToLoad.get());
+            VepVariantAnnotator.LoadRunnerFactory runnerFactory = (reader, config, checkpoint) ->
+                    buildLoadAnnotationParallelTaskRunner(reader, config, progressLogger, params, checkpoint);
+            ((VepVariantAnnotator) variantAnnotator).loadAnnotation(uri, ioConnectorProvider, runnerFactory, params);
+            postLoadAnnotation();
+            return;
+        }
+
         final int batchSize = params.getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(),
                 VariantStorageOptions.LOAD_BATCH_SIZE.defaultValue());
         final int numConsumers = params.getInt(VariantStorageOptions.LOAD_THREADS.key(),
@@ -306,7 +337,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
         reader = newVariantAnnotationDataReader(uri);
         try {
             ProgressLogger progressLogger = new ProgressLogger("Loaded annotations: ", numAnnotationsToLoad.get());
-            ParallelTaskRunner<VariantAnnotation, ?> ptr = buildLoadAnnotationParallelTaskRunner(reader, config, progressLogger, params);
+            ParallelTaskRunner<VariantAnnotation, ?> ptr = buildLoadAnnotationParallelTaskRunner(reader, config, progressLogger, params,
+                    null);
             ptr.run();
         } catch (ExecutionException e) {
             throw new StorageEngineException("Error loading variant annotation", e);
@@ -316,11 +348,25 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
 
     }
 
+    /**
+     * Build the ParallelTaskRunner to load the annotations from the reader.
+     *
+     * @param reader            Annotations reader
+     * @param config            ParallelTaskRunner config
+     * @param progressLogger    Progress logger
+     * @param params            Specific params
+     * @param checkpoint        Checkpoint of the load. Tasks and writer must be tracked with it. Null if the load can not be resumed
+     * @return                  ParallelTaskRunner
+     */
     protected ParallelTaskRunner<VariantAnnotation, ?> buildLoadAnnotationParallelTaskRunner(
-            DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params) {
-        return new ParallelTaskRunner<>(reader,
-                        () -> newVariantAnnotationDBWriter(dbAdaptor, new QueryOptions(params))
-                                .setProgressLogger(progressLogger), null, config);
+            DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params,
+            VepAnnotationCheckpoint checkpoint) {
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.ANNOTATION_LOAD).newRun();
+        return AdaptiveParallelTaskRunner.newInstance(metrics.instrument(reader), metrics.instrument(() -> {
+            Task<VariantAnnotation, Object> writer = newVariantAnnotationDBWriter(dbAdaptor, new QueryOptions(params))
+                    .setProgressLogger(progressLogger);
+            return checkpoint == null ? writer : checkpoint.track(writer, false);
+        }), null, config, params);
     }
 
     protected DataReader<VariantAnnotation> newVariantAnnotationDataReader(URI uri) throws IOException {
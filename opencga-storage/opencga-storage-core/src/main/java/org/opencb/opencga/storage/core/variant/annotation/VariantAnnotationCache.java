@@ -0,0 +1,216 @@
+package org.opencb.opencga.storage.core.variant.annotation;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.utils.CompressionUtils;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.utils.MappedKeyValueStore;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+import org.opencb.opencga.storage.core.variant.io.json.mixin.VariantAnnotationMixin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+
+/**
+ * Persistent cache of variant annotations, shared by all the projects annotated with the same annotator.
+ *
+ * Each combination of species, assembly, annotator program, annotator source versions and CellBase include/exclude params
+ * uses a different {@link MappedKeyValueStore}, in a subdirectory of {@link VariantStorageOptions#ANNOTATION_CACHE_DIR}.
+ * Annotations are stored as compressed JSON, like in the annotation files, using "chr:start:ref:alt" as key.
+ * Structural variants are not cached.
+ */
+public class VariantAnnotationCache implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(VariantAnnotationCache.class);
+
+    private final MappedKeyValueStore store;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public VariantAnnotationCache(Path path) throws IOException {
+        store = new MappedKeyValueStore(path);
+        objectMapper = new ObjectMapper();
+        objectMapper.addMixIn(VariantAnnotation.class, VariantAnnotationMixin.class);
+        objectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+    }
+
+    /**
+     * Open the annotation cache for the given annotator, if {@link VariantStorageOptions#ANNOTATION_CACHE_DIR} is defined.
+     *
+     * @param annotator         Variant annotator
+     * @param projectMetadata   Project metadata, with the species and assembly
+     * @param options           Options
+     * @return The annotation cache, or null if the cache is not enabled or it could not be opened
+     */
+    public static VariantAnnotationCache open(VariantAnnotator annotator, ProjectMetadata projectMetadata, ObjectMap options) {
+        String cacheDir = options.getString(VariantStorageOptions.ANNOTATION_CACHE_DIR.key());
+        if (StringUtils.isEmpty(cacheDir)) {
+            return null;
+        }
+        String name;
+        try {
+            name = getCacheName(annotator, projectMetadata, options);
+        } catch (IOException e) {
+            logger.warn("Unable to read the annotator version. Continue without annotation cache", e);
+            return null;
+        }
+        if (name == null) {
+            logger.warn("Missing annotator program or source version. Continue without annotation cache");
+            return null;
+        }
+        Path path = Paths.get(cacheDir).resolve(name);
+        try {
+            VariantAnnotationCache cache = new VariantAnnotationCache(path);
+            logger.info("Using annotation cache {} with {} annotations", path, cache.size());
+            return cache;
+        } catch (IOException e) {
+            logger.warn("Unable to open annotation cache " + path + ". Continue without annotation cache", e);
+            return null;
+        }
+    }
+
+    static String getCacheName(VariantAnnotator annotator, ProjectMetadata projectMetadata, ObjectMap options) throws IOException {
+        ProjectMetadata.VariantAnnotatorProgram program = annotator.getVariantAnnotatorProgram();
+        List<ObjectMap> sourceVersion = annotator.getVariantAnnotatorSourceVersion();
+        if (program == null || sourceVersion == null || sourceVersion.isEmpty()) {
+            return null;
+        }
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (String value : Arrays.asList(program.getName(), program.getVersion(), program.getCommit(),
+                options.getString(VariantStorageOptions.ANNOTATOR_CELLBASE_INCLUDE.key()),
+                options.getString(VariantStorageOptions.ANNOTATOR_CELLBASE_EXCLUDE.key()))) {
+            hasher.putString(String.valueOf(value), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        for (ObjectMap source : sourceVersion) {
+            hasher.putString(source.toJson(), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        return toFileName(projectMetadata.getSpecies()) + '_' + toFileName(projectMetadata.getAssembly()) + '_' + hasher.hash();
+    }
+
+    /**
+     * Annotate a list of variants, using the cached annotations when possible.
+     * Variants missing in the cache are annotated with the annotator, and added to the cache.
+     *
+     * @param variants  Variants to annotate
+     * @param annotator Annotator to use with the variants not found in the cache
+     * @return Annotations in the same order as the variants. Variants not annotated by the annotator are skipped
+     * @throws VariantAnnotatorException if the annotator fails, or there is an error reading or writing the cache
+     */
+    public List<VariantAnnotation> annotate(List<Variant> variants, VariantAnnotator annotator) throws VariantAnnotatorException {
+        List<VariantAnnotation> cached = new ArrayList<>(variants.size());
+        List<Variant> missing = new ArrayList<>();
+        for (Variant variant : variants) {
+            VariantAnnotation annotation = isCacheable(variant) ? get(variant) : null;
+            cached.add(annotation);
+            if (annotation == null) {
+                missing.add(variant);
+            }
+        }
+        hits.addAndGet(variants.size() - missing.size());
+        misses.addAndGet(missing.size());
+        if (missing.isEmpty()) {
+            return cached;
+        }
+
+        List<VariantAnnotation> annotations = annotator.annotate(missing);
+        Map<String, VariantAnnotation> annotationsMap = new HashMap<>(annotations.size());
+        for (VariantAnnotation annotation : annotations) {
+            annotationsMap.put(buildKey(annotation.getChromosome(), annotation.getStart(),
+                    annotation.getReference(), annotation.getAlternate()), annotation);
+        }
+        for (Variant variant : missing) {
+            if (isCacheable(variant)) {
+                VariantAnnotation annotation = annotationsMap.get(buildKey(variant));
+                if (annotation != null) {
+                    put(variant, annotation);
+                }
+            }
+        }
+        if (missing.size() == variants.size()) {
+            return annotations;
+        }
+
+        List<VariantAnnotation> result = new ArrayList<>(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            VariantAnnotation annotation = cached.get(i);
+            if (annotation == null) {
+                annotation = annotationsMap.get(buildKey(variants.get(i)));
+            }
+            if (annotation != null) {
+                result.add(annotation);
+            }
+        }
+        return result;
+    }
+
+    public VariantAnnotation get(Variant variant) throws VariantAnnotatorException {
+        try {
+            byte[] value = store.get(buildKey(variant).getBytes(StandardCharsets.UTF_8));
+            if (value == null) {
+                return null;
+            }
+            return objectMapper.readValue(CompressionUtils.decompress(value), VariantAnnotation.class);
+        } catch (IOException | DataFormatException e) {
+            throw new VariantAnnotatorException("Error reading annotation of variant " + variant + " from the annotation cache", e);
+        }
+    }
+
+    public void put(Variant variant, VariantAnnotation annotation) throws VariantAnnotatorException {
+        try {
+            byte[] value = CompressionUtils.compress(objectMapper.writeValueAsBytes(annotation));
+            store.put(buildKey(variant).getBytes(StandardCharsets.UTF_8), value);
+        } catch (IOException e) {
+            throw new VariantAnnotatorException("Error writing annotation of variant " + variant + " into the annotation cache", e);
+        }
+    }
+
+    public long size() {
+        return store.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        logger.info("Annotation cache: {} hits, {} misses, {} annotations", hits.get(), misses.get(), store.size());
+        store.close();
+    }
+
+    static boolean isCacheable(Variant variant) {
+        return variant.getSv() == null && !variant.isSV();
+    }
+
+    private static String buildKey(Variant variant) {
+        return buildKey(variant.getChromosome(), variant.getStart(), variant.getReference(), variant.getAlternate());
+    }
+
+    private static String buildKey(String chromosome, Integer start, String reference, String alternate) {
+        return chromosome + ':' + start + ':' + reference + ':' + alternate;
+    }
+
+    private static String toFileName(String value) {
+        return value == null ? "" : value.toLowerCase().replaceAll("[^a-z0-9.]+", "_");
+    }
+}
@@ -0,0 +1,245 @@
+package org.opencb.opencga.storage.core.variant.annotation.annotators;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.opencb.opencga.storage.core.io.managers.IOConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checkpoint of the load of a VEP annotation file, to resume an interrupted load.
+ *
+ * Batches are registered by the reader with the range of VEP records they contain, and marked as done once they are written.
+ * As batches are written concurrently and in any order, the checkpoint is the number of records from the beginning of the file
+ * that are known to be written. Batches completed after a gap are kept in memory until the gap is filled.
+ * Use {@link #track(Task, boolean)} and {@link #track(DataWriter)} to mark the batches of a ParallelTaskRunner as done.
+ * The checkpoint is stored as a small JSON file, written at most once every {@code intervalMillis}.
+ */
+public class VepAnnotationCheckpoint {
+
+    public static final String EXTENSION = ".checkpoint";
+    public static final String RECORDS = "records";
+
+    private final IOConnector ioConnector;
+    private final URI checkpointUri;
+    private final long intervalMillis;
+    private final Map<List<?>, long[]> pending = new IdentityHashMap<>();
+    private final TreeMap<Long, Long> done = new TreeMap<>();
+    private long records;
+    private long writtenRecords = -1;
+    private long lastWrite;
+
+    private static Logger logger = LoggerFactory.getLogger(VepAnnotationCheckpoint.class);
+
+    public VepAnnotationCheckpoint(IOConnector ioConnector, URI input, long intervalMillis) {
+        this.ioConnector = ioConnector;
+        this.checkpointUri = URI.create(input.toString() + EXTENSION);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Read the checkpoint from a previous execution.
+     *
+     * @return Number of VEP records already loaded, or 0 if there is no checkpoint
+     * @throws IOException if the checkpoint can not be read
+     */
+    public synchronized long read() throws IOException {
+        if (ioConnector.exists(checkpointUri)) {
+            try (InputStream is = ioConnector.newInputStreamRaw(checkpointUri)) {
+                records = new ObjectMapper().readValue(is, ObjectMap.class).getLong(RECORDS);
+            }
+        } else {
+            records = 0;
+        }
+        writtenRecords = records;
+        return records;
+    }
+
+    /**
+     * Register a batch read from the input.
+     *
+     * @param batch         Batch
+     * @param firstRecord   Number of the first VEP record in the batch
+     * @param numRecords    Number of VEP records in the batch
+     */
+    public synchronized void register(List<?> batch, long firstRecord, long numRecords) {
+        pending.put(batch, new long[]{firstRecord, firstRecord + numRecords});
+    }
+
+    /**
+     * Mark a batch as written. Writes the checkpoint if needed.
+     *
+     * @param batch Batch registered with {@link #register}
+     * @throws IOException if the checkpoint can not be written
+     */
+    public synchronized void done(List<?> batch) throws IOException {
+        long[] range = pending.remove(batch);
+        if (range == null) {
+            // Unknown batch. The checkpoint won't advance beyond this batch, which is always safe
+            return;
+        }
+        done.put(range[0], range[1]);
+        while (!done.isEmpty() && done.firstKey() <= records) {
+            records = Math.max(records, done.pollFirstEntry().getValue());
+        }
+        if (System.currentTimeMillis() - lastWrite >= intervalMillis) {
+            write();
+        }
+    }
+
+    /**
+     * Move the range of a registered batch to the output of the task that processed it.
+     * Empty outputs are not written, so the batch is done.
+     *
+     * @param batch     Batch registered with {@link #register}
+     * @param output    Output of the task for this batch
+     * @throws IOException if the checkpoint can not be written
+     */
+    public synchronized void forward(List<?> batch, List<?> output) throws IOException {
+        if (output == null || output.isEmpty()) {
+            done(batch);
+        } else if (output != batch) {
+            long[] range = pending.remove(batch);
+            if (range != null) {
+                pending.put(output, range);
+            }
+        }
+    }
+
+    /**
+     * Track the batches processed by a task.
+     *
+     * @param task      Task
+     * @param written   If the output of the task is written by a {@link DataWriter} tracked with {@link #track(DataWriter)}.
+     *                  Otherwise, the batch is done once the task is applied.
+     * @param <T>       Input type
+     * @param <R>       Output type
+     * @return          Tracked task
+     */
+    public <T, R> Task<T, R> track(Task<T, R> task, boolean written) {
+        return new Task<T, R>() {
+            @Override
+            public void pre() throws Exception {
+                task.pre();
+            }
+
+            @Override
+            public List<R> apply(List<T> batch) throws Exception {
+                List<R> output = task.apply(batch);
+                if (written) {
+                    forward(batch, output);
+                } else {
+                    done(batch);
+                }
+                return output;
+            }
+
+            @Override
+            public List<R> drain() throws Exception {
+                return task.drain();
+            }
+
+            @Override
+            public void post() throws Exception {
+                task.post();
+            }
+        };
+    }
+
+    /**
+     * Track the batches written by a writer. The batches are done once written.
+     *
+     * @param writer    Writer
+     * @param <T>       Batch type
+     * @return          Tracked writer
+     */
+    public <T> DataWriter<T> track(DataWriter<T> writer) {
+        return new DataWriter<T>() {
+            @Override
+            public boolean open() {
+                return writer.open();
+            }
+
+            @Override
+            public boolean pre() {
+                return writer.pre();
+            }
+
+            @Override
+            public boolean write(List<T> batch) {
+                boolean write = writer.write(batch);
+                try {
+                    done(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return write;
+            }
+
+            @Override
+            public boolean post() {
+                return writer.post();
+            }
+
+            @Override
+            public boolean close() {
+                return writer.close();
+            }
+        };
+    }
+
+    /**
+     * @return Number of VEP records from the beginning of the file that are known to be written
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * Write the checkpoint, if it changed since the last write.
+     *
+     * @throws IOException if the checkpoint can not be written
+     */
+    public synchronized void write() throws IOException {
+        if (records == writtenRecords) {
+            return;
+        }
+        ObjectMap checkpoint = new ObjectMap(RECORDS, records).append("date", TimeUtils.getTime());
+        try (OutputStream os = ioConnector.newOutputStreamRaw(checkpointUri)) {
+            os.write(checkpoint.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        writtenRecords = records;
+        lastWrite = System.currentTimeMillis();
+        logger.debug("Checkpoint {} : {} records", checkpointUri, records);
+    }
+
+    /**
+     * Delete the checkpoint, once the load is finished.
+     *
+     * @throws IOException if the checkpoint can not be deleted
+     */
+    public synchronized void delete() throws IOException {
+        if (ioConnector.exists(checkpointUri)) {
+            ioConnector.delete(checkpointUri);
+        }
+        writtenRecords = -1;
+    }
+
+    public URI getUri() {
+        return checkpointUri;
+    }
+}
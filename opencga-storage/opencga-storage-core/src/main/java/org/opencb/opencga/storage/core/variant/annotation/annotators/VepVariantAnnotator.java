@@ -18,25 +18,36 @@ package org.opencb.opencga.storage.core.variant.annotation.annotators;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.opencb.biodata.formats.variant.annotation.io.VepFormatReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.io.managers.IOConnector;
+import org.opencb.opencga.storage.core.io.managers.LocalIOConnector;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
+import org.opencb.opencga.storage.core.utils.AdaptiveParallelTaskRunner;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotatorException;
+import org.opencb.opencga.storage.core.variant.io.db.VariantAnnotationDBWriter;
+import org.opencb.opencga.storage.core.variant.io.json.VepJsonDataReader;
 import org.opencb.opencga.storage.core.variant.io.json.mixin.VariantAnnotationMixin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Created by fjlopez on 10/04/15.
@@ -45,7 +56,10 @@ public class VepVariantAnnotator extends VariantAnnotator {
     private final JsonFactory factory;
     private ObjectMapper jsonObjectMapper;
 
-    protected static Logger logger = LoggerFactory.getLogger(AbstractCellBaseVariantAnnotator.class);
+    public static final String CHECKPOINT_INTERVAL_MILLIS = "annotation.vep.checkpointIntervalMillis";
+    public static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 10000;
+
+    protected static Logger logger = LoggerFactory.getLogger(VepVariantAnnotator.class);
 
     public VepVariantAnnotator() throws VariantAnnotatorException {
         super(null, null, null);
@@ -87,112 +101,139 @@ public class VepVariantAnnotator extends VariantAnnotator {
 
     /////// LOAD ANNOTATION
 
-    public void loadAnnotation(final VariantDBAdaptor variantDBAdaptor, final URI uri, QueryOptions options) throws IOException {
+    public void loadAnnotation(final VariantDBAdaptor variantDBAdaptor, final URI uri, QueryOptions options)
+            throws IOException, StorageEngineException {
+        loadAnnotation(uri, new LocalIOConnector(), () -> new VariantAnnotationDBWriter(variantDBAdaptor, options, null), options);
+    }
 
-        final int batchSize = options.getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(), 100);
-        final int numConsumers = options.getInt(VariantStorageOptions.LOAD_THREADS.key(), 6);
-        final int numProducers = 1;
-        ExecutorService executor = Executors.newFixedThreadPool(numConsumers + numProducers);
-        final BlockingQueue<VariantAnnotation> queue = new ArrayBlockingQueue<>(batchSize * numConsumers * 2);
-        final VariantAnnotation lastElement = new VariantAnnotation();
+    /**
+     * Load a VEP JSON file, writing the annotations with the tasks from the writerSupplier.
+     *
+     * @param uri           VEP JSON file
+     * @param ioConnector   IOConnector to read the file, and write the checkpoint
+     * @param writerSupplier Supplier of annotation writers
+     * @param options       Options
+     * @throws IOException if the file or the checkpoint can not be read
+     * @throws StorageEngineException if there is an error loading the annotations
+     * @see #loadAnnotation(URI, IOConnector, LoadRunnerFactory, ObjectMap)
+     */
+    public void loadAnnotation(URI uri, IOConnector ioConnector, Supplier<? extends Task<VariantAnnotation, ?>> writerSupplier,
+                               ObjectMap options) throws IOException, StorageEngineException {
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.ANNOTATION_LOAD).newRun();
+        loadAnnotation(uri, ioConnector, (reader, config, checkpoint) -> {
+            Supplier<Task<VariantAnnotation, Object>> task = () -> checkpoint.track(discardOutput(writerSupplier.get()), false);
+            return AdaptiveParallelTaskRunner.newInstance(metrics.instrument(reader), metrics.instrument(task), null, config, options);
+        }, options);
+    }
 
-        executor.execute(new Runnable() {   // producer
-            @Override
-            public void run() {
-                try {
-                    int annotationsCounter = 0;
-
-                    /** Open vep reader **/
-                    VepFormatReader vepFormatReader = new VepFormatReader(Paths.get(uri).toFile().toString());
-                    vepFormatReader.open();
-                    vepFormatReader.pre();
-
-                    /** Read annotations **/
-                    List<VariantAnnotation> variantAnnotation;
-                    //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME
-                    if (true) {
-                        throw new UnsupportedOperationException();
-                    }
-//                    while ((variantAnnotation = vepFormatReader.read()) != null) {
-//                        queue.put(variantAnnotation.get(0));  // read() method always returns a list of just one element
-//                        annotationsCounter++;
-//                        if (annotationsCounter % 1000 == 0) {
-//                            logger.info("Element {}", annotationsCounter);
-//                        }
-//                    }
-                    //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME //FIXME
-                    // Add a lastElement marker. Consumers will stop reading when read this element.
-                    for (int i = 0; i < numConsumers; i++) {
-                        queue.put(lastElement);
-                    }
-                    logger.debug("Put Last element. queue size = {}", queue.size());
-                    vepFormatReader.post();
-                    vepFormatReader.close();
-                } catch (InterruptedException e) {
-                    logger.error("Interrupted!", e);
-                    Thread.currentThread().interrupt();
-                }
+    /**
+     * Load a VEP JSON file, streaming the file through a {@link ParallelTaskRunner}.
+     *
+     * Annotations are read and converted by one thread, in region sorted batches of {@link VariantStorageOptions#LOAD_BATCH_SIZE},
+     * and written by the ParallelTaskRunner from the runnerFactory. A checkpoint is stored next to the input file while loading.
+     * If {@link VariantStorageOptions#RESUME} is set, the VEP records loaded by the previous execution are skipped.
+     *
+     * @param uri           VEP JSON file
+     * @param ioConnector   IOConnector to read the file, and write the checkpoint
+     * @param runnerFactory Factory of the ParallelTaskRunner that writes the annotations
+     * @param options       Options
+     * @throws IOException if the file or the checkpoint can not be read
+     * @throws StorageEngineException if there is an error loading the annotations
+     */
+    public void loadAnnotation(URI uri, IOConnector ioConnector, LoadRunnerFactory runnerFactory, ObjectMap options)
+            throws IOException, StorageEngineException {
+        final int batchSize = options.getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(),
+                VariantStorageOptions.LOAD_BATCH_SIZE.defaultValue());
+        final int numConsumers = options.getInt(VariantStorageOptions.LOAD_THREADS.key(),
+                VariantStorageOptions.LOAD_THREADS.defaultValue());
+        final boolean resume = options.getBoolean(VariantStorageOptions.RESUME.key(),
+                VariantStorageOptions.RESUME.defaultValue());
+
+        VepAnnotationCheckpoint checkpoint = new VepAnnotationCheckpoint(ioConnector, uri,
+                options.getLong(CHECKPOINT_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_INTERVAL_MILLIS));
+        long skip = 0;
+        if (resume) {
+            try {
+                skip = checkpoint.read();
+            } catch (IOException e) {
+                logger.warn("Unable to read checkpoint " + checkpoint.getUri() + ". Load file from the beginning", e);
+            }
+            if (skip > 0) {
+                logger.info("Resume load of {} from checkpoint {}. Skip {} VEP records", uri, checkpoint.getUri(), skip);
             }
-        });
-
-        long timestamp = System.currentTimeMillis();
-        for (int i = 0; i < numConsumers; i++) {
-            executor.execute(new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        List<VariantAnnotation> batch = new ArrayList<>(batchSize);
-                        VariantAnnotation elem = queue.take();
-                        while (elem != lastElement) {
-                            batch.add(elem);
-                            if (batch.size() == batchSize) {
-                                variantDBAdaptor.updateAnnotations(batch, timestamp, new QueryOptions());
-                                batch.clear();
-                                logger.debug("thread updated batch");
-                            }
-                            elem = queue.take();
-                        }
-                        if (!batch.isEmpty()) { //Upload remaining elements
-                            variantDBAdaptor.updateAnnotations(batch, timestamp, new QueryOptions());
-                        }
-                        logger.debug("thread finished updating annotations");
-                    } catch (InterruptedException e) {
-                        logger.error("interrupt", e);
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            });
         }
 
-        executor.shutdown();
+        StageMetrics stageMetrics = MetricsRegistry.getDefault().stage(StageMetrics.ANNOTATION_LOAD);
+        ProgressLogger progressLogger = new ProgressLogger("Loaded VEP annotations:", ioConnector.size(uri), 200);
+        VepJsonDataReader reader = new VepJsonDataReader(uri, ioConnector)
+                .setSkip(skip)
+                .setBatchListener(checkpoint::register)
+                .setReadBytesListener((totalRead, delta) -> {
+                    progressLogger.increment(delta, "Bytes");
+                    stageMetrics.addBytesRead(delta);
+                });
+
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(numConsumers)
+                .setBatchSize(batchSize)
+                .setAbortOnFail(true)
+                .setSorted(false).build();
         try {
-            executor.awaitTermination(Integer.MAX_VALUE, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            logger.error("annotation interrupted");
-            Thread.currentThread().interrupt();
+            runnerFactory.build(reader, config, checkpoint).run();
+        } catch (ExecutionException e) {
+            try {
+                checkpoint.write();
+                logger.info("Loaded {} VEP records. Resume from checkpoint {}", checkpoint.getRecords(), checkpoint.getUri());
+            } catch (IOException e1) {
+                e.addSuppressed(e1);
+            }
+            throw new StorageEngineException("Error loading VEP annotation from " + uri, e);
         }
+        logger.info("Loaded {} VEP records from {}", reader.getRecords(), uri);
+        checkpoint.delete();
+    }
+
+    private static <R> Task<VariantAnnotation, Object> discardOutput(Task<VariantAnnotation, R> writer) {
+        return new Task<VariantAnnotation, Object>() {
+            @Override
+            public void pre() throws Exception {
+                writer.pre();
+            }
 
-        /** Join
-         try {
-         producerThread.join();
-         for (Thread consumerThread : consumers) {
-         consumerThread.join();
-         }
-         } catch (InterruptedException e) {
-         e.printStackTrace();
-         }
-         **/
-//        while (parser.nextToken() != null) {
-//            VariantAnnotation variantAnnotation = parser.readValueAs(VariantAnnotation.class);
-////            System.out.println("variantAnnotation = " + variantAnnotation);
-//            batch.add(variantAnnotation);
-//            if(batch.size() == batchSize || parser.nextToken() == null) {
-//                variantDBAdaptor.updateAnnotations(batch, new QueryOptions());
-//                batch.clear();
-//            }
-//        }
+            @Override
+            public List<Object> apply(List<VariantAnnotation> batch) throws Exception {
+                writer.apply(batch);
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<Object> drain() throws Exception {
+                writer.drain();
+                return Collections.emptyList();
+            }
+
+            @Override
+            public void post() throws Exception {
+                writer.post();
+            }
+        };
+    }
 
+    /**
+     * Factory of the ParallelTaskRunner used to write the annotations read from a VEP JSON file.
+     */
+    @FunctionalInterface
+    public interface LoadRunnerFactory {
+        /**
+         * Build the runner. The tasks and writer of the runner must be tracked with the checkpoint.
+         *
+         * @param reader        Reader of the VEP file
+         * @param config        ParallelTaskRunner config
+         * @param checkpoint    Load checkpoint. See {@link VepAnnotationCheckpoint#track(Task, boolean)}
+         * @return              ParallelTaskRunner
+         */
+        ParallelTaskRunner<VariantAnnotation, ?> build(DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config,
+                                                       VepAnnotationCheckpoint checkpoint);
     }
 
 }
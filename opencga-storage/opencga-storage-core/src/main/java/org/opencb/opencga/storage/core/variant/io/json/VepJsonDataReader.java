@@ -0,0 +1,355 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.io.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingInputStream;
+import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
+import org.opencb.biodata.models.variant.avro.*;
+import org.opencb.commons.io.DataReader;
+import org.opencb.opencga.storage.core.io.managers.IOConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader of the JSON output of Ensembl VEP (--json), with one JSON object per line, or a JSON array of objects.
+ *
+ * The input is parsed incrementally, one VEP record at a time, so the memory usage does not depend on the size of the file.
+ * Each VEP record produces one {@link VariantAnnotation} for each alternate allele. Batches contain complete VEP records,
+ * and are sorted by chromosome and position to improve the locality of the writes.
+ *
+ * Records are numbered from 0 in the order they appear in the input. The first records can be skipped without being converted,
+ * to resume an interrupted load from a checkpoint. See {@link #setBatchListener}.
+ */
+public class VepJsonDataReader implements DataReader<VariantAnnotation> {
+
+    public static final Comparator<VariantAnnotation> REGION_COMPARATOR = Comparator
+            .comparing(VariantAnnotation::getChromosome)
+            .thenComparing(VariantAnnotation::getStart)
+            .thenComparing(VariantAnnotation::getAlternate);
+
+    private static final String[] CONSEQUENCE_FIELDS = {"transcript_consequences", "regulatory_feature_consequences",
+            "motif_feature_consequences", "intergenic_consequences"};
+
+    private final URI uri;
+    private final IOConnector ioConnector;
+    private InputStream inputStream;
+    private CountingInputStream countingInputStream;
+    private JsonParser parser;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private boolean started;
+    private boolean eof;
+    private JsonToken pending;
+    private long skip;
+    private long records;
+    private long lastBytesRead;
+    private BiConsumer<Long, Long> readBytesListener;
+    private BatchListener batchListener;
+
+    protected static Logger logger = LoggerFactory.getLogger(VepJsonDataReader.class);
+
+    /**
+     * Listener of the batches returned by the reader.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        /**
+         * Called before returning a non empty batch.
+         *
+         * @param batch         Batch to be returned
+         * @param firstRecord   Number of the first VEP record in the batch
+         * @param numRecords    Number of VEP records in the batch
+         */
+        void onBatch(List<VariantAnnotation> batch, long firstRecord, long numRecords);
+    }
+
+    public VepJsonDataReader(URI uri, IOConnector ioConnector) {
+        this.uri = Objects.requireNonNull(uri);
+        this.ioConnector = Objects.requireNonNull(ioConnector);
+    }
+
+    public VepJsonDataReader(InputStream inputStream) {
+        this.inputStream = Objects.requireNonNull(inputStream);
+        this.uri = null;
+        this.ioConnector = null;
+    }
+
+    /**
+     * Skip the first VEP records of the input. Skipped records are not converted.
+     *
+     * @param skip  Number of records to skip
+     * @return this
+     */
+    public VepJsonDataReader setSkip(long skip) {
+        this.skip = skip;
+        return this;
+    }
+
+    public VepJsonDataReader setReadBytesListener(BiConsumer<Long, Long> readBytesListener) {
+        this.readBytesListener = readBytesListener;
+        return this;
+    }
+
+    public VepJsonDataReader setBatchListener(BatchListener batchListener) {
+        this.batchListener = batchListener;
+        return this;
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            if (inputStream == null) {
+                countingInputStream = new CountingInputStream(ioConnector.newInputStreamRaw(uri));
+                inputStream = countingInputStream;
+                if (uri.getPath().endsWith(".gz")) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+            } else {
+                countingInputStream = new CountingInputStream(inputStream);
+                inputStream = countingInputStream;
+            }
+            parser = objectMapper.getFactory().createParser(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public List<VariantAnnotation> read(int batchSize) {
+        List<VariantAnnotation> batch = new ArrayList<>(batchSize);
+        try {
+            if (!started) {
+                start();
+            }
+            long firstRecord = records;
+            while (batch.size() < batchSize && nextRecord()) {
+                JsonNode node = parser.readValueAsTree();
+                records++;
+                convert(node, batch);
+            }
+            onReadBytes();
+            if (!batch.isEmpty()) {
+                batch.sort(REGION_COMPARATOR);
+                if (batchListener != null) {
+                    batchListener.onBatch(batch, firstRecord, records - firstRecord);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return batch;
+    }
+
+    @Override
+    public boolean close() {
+        try {
+            if (parser != null) {
+                parser.close();
+            }
+            inputStream.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of VEP records read or skipped
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Read the first token, and skip the first records if needed.
+     *
+     * @throws IOException if the input is not valid
+     */
+    private void start() throws IOException {
+        started = true;
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            eof = true;
+        } else if (token != JsonToken.START_ARRAY) {
+            // One record per line. The first token is the start of the first record
+            pending = token;
+        }
+        while (records < skip && nextRecord()) {
+            parser.skipChildren();
+            records++;
+        }
+        if (records > 0) {
+            logger.info("Skipped {} VEP records", records);
+        }
+    }
+
+    /**
+     * Move the parser to the start of the next record.
+     *
+     * @return false if there are no more records
+     * @throws IOException if the input is not valid
+     */
+    private boolean nextRecord() throws IOException {
+        if (eof) {
+            return false;
+        }
+        JsonToken token;
+        if (pending != null) {
+            token = pending;
+            pending = null;
+        } else {
+            token = parser.nextToken();
+        }
+        if (token == null || token == JsonToken.END_ARRAY) {
+            eof = true;
+            return false;
+        } else if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected token " + token + " reading VEP record " + records
+                    + " at " + parser.getCurrentLocation());
+        }
+        return true;
+    }
+
+    private void onReadBytes() {
+        long bytesRead = countingInputStream.getCount();
+        if (readBytesListener != null && bytesRead != lastBytesRead) {
+            readBytesListener.accept(bytesRead, bytesRead - lastBytesRead);
+        }
+        lastBytesRead = bytesRead;
+    }
+
+    /**
+     * Convert a VEP record into one VariantAnnotation for each alternate allele.
+     *
+     * @param node          VEP record
+     * @param annotations   List where the annotations are added
+     */
+    static void convert(JsonNode node, List<VariantAnnotation> annotations) {
+        String alleleString = node.path("allele_string").asText();
+        String[] alleles = alleleString.split("/");
+        if (alleles.length < 2) {
+            logger.warn("Skip VEP record with allele_string '{}' : {}", alleleString, node.path("input").asText());
+            return;
+        }
+        String chromosome = node.path("seq_region_name").asText();
+        int start = node.path("start").asInt();
+        int end = node.path("end").asInt();
+        String reference = normalizeAllele(alleles[0]);
+        String id = getId(node);
+        String mostSevere = textOrNull(node.get("most_severe_consequence"));
+
+        for (int i = 1; i < alleles.length; i++) {
+            String alternate = normalizeAllele(alleles[i]);
+            VariantAnnotation annotation = new VariantAnnotation();
+            annotation.setChromosome(chromosome);
+            annotation.setStart(start);
+            annotation.setEnd(end);
+            annotation.setReference(reference);
+            annotation.setAlternate(alternate);
+            annotation.setId(id);
+            annotation.setDisplayConsequenceType(mostSevere);
+            List<ConsequenceType> consequenceTypes = new ArrayList<>();
+            for (String field : CONSEQUENCE_FIELDS) {
+                for (JsonNode ctNode : node.path(field)) {
+                    if (alleles.length == 2 || !ctNode.has("variant_allele")
+                            || normalizeAllele(ctNode.get("variant_allele").asText()).equals(alternate)) {
+                        consequenceTypes.add(convertConsequenceType(ctNode));
+                    }
+                }
+            }
+            annotation.setConsequenceTypes(consequenceTypes);
+            annotations.add(annotation);
+        }
+    }
+
+    private static ConsequenceType convertConsequenceType(JsonNode ctNode) {
+        ConsequenceType ct = new ConsequenceType();
+        ct.setGeneName(textOrNull(ctNode.get("gene_symbol")));
+        ct.setEnsemblGeneId(textOrNull(ctNode.get("gene_id")));
+        ct.setEnsemblTranscriptId(textOrNull(ctNode.get("transcript_id")));
+        if (ctNode.has("strand")) {
+            ct.setStrand(ctNode.get("strand").asInt() < 0 ? "-" : "+");
+        }
+        ct.setBiotype(textOrNull(ctNode.get("biotype")));
+        ct.setExonOverlap(Collections.emptyList());
+        ct.setTranscriptAnnotationFlags(Collections.emptyList());
+        ct.setCdnaPosition(intOrNull(ctNode.get("cdna_start")));
+        ct.setCdsPosition(intOrNull(ctNode.get("cds_start")));
+        ct.setCodon(textOrNull(ctNode.get("codons")));
+
+        String aminoAcids = textOrNull(ctNode.get("amino_acids"));
+        if (aminoAcids != null) {
+            String[] split = aminoAcids.split("/");
+            ProteinVariantAnnotation protein = new ProteinVariantAnnotation();
+            protein.setPosition(intOrNull(ctNode.get("protein_start")));
+            protein.setReference(split[0]);
+            protein.setAlternate(split.length > 1 ? split[1] : split[0]);
+            List<Score> scores = new ArrayList<>(2);
+            for (String source : Arrays.asList("sift", "polyphen")) {
+                if (ctNode.has(source + "_score")) {
+                    scores.add(new Score(ctNode.get(source + "_score").asDouble(), source,
+                            textOrNull(ctNode.get(source + "_prediction"))));
+                }
+            }
+            protein.setSubstitutionScores(scores);
+            ct.setProteinVariantAnnotation(protein);
+        }
+
+        List<SequenceOntologyTerm> soTerms = new ArrayList<>();
+        for (JsonNode term : ctNode.path("consequence_terms")) {
+            Integer accession = ConsequenceTypeMappings.termToAccession.get(term.asText());
+            soTerms.add(new SequenceOntologyTerm(accession == null ? null : String.format("SO:%07d", accession), term.asText()));
+        }
+        ct.setSequenceOntologyTerms(soTerms);
+        return ct;
+    }
+
+    private static String getId(JsonNode node) {
+        for (JsonNode colocated : node.path("colocated_variants")) {
+            String id = colocated.path("id").asText();
+            if (id.startsWith("rs")) {
+                return id;
+            }
+        }
+        String id = textOrNull(node.get("id"));
+        return id == null || id.equals(".") ? null : id;
+    }
+
+    private static String normalizeAllele(String allele) {
+        return allele.equals("-") ? "" : allele;
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private static Integer intOrNull(JsonNode node) {
+        return node == null || !node.canConvertToInt() ? null : node.asInt();
+    }
+}
@@ -5,16 +5,20 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.apache.solr.common.SolrException;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.VariantType;
 import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.solr.FacetQueryParser;
 import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.utils.HyperLogLog;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantIterable;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
@@ -27,7 +31,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,18 +49,28 @@ public class VariantAggregationExecutor {
     private final String dbName;
     private final VariantIterable iterable;
     private final VariantStorageMetadataManager metadataManager;
+    private final ObjectMap options;
     private Logger logger = LoggerFactory.getLogger(VariantAggregationExecutor.class);
     public static final Pattern CHROM_DENSITY_PATTERN = Pattern.compile("^" + CHROM_DENSITY + "\\[([a-zA-Z0-9:\\-,*]+)](:(\\d+))?$");
     public static final String NESTED_FACET_SEPARATOR = ">>"; // FacetQueryParser.NESTED_FACET_SEPARATOR
-    private static final Set<String> ACCEPTED_CHROM_DENSITY_NESTED = new HashSet<>(Arrays.asList("type"));
+    private static final String TYPE_FIELD = "type";
+    private static final String UNIQUE_GENE_FIELD = "unique(gene)";
+    private static final Set<String> ACCEPTED_CHROM_DENSITY_NESTED = new HashSet<>(Arrays.asList(TYPE_FIELD, UNIQUE_GENE_FIELD));
 
     public VariantAggregationExecutor(VariantSearchManager searchManager, String dbName,
                                       VariantIterable iterable,
                                       VariantStorageMetadataManager metadataManager) {
+        this(searchManager, dbName, iterable, metadataManager, new ObjectMap());
+    }
+
+    public VariantAggregationExecutor(VariantSearchManager searchManager, String dbName,
+                                      VariantIterable iterable,
+                                      VariantStorageMetadataManager metadataManager, ObjectMap options) {
         this.searchManager = searchManager;
         this.dbName = dbName;
         this.iterable = iterable;
         this.metadataManager = metadataManager;
+        this.options = options == null ? new ObjectMap() : options;
     }
 
     /**
@@ -94,13 +109,17 @@ public class VariantAggregationExecutor {
                 && !facet.contains(FacetQueryParser.FACET_SEPARATOR);
         if (isChromDensity && facet.contains(NESTED_FACET_SEPARATOR)) {
             String[] split = facet.split(NESTED_FACET_SEPARATOR);
-            if (split.length == 1) {
-                return true;
-            } else if (split.length == 2) {
-                // Check accepted nested fields
-                return ACCEPTED_CHROM_DENSITY_NESTED.contains(split[1]);
+            // Check accepted nested fields
+            for (int i = 1; i < split.length; i++) {
+                if (!ACCEPTED_CHROM_DENSITY_NESTED.contains(split[i])) {
+                    return false;
+                }
+                // Aggregations can only be at the last level
+                if (split[i].equals(UNIQUE_GENE_FIELD) && i != split.length - 1) {
+                    return false;
+                }
             }
-            return false;
+            return true;
         } else {
             return isChromDensity;
         }
@@ -110,29 +129,25 @@ public class VariantAggregationExecutor {
         return new VariantQueryException("Unable to calculate " + CHROM_DENSITY + " with nested field " + nestedFieldName);
     }
 
+    /**
+     * Calculate the {@link org.opencb.opencga.storage.core.variant.search.solr.SolrQueryParser#CHROM_DENSITY} aggregation
+     * iterating over the variants.
+     *
+     * Each region is split in partitions of {@link VariantStorageOptions#AGGREGATION_PARTITION_SIZE}, aligned with the step.
+     * Partitions are accumulated in parallel using up to {@link VariantStorageOptions#AGGREGATION_THREADS}, and then merged.
+     *
+     * @param query   Query
+     * @param options Query options with the facet
+     * @return        Facet result
+     */
     protected DataResult<FacetField> chromDensityAggregation(Query query, QueryOptions options) {
         StopWatch stopWatch = StopWatch.createStarted();
         String facet = options.getString(QueryOptions.FACET);
 
         String[] split = facet.split(NESTED_FACET_SEPARATOR);
         String chromDensityFacet = split[0];
-        FieldVariantAccumulator nestedFieldAccumulator;
-        if (split.length == 2) {
-            String nestedFieldName;
-            nestedFieldName = split[1];
-            if (!ACCEPTED_CHROM_DENSITY_NESTED.contains(nestedFieldName)) {
-                throw invalidNestedField(nestedFieldName);
-            }
-            switch (nestedFieldName) {
-                case "type":
-                    nestedFieldAccumulator = new VariantTypeAccumulator();
-                    break;
-                default:
-                    throw invalidNestedField(nestedFieldName);
-            }
-        } else {
-            nestedFieldAccumulator = null;
-        }
+        List<String> nestedFields = Arrays.asList(split).subList(1, split.length);
+        Supplier<FieldVariantAccumulator> nestedFieldAccumulator = nestedAccumulatorFactory(nestedFields);
 
         int step;
         List<Region> regions = new LinkedList<>();
@@ -158,31 +173,58 @@ public class VariantAggregationExecutor {
             throw new VariantQueryException("Unable to calculate aggregated stats query without a region or gene");
         }
 
-        List<FacetField.Bucket> regionBuckets = new ArrayList<>(regions.size());
-        long numMatches = 0;
-        for (Region region : regions) {
-            Query regionQuery = new Query(query).append(VariantQueryParam.REGION.key(), region);
-            VariantDBIterator iterator = iterable.iterator(
-                    regionQuery,
-                    new QueryOptions()
-                            .append(QueryOptions.INCLUDE, VariantField.ID)
-                            .append(QueryOptions.SORT, true));
-
-            ChromDensityAccumulator chromDensityAccumulator = new ChromDensityAccumulator(region, nestedFieldAccumulator, step);
+        QueryOptions iteratorOptions = new QueryOptions(QueryOptions.INCLUDE, nestedFields.contains(UNIQUE_GENE_FIELD)
+                ? Arrays.asList(VariantField.ID.fieldName(), VariantField.ANNOTATION_CONSEQUENCE_TYPES.fieldName())
+                : Collections.singletonList(VariantField.ID.fieldName()));
 
-            logger.info("Query : " + regionQuery.toJson());
-
-            FacetField regionField = chromDensityAccumulator.createField();
+        // Split regions in partitions aligned with the step
+        int partitionSize = this.options.getInt(VariantStorageOptions.AGGREGATION_PARTITION_SIZE.key(),
+                VariantStorageOptions.AGGREGATION_PARTITION_SIZE.defaultValue());
+        partitionSize = Math.max(1, partitionSize / step) * step;
+        List<ChromDensityAccumulator> regionAccumulators = new ArrayList<>(regions.size());
+        List<ChromDensityAccumulator> partitions = new ArrayList<>();
+        for (Region region : regions) {
+            completeRegion(region);
+            ChromDensityAccumulator regionAccumulator = new ChromDensityAccumulator(region, step, nestedFieldAccumulator);
+            regionAccumulators.add(regionAccumulator);
+            for (int start = region.getStart(); start <= region.getEnd() && start > 0; start += partitionSize) {
+                int end = (int) Math.min(region.getEnd(), ((long) start) + partitionSize - 1);
+                partitions.add(regionAccumulator.partition(start, end));
+            }
+        }
 
-            int count = 0;
-            while (iterator.hasNext()) {
-                count++;
-                chromDensityAccumulator.accumulate(regionField, iterator.next());
+        int threads = Math.min(partitions.size(), this.options.getInt(VariantStorageOptions.AGGREGATION_THREADS.key(),
+                VariantStorageOptions.AGGREGATION_THREADS.defaultValue()));
+        logger.info("Aggregate " + CHROM_DENSITY + " from " + regions.size() + " regions split in " + partitions.size() + " partitions"
+                + " using " + threads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<ChromDensityAccumulator>> futures = new ArrayList<>(partitions.size());
+            for (ChromDensityAccumulator partition : partitions) {
+                futures.add(executor.submit(() -> accumulate(query, iteratorOptions, partition)));
             }
-            numMatches += count;
+            for (Future<ChromDensityAccumulator> future : futures) {
+                ChromDensityAccumulator partition = future.get();
+                partition.parent.merge(partition);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw VariantQueryException.internalException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw VariantQueryException.internalException(e);
+        } finally {
+            executor.shutdownNow();
+        }
 
-            chromDensityAccumulator.cleanEmptyBuckets(regionField);
-            regionBuckets.add(new FacetField.Bucket(region.getChromosome(), count, Collections.singletonList(regionField)));
+        List<FacetField.Bucket> regionBuckets = new ArrayList<>(regions.size());
+        long numMatches = 0;
+        for (ChromDensityAccumulator regionAccumulator : regionAccumulators) {
+            numMatches += regionAccumulator.count;
+            regionBuckets.add(new FacetField.Bucket(regionAccumulator.region.getChromosome(), regionAccumulator.count,
+                    Collections.singletonList(regionAccumulator.toFacetField())));
         }
 
         FacetField field = new FacetField(
@@ -193,151 +235,269 @@ public class VariantAggregationExecutor {
                 Collections.singletonList(field), numMatches);
     }
 
-    private interface FieldVariantAccumulator {
+    private ChromDensityAccumulator accumulate(Query query, QueryOptions iteratorOptions, ChromDensityAccumulator partition)
+            throws Exception {
+        Query partitionQuery = new Query(query).append(VariantQueryParam.REGION.key(), partition.region);
+        logger.debug("Query : " + partitionQuery.toJson());
+        try (VariantDBIterator iterator = iterable.iterator(partitionQuery, iteratorOptions)) {
+            while (iterator.hasNext()) {
+                partition.accumulate(iterator.next());
+            }
+        }
+        return partition;
+    }
+
+    private Supplier<FieldVariantAccumulator> nestedAccumulatorFactory(List<String> nestedFields) {
+        if (nestedFields.isEmpty()) {
+            return null;
+        }
+        String nestedFieldName = nestedFields.get(0);
+        Supplier<FieldVariantAccumulator> nested = nestedAccumulatorFactory(nestedFields.subList(1, nestedFields.size()));
+        switch (nestedFieldName) {
+            case TYPE_FIELD:
+                return () -> new VariantTypeAccumulator(nested);
+            case UNIQUE_GENE_FIELD:
+                if (nested != null) {
+                    throw invalidNestedField(nestedFields.get(1));
+                }
+                return UniqueGeneAccumulator::new;
+            default:
+                throw invalidNestedField(nestedFieldName);
+        }
+    }
+
+    /**
+     * Fill the region end with the contig length, if known, and ensure the start is 1-based.
+     * @param region Region to complete
+     */
+    private void completeRegion(Region region) {
+        if (region.getEnd() == Integer.MAX_VALUE) {
+            for (Integer studyId : metadataManager.getStudyIds()) {
+                StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+                VariantFileHeaderComplexLine contig = studyMetadata.getVariantHeaderLine("contig", region.getChromosome());
+                if (contig == null) {
+                    contig = studyMetadata.getVariantHeaderLine("contig", "chr" + region.getChromosome());
+                }
+                if (contig != null) {
+                    String length = contig.getGenericFields().get("length");
+                    if (StringUtils.isNotEmpty(length) && StringUtils.isNumeric(length)) {
+                        region.setEnd(Integer.parseInt(length));
+                        break;
+                    }
+                }
+            }
+        }
+        if (region.getStart() == 0) {
+            region.setStart(1);
+        }
+    }
+
+    /**
+     * Accumulates variants into primitive counters. Partial accumulators of the same field can be merged.
+     * Not thread safe.
+     */
+    private abstract static class FieldVariantAccumulator {
+        protected long count;
+
         /**
-         * Get field name.
-         * @return Field name
+         * Accumulate variant.
+         * @param variant Variant
          */
-        String getName();
+        abstract void accumulate(Variant variant);
 
         /**
-         * Prepare (if required) the list of buckets for this field.
-         * @return predefined list of buckets.
+         * Merge a partial accumulator of the same type into this.
+         * @param other   Other accumulator
          */
-        default FacetField createField() {
-            return new FacetField(getName(), 0, prepareBuckets());
-        }
+        abstract void merge(FieldVariantAccumulator other);
 
         /**
-         * Prepare (if required) the list of buckets for this field.
-         * @return predefined list of buckets.
+         * Build the facet field, without empty buckets.
+         * @return FacetField
          */
-        List<FacetField.Bucket> prepareBuckets();
+        abstract FacetField toFacetField();
 
-        default void cleanEmptyBuckets(FacetField field) {
-            field.getBuckets().removeIf(bucket -> bucket.getCount() == 0);
+        protected static FieldVariantAccumulator merge(FieldVariantAccumulator accumulator, FieldVariantAccumulator other) {
+            if (accumulator == null) {
+                return other;
+            } else if (other != null) {
+                accumulator.merge(other);
+            }
+            return accumulator;
         }
-
-        /**
-         * Accumulate variant in the given field.
-         * @param field   Field
-         * @param variant Variant
-         */
-        void accumulate(FacetField field, Variant variant);
     }
 
-    private final class ChromDensityAccumulator implements FieldVariantAccumulator {
+    private static final class ChromDensityAccumulator extends FieldVariantAccumulator {
         private final Region region;
-        private final FieldVariantAccumulator nestedFieldAccumulator;
         private final int step;
-        private final int numSteps;
+        // Bin of the first position of this region, relative to the parent region
+        private final int firstBin;
+        private final long[] counts;
+        private final FieldVariantAccumulator[] nested;
+        private final Supplier<FieldVariantAccumulator> nestedFieldAccumulator;
+        // Accept variants starting before the region start. Only for the first partition.
+        private final boolean acceptPrevious;
+        private final ChromDensityAccumulator parent;
+
+        private ChromDensityAccumulator(Region region, int step, Supplier<FieldVariantAccumulator> nestedFieldAccumulator) {
+            this(region, step, nestedFieldAccumulator, 0, true, null);
+        }
 
-        private ChromDensityAccumulator(Region region, FieldVariantAccumulator nestedFieldAccumulator, int step) {
+        private ChromDensityAccumulator(Region region, int step, Supplier<FieldVariantAccumulator> nestedFieldAccumulator,
+                                        int firstBin, boolean acceptPrevious, ChromDensityAccumulator parent) {
             this.region = region;
-            this.nestedFieldAccumulator = nestedFieldAccumulator;
             this.step = step;
+            this.firstBin = firstBin;
+            this.acceptPrevious = acceptPrevious;
+            this.parent = parent;
+            this.nestedFieldAccumulator = nestedFieldAccumulator;
 
-            if (region.getEnd() == Integer.MAX_VALUE) {
-                for (Integer studyId : metadataManager.getStudyIds()) {
-                    StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
-                    VariantFileHeaderComplexLine contig = studyMetadata.getVariantHeaderLine("contig", region.getChromosome());
-                    if (contig == null) {
-                        contig = studyMetadata.getVariantHeaderLine("contig", "chr" + region.getChromosome());
-                    }
-                    if (contig != null) {
-                        String length = contig.getGenericFields().get("length");
-                        if (StringUtils.isNotEmpty(length) && StringUtils.isNumeric(length)) {
-                            region.setEnd(Integer.parseInt(length));
-                            break;
-                        }
+            long regionLength = ((long) region.getEnd()) - region.getStart() + 1;
+            int numSteps = (int) Math.min(Integer.MAX_VALUE - 8, (regionLength + step - 1) / step);
+            counts = new long[numSteps];
+            nested = nestedFieldAccumulator == null ? null : new FieldVariantAccumulator[numSteps];
+        }
+
+        private ChromDensityAccumulator partition(int start, int end) {
+            int firstBin = (start - region.getStart()) / step;
+            return new ChromDensityAccumulator(new Region(region.getChromosome(), start, end), step, nestedFieldAccumulator,
+                    firstBin, start == region.getStart(), this);
+        }
+
+        @Override
+        void accumulate(Variant variant) {
+            if (variant.getStart() < region.getStart() && !acceptPrevious) {
+                // Already counted by the previous partition
+                return;
+            }
+            count++;
+            int idx = variant.getStart() < region.getStart() ? -1 : (variant.getStart() - region.getStart()) / step;
+            if (idx >= 0 && idx < counts.length) {
+                counts[idx]++;
+                if (nested != null) {
+                    if (nested[idx] == null) {
+                        nested[idx] = nestedFieldAccumulator.get();
                     }
+                    nested[idx].accumulate(variant);
                 }
             }
-            if (region.getStart() == 0) {
-                region.setStart(1);
-            }
-
-            int regionLength = region.getEnd() - region.getStart();
-            if (regionLength != Integer.MAX_VALUE) {
-                regionLength++;
-            }
-            numSteps = regionLength / step + 1;
         }
 
         @Override
-        public String getName() {
-            return VariantField.START.fieldName();
+        void merge(FieldVariantAccumulator o) {
+            ChromDensityAccumulator other = (ChromDensityAccumulator) o;
+            int offset = other.firstBin - firstBin;
+            count += other.count;
+            for (int i = 0; i < other.counts.length && i + offset < counts.length; i++) {
+                counts[i + offset] += other.counts[i];
+                if (nested != null) {
+                    nested[i + offset] = merge(nested[i + offset], other.nested[i]);
+                }
+            }
         }
 
         @Override
-        public FacetField createField() {
-            return new FacetField(VariantField.START.fieldName(), 0,
-                    prepareBuckets())
+        FacetField toFacetField() {
+            List<FacetField.Bucket> buckets = new ArrayList<>();
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    total += counts[i];
+                    FacetField.Bucket bucket = new FacetField.Bucket(String.valueOf(i * step + region.getStart()), counts[i], null);
+                    if (nested != null) {
+                        bucket.setFacetFields(Collections.singletonList(nested[i].toFacetField()));
+                    }
+                    buckets.add(bucket);
+                }
+            }
+            return new FacetField(VariantField.START.fieldName(), total, buckets)
                     .setStart(region.getStart())
                     .setEnd(region.getEnd())
                     .setStep(step);
         }
+    }
+
+    private static final class VariantTypeAccumulator extends FieldVariantAccumulator {
+        private final long[] counts = new long[VariantType.values().length];
+        private final FieldVariantAccumulator[] nested;
+        private final Supplier<FieldVariantAccumulator> nestedFieldAccumulator;
+
+        private VariantTypeAccumulator(Supplier<FieldVariantAccumulator> nestedFieldAccumulator) {
+            // TODO: Accept subset of variant type
+            this.nestedFieldAccumulator = nestedFieldAccumulator;
+            nested = nestedFieldAccumulator == null ? null : new FieldVariantAccumulator[counts.length];
+        }
 
         @Override
-        public List<FacetField.Bucket> prepareBuckets() {
-            List<FacetField.Bucket> valueBuckets = new ArrayList<>(numSteps);
-            for (int i = 0; i < numSteps; i++) {
-                FacetField.Bucket bucket = new FacetField.Bucket(String.valueOf(i * step + region.getStart()), 0, null);
-                if (nestedFieldAccumulator != null) {
-                    bucket.setFacetFields(Collections.singletonList(nestedFieldAccumulator.createField()));
+        void accumulate(Variant variant) {
+            count++;
+            int idx = variant.getType().ordinal();
+            counts[idx]++;
+            if (nested != null) {
+                if (nested[idx] == null) {
+                    nested[idx] = nestedFieldAccumulator.get();
                 }
-                valueBuckets.add(bucket);
+                nested[idx].accumulate(variant);
             }
-            return valueBuckets;
         }
 
         @Override
-        public void accumulate(FacetField field, Variant variant) {
-            int idx = (variant.getStart() - region.getStart()) / step;
-            if (idx < numSteps) {
-                field.addCount(1);
-                FacetField.Bucket bucket = field.getBuckets().get(idx);
-                bucket.addCount(1);
-                if (nestedFieldAccumulator != null) {
-                    nestedFieldAccumulator.accumulate(bucket.getFacetFields().get(0), variant);
+        void merge(FieldVariantAccumulator o) {
+            VariantTypeAccumulator other = (VariantTypeAccumulator) o;
+            count += other.count;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                if (nested != null) {
+                    nested[i] = merge(nested[i], other.nested[i]);
                 }
             }
         }
+
         @Override
-        public void cleanEmptyBuckets(FacetField field) {
-            field.getBuckets().removeIf(bucket -> bucket.getCount() == 0);
-            if (nestedFieldAccumulator != null) {
-                for (FacetField.Bucket bucket : field.getBuckets()) {
-                    nestedFieldAccumulator.cleanEmptyBuckets(bucket.getFacetFields().get(0));
+        FacetField toFacetField() {
+            List<FacetField.Bucket> buckets = new ArrayList<>();
+            for (VariantType variantType : VariantType.values()) {
+                int idx = variantType.ordinal();
+                if (counts[idx] > 0) {
+                    FacetField.Bucket bucket = new FacetField.Bucket(variantType.name(), counts[idx], null);
+                    if (nested != null) {
+                        bucket.setFacetFields(Collections.singletonList(nested[idx].toFacetField()));
+                    }
+                    buckets.add(bucket);
                 }
             }
+            return new FacetField(TYPE_FIELD, count, buckets);
         }
     }
 
-    private final class VariantTypeAccumulator implements FieldVariantAccumulator {
-
-        private VariantTypeAccumulator() {
-            // TODO: Accept subset of variant type
-        }
+    /**
+     * Approximate number of distinct genes, using a {@link HyperLogLog}.
+     */
+    private static final class UniqueGeneAccumulator extends FieldVariantAccumulator {
+        private final HyperLogLog hll = new HyperLogLog();
 
         @Override
-        public String getName() {
-            return "type";
+        void accumulate(Variant variant) {
+            count++;
+            if (variant.getAnnotation() != null && variant.getAnnotation().getConsequenceTypes() != null) {
+                for (ConsequenceType consequenceType : variant.getAnnotation().getConsequenceTypes()) {
+                    if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
+                        hll.add(consequenceType.getGeneName());
+                    }
+                }
+            }
         }
 
         @Override
-        public List<FacetField.Bucket> prepareBuckets() {
-            List<FacetField.Bucket> buckets = new ArrayList<>(VariantType.values().length);
-            for (VariantType variantType : VariantType.values()) {
-                buckets.add(new FacetField.Bucket(variantType.name(), 0, null));
-            }
-            return buckets;
+        void merge(FieldVariantAccumulator other) {
+            count += other.count;
+            hll.merge(((UniqueGeneAccumulator) other).hll);
         }
 
         @Override
-        public void accumulate(FacetField field, Variant variant) {
-            field.addCount(1);
-            field.getBuckets().get(variant.getType().ordinal()).addCount(1);
+        FacetField toFacetField() {
+            return new FacetField("gene", "unique", Collections.singletonList((double) hll.cardinality()))
+                    .setCount(count);
         }
     }
 
@@ -12,7 +12,10 @@ import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.MultiVariantDBIterator;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchManager;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchSolrIterator;
 import org.slf4j.Logger;
@@ -23,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -42,12 +46,31 @@ import static org.opencb.opencga.storage.core.variant.search.solr.VariantSearchM
  */
 public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQueryExecutor {
 
+    private static final int INTERSECT_BATCH_SIZE = 100;
+    private final ExecutorService prefetchExecutor;
     private Logger logger = LoggerFactory.getLogger(SearchIndexVariantQueryExecutor.class);
 
     public SearchIndexVariantQueryExecutor(VariantDBAdaptor dbAdaptor, VariantSearchManager searchManager,
                                            String storageEngineId, String dbName, StorageConfiguration configuration,
                                            ObjectMap options) {
+        this(dbAdaptor, searchManager, storageEngineId, dbName, configuration, options, null);
+    }
+
+    /**
+     * @param dbAdaptor         DBAdaptor
+     * @param searchManager     Search manager
+     * @param storageEngineId   Storage engine ID
+     * @param dbName            DB name
+     * @param configuration     Storage configuration
+     * @param options           Options
+     * @param prefetchExecutor  Executor used to fetch batches from the storage in background. If null, batches are
+     *                          fetched synchronously, regardless of {@link VariantStorageOptions#INTERSECT_PREFETCH_BATCHES}.
+     */
+    public SearchIndexVariantQueryExecutor(VariantDBAdaptor dbAdaptor, VariantSearchManager searchManager,
+                                           String storageEngineId, String dbName, StorageConfiguration configuration,
+                                           ObjectMap options, ExecutorService prefetchExecutor) {
         super(dbAdaptor, searchManager, storageEngineId, dbName, configuration, options);
+        this.prefetchExecutor = prefetchExecutor;
     }
 
     @Override
@@ -135,12 +158,23 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
                 variantsIterator = variantIdIteratorFromSearch(searchEngineQuery, Integer.MAX_VALUE, 0, searchCount);
             }
 
+            if (!options.containsKey(MultiVariantDBIterator.PREFETCH_BATCHES)) {
+                // Fetch from the storage while the next batches of ids are read from the search engine
+                options = new QueryOptions(options);
+                options.put(MultiVariantDBIterator.PREFETCH_BATCHES,
+                        getOptions().getInt(INTERSECT_PREFETCH_BATCHES.key(), INTERSECT_PREFETCH_BATCHES.defaultValue()));
+            }
+
             logger.debug("Intersect query " + engineQuery.toJson() + " options " + options.toJson());
             if (iterator) {
-                return dbAdaptor.iterator(variantsIterator, engineQuery, options);
+                return new MultiVariantDBIterator(variantsIterator, INTERSECT_BATCH_SIZE, engineQuery, options,
+                        dbAdaptor::iterator, prefetchExecutor);
             } else {
                 setDefaultTimeout(options);
-                VariantQueryResult<Variant> queryResult = dbAdaptor.get(variantsIterator, engineQuery, options);
+                VariantDBIterator variantDBIterator = new MultiVariantDBIterator(variantsIterator, INTERSECT_BATCH_SIZE, engineQuery,
+                        options, dbAdaptor::iterator, prefetchExecutor);
+                VariantQueryResult<Variant> queryResult = VariantQueryUtils.addSamplesMetadataIfRequested(
+                        variantDBIterator.toDataResult(), engineQuery, options, getMetadataManager());
                 if (numTotalResults != null) {
                     queryResult.setApproximateCount(approxCount);
                     queryResult.setApproximateCountSamplingSize(approxCountSamplingSize);
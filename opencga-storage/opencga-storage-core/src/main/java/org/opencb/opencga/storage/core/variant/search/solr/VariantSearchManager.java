@@ -37,7 +37,10 @@ import org.opencb.commons.datastore.core.*;
 import org.opencb.commons.datastore.solr.FacetQueryParser;
 import org.opencb.commons.datastore.solr.SolrCollection;
 import org.opencb.commons.datastore.solr.SolrManager;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
 import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
 import org.opencb.commons.utils.CollectionUtils;
 import org.opencb.commons.utils.ListUtils;
 import org.opencb.opencga.core.common.TimeUtils;
@@ -47,6 +50,8 @@ import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
@@ -239,17 +244,19 @@ public class VariantSearchManager {
         AtomicInteger count = new AtomicInteger();
         AtomicInteger numLoadedVariants = new AtomicInteger();
 
-        ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>((n) -> {
+        DataReader<Variant> reader = (n) -> {
             List<Variant> batch = new ArrayList<>(n);
             while (batch.size() < n && variantDBIterator.hasNext()) {
                 batch.add(variantDBIterator.next());
             }
             count.addAndGet(batch.size());
             return batch;
-        }, batch -> {
+        };
+        Task<Variant, Variant> task = batch -> {
             progressLogger.increment(batch.size(), () -> "up to position " + batch.get(batch.size() - 1).toString());
             return batch;
-        }, batch -> {
+        };
+        DataWriter<Variant> writer = batch -> {
             try {
                 loadListener.preLoad(batch);
                 numLoadedVariants.addAndGet(batch.size());
@@ -259,7 +266,10 @@ public class VariantSearchManager {
                 throw new RuntimeException(e);
             }
             return true;
-        }, ParallelTaskRunner.Config.builder()
+        };
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.SECONDARY_INDEX).newRun();
+        ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>(metrics.instrument(reader), metrics.instrument(task),
+                metrics.instrument(writer), ParallelTaskRunner.Config.builder()
                 .setBatchSize(insertBatchSize)
                 .setCapacity(2)
                 .setNumTasks(1)
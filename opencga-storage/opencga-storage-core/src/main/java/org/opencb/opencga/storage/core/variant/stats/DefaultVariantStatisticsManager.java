@@ -44,6 +44,9 @@ import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
+import org.opencb.opencga.storage.core.utils.AdaptiveParallelTaskRunner;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
@@ -61,6 +64,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Created by jmmut on 12/02/15.
@@ -213,17 +217,18 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
                 .append(QueryOptions.EXCLUDE, VariantField.ANNOTATION);
         logger.info("ReaderQueryOptions: " + readerOptions.toJson());
         VariantDBReader reader = new VariantDBReader(variantDBAdaptor, readerQuery, readerOptions);
-        List<Task<Variant, String>> tasks = new ArrayList<>(numTasks);
         ProgressLogger progressLogger = buildCreateStatsProgressLogger(dbAdaptor, readerQuery, readerOptions);
-        for (int i = 0; i < numTasks; i++) {
-            tasks.add(new VariantStatsWrapperTask(overwrite, cohorts, studyMetadata, variantSourceStats, tagmap, progressLogger,
-                    aggregation));
-        }
+        final Map<String, Set<String>> finalCohorts = cohorts;
+        final boolean finalOverwrite = overwrite;
+        Supplier<Task<Variant, String>> task = () -> new VariantStatsWrapperTask(finalOverwrite, finalCohorts, studyMetadata,
+                variantSourceStats, tagmap, progressLogger, aggregation);
         StringDataWriter writer = buildVariantStatsStringDataWriter(output);
 
         // runner
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(numTasks).setBatchSize(batchSize).build();
-        ParallelTaskRunner runner = new ParallelTaskRunner<>(reader, tasks, writer, config);
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.STATS).newRun();
+        ParallelTaskRunner<Variant, String> runner = AdaptiveParallelTaskRunner.newInstance(metrics.instrument(reader),
+                metrics.instrument(task), metrics.instrument(writer), config, options);
         try {
             logger.info("starting stats creation for cohorts {}", cohorts.keySet());
             long start = System.currentTimeMillis();
@@ -391,35 +396,38 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         ParallelTaskRunner<VariantStatsWrapper, ?> ptr;
         DataReader<VariantStatsWrapper> dataReader = newVariantStatsWrapperDataReader(variantInputStream);
         List<VariantStatsDBWriter> writers = new ArrayList<>();
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.STATS_LOAD).newRun();
         int threads = options.getInt(VariantStorageOptions.STATS_LOAD_THREADS.key(),
                 VariantStorageOptions.STATS_LOAD_THREADS.defaultValue());
         int batchSize = options.getInt(VariantStorageOptions.STATS_LOAD_BATCH_SIZE.key(),
                 VariantStorageOptions.STATS_LOAD_BATCH_SIZE.defaultValue());
         if (threads > 1) {
-            ptr = new ParallelTaskRunner<>(
-                    dataReader,
-                    () -> {
+            ptr = AdaptiveParallelTaskRunner.newInstance(
+                    metrics.instrument(dataReader),
+                    metrics.instrument(() -> {
                         VariantStatsDBWriter dbWriter = newVariantStatisticsDBWriter(dbAdaptor, studyMetadata, options);
                         dbWriter.setProgressLogger(progressLogger);
                         writers.add(dbWriter);
                         return dbWriter.asTask();
-                    },
+                    }),
                     null,
                     ParallelTaskRunner.Config.builder().setAbortOnFail(true)
                             .setBatchSize(batchSize)
-                            .setNumTasks(threads).build()
+                            .setNumTasks(threads).build(),
+                    options
             );
         } else {
             VariantStatsDBWriter dbWriter = newVariantStatisticsDBWriter(dbAdaptor, studyMetadata, options);
             dbWriter.setProgressLogger(progressLogger);
             writers.add(dbWriter);
+            Task<VariantStatsWrapper, VariantStatsWrapper> identity = batch -> batch;
             ptr = new ParallelTaskRunner<>(
-                    dataReader,
-                    batch -> batch,
-                    dbWriter,
+                    metrics.instrument(dataReader),
+                    metrics.instrument(identity),
+                    metrics.instrument(dbWriter),
                     ParallelTaskRunner.Config.builder().setAbortOnFail(true)
                             .setBatchSize(batchSize)
-                            .setNumTasks(4).build()
+                            .setNumTasks(1).build()
             );
         }
 
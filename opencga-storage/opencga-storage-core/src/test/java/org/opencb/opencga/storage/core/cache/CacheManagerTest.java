@@ -0,0 +1,94 @@
+package org.opencb.opencga.storage.core.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.config.CacheConfiguration;
+import org.opencb.opencga.storage.core.config.StorageConfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CacheManagerTest {
+
+    private CacheManager cacheManager;
+
+    @Before
+    public void setUp() throws Exception {
+        StorageConfiguration configuration = new StorageConfiguration();
+        configuration.setCache(new CacheConfiguration()
+                .setActive(true)
+                .setSlowThreshold(10)
+                .setMaxResultSize(5)
+                .setRemote(""));
+        cacheManager = new CacheManager(configuration);
+    }
+
+    @Test
+    public void testCreateKey() {
+        String key1 = cacheManager.createKey("db", "var", new Query("a", "1").append("b", "2"), new QueryOptions("limit", 10));
+        String key2 = cacheManager.createKey("db", "var", new Query("b", "2").append("a", "1").append("c", ""),
+                new QueryOptions("limit", 10).append(CacheManager.CACHE, true).append(QueryOptions.TIMEOUT, 1000));
+        String key3 = cacheManager.createKey("db", "var", new Query("a", "1"), new QueryOptions("limit", 10));
+        String key4 = cacheManager.createKey("db", "var", new Query("a", "1").append("b", "2"), new QueryOptions("limit", 11));
+
+        assertEquals(key1, key2);
+        assertNotEquals(key1, key3);
+        assertNotEquals(key1, key4);
+        assertTrue(key1.startsWith("ocga:db:var:"));
+    }
+
+    @Test
+    public void testSetGet() {
+        String key = cacheManager.createKey("db", "var", new Query("a", "1"), new QueryOptions());
+        assertNull(cacheManager.get(key));
+
+        DataResult<String> result = new DataResult<>(100, Collections.emptyList(), 2, Arrays.asList("v1", "v2"), 2);
+        cacheManager.set(key, new Query("a", "1"), result);
+
+        DataResult<String> cached = cacheManager.get(key);
+        assertNotNull(cached);
+        assertNotSame(result, cached);
+        assertEquals(result.getResults(), cached.getResults());
+        assertEquals(result.getNumMatches(), cached.getNumMatches());
+        assertEquals(1L, cacheManager.getStats().getMap("local").get("hitCount"));
+    }
+
+    @Test
+    public void testSkipFastOrLargeResults() {
+        String key = cacheManager.createKey("db", "var", new Query("a", "1"), new QueryOptions());
+
+        cacheManager.set(key, null, new DataResult<>(1, Collections.emptyList(), 1, Collections.singletonList("v1"), 1));
+        assertNull(cacheManager.get(key));
+
+        cacheManager.set(key, null, new DataResult<>(100, Collections.emptyList(), 6,
+                Arrays.asList("1", "2", "3", "4", "5", "6"), 6));
+        assertNull(cacheManager.get(key));
+    }
+
+    @Test
+    public void testClearNamespace() {
+        String key1 = cacheManager.createKey("db1", "var", new Query("a", "1"), new QueryOptions());
+        String key2 = cacheManager.createKey("db2", "var", new Query("a", "1"), new QueryOptions());
+        DataResult<String> result = new DataResult<>(100, Collections.emptyList(), 1, Collections.singletonList("v1"), 1);
+        cacheManager.set(key1, null, result);
+        cacheManager.set(key2, null, result);
+
+        cacheManager.clear("db1");
+        assertNull(cacheManager.get(key1));
+        assertNotNull(cacheManager.get(key2));
+    }
+
+    @Test
+    public void testInactive() {
+        CacheManager cacheManager = new CacheManager();
+        String key = cacheManager.createKey("db", "var", new Query("a", "1"), new QueryOptions());
+        cacheManager.set(key, null, new DataResult<>(100, Collections.emptyList(), 1, Collections.singletonList("v1"), 1));
+        assertFalse(cacheManager.isActive());
+        assertNull(cacheManager.get(key));
+    }
+}
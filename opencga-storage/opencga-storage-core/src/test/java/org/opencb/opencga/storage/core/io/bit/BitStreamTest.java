@@ -7,6 +7,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
@@ -103,6 +104,63 @@ public class BitStreamTest {
         Assert.assertArrayEquals(bytes, inputStream.read(LENGTH * Byte.SIZE));
     }
 
+    @Test
+    public void testReadBytes() {
+        for (int bitLength = 1; bitLength <= Byte.SIZE; bitLength++) {
+            for (int skip = 0; skip < Byte.SIZE; skip++) {
+                int numValues = (LENGTH * Byte.SIZE - skip) / bitLength;
+                BitInputStream expectedStream = new BitInputStream(bytes);
+                BitInputStream actualStream = new BitInputStream(bytes);
+                expectedStream.readByte(skip);
+                actualStream.readByte(skip);
+
+                byte[] expected = new byte[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    expected[i] = expectedStream.readByte(bitLength);
+                }
+                byte[] actual = new byte[numValues + 3];
+                actualStream.readBytes(numValues, bitLength, actual, 3);
+
+                assertArrayEquals("bitLength=" + bitLength + ", skip=" + skip,
+                        expected, Arrays.copyOfRange(actual, 3, actual.length));
+                assertEquals(expectedStream.remainingBits(), actualStream.remainingBits());
+            }
+        }
+    }
+
+    @Test
+    public void testReadBytesOffset() {
+        BitInputStream inputStream = new BitInputStream(bytes, 3, 20);
+        byte[] actual = inputStream.readBytes(20 * Byte.SIZE / 2, 2);
+        BitInputStream expectedStream = new BitInputStream(bytes, 3, 20);
+        for (byte b : actual) {
+            assertEquals(expectedStream.readByte(2), b);
+        }
+        assertEquals(0, inputStream.remainingBits());
+    }
+
+    @Test
+    public void testReadBytesOverflow() {
+        thrown.expect(IllegalArgumentException.class);
+        inputStream.readBytes(LENGTH * Byte.SIZE / 4 + 1, 4);
+    }
+
+    @Test
+    public void testWriteBytes() {
+        for (int bitLength = 1; bitLength <= Byte.SIZE; bitLength++) {
+            BitOutputStream expectedStream = new BitOutputStream();
+            BitOutputStream actualStream = new BitOutputStream();
+            // Start unaligned
+            expectedStream.write(0b101, 3);
+            actualStream.write(0b101, 3);
+            for (byte aByte : bytes) {
+                expectedStream.write(aByte, bitLength);
+            }
+            actualStream.write(bytes, 0, bytes.length, bitLength);
+            assertArrayEquals("bitLength=" + bitLength, expectedStream.toByteArray(), actualStream.toByteArray());
+        }
+    }
+
     @Test
     public void readMoreThanByte() {
         thrown.expect(IllegalArgumentException.class);
@@ -0,0 +1,88 @@
+package org.opencb.opencga.storage.core.metadata;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MetadataCacheTest {
+
+    @Test
+    public void testGet() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>((studyId, id) -> {
+            calls.incrementAndGet();
+            return studyId * 100 + id.length();
+        });
+
+        assertEquals(103, cache.get(1, "abc").intValue());
+        assertEquals(103, cache.get(1, "abc").intValue());
+        assertEquals(203, cache.get(2, "abc").intValue());
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getStats().missCount());
+        assertEquals(1, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void testNullValuesNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>((studyId, id) -> {
+            calls.incrementAndGet();
+            return null;
+        });
+
+        assertNull(cache.get(1, "abc"));
+        assertNull(cache.get(1, "abc"));
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidValue() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<Integer, Boolean> cache = new MetadataCache<>((studyId, id) -> calls.incrementAndGet() > 1);
+
+        assertEquals(false, cache.get(1, 1, false));
+        assertEquals(true, cache.get(1, 1, false));
+        assertEquals(true, cache.get(1, 1, false));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<Integer, Integer> cache = new MetadataCache<>((studyId, id) -> calls.incrementAndGet());
+
+        assertEquals(1, cache.get(1, 1).intValue());
+        cache.invalidate(1, 1);
+        assertEquals(2, cache.get(1, 1).intValue());
+        cache.put(1, 1, 10);
+        assertEquals(10, cache.get(1, 1).intValue());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaxSize() {
+        MetadataCache<Integer, Integer> cache = new MetadataCache<>((studyId, id) -> id, 10, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, cache.get(1, i).intValue());
+        }
+        assertEquals(10, cache.size());
+        assertEquals(90, cache.getStats().evictionCount());
+    }
+
+    @Test
+    public void testExpireAfterAccess() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<Integer, Integer> cache = new MetadataCache<>((studyId, id) -> calls.incrementAndGet(), 0, 50);
+
+        assertEquals(1, cache.get(1, 1).intValue());
+        assertEquals(1, cache.get(1, 1).intValue());
+        Thread.sleep(100);
+        assertEquals(2, cache.get(1, 1).intValue());
+    }
+}
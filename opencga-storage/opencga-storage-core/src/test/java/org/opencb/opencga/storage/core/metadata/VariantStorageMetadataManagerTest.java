@@ -0,0 +1,54 @@
+package org.opencb.opencga.storage.core.metadata;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
+import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VariantStorageMetadataManagerTest {
+
+    private VariantStorageMetadataManager metadataManager;
+
+    @Before
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        metadataManager = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        metadataManager.unsecureUpdateStudyMetadata(new StudyMetadata(1, "study"));
+        metadataManager.unsecureUpdateFileMetadata(1, new FileMetadata(1, 10, "file1.vcf"));
+    }
+
+    @Test
+    public void testDataVersion() throws Exception {
+        // Same database, as if used from another process
+        VariantStorageMetadataManager otherMetadataManager
+                = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+
+        int version = otherMetadataManager.getDataVersion();
+        assertEquals(version, metadataManager.getDataVersion());
+
+        metadataManager.addIndexedFiles(1, Collections.singletonList(10));
+        int newVersion = otherMetadataManager.getDataVersion();
+        assertTrue(newVersion > version);
+
+        metadataManager.unsecureUpdateCohortMetadata(1, new CohortMetadata(1, 20, "ALL", Arrays.asList(1, 2)));
+        version = newVersion;
+        newVersion = otherMetadataManager.getDataVersion();
+        assertTrue(newVersion > version);
+
+        metadataManager.updateProjectMetadata(pm -> pm);
+        version = newVersion;
+        newVersion = otherMetadataManager.getDataVersion();
+        assertTrue(newVersion > version);
+
+        // Reading the version does not modify it
+        assertEquals(newVersion, otherMetadataManager.getDataVersion());
+    }
+}
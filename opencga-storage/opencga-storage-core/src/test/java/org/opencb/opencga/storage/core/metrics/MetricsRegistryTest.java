@@ -0,0 +1,117 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testSameInstance() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("my_counter", "help", "stage", "load");
+        assertSame(counter, registry.counter("my_counter", "help", "stage", "load"));
+        assertNotSame(counter, registry.counter("my_counter", "help", "stage", "transform"));
+        assertSame(registry.stage("load"), registry.stage("load"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentType() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("my_metric", "help");
+        registry.histogram("my_metric", "help", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddLabels() {
+        new MetricsRegistry().counter("my_counter", "help", "stage");
+    }
+
+    @Test
+    public void testPrometheus() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("my_counter", "Some counter", "stage", "load").inc(5);
+        registry.counter("my_counter", "Some counter", "stage", "transform").inc();
+        registry.gauge("my_gauge", "Some gauge", () -> 1.5);
+        Histogram histogram = registry.histogram("my_latency_seconds", "Some latency", 1e-3, "stage", "load");
+        histogram.record(1000);
+        histogram.record(3000);
+
+        String expected = ""
+                + "# HELP my_counter Some counter\n"
+                + "# TYPE my_counter counter\n"
+                + "my_counter{stage=\"load\"} 5\n"
+                + "my_counter{stage=\"transform\"} 1\n"
+                + "# HELP my_gauge Some gauge\n"
+                + "# TYPE my_gauge gauge\n"
+                + "my_gauge 1.5\n"
+                + "# HELP my_latency_seconds Some latency\n"
+                + "# TYPE my_latency_seconds summary\n";
+        String prometheus = registry.toPrometheus();
+        assertTrue(prometheus, prometheus.startsWith(expected));
+        assertTrue(prometheus, prometheus.contains("my_latency_seconds{stage=\"load\",quantile=\"0.5\"} "));
+        assertTrue(prometheus, prometheus.contains("my_latency_seconds{stage=\"load\",quantile=\"0.99\"} "));
+        assertTrue(prometheus, prometheus.contains("my_latency_seconds_sum{stage=\"load\"} 4\n"));
+        assertTrue(prometheus, prometheus.contains("my_latency_seconds_count{stage=\"load\"} 2\n"));
+    }
+
+    @Test
+    public void testSnapshot() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("my_counter", "help", "stage", "load").inc(5);
+        registry.gauge("my_gauge", "help", () -> Double.NaN);
+        registry.histogram("my_histogram", "help", 1).record(10);
+
+        Map<String, Object> snapshot = registry.snapshot();
+        assertEquals(3, snapshot.size());
+        Map<String, Object> counter = ((List<Map<String, Object>>) snapshot.get("my_counter")).get(0);
+        assertEquals("load", ((Map) counter.get("labels")).get("stage"));
+        assertEquals(5.0, counter.get("value"));
+        Map<String, Object> gauge = ((List<Map<String, Object>>) snapshot.get("my_gauge")).get(0);
+        assertTrue(gauge.containsKey("value"));
+        assertNull(gauge.get("value"));
+        Map<String, Object> histogram = ((List<Map<String, Object>>) snapshot.get("my_histogram")).get(0);
+        assertEquals(1L, histogram.get("count"));
+        assertEquals(10.0, histogram.get("p99"));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        int previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            previous = bucket;
+        }
+        assertTrue(Histogram.bucket(Long.MAX_VALUE) > previous);
+        for (int i = 0; i < Histogram.LINEAR_LIMIT; i++) {
+            assertEquals(i, Histogram.bucketMidpoint(i), 0);
+        }
+    }
+
+    @Test
+    public void testHistogramQuantiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getQuantile(0.5), 0);
+
+        Random random = new Random(1);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.abs(random.nextGaussian() * 1000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double quantile : new double[]{0.1, 0.5, 0.9, 0.99, 1}) {
+            long expected = values[(int) Math.ceil(quantile * values.length) - 1];
+            assertEquals("Quantile " + quantile, expected, histogram.getQuantile(quantile), expected / (double) Histogram.SUB_BUCKETS);
+        }
+    }
+}
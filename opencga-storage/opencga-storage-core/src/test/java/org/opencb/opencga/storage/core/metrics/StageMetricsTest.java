@@ -0,0 +1,109 @@
+package org.opencb.opencga.storage.core.metrics;
+
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StageMetricsTest {
+
+    @Test
+    public void testInstrument() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        StageMetrics stage = registry.stage("test");
+        StageMetrics metrics = stage.newRun();
+
+        int numElements = 1000;
+        AtomicInteger next = new AtomicInteger();
+        DataReader<Integer> reader = batchSize -> {
+            List<Integer> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize && next.get() < numElements; i++) {
+                batch.add(next.getAndIncrement());
+            }
+            return batch;
+        };
+        Task<Integer, Integer> task = batch -> {
+            Thread.sleep(2);
+            return batch;
+        };
+        List<Integer> output = Collections.synchronizedList(new ArrayList<>());
+        DataWriter<Integer> writer = output::addAll;
+
+        new ParallelTaskRunner<>(metrics.instrument(reader), metrics.instrument(() -> task), metrics.instrument(writer),
+                ParallelTaskRunner.Config.builder().setNumTasks(2).setBatchSize(10).build()).run();
+
+        assertEquals(numElements, output.size());
+        assertEquals(numElements, metrics.getRecords());
+        assertEquals(numElements / 10, metrics.getBatchLatency().getCount());
+        assertTrue(metrics.getBatchLatency().getMean() >= 2e6);
+        assertTrue(metrics.getRecordsPerSecond() > 0);
+        assertEquals(0, metrics.getReadQueueDepth());
+        assertEquals(0, metrics.getWriteQueueDepth());
+
+        ObjectMap snapshot = metrics.snapshot();
+        assertEquals(numElements, snapshot.getLong("records"));
+        assertEquals(numElements / 10, snapshot.getLong("batches"));
+        assertTrue(snapshot.getDouble("batchLatencyP50Ms") >= 2);
+
+        String prometheus = registry.toPrometheus();
+        assertTrue(prometheus, prometheus.contains("opencga_storage_records_total{stage=\"test\"} " + numElements + "\n"));
+        assertTrue(prometheus, prometheus.contains("opencga_storage_batch_latency_seconds_count{stage=\"test\"} "
+                + (numElements / 10) + "\n"));
+
+        // Each execution has its own metrics. The metrics of the stage are cumulative between executions
+        next.set(0);
+        StageMetrics secondRun = stage.newRun();
+        new ParallelTaskRunner<>(secondRun.instrument(reader), secondRun.instrument(task), null,
+                ParallelTaskRunner.Config.builder().setNumTasks(1).setBatchSize(100).build()).run();
+        assertEquals(numElements, secondRun.getRecords());
+        assertEquals(numElements / 100, secondRun.snapshot().getLong("batches"));
+        assertEquals(numElements, metrics.getRecords());
+        assertEquals(numElements * 2, stage.getRecords());
+        assertEquals(numElements / 10 + numElements / 100, stage.getBatchLatency().getCount());
+        assertEquals(secondRun.getRecordsPerSecond(), stage.getRecordsPerSecond(), 0);
+    }
+
+    @Test
+    public void testQueueDepth() throws Exception {
+        StageMetrics stage = new MetricsRegistry().stage("test");
+        StageMetrics metrics = stage.newRun();
+        DataReader<Integer> reader = metrics.instrument((DataReader<Integer>) batchSize -> Collections.singletonList(1));
+        Task<Integer, Integer> task = metrics.instrument((Task<Integer, Integer>) batch -> batch);
+        DataWriter<Integer> writer = metrics.instrument((DataWriter<Integer>) batch -> true);
+
+        reader.read(1);
+        reader.read(1);
+        reader.read(1);
+        assertEquals(3, metrics.getReadQueueDepth());
+        assertEquals(0, metrics.getWriteQueueDepth());
+
+        List<Integer> batch = task.apply(reader.read(1));
+        assertEquals(3, metrics.getReadQueueDepth());
+        assertEquals(1, metrics.getWriteQueueDepth());
+
+        writer.write(batch);
+        assertEquals(0, metrics.getWriteQueueDepth());
+
+        assertEquals(3, stage.getReadQueueDepth());
+
+        // Instrumenting one reader per partition does not reset the queue depths
+        metrics.instrument((DataReader<Integer>) batchSize -> Collections.singletonList(1)).read(1);
+        assertEquals(4, metrics.getReadQueueDepth());
+
+        // Concurrent execution
+        StageMetrics otherRun = stage.newRun();
+        otherRun.instrument((DataReader<Integer>) batchSize -> Collections.singletonList(1)).read(1);
+        assertEquals(1, otherRun.getReadQueueDepth());
+        assertEquals(4, metrics.getReadQueueDepth());
+        assertEquals(5, stage.getReadQueueDepth());
+    }
+}
@@ -0,0 +1,139 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveParallelTaskRunnerTest {
+
+    private final ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+            .setNumTasks(4)
+            .setBatchSize(100)
+            .setCapacity(8)
+            .build();
+    private final AdaptiveParallelTaskRunner.Bounds bounds = new AdaptiveParallelTaskRunner.Bounds(1, 8, 25, 400, 1000);
+
+    @Test
+    public void testRun() throws Exception {
+        int numElements = 20000;
+        AtomicInteger next = new AtomicInteger();
+        DataReader<Integer> reader = batchSize -> {
+            List<Integer> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize && next.get() < numElements; i++) {
+                batch.add(next.getAndIncrement());
+            }
+            return batch;
+        };
+        List<Integer> output = Collections.synchronizedList(new ArrayList<>());
+        DataWriter<Integer> writer = output::addAll;
+
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(2)
+                .setBatchSize(50)
+                .setSorted(true)
+                .build();
+        AdaptiveParallelTaskRunner.Bounds bounds = new AdaptiveParallelTaskRunner.Bounds(1, 4, 10, 200, 100);
+        AtomicInteger tasks = new AtomicInteger();
+        AdaptiveParallelTaskRunner<Integer, Integer> ptr = new AdaptiveParallelTaskRunner<>(reader, () -> {
+            tasks.incrementAndGet();
+            return batch -> {
+                Thread.sleep(1);
+                return batch.stream().map(i -> i * 2).collect(Collectors.toList());
+            };
+        }, writer, config, bounds);
+        ptr.run();
+
+        assertEquals(4, tasks.get());
+        assertEquals(IntStream.range(0, numElements).map(i -> i * 2).boxed().collect(Collectors.toList()), output);
+        assertTrue(ptr.getNumTasks() >= 1 && ptr.getNumTasks() <= 4);
+        assertTrue(ptr.getBatchSize() >= 10 && ptr.getBatchSize() <= 200);
+    }
+
+    @Test
+    public void testNewInstance() {
+        ObjectMap options = new ObjectMap();
+        assertFalse(AdaptiveParallelTaskRunner.newInstance(batchSize -> null, batch -> batch, null, config, options)
+                instanceof AdaptiveParallelTaskRunner);
+
+        options.put(VariantStorageOptions.ADAPTIVE_RUNNER.key(), true);
+        options.put(VariantStorageOptions.ADAPTIVE_RUNNER_MAX_THREADS.key(), 16);
+        ParallelTaskRunner<Object, Object> ptr = AdaptiveParallelTaskRunner.newInstance(batchSize -> null, batch -> batch, null,
+                config, options);
+        assertTrue(ptr instanceof AdaptiveParallelTaskRunner);
+        assertEquals(4, ((AdaptiveParallelTaskRunner) ptr).getNumTasks());
+        assertEquals(100, ((AdaptiveParallelTaskRunner) ptr).getBatchSize());
+
+        AdaptiveParallelTaskRunner.Bounds bounds = AdaptiveParallelTaskRunner.Bounds.from(config, options);
+        assertEquals(1, bounds.getMinTasks());
+        assertEquals(16, bounds.getMaxTasks());
+        assertEquals(25, bounds.getMinBatchSize());
+        assertEquals(400, bounds.getMaxBatchSize());
+    }
+
+    @Test
+    public void testAdjustTaskBound() {
+        AdaptiveParallelTaskRunnerMonitor monitor = new AdaptiveParallelTaskRunnerMonitor(config, bounds);
+        // Full read queue. Add tasks while the throughput improves
+        monitor.adjust(10, 0, 1000, 500);
+        assertEquals(5, monitor.getNumTasks());
+        monitor.adjust(10, 0, 1200, 500);
+        assertEquals(6, monitor.getNumTasks());
+        // No improvement. Go back, and stay there
+        monitor.adjust(10, 0, 1210, 500);
+        assertEquals(5, monitor.getNumTasks());
+        monitor.adjust(10, 0, 1210, 500);
+        assertEquals(5, monitor.getNumTasks());
+        assertEquals(100, monitor.getBatchSize());
+    }
+
+    @Test
+    public void testAdjustWriterBound() {
+        AdaptiveParallelTaskRunnerMonitor monitor = new AdaptiveParallelTaskRunnerMonitor(config, bounds);
+        monitor.adjust(10, 8, 1000, 500);
+        assertEquals(3, monitor.getNumTasks());
+        assertEquals(200, monitor.getBatchSize());
+        monitor.adjust(10, 8, 1000, 500);
+        monitor.adjust(10, 8, 1000, 500);
+        monitor.adjust(10, 8, 1000, 500);
+        // Never out of bounds
+        assertEquals(1, monitor.getNumTasks());
+        assertEquals(400, monitor.getBatchSize());
+    }
+
+    @Test
+    public void testAdjustReaderBound() {
+        AdaptiveParallelTaskRunnerMonitor monitor = new AdaptiveParallelTaskRunnerMonitor(config, bounds);
+        monitor.adjust(0, 0, 1000, 500);
+        assertEquals(3, monitor.getNumTasks());
+        assertEquals(100, monitor.getBatchSize());
+    }
+
+    @Test
+    public void testAdjustBatchSize() {
+        AdaptiveParallelTaskRunnerMonitor monitor = new AdaptiveParallelTaskRunnerMonitor(config, bounds);
+        // Fast batches
+        monitor.adjust(5, 0, 1000, 10);
+        assertEquals(4, monitor.getNumTasks());
+        assertEquals(200, monitor.getBatchSize());
+        // Slow batches
+        monitor.adjust(5, 0, 1000, 5000);
+        monitor.adjust(5, 0, 1000, 5000);
+        monitor.adjust(5, 0, 1000, 5000);
+        assertEquals(25, monitor.getBatchSize());
+        // Unknown batch time
+        monitor.adjust(5, 0, 1000, -1);
+        assertEquals(25, monitor.getBatchSize());
+    }
+}
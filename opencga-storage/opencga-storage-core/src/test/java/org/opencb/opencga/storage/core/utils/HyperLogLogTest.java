@@ -0,0 +1,40 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testCardinality() {
+        for (int n : new int[]{0, 1, 10, 100, 1000, 10000, 100000}) {
+            HyperLogLog hll = new HyperLogLog();
+            for (int i = 0; i < n; i++) {
+                hll.add("value_" + i);
+                // Duplicated values are not counted
+                hll.add("value_" + i);
+            }
+            assertEquals(n, hll.cardinality(), Math.max(1, n * 0.05));
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        HyperLogLog hll1 = new HyperLogLog(12);
+        HyperLogLog hll2 = new HyperLogLog(12);
+        for (int i = 0; i < 20000; i++) {
+            hll1.add("value_" + i);
+        }
+        for (int i = 10000; i < 30000; i++) {
+            hll2.add("value_" + i);
+        }
+        hll1.merge(hll2);
+        assertEquals(30000, hll1.cardinality(), 30000 * 0.03);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
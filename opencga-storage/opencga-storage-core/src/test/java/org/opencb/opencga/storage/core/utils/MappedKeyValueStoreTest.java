@@ -0,0 +1,154 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.Assert.*;
+
+public class MappedKeyValueStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = temporaryFolder.getRoot().toPath().resolve("store");
+    }
+
+    @Test
+    public void testPutGet() throws Exception {
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            assertNull(store.get(bytes("a")));
+            assertTrue(store.put(bytes("a"), bytes("1")));
+            assertTrue(store.put(bytes(""), bytes("empty")));
+            assertFalse(store.put(bytes("a"), bytes("2")));
+            assertEquals("1", string(store.get(bytes("a"))));
+            assertEquals("empty", string(store.get(bytes(""))));
+            assertNull(store.get(bytes("b")));
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    public void testResizeAndReopen() throws Exception {
+        int numKeys = MappedKeyValueStore.INITIAL_CAPACITY * 2;
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            for (int i = 0; i < numKeys; i++) {
+                assertTrue(store.put(bytes("key_" + i), bytes("value_" + i)));
+            }
+            assertEquals(numKeys, store.size());
+            for (int i = 0; i < numKeys; i++) {
+                assertEquals("value_" + i, string(store.get(bytes("key_" + i))));
+            }
+        }
+
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            assertEquals(numKeys, store.size());
+            for (int i = 0; i < numKeys; i += 7) {
+                assertEquals("value_" + i, string(store.get(bytes("key_" + i))));
+            }
+            assertNull(store.get(bytes("key_" + numKeys)));
+        }
+    }
+
+    @Test
+    public void testRebuildDirtyIndex() throws Exception {
+        Path copy = temporaryFolder.getRoot().toPath().resolve("copy");
+        long dataLength;
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            for (int i = 0; i < 1000; i++) {
+                store.put(bytes("key_" + i), bytes("value_" + i));
+            }
+            store.flush();
+            store.put(bytes("key_1000"), bytes("value_1000"));
+            dataLength = store.getDataLength();
+            store.put(bytes("key_1001"), bytes("value_1001"));
+
+            // Simulate a crash while writing the last record. The index is not marked as clean.
+            Files.createDirectories(copy);
+            for (String file : Arrays.asList(MappedKeyValueStore.DATA_FILE, MappedKeyValueStore.INDEX_FILE)) {
+                Files.copy(dir.resolve(file), copy.resolve(file));
+            }
+            try (FileChannel channel = FileChannel.open(copy.resolve(MappedKeyValueStore.DATA_FILE), WRITE)) {
+                channel.truncate(dataLength + 5);
+            }
+        }
+
+        try (MappedKeyValueStore store = new MappedKeyValueStore(copy)) {
+            assertEquals(1001, store.size());
+            assertEquals(dataLength, store.getDataLength());
+            assertEquals("value_1000", string(store.get(bytes("key_1000"))));
+            assertNull(store.get(bytes("key_1001")));
+            assertTrue(store.put(bytes("key_1001"), bytes("value_1001")));
+        }
+        try (MappedKeyValueStore store = new MappedKeyValueStore(copy)) {
+            assertEquals(1002, store.size());
+            assertEquals("value_1001", string(store.get(bytes("key_1001"))));
+        }
+    }
+
+    @Test
+    public void testLocked() throws Exception {
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            try {
+                new MappedKeyValueStore(dir);
+                fail("Expected store in use");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("already in use"));
+            }
+            store.put(bytes("a"), bytes("1"));
+        }
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            assertEquals("1", string(store.get(bytes("a"))));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        int numThreads = 4;
+        int numKeys = 50000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try (MappedKeyValueStore store = new MappedKeyValueStore(dir)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < numKeys; i++) {
+                        store.put(bytes("key_" + i), bytes("value_" + i));
+                        assertEquals("value_" + i, string(store.get(bytes("key_" + i))));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(numKeys, store.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
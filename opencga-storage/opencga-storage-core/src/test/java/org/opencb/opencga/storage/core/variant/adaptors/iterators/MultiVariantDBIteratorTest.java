@@ -0,0 +1,117 @@
+package org.opencb.opencga.storage.core.variant.adaptors.iterators;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiVariantDBIteratorTest {
+
+    private List<Variant> variants;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        variants = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            variants.add(new Variant("1:" + (i + 1) + ":A:C"));
+        }
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+        check(new QueryOptions(), 333);
+    }
+
+    @Test
+    public void testLimitSkip() throws Exception {
+        check(new QueryOptions(QueryOptions.LIMIT, 50).append(QueryOptions.SKIP, 20), 50);
+        check(new QueryOptions(QueryOptions.LIMIT, 50).append(QueryOptions.SKIP, 320), 13);
+    }
+
+    @Test
+    public void testFailingFactory() throws Exception {
+        for (int prefetch : new int[]{0, 3}) {
+            MultiVariantDBIterator iterator = new MultiVariantDBIterator(variants.iterator(), 100, new Query(),
+                    new QueryOptions(MultiVariantDBIterator.PREFETCH_BATCHES, prefetch), (q, o) -> {
+                        throw new IllegalStateException("Fail!");
+                    }, executor);
+            try {
+                iterator.hasNext();
+            } catch (IllegalStateException e) {
+                assertEquals("Fail!", e.getMessage());
+                continue;
+            } finally {
+                iterator.close();
+            }
+            throw new AssertionError("Expected exception");
+        }
+    }
+
+    @Test
+    public void testPrefetchSmallLimit() throws Exception {
+        AtomicInteger requestedVariants = new AtomicInteger();
+        MultiVariantDBIterator iterator = new MultiVariantDBIterator(variants.iterator(), 100, new Query(),
+                new QueryOptions(QueryOptions.LIMIT, 10).append(MultiVariantDBIterator.PREFETCH_BATCHES, 3), (q, o) -> {
+                    requestedVariants.addAndGet(q.getAsList(VariantQueryParam.ID.key()).size());
+                    return query(q, o);
+                }, executor);
+        assertEquals(10, readAll(iterator).size());
+        iterator.close();
+        // Prefetched batches are sized from the limit. Only the first batch and the prefetched ones are read.
+        assertTrue(String.valueOf(requestedVariants.get()), requestedVariants.get() <= 400);
+        assertTrue(iterator.getNumQueries() <= 4);
+    }
+
+    private void check(QueryOptions options, int expectedResults) throws Exception {
+        MultiVariantDBIterator iterator = new MultiVariantDBIterator(variants.iterator(), 100, new Query(), options, this::query);
+        List<String> expected = readAll(iterator);
+        int expectedNumVariantsFromPrimary = iterator.getNumVariantsFromPrimary();
+        assertEquals(expectedResults, expected.size());
+
+        for (int prefetch = 1; prefetch < 5; prefetch++) {
+            MultiVariantDBIterator prefetchIterator = new MultiVariantDBIterator(variants.iterator(), 100, new Query(),
+                    new QueryOptions(options).append(MultiVariantDBIterator.PREFETCH_BATCHES, prefetch), this::query, executor);
+            assertEquals(expected, readAll(prefetchIterator));
+            assertEquals(expectedNumVariantsFromPrimary, prefetchIterator.getNumVariantsFromPrimary());
+        }
+    }
+
+    private List<String> readAll(MultiVariantDBIterator iterator) throws Exception {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(variant -> list.add(variant.toString()));
+        return list;
+    }
+
+    /**
+     * Mock secondary query. Only variants with a position multiple of 3 are stored.
+     */
+    private VariantDBIterator query(Query query, QueryOptions options) {
+        List<Variant> result = query.getAsList(VariantQueryParam.ID.key())
+                .stream()
+                .map(o -> (Variant) o)
+                .filter(v -> v.getStart() % 3 == 0)
+                .limit(options.getInt(QueryOptions.LIMIT, Integer.MAX_VALUE))
+                .collect(Collectors.toList());
+        return VariantDBIterator.wrapper(result.iterator());
+    }
+}
@@ -0,0 +1,133 @@
+package org.opencb.opencga.storage.core.variant.adaptors.iterators;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MultiVariantKeyIteratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testUnion() throws Exception {
+        List<List<Variant>> lists = Arrays.asList(variants(1, 2, 0), variants(1, 3, 0), variants(2, 5, 0), Collections.emptyList());
+        checkUnion(lists, new UnionMultiVariantKeyIterator(iterators(lists, false)));
+        checkUnion(lists, new UnionMultiVariantKeyIterator(iterators(lists, true)));
+    }
+
+    @Test
+    public void testIntersect() throws Exception {
+        List<List<Variant>> lists = Arrays.asList(variants(1, 2, 0), variants(1, 3, 0), variants(2, 5, 1));
+        List<List<Variant>> negated = Collections.singletonList(variants(1, 7, 0));
+        for (boolean prefetch : new boolean[]{false, true}) {
+            IntersectMultiVariantKeyIterator iterator = new IntersectMultiVariantKeyIterator(iterators(lists, prefetch),
+                    iterators(negated, prefetch));
+            List<String> actual = toStrings(iterator);
+            List<String> expected = lists.get(0).stream()
+                    .filter(v -> lists.stream().allMatch(l -> l.contains(v)) && !negated.get(0).contains(v))
+                    .map(Variant::toString)
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        List<Variant> variants = variants(1, 1, 0);
+        for (int batchSize : new int[]{1, 7, 1000, 5000}) {
+            PrefetchVariantDBIterator iterator = new PrefetchVariantDBIterator(VariantDBIterator.wrapper(variants.iterator()),
+                    executor, batchSize, 3);
+            assertEquals(variants.stream().map(Variant::toString).collect(Collectors.toList()), toStrings(iterator));
+            assertEquals(variants.size(), iterator.getCount());
+        }
+    }
+
+    @Test
+    public void testPrefetchFail() throws Exception {
+        Iterator<Variant> failing = new Iterator<Variant>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Variant next() {
+                if (i++ == 50) {
+                    throw new IllegalStateException("Fail!");
+                }
+                return new Variant("1", i, "A", "C");
+            }
+        };
+        PrefetchVariantDBIterator iterator = new PrefetchVariantDBIterator(VariantDBIterator.wrapper(failing), executor, 10, 2);
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertEquals("Fail!", e.getMessage());
+            assertEquals(50, iterator.getCount());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private void checkUnion(List<List<Variant>> lists, UnionMultiVariantKeyIterator iterator) throws Exception {
+        TreeSet<Variant> expected = new TreeSet<>(MultiVariantKeyIterator.VARIANT_COMPARATOR);
+        lists.forEach(expected::addAll);
+        assertEquals(expected.stream().map(Variant::toString).collect(Collectors.toList()), toStrings(iterator));
+    }
+
+    private List<VariantDBIterator> iterators(List<List<Variant>> lists, boolean prefetch) {
+        List<VariantDBIterator> iterators = new ArrayList<>(lists.size());
+        for (List<Variant> list : lists) {
+            VariantDBIterator iterator = VariantDBIterator.wrapper(list.iterator());
+            if (prefetch) {
+                iterator = new PrefetchVariantDBIterator(iterator, executor, 10, 2);
+            }
+            iterators.add(iterator);
+        }
+        return iterators;
+    }
+
+    /**
+     * Sorted variants in chromosomes 1, 10, 2 and X, at positions multiple of "step", starting at "start".
+     */
+    private static List<Variant> variants(int start, int step, int offset) {
+        List<Variant> variants = new ArrayList<>();
+        for (String chr : Arrays.asList("1", "10", "2", "X")) {
+            for (int i = start; i < 1000; i += step) {
+                variants.add(new Variant(chr, i + offset, "A", "C"));
+            }
+        }
+        return variants;
+    }
+
+    private static List<String> toStrings(VariantDBIterator iterator) throws Exception {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(v -> list.add(v.toString()));
+        iterator.close();
+        return list;
+    }
+}
@@ -0,0 +1,154 @@
+package org.opencb.opencga.storage.core.variant.annotation;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class VariantAnnotationCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ObjectMap options;
+    private ProjectMetadata projectMetadata;
+    private TestAnnotator annotator;
+
+    @Before
+    public void setUp() throws Exception {
+        options = new ObjectMap(VariantStorageOptions.ANNOTATION_CACHE_DIR.key(), temporaryFolder.getRoot().getAbsolutePath());
+        projectMetadata = new ProjectMetadata("hsapiens", "grch38", 1);
+        annotator = new TestAnnotator("v1");
+    }
+
+    @Test
+    public void testDisabled() {
+        assertNull(VariantAnnotationCache.open(annotator, projectMetadata, new ObjectMap()));
+    }
+
+    @Test
+    public void testAnnotate() throws Exception {
+        List<Variant> variants = variants("1:100:A:C", "1:200:A:T", "2:300:-:AAA", "X:400:G:A");
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, projectMetadata, options)) {
+            assertNotNull(cache);
+            assertEquals(expectedIds(variants), ids(cache.annotate(variants, annotator)));
+            assertEquals(4, annotator.annotated);
+            assertEquals(0, cache.getHits());
+
+            List<Variant> more = variants("1:50:A:C", "1:100:A:C", "1:150:A:C", "X:400:G:A");
+            List<VariantAnnotation> annotations = cache.annotate(more, annotator);
+            assertEquals(expectedIds(more), ids(annotations));
+            assertEquals("1:100:A:C v1", annotations.get(1).getId());
+            assertEquals(6, annotator.annotated);
+            assertEquals(2, cache.getHits());
+            assertEquals(6, cache.size());
+        }
+
+        // Reopen. Shared with other projects with the same annotator
+        ProjectMetadata otherProject = new ProjectMetadata("hsapiens", "grch38", 3);
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, otherProject, options)) {
+            assertEquals(expectedIds(variants), ids(cache.annotate(variants, annotator)));
+            assertEquals(6, annotator.annotated);
+            assertEquals(4, cache.getHits());
+        }
+    }
+
+    @Test
+    public void testSkippedVariants() throws Exception {
+        annotator.skip = Collections.singleton("1:200:A:T");
+        List<Variant> variants = variants("1:100:A:C", "1:200:A:T", "1:300:A:T");
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, projectMetadata, options)) {
+            cache.annotate(variants, annotator);
+            assertEquals(Arrays.asList("1:100:A:C v1", "1:300:A:T v1"), ids(cache.annotate(variants, annotator)));
+            assertEquals(2, cache.size());
+            assertEquals(2, cache.getHits());
+        }
+    }
+
+    @Test
+    public void testVersions() throws Exception {
+        List<Variant> variants = variants("1:100:A:C");
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, projectMetadata, options)) {
+            cache.annotate(variants, annotator);
+        }
+        TestAnnotator newAnnotator = new TestAnnotator("v2");
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(newAnnotator, projectMetadata, options)) {
+            assertEquals(Collections.singletonList("1:100:A:C v2"), ids(cache.annotate(variants, newAnnotator)));
+            assertEquals(0, cache.getHits());
+        }
+        ProjectMetadata grch37 = new ProjectMetadata("hsapiens", "grch37", 1);
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, grch37, options)) {
+            assertEquals(0, cache.size());
+        }
+        ObjectMap excludeOptions = new ObjectMap(options).append(VariantStorageOptions.ANNOTATOR_CELLBASE_EXCLUDE.key(), "expression");
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, projectMetadata, excludeOptions)) {
+            assertEquals(0, cache.size());
+        }
+        try (VariantAnnotationCache cache = VariantAnnotationCache.open(annotator, projectMetadata, options)) {
+            assertEquals(1, cache.size());
+        }
+    }
+
+    private static List<Variant> variants(String... variants) {
+        return Arrays.stream(variants).map(Variant::new).collect(Collectors.toList());
+    }
+
+    private static List<String> ids(List<VariantAnnotation> annotations) {
+        return annotations.stream().map(VariantAnnotation::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> expectedIds(List<Variant> variants) {
+        return variants.stream().map(variant -> variant + " v1").collect(Collectors.toList());
+    }
+
+    private static class TestAnnotator extends VariantAnnotator {
+        private final String version;
+        private Set<String> skip = Collections.emptySet();
+        private int annotated;
+
+        TestAnnotator(String version) throws VariantAnnotatorException {
+            super(null, null, null);
+            this.version = version;
+        }
+
+        @Override
+        public List<VariantAnnotation> annotate(List<Variant> variants) {
+            List<VariantAnnotation> annotations = new ArrayList<>(variants.size());
+            for (Variant variant : variants) {
+                annotated++;
+                if (!skip.contains(variant.toString())) {
+                    VariantAnnotation annotation = new VariantAnnotation();
+                    annotation.setChromosome(variant.getChromosome());
+                    annotation.setStart(variant.getStart());
+                    annotation.setEnd(variant.getEnd());
+                    annotation.setReference(variant.getReference());
+                    annotation.setAlternate(variant.getAlternate());
+                    annotation.setId(variant.toString() + " " + version);
+                    annotations.add(annotation);
+                }
+            }
+            return annotations;
+        }
+
+        @Override
+        public ProjectMetadata.VariantAnnotatorProgram getVariantAnnotatorProgram() {
+            return new ProjectMetadata.VariantAnnotatorProgram("test", version, "");
+        }
+
+        @Override
+        public List<ObjectMap> getVariantAnnotatorSourceVersion() {
+            return Collections.singletonList(new ObjectMap("data", "test").append("version", version));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.opencb.opencga.storage.core.variant.annotation.annotators;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.io.managers.LocalIOConnector;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class VepVariantAnnotatorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testLoadAndResume() throws Exception {
+        int numRecords = 1000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numRecords; i++) {
+            sb.append("{\"seq_region_name\":\"1\",\"start\":").append(i + 1).append(",\"end\":").append(i + 1)
+                    .append(",\"allele_string\":\"A/C\",\"most_severe_consequence\":\"intergenic_variant\"}\n");
+        }
+        Path file = temporaryFolder.newFile("variants.vep.json").toPath();
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        URI uri = file.toUri();
+        ObjectMap options = new ObjectMap(VariantStorageOptions.LOAD_BATCH_SIZE.key(), 10)
+                .append(VariantStorageOptions.LOAD_THREADS.key(), 4)
+                .append(VepVariantAnnotator.CHECKPOINT_INTERVAL_MILLIS, 0);
+
+        Set<Integer> loaded = Collections.synchronizedSet(new HashSet<>());
+        VepVariantAnnotator annotator = new VepVariantAnnotator();
+        try {
+            annotator.loadAnnotation(uri, new LocalIOConnector(), () -> (Task<VariantAnnotation, Object>) batch -> {
+                for (VariantAnnotation annotation : batch) {
+                    if (annotation.getStart() == 501) {
+                        throw new IllegalStateException("Fail!");
+                    }
+                }
+                for (VariantAnnotation annotation : batch) {
+                    loaded.add(annotation.getStart());
+                }
+                return Collections.emptyList();
+            }, options);
+            fail("Expected to fail");
+        } catch (StorageEngineException e) {
+            assertTrue(Files.exists(checkpointPath(file)));
+        }
+        VepAnnotationCheckpoint checkpoint = new VepAnnotationCheckpoint(new LocalIOConnector(), uri, 0);
+        long records = checkpoint.read();
+        assertTrue(records <= 500);
+        for (int i = 1; i <= records; i++) {
+            assertTrue(loaded.contains(i));
+        }
+
+        // Resume
+        Set<Integer> resumed = Collections.synchronizedSet(new HashSet<>());
+        annotator.loadAnnotation(uri, new LocalIOConnector(), () -> (Task<VariantAnnotation, Object>) batch -> {
+            for (VariantAnnotation annotation : batch) {
+                resumed.add(annotation.getStart());
+            }
+            return Collections.emptyList();
+        }, options.append(VariantStorageOptions.RESUME.key(), true));
+        assertEquals(numRecords - records, resumed.size());
+        assertFalse(resumed.contains((int) records));
+        assertTrue(resumed.contains((int) records + 1));
+        assertFalse(Files.exists(checkpointPath(file)));
+    }
+
+    @Test
+    public void testCheckpointOutOfOrder() throws Exception {
+        URI uri = temporaryFolder.newFile("file.vep.json").toURI();
+        VepAnnotationCheckpoint checkpoint = new VepAnnotationCheckpoint(new LocalIOConnector(), uri, 0);
+        List<Integer> batch1 = Arrays.asList(1, 2);
+        List<Integer> batch2 = Arrays.asList(1, 2);
+        List<Integer> batch3 = Arrays.asList(3);
+        checkpoint.register(batch1, 0, 10);
+        checkpoint.register(batch2, 10, 10);
+        checkpoint.register(batch3, 20, 5);
+
+        checkpoint.done(batch2);
+        checkpoint.done(batch3);
+        assertEquals(0, checkpoint.getRecords());
+        checkpoint.done(batch1);
+        assertEquals(25, checkpoint.getRecords());
+        // Unknown batches are ignored
+        checkpoint.done(Arrays.asList(1, 2));
+        assertEquals(25, checkpoint.getRecords());
+
+        assertEquals(25, new VepAnnotationCheckpoint(new LocalIOConnector(), uri, 0).read());
+        checkpoint.delete();
+        assertEquals(0, new VepAnnotationCheckpoint(new LocalIOConnector(), uri, 0).read());
+    }
+
+    @Test
+    public void testCheckpointTrackWriter() throws Exception {
+        URI uri = temporaryFolder.newFile("file.vep.json").toURI();
+        VepAnnotationCheckpoint checkpoint = new VepAnnotationCheckpoint(new LocalIOConnector(), uri, 0);
+        List<Integer> batch1 = Arrays.asList(1, 2);
+        List<Integer> batch2 = Arrays.asList(3);
+        checkpoint.register(batch1, 0, 10);
+        checkpoint.register(batch2, 10, 5);
+
+        List<List<String>> written = new ArrayList<>();
+        Task<Integer, String> task = checkpoint.track(
+                batch -> batch.stream().map(String::valueOf).collect(Collectors.toList()), true);
+        DataWriter<String> writer = checkpoint.track((DataWriter<String>) written::add);
+
+        List<String> output1 = task.apply(batch1);
+        // Not written yet
+        assertEquals(0, checkpoint.getRecords());
+        writer.write(output1);
+        assertEquals(10, checkpoint.getRecords());
+
+        // Empty outputs are not written
+        Task<Integer, String> emptyTask = checkpoint.track(batch -> Collections.emptyList(), true);
+        emptyTask.apply(batch2);
+        assertEquals(15, checkpoint.getRecords());
+        assertEquals(1, written.size());
+    }
+
+    private static Path checkpointPath(Path file) {
+        return file.resolveSibling(file.getFileName() + VepAnnotationCheckpoint.EXTENSION);
+    }
+}
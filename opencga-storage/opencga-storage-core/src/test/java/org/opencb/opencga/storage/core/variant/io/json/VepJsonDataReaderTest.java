@@ -0,0 +1,120 @@
+package org.opencb.opencga.storage.core.variant.io.json;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VepJsonDataReaderTest {
+
+    public static final String SNV = "{\"input\":\"1 100 . C T . . .\",\"id\":\".\",\"seq_region_name\":\"1\",\"start\":100,\"end\":100,"
+            + "\"allele_string\":\"C/T\",\"most_severe_consequence\":\"missense_variant\","
+            + "\"colocated_variants\":[{\"id\":\"COSM1\"},{\"id\":\"rs123\"}],"
+            + "\"transcript_consequences\":[{\"variant_allele\":\"T\",\"gene_id\":\"ENSG1\",\"gene_symbol\":\"GENE1\","
+            + "\"transcript_id\":\"ENST1\",\"strand\":-1,\"biotype\":\"protein_coding\",\"consequence_terms\":[\"missense_variant\"],"
+            + "\"cdna_start\":20,\"cds_start\":10,\"protein_start\":4,\"amino_acids\":\"A/V\",\"codons\":\"gCc/gTc\","
+            + "\"sift_score\":0.01,\"sift_prediction\":\"deleterious\"}]}";
+    public static final String MULTI = "{\"id\":\"var2\",\"seq_region_name\":\"1\",\"start\":50,\"end\":51,\"allele_string\":\"AT/-/G\","
+            + "\"most_severe_consequence\":\"intergenic_variant\","
+            + "\"intergenic_consequences\":[{\"variant_allele\":\"-\",\"consequence_terms\":[\"intergenic_variant\"]},"
+            + "{\"variant_allele\":\"G\",\"consequence_terms\":[\"intergenic_variant\"]}]}";
+    public static final String INSERTION = "{\"seq_region_name\":\"2\",\"start\":11,\"end\":10,\"allele_string\":\"-/TT\","
+            + "\"most_severe_consequence\":\"intergenic_variant\"}";
+
+    @Test
+    public void testConvert() {
+        List<VariantAnnotation> annotations = readAll(SNV + "\n" + MULTI + "\n" + INSERTION + "\n", 100);
+        assertEquals(4, annotations.size());
+
+        // Sorted by region
+        VariantAnnotation deletion = annotations.get(0);
+        assertEquals("1:50:AT:", deletion.getChromosome() + ":" + deletion.getStart() + ":" + deletion.getReference() + ":"
+                + deletion.getAlternate());
+        assertEquals("var2", deletion.getId());
+        assertEquals(1, deletion.getConsequenceTypes().size());
+        VariantAnnotation mnv = annotations.get(1);
+        assertEquals("G", mnv.getAlternate());
+        assertEquals(1, mnv.getConsequenceTypes().size());
+
+        VariantAnnotation snv = annotations.get(2);
+        assertEquals(Integer.valueOf(100), snv.getStart());
+        assertEquals("C", snv.getReference());
+        assertEquals("T", snv.getAlternate());
+        assertEquals("rs123", snv.getId());
+        assertEquals("missense_variant", snv.getDisplayConsequenceType());
+        ConsequenceType ct = snv.getConsequenceTypes().get(0);
+        assertEquals("GENE1", ct.getGeneName());
+        assertEquals("ENST1", ct.getEnsemblTranscriptId());
+        assertEquals("-", ct.getStrand());
+        assertEquals(Integer.valueOf(10), ct.getCdsPosition());
+        assertEquals("SO:0001583", ct.getSequenceOntologyTerms().get(0).getAccession());
+        assertEquals("missense_variant", ct.getSequenceOntologyTerms().get(0).getName());
+        assertEquals(Integer.valueOf(4), ct.getProteinVariantAnnotation().getPosition());
+        assertEquals("V", ct.getProteinVariantAnnotation().getAlternate());
+        assertEquals("sift", ct.getProteinVariantAnnotation().getSubstitutionScores().get(0).getSource());
+
+        VariantAnnotation insertion = annotations.get(3);
+        assertEquals("2", insertion.getChromosome());
+        assertEquals(Integer.valueOf(11), insertion.getStart());
+        assertEquals("", insertion.getReference());
+        assertEquals("TT", insertion.getAlternate());
+        assertNull(insertion.getId());
+    }
+
+    @Test
+    public void testJsonArray() {
+        List<VariantAnnotation> annotations = readAll("[" + SNV + ",\n" + INSERTION + "]", 1);
+        assertEquals(2, annotations.size());
+    }
+
+    @Test
+    public void testBatchesAndSkip() {
+        String input = SNV + "\n" + MULTI + "\n" + INSERTION + "\n";
+        List<long[]> ranges = new ArrayList<>();
+        VepJsonDataReader reader = new VepJsonDataReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)))
+                .setBatchListener((batch, first, num) -> ranges.add(new long[]{first, num, batch.size()}));
+        reader.open();
+        reader.pre();
+        // Records are never split between batches
+        assertEquals(1, reader.read(1).size());
+        assertEquals(2, reader.read(1).size());
+        assertEquals(1, reader.read(5).size());
+        assertEquals(0, reader.read(5).size());
+        reader.post();
+        reader.close();
+        assertArrayEquals(new long[]{0, 1, 1}, ranges.get(0));
+        assertArrayEquals(new long[]{1, 1, 2}, ranges.get(1));
+        assertArrayEquals(new long[]{2, 1, 1}, ranges.get(2));
+        assertEquals(3, reader.getRecords());
+
+        reader = new VepJsonDataReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))).setSkip(2);
+        reader.open();
+        List<VariantAnnotation> batch = reader.read(10);
+        assertEquals(1, batch.size());
+        assertEquals("2", batch.get(0).getChromosome());
+        assertEquals(3, reader.getRecords());
+        reader.close();
+    }
+
+    private static List<VariantAnnotation> readAll(String input, int batchSize) {
+        VepJsonDataReader reader = new VepJsonDataReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        reader.open();
+        reader.pre();
+        List<VariantAnnotation> annotations = new ArrayList<>();
+        List<VariantAnnotation> batch;
+        do {
+            batch = reader.read(batchSize);
+            annotations.addAll(batch);
+        } while (!batch.isEmpty());
+        reader.post();
+        reader.close();
+        annotations.sort(VepJsonDataReader.REGION_COMPARATOR);
+        return annotations;
+    }
+}
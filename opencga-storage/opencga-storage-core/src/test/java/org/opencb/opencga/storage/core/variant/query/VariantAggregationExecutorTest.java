@@ -0,0 +1,135 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class VariantAggregationExecutorTest {
+
+    private List<Variant> variants;
+    private VariantStorageMetadataManager metadataManager;
+
+    @Before
+    public void setUp() throws Exception {
+        metadataManager = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        Random random = new Random(1);
+        variants = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int start = random.nextInt(1000000) + 1;
+            Variant variant;
+            switch (random.nextInt(3)) {
+                case 0:
+                    variant = new Variant("1:" + start + ":A:C");
+                    break;
+                case 1:
+                    variant = new Variant("1:" + start + ":A:AT");
+                    break;
+                default:
+                    // Long deletions may overlap with multiple partitions
+                    variant = new Variant("1:" + start + "-" + (start + random.nextInt(20000)) + ":A:<DEL>");
+                    break;
+            }
+            ConsequenceType ct = new ConsequenceType();
+            ct.setGeneName("GENE_" + (start / 10000));
+            VariantAnnotation annotation = new VariantAnnotation();
+            annotation.setConsequenceTypes(Collections.singletonList(ct));
+            variant.setAnnotation(annotation);
+            variants.add(variant);
+        }
+    }
+
+    @Test
+    public void testChromDensity() {
+        Region region = new Region("1", 100000, 900000);
+        int step = 50000;
+        for (int partitionSize : new int[]{1000000, 100000, 60000, 1000}) {
+            FacetField field = facet("chromDensity[1:100000-900000]:" + step, partitionSize).first();
+            FacetField startField = field.getBuckets().get(0).getFacetFields().get(0);
+
+            List<Variant> expected = variantsIn(region);
+            assertEquals(expected.size(), field.getBuckets().get(0).getCount());
+            Map<String, Long> expectedCounts = expected.stream()
+                    .filter(v -> v.getStart() >= region.getStart())
+                    .collect(Collectors.groupingBy(
+                            v -> String.valueOf((v.getStart() - region.getStart()) / step * step + region.getStart()),
+                            Collectors.counting()));
+            Map<String, Long> actualCounts = new HashMap<>();
+            for (FacetField.Bucket bucket : startField.getBuckets()) {
+                actualCounts.put(bucket.getValue(), bucket.getCount());
+            }
+            assertEquals(expectedCounts, actualCounts);
+        }
+    }
+
+    @Test
+    public void testChromDensityNested() {
+        Region region = new Region("1", 1, 1000000);
+        DataResult<FacetField> result = facet("chromDensity[1]:100000>>type>>unique(gene)", 30000);
+        assertEquals(variantsIn(region).size(), result.getNumMatches());
+
+        FacetField startField = result.first().getBuckets().get(0).getFacetFields().get(0);
+        for (FacetField.Bucket bucket : startField.getBuckets()) {
+            FacetField typeField = bucket.getFacetFields().get(0);
+            assertEquals("type", typeField.getName());
+            assertEquals(bucket.getCount(), typeField.getCount());
+            long typesCount = 0;
+            for (FacetField.Bucket typeBucket : typeField.getBuckets()) {
+                typesCount += typeBucket.getCount();
+                FacetField geneField = typeBucket.getFacetFields().get(0);
+                assertEquals("unique", geneField.getAggregationName());
+                // 10 genes per bin
+                double genes = geneField.getAggregationValues().get(0);
+                assertTrue(String.valueOf(genes), genes > 0 && genes <= 11);
+            }
+            assertEquals(bucket.getCount(), typesCount);
+        }
+    }
+
+    @Test
+    public void testIsPureChromDensityFacet() {
+        VariantAggregationExecutor executor = new VariantAggregationExecutor(null, "", null, metadataManager);
+        assertTrue(executor.isPureChromDensityFacet("chromDensity[1]"));
+        assertTrue(executor.isPureChromDensityFacet("chromDensity[1]>>type"));
+        assertTrue(executor.isPureChromDensityFacet("chromDensity[1]>>type>>unique(gene)"));
+        assertTrue(executor.isPureChromDensityFacet("chromDensity[1]>>unique(gene)"));
+        assertFalse(executor.isPureChromDensityFacet("chromDensity[1]>>unique(gene)>>type"));
+        assertFalse(executor.isPureChromDensityFacet("chromDensity[1]>>biotype"));
+        assertFalse(executor.isPureChromDensityFacet("chromDensity[1];type"));
+    }
+
+    private DataResult<FacetField> facet(String facet, int partitionSize) {
+        ObjectMap options = new ObjectMap(VariantStorageOptions.AGGREGATION_PARTITION_SIZE.key(), partitionSize)
+                .append(VariantStorageOptions.AGGREGATION_THREADS.key(), 3);
+        VariantAggregationExecutor executor = new VariantAggregationExecutor(null, "", this::iterator, metadataManager, options);
+        return executor.chromDensityAggregation(new Query(), new QueryOptions(QueryOptions.FACET, facet));
+    }
+
+    private VariantDBIterator iterator(Query query, QueryOptions options) {
+        Region region = (Region) query.get(VariantQueryParam.REGION.key());
+        return VariantDBIterator.wrapper(variantsIn(region).iterator());
+    }
+
+    private List<Variant> variantsIn(Region region) {
+        return variants.stream()
+                .filter(v -> v.getStart() <= region.getEnd() && v.getEnd() >= region.getStart())
+                .collect(Collectors.toList());
+    }
+}
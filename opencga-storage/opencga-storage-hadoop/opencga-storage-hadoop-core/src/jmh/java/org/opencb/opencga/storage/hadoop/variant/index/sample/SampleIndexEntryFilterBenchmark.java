@@ -0,0 +1,149 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexEntry;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexPutBuilder;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverterTest.*;
+
+/**
+ * Benchmark the sample index decoding and filtering, and the annotation index conversion. No database is required.
+ *
+ * Run with: mvn test -P jmh -pl opencga-storage/opencga-storage-hadoop/opencga-storage-hadoop-core
+ *              -Djmh.args=SampleIndexEntryFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleIndexEntryFilterBenchmark {
+
+    private static final int NUM_VARIANTS = 10000;
+    private static final String GT = "0/1";
+
+    private SampleIndexConfiguration configuration;
+    private AnnotationIndexConverter annotationIndexConverter;
+    private List<VariantAnnotation> annotations;
+    private SampleIndexEntry entry;
+    private SingleSampleIndexQuery query;
+    private SingleSampleIndexQuery emptyQuery;
+    private Region region;
+
+    @Setup
+    public void setUp() throws Exception {
+        configuration = SampleIndexConfiguration.defaultConfiguration();
+        annotationIndexConverter = new AnnotationIndexConverter(configuration);
+        Random random = new Random(1);
+
+        String[][] cts = {
+                {"missense_variant", "protein_coding"},
+                {"stop_gained", "protein_coding"},
+                {"synonymous_variant", "protein_coding"},
+                {"intron_variant", "nonsense_mediated_decay"},
+                {"upstream_gene_variant", "lincRNA"},
+        };
+        List<Variant> variants = new ArrayList<>(NUM_VARIANTS);
+        annotations = new ArrayList<>(NUM_VARIANTS);
+        AnnotationIndexPutBuilder builder = new AnnotationIndexPutBuilder(NUM_VARIANTS);
+        for (int i = 0; i < NUM_VARIANTS; i++) {
+            variants.add(new Variant("1:" + (100 + i * 50) + ":A:" + (i % 10 == 0 ? "CT" : "C")));
+            VariantAnnotation annotation;
+            if (i % 7 == 0) {
+                annotation = annot();
+            } else {
+                String[] ct1 = cts[random.nextInt(cts.length)];
+                String[] ct2 = cts[random.nextInt(cts.length)];
+                annotation = annot(ct(ct1[0], ct1[1]), ct(ct2[0], ct2[1]));
+            }
+            annotation.setPopulationFrequencies(Collections.singletonList(pf("GNOMAD_GENOMES", "ALL", random.nextDouble() / 10)));
+            annotations.add(annotation);
+            builder.add(annotationIndexConverter.convert(annotation));
+        }
+        Map<String, byte[]> columns = builder.buildAndReset(new Put(new byte[1]), GT, new byte[1])
+                .getFamilyCellMap()
+                .get(new byte[1])
+                .stream()
+                .collect(Collectors.toMap(cell -> Bytes.toString(CellUtil.cloneQualifier(cell)), CellUtil::cloneValue));
+
+        entry = new SampleIndexEntry(0, "1", 0, configuration);
+        entry.getGtEntry(GT)
+                .setVariants(new SampleIndexVariantBiConverter().toBytes(variants))
+                .setAnnotationIndex(columns.get(SampleIndexSchema.ANNOTATION_SUMMARY_PREFIX + GT))
+                .setAnnotationCounts(IndexUtils.countPerBitToObject(columns.get(SampleIndexSchema.ANNOTATION_SUMMARY_COUNT_PREFIX + GT)))
+                .setConsequenceTypeIndex(columns.get(SampleIndexSchema.ANNOTATION_CT_PREFIX + GT))
+                .setBiotypeIndex(columns.get(SampleIndexSchema.ANNOTATION_BT_PREFIX + GT))
+                .setCtBtIndex(columns.get(SampleIndexSchema.ANNOTATION_CT_BT_PREFIX + GT))
+                .setPopulationFrequencyIndex(columns.get(SampleIndexSchema.ANNOTATION_POP_FREQ_PREFIX + GT))
+                .setCount(NUM_VARIANTS);
+
+        query = getSingleSampleIndexQuery(new Query()
+                .append(VariantQueryParam.ANNOT_BIOTYPE.key(), "protein_coding")
+                .append(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained")
+                .append(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "GNOMAD_GENOMES:ALL<0.01"));
+        emptyQuery = getSingleSampleIndexQuery(new Query());
+        region = new Region("1", 100000, 200000);
+    }
+
+    private SingleSampleIndexQuery getSingleSampleIndexQuery(Query query) {
+        SampleIndexQueryParser parser = new SampleIndexQueryParser(
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory()), configuration);
+        SampleAnnotationIndexQuery annotQuery = parser.parseAnnotationIndexQuery(query);
+        return new SampleIndexQuery(Collections.emptyList(), null, "study", Collections.singletonMap("S1", Collections.singletonList(GT)),
+                null, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), annotQuery, Collections.emptySet(), false,
+                VariantQueryUtils.QueryOperation.AND)
+                .forSample("S1");
+    }
+
+    @Benchmark
+    public Collection<Variant> iterate() {
+        return new SampleIndexEntryFilter(emptyQuery).filter(entry);
+    }
+
+    @Benchmark
+    public Collection<Variant> filterAnnotation() {
+        return new SampleIndexEntryFilter(query).filter(entry);
+    }
+
+    @Benchmark
+    public int filterAndCountAnnotation() {
+        return new SampleIndexEntryFilter(query).filterAndCount(entry);
+    }
+
+    @Benchmark
+    public Collection<Variant> filterRegion() {
+        return new SampleIndexEntryFilter(emptyQuery, region).filter(entry);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VARIANTS)
+    public byte convertAnnotationIndex() {
+        byte b = 0;
+        for (VariantAnnotation annotation : annotations) {
+            AnnotationIndexEntry indexEntry = annotationIndexConverter.convert(annotation);
+            b ^= indexEntry.getSummaryIndex();
+        }
+        return b;
+    }
+}
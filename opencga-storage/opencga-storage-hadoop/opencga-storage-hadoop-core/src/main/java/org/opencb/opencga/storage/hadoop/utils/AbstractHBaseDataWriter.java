@@ -1,41 +1,119 @@
 package org.opencb.opencga.storage.hadoop.utils;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.io.DataWriter;
+import org.opencb.opencga.storage.core.metrics.Counter;
+import org.opencb.opencga.storage.core.metrics.Histogram;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.*;
 
 /**
  * Created on 31/01/18.
  *
+ * Writes the mutations with a {@link BufferedMutator}, unless the async mode is enabled with {@link #configure}.
+ * In async mode, the mutations are buffered by region server, and each buffer is written with a batch operation from a background
+ * thread. There is at most one batch in flight for each region server, so the mutations of a row are written in order.
+ *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
 public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements DataWriter<T> {
 
+    private static final int PERMIT_SIZE = 1024;
+
     protected final HBaseManager hBaseManager;
     protected final String tableName;
     private BufferedMutator mutator;
     private final Logger logger = LoggerFactory.getLogger(AbstractHBaseDataWriter.class);
 
+    private long writeBufferSize;
+    private boolean async;
+    private int asyncThreads = WRITE_ASYNC_THREADS.defaultValue();
+    private int maxInFlightPermits;
+
+    // Async mode
+    private ExecutorService executor;
+    private RegionLocator regionLocator;
+    private Semaphore inFlight;
+    private final Map<ServerName, List<M>> buffers = new HashMap<>();
+    private final Map<ServerName, Long> bufferSizes = new HashMap<>();
+    private final Map<ServerName, CompletableFuture<Void>> pendingBatches = new HashMap<>();
+    private final AtomicReference<Throwable> asyncError = new AtomicReference<>();
+
+    private final Histogram flushLatency;
+    private final Counter mutationsCount;
+    private final Counter mutationsBytes;
+
     public AbstractHBaseDataWriter(HBaseManager hBaseManager, String tableName) {
         this.hBaseManager = new HBaseManager(Objects.requireNonNull(hBaseManager));
         this.tableName = tableName;
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        String[] labels = {"table", tableName};
+        flushLatency = registry.histogram(StageMetrics.PREFIX + "hbase_flush_latency_seconds",
+                "Time writing one batch of mutations to HBase", 1e-9, labels);
+        mutationsCount = registry.counter(StageMetrics.PREFIX + "hbase_mutations_total", "Mutations written to HBase", labels);
+        mutationsBytes = registry.counter(StageMetrics.PREFIX + "hbase_mutations_bytes_total",
+                "Heap size of the mutations written to HBase", labels);
     }
 
     protected abstract List<M> convert(List<T> batch);
 
+    /**
+     * Configure the writer. Must be called before {@link #open}.
+     *
+     * @param options Options with {@link org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions#WRITE_ASYNC},
+     *                {@link org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions#WRITE_ASYNC_THREADS},
+     *                {@link org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions#WRITE_BUFFER_SIZE} and
+     *                {@link org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions#WRITE_MAX_IN_FLIGHT_BYTES}
+     * @return this
+     */
+    public AbstractHBaseDataWriter<T, M> configure(ObjectMap options) {
+        async = options.getBoolean(WRITE_ASYNC.key(), WRITE_ASYNC.defaultValue());
+        asyncThreads = options.getInt(WRITE_ASYNC_THREADS.key(), WRITE_ASYNC_THREADS.defaultValue());
+        writeBufferSize = options.getLong(WRITE_BUFFER_SIZE.key(), WRITE_BUFFER_SIZE.<Integer>defaultValue());
+        long maxInFlightBytes = options.getLong(WRITE_MAX_IN_FLIGHT_BYTES.key(), WRITE_MAX_IN_FLIGHT_BYTES.<Integer>defaultValue());
+        maxInFlightPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxInFlightBytes / PERMIT_SIZE));
+        return this;
+    }
+
     @Override
     public boolean open() {
         try {
-            mutator = hBaseManager.getConnection().getBufferedMutator(TableName.valueOf(tableName));
+            if (writeBufferSize <= 0) {
+                writeBufferSize = hBaseManager.getConf().getLong("hbase.client.write.buffer", 2 * 1024 * 1024);
+            }
+            if (async) {
+                logger.info("Async writer for table {} with {} threads and write buffer of {} bytes", tableName, asyncThreads,
+                        writeBufferSize);
+                regionLocator = hBaseManager.getConnection().getRegionLocator(TableName.valueOf(tableName));
+                executor = Executors.newFixedThreadPool(asyncThreads, r -> {
+                    Thread thread = new Thread(r, "hbase-writer-" + tableName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                inFlight = new Semaphore(maxInFlightPermits);
+            } else {
+                mutator = hBaseManager.getConnection()
+                        .getBufferedMutator(new BufferedMutatorParams(TableName.valueOf(tableName)).writeBufferSize(writeBufferSize));
+            }
         } catch (IOException e) {
             throw new UncheckedIOException("Failed to connect to Hbase", e);
         }
@@ -53,6 +131,10 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
     }
 
     protected void mutate(List<M> mutations) throws IOException {
+        if (async) {
+            mutateAsync(mutations);
+            return;
+        }
         try {
             mutator.mutate(mutations);
         } catch (IllegalArgumentException e) {
@@ -82,9 +164,90 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
         }
     }
 
+    private synchronized void mutateAsync(List<M> mutations) throws IOException {
+        checkAsyncError();
+        for (M mutation : mutations) {
+            ServerName server = regionLocator.getRegionLocation(mutation.getRow()).getServerName();
+            buffers.computeIfAbsent(server, s -> new ArrayList<>()).add(mutation);
+            long size = bufferSizes.merge(server, mutation.heapSize(), Long::sum);
+            if (size >= writeBufferSize) {
+                submit(server);
+            }
+        }
+    }
+
+    /**
+     * Submit the buffer of a region server. The batch is written after the previous batch of the same server.
+     *
+     * @param server Region server
+     * @throws IOException if interrupted while waiting for the in flight mutations
+     */
+    private void submit(ServerName server) throws IOException {
+        List<M> batch = buffers.remove(server);
+        long size = bufferSizes.remove(server);
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        int permits = (int) Math.min(maxInFlightPermits, Math.max(1, size / PERMIT_SIZE));
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for in flight mutations");
+        }
+        CompletableFuture<Void> previous = pendingBatches.getOrDefault(server, CompletableFuture.completedFuture(null));
+        pendingBatches.put(server, previous.thenRunAsync(() -> {
+            try {
+                if (asyncError.get() == null) {
+                    writeBatch(batch, size);
+                }
+            } catch (Throwable e) {
+                asyncError.compareAndSet(null, e);
+            } finally {
+                inFlight.release(permits);
+            }
+        }, executor));
+    }
+
+    private void writeBatch(List<M> batch, long size) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try (Table table = hBaseManager.getConnection().getTable(TableName.valueOf(tableName))) {
+            table.batch(batch, new Object[batch.size()]);
+        }
+        long nanos = System.nanoTime() - start;
+        flushLatency.record(nanos);
+        mutationsCount.inc(batch.size());
+        mutationsBytes.inc(size);
+        logger.debug("Written {} mutations ({} bytes) in {}ms", batch.size(), size, nanos / 1000000);
+    }
+
+    private void checkAsyncError() throws IOException {
+        Throwable e = asyncError.get();
+        if (e != null) {
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else {
+                throw new IOException("Error writing to table " + tableName, e);
+            }
+        }
+    }
+
     public void flush() {
         try {
-            mutator.flush();
+            if (async) {
+                synchronized (this) {
+                    for (ServerName server : new ArrayList<>(buffers.keySet())) {
+                        submit(server);
+                    }
+                    CompletableFuture.allOf(pendingBatches.values().toArray(new CompletableFuture[0])).join();
+                    pendingBatches.clear();
+                    checkAsyncError();
+                }
+            } else {
+                long start = System.nanoTime();
+                mutator.flush();
+                flushLatency.record(System.nanoTime() - start);
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -99,7 +262,12 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
     @Override
     public boolean close() {
         try {
-            mutator.close();
+            if (async) {
+                executor.shutdownNow();
+                regionLocator.close();
+            } else {
+                mutator.close();
+            }
             hBaseManager.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
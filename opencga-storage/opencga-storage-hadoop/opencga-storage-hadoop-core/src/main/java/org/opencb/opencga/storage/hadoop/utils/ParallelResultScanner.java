@@ -0,0 +1,196 @@
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ResultScanner that splits a list of scans by table region, and runs the resulting scans concurrently.
+ *
+ * Each concurrent scan prefetches a bounded number of results. If sorted, the results are returned in the same order as
+ * a sequential execution of the scans, so at most "threads" scans are executed ahead of the one being consumed.
+ * Otherwise, the results are returned as soon as they are fetched.
+ *
+ * Reversed scans are not split, as their start row is the upper bound of the scan. Each one is executed as a single partition.
+ */
+public class ParallelResultScanner extends AbstractClientScanner {
+
+    private static final Result END = new Result();
+    private static Logger logger = LoggerFactory.getLogger(ParallelResultScanner.class);
+
+    private final HBaseManager hBaseManager;
+    private final String tableName;
+    private final List<Scan> partitions;
+    private final boolean sorted;
+    private final int threads;
+    private final List<BlockingQueue<Result>> queues;
+    private final ExecutorService executor;
+    private final AtomicReference<Exception> error = new AtomicReference<>();
+    private volatile boolean closed = false;
+    private int finished = 0;
+
+    /**
+     * @param hBaseManager  HBaseManager
+     * @param tableName     Table to scan
+     * @param scans         Scans to execute, in order
+     * @param threads       Number of scans to execute concurrently
+     * @param prefetch      Number of results to buffer for each concurrent scan
+     * @param sorted        Return the results in the order of the scans
+     * @throws IOException  if the regions of the table could not be read
+     */
+    public ParallelResultScanner(HBaseManager hBaseManager, String tableName, List<Scan> scans, int threads, int prefetch,
+                                 boolean sorted) throws IOException {
+        this.hBaseManager = hBaseManager;
+        this.tableName = tableName;
+        this.sorted = sorted;
+        this.threads = Math.max(1, threads);
+        try (RegionLocator regionLocator = hBaseManager.getConnection().getRegionLocator(TableName.valueOf(tableName))) {
+            partitions = splitByRegion(scans, regionLocator.getStartEndKeys());
+        }
+        logger.debug("Scan {} with {} scans over {} threads", tableName, partitions.size(), this.threads);
+
+        queues = new ArrayList<>(partitions.size());
+        if (sorted) {
+            for (int i = 0; i < partitions.size(); i++) {
+                queues.add(new ArrayBlockingQueue<>(Math.max(1, prefetch)));
+            }
+        } else {
+            BlockingQueue<Result> queue = new ArrayBlockingQueue<>(Math.max(1, prefetch) * this.threads);
+            for (int i = 0; i < partitions.size(); i++) {
+                queues.add(queue);
+            }
+        }
+        executor = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread thread = new Thread(r, "parallel-scan-" + tableName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < (sorted ? this.threads : partitions.size()); i++) {
+            submit(i);
+        }
+    }
+
+    static List<Scan> splitByRegion(List<Scan> scans, Pair<byte[][], byte[][]> startEndKeys) throws IOException {
+        List<Scan> partitions = new ArrayList<>();
+        for (Scan scan : scans) {
+            if (scan.isReversed()) {
+                partitions.add(new Scan(scan));
+                continue;
+            }
+            for (int i = 0; i < startEndKeys.getFirst().length; i++) {
+                byte[] regionStart = startEndKeys.getFirst()[i];
+                byte[] regionEnd = startEndKeys.getSecond()[i];
+                byte[] start = max(scan.getStartRow(), regionStart);
+                byte[] stop = min(scan.getStopRow(), regionEnd);
+                if (stop.length == 0 || Bytes.compareTo(start, stop) < 0) {
+                    partitions.add(new Scan(scan).setStartRow(start).setStopRow(stop));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private static byte[] max(byte[] start1, byte[] start2) {
+        return Bytes.compareTo(start1, start2) >= 0 ? start1 : start2;
+    }
+
+    /**
+     * Min of two stop rows, where an empty stop row is unbounded.
+     */
+    private static byte[] min(byte[] stop1, byte[] stop2) {
+        if (stop1.length == 0) {
+            return stop2;
+        } else if (stop2.length == 0) {
+            return stop1;
+        } else {
+            return Bytes.compareTo(stop1, stop2) <= 0 ? stop1 : stop2;
+        }
+    }
+
+    private void submit(int i) {
+        if (i < partitions.size()) {
+            executor.submit(() -> scan(partitions.get(i), queues.get(i)));
+        }
+    }
+
+    private void scan(Scan scan, BlockingQueue<Result> queue) {
+        try (ResultScanner scanner = hBaseManager.getScanner(tableName, scan)) {
+            for (Result result = scanner.next(); result != null && !closed; result = scanner.next()) {
+                queue.put(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            error.compareAndSet(null, e);
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Result next() throws IOException {
+        while (finished < partitions.size()) {
+            Result result;
+            try {
+                result = queues.get(finished).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for scan results");
+            }
+            if (result == END) {
+                checkError();
+                if (sorted) {
+                    submit(finished + threads);
+                }
+                finished++;
+            } else {
+                checkError();
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private void checkError() throws IOException {
+        Exception e = error.get();
+        if (e != null) {
+            if (e instanceof IOException) {
+                throw new IOException("Error scanning table " + tableName, e);
+            } else {
+                throw new IllegalStateException("Error scanning table " + tableName, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean renewLease() {
+        return false;
+    }
+
+    public int getPartitionsCount() {
+        return partitions.size();
+    }
+}
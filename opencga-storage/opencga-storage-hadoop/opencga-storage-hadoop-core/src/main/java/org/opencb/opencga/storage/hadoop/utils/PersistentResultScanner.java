@@ -1,21 +1,39 @@
 package org.opencb.opencga.storage.hadoop.utils;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.UnknownScannerException;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.opencb.opencga.storage.core.metrics.Counter;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.*;
 
 /**
  * Persistent ResultScanner that will resume the scanner in event of UnknownScannerException.
  *
+ * In adaptive mode (see {@link org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions#SCANNER_ADAPTIVE}),
+ * the caching is adjusted so each batch of results is consumed in about half of the scanner timeout, and the lease of
+ * the scanner is renewed periodically. The consumer speed is checked after consuming half of the caching.
+ *
  * Created by jacobo on 05/01/19.
  */
 public class PersistentResultScanner extends AbstractClientScanner {
 
+    private static final int DEFAULT_ADAPTIVE_CACHING = 100;
+    private static ScheduledExecutorService leaseRenewer;
+
     private final HBaseManager hBaseManager;
     private final Scan scan;
     private final String tableName;
@@ -25,14 +43,63 @@ public class PersistentResultScanner extends AbstractClientScanner {
     private boolean empty = false;
     private static Logger logger = LoggerFactory.getLogger(PersistentResultScanner.class);
 
+    // Adaptive mode
+    private final boolean adaptive;
+    private int minCaching;
+    private int maxCaching;
+    private long timeoutNanos;
+    private long lastNextNanos;
+    private long consumerNanos;
+    private int consumedResults;
+    private int renewals = 0;
+    private ScheduledFuture<?> leaseRenewal;
+    private final Counter restartsCounter;
+    private final Counter renewalsCounter;
+    private final Counter rpcCounter;
+
     PersistentResultScanner(HBaseManager hBaseManager, Scan scan, String tableName) throws IOException {
         this.scanner = null;
         this.hBaseManager = hBaseManager;
         this.scan = scan == null ? new Scan() : new Scan(scan); // Copy scan, as it can me modified.
         this.tableName = tableName;
         checkValid(this.scan);
+
+        Configuration conf = hBaseManager.getConf();
+        adaptive = conf.getBoolean(SCANNER_ADAPTIVE.key(), SCANNER_ADAPTIVE.defaultValue());
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        restartsCounter = registry.counter(StageMetrics.PREFIX + "hbase_scanner_restarts_total",
+                "HBase scanners restarted from the last row", "table", tableName);
+        renewalsCounter = registry.counter(StageMetrics.PREFIX + "hbase_scanner_lease_renewals_total",
+                "HBase scanner leases renewed in background", "table", tableName);
+        rpcCounter = registry.counter(StageMetrics.PREFIX + "hbase_scanner_rpc_total",
+                "HBase scanner RPC calls. Only for adaptive scanners", "table", tableName);
+        if (adaptive) {
+            minCaching = Math.max(1, conf.getInt(SCANNER_ADAPTIVE_MIN_CACHING.key(), SCANNER_ADAPTIVE_MIN_CACHING.defaultValue()));
+            maxCaching = Math.max(minCaching,
+                    conf.getInt(SCANNER_ADAPTIVE_MAX_CACHING.key(), SCANNER_ADAPTIVE_MAX_CACHING.defaultValue()));
+            timeoutNanos = TimeUnit.MILLISECONDS.toNanos(conf.getLong(HConstants.HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD,
+                    HConstants.DEFAULT_HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD));
+            int caching = this.scan.getCaching() > 0 ? this.scan.getCaching() : DEFAULT_ADAPTIVE_CACHING;
+            this.scan.setCaching(Math.min(maxCaching, Math.max(minCaching, caching)));
+            this.scan.setScanMetricsEnabled(true);
+        }
         initScanMetrics(this.scan);
         obtainNewScanner();
+        if (adaptive) {
+            long period = TimeUnit.NANOSECONDS.toMillis(timeoutNanos / 3);
+            leaseRenewal = getLeaseRenewer().scheduleAtFixedRate(this::renewLeaseInBackground, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getLeaseRenewer() {
+        if (leaseRenewer == null) {
+            leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "hbase-scanner-lease-renewer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return leaseRenewer;
     }
 
     private void checkValid(Scan scan) {
@@ -56,7 +123,20 @@ public class PersistentResultScanner extends AbstractClientScanner {
     }
 
     @Override
-    public Result next() throws IOException {
+    public synchronized Result next() throws IOException {
+        if (adaptive) {
+            long now = System.nanoTime();
+            if (lastNextNanos > 0) {
+                consumerNanos += now - lastNextNanos;
+                consumedResults++;
+            }
+            if (consumedResults >= Math.max(1, scan.getCaching() / 2) && lastRow != null && !empty) {
+                adaptCaching();
+            }
+            Result result = next(true);
+            lastNextNanos = System.nanoTime();
+            return result;
+        }
         return next(true);
     }
 
@@ -77,8 +157,14 @@ public class PersistentResultScanner extends AbstractClientScanner {
             if (retry) {
                 logger.info("Renew lost HBase scanner: {}", e.getMessage());
                 logger.debug("Ignore HBase UnknownScannerException", e);
+                if (adaptive && consumedResults > 0) {
+                    scan.setCaching(getOptimalCaching());
+                    consumerNanos = 0;
+                    consumedResults = 0;
+                }
                 // Obtain new scanner
                 obtainNewScanner();
+                restartsCounter.inc();
                 return next(false);
             } else {
                 throw e;
@@ -86,6 +172,46 @@ public class PersistentResultScanner extends AbstractClientScanner {
         }
     }
 
+    /**
+     * Restart the scanner from the last row if the optimal caching is, at least, twice bigger or smaller than the current.
+     */
+    private void adaptCaching() throws IOException {
+        int caching = scan.getCaching();
+        int optimalCaching = getOptimalCaching();
+        consumerNanos = 0;
+        consumedResults = 0;
+        if (optimalCaching >= caching * 2 || optimalCaching * 2 <= caching) {
+            logger.debug("Restart scanner over table {} changing caching from {} to {}", tableName, caching, optimalCaching);
+            scan.setCaching(optimalCaching);
+            scanner.close();
+            obtainNewScanner();
+            restartsCounter.inc();
+        }
+    }
+
+    private int getOptimalCaching() {
+        if (consumerNanos <= 0) {
+            return maxCaching;
+        }
+        double nanosPerResult = ((double) consumerNanos) / consumedResults;
+        long caching = (long) (timeoutNanos / 2 / nanosPerResult);
+        return (int) Math.min(maxCaching, Math.max(minCaching, caching));
+    }
+
+    private synchronized void renewLeaseInBackground() {
+        if (empty || scanner == null) {
+            return;
+        }
+        try {
+            if (renewLease()) {
+                renewals++;
+                renewalsCounter.inc();
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Error renewing HBase scanner lease", e);
+        }
+    }
+
     private void obtainNewScanner() throws IOException {
         if (lastRow != null) {
             scan.setStartRow(calculateTheClosestNextRowKeyForPrefix());
@@ -120,12 +246,21 @@ public class PersistentResultScanner extends AbstractClientScanner {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        if (leaseRenewal != null) {
+            leaseRenewal.cancel(false);
+            leaseRenewal = null;
+        }
         scanner.close();
+        if (adaptive && scanMetrics != null) {
+            rpcCounter.inc(scanMetrics.countOfRPCcalls.get());
+            logger.debug("Close scanner over table {}. Scanners: {}, lease renewals: {}, RPC calls: {}, caching: {}",
+                    tableName, scanners, renewals, scanMetrics.countOfRPCcalls.get(), scan.getCaching());
+        }
     }
 
     @Override
-    public boolean renewLease() {
+    public synchronized boolean renewLease() {
         if (scanner instanceof AbstractClientScanner) {
             return ((AbstractClientScanner) scanner).renewLease();
         } else {
@@ -136,4 +271,8 @@ public class PersistentResultScanner extends AbstractClientScanner {
     public int getScannersCount() {
         return scanners;
     }
+
+    public int getCaching() {
+        return scan.getCaching();
+    }
 }
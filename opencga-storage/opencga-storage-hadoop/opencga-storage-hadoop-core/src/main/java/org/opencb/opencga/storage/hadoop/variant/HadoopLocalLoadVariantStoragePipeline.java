@@ -167,6 +167,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         long counter = 0;
 
         VariantHBaseArchiveDataWriter archiveWriter = new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager());
+        archiveWriter.configure(getOptions());
         VcfSliceToVariantListConverter converter = new VcfSliceToVariantListConverter(helper.getStudyMetadata());
         VariantHadoopDBWriter variantsWriter = newVariantHadoopDBWriter();
         List<Integer> sampleIds = new ArrayList<>(getMetadataManager().getFileMetadata(getStudyId(), getFileId()).getSamples());
@@ -178,6 +179,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
                     dbAdaptor.getTableNameGenerator().getSampleIndexTableName(helper.getStudyId()), sampleIds,
                     GenomeHelper.COLUMN_FAMILY_BYTES,
                     getOptions());
+            sampleIndexDBLoader.configure(getOptions());
         }
 
 //        ((TaskMetadata<VcfSlice, VcfSlice>) t -> t)
@@ -254,6 +256,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
 
         // Archive Writer
         VariantHBaseArchiveDataWriter archiveWriter = new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager());
+        archiveWriter.configure(getOptions());
         // Variants Writer
         VariantHadoopDBWriter hadoopDBWriter = newVariantHadoopDBWriter();
         // Sample Index Writer
@@ -266,6 +269,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
                     dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId), sampleIds,
                     GenomeHelper.COLUMN_FAMILY_BYTES,
                     getOptions());
+            sampleIndexDBLoader.configure(getOptions());
         }
 
         // TaskMetadata
@@ -349,12 +353,14 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         boolean includeReferenceVariantsData = getOptions().getBoolean(
                 VARIANT_TABLE_LOAD_REFERENCE.key(),
                 VARIANT_TABLE_LOAD_REFERENCE.defaultValue());
-        return new VariantHadoopDBWriter(
+        VariantHadoopDBWriter writer = new VariantHadoopDBWriter(
                 dbAdaptor.getGenomeHelper(),
                 dbAdaptor.getCredentials().getTable(),
                 getStudyId(),
                 getMetadataManager(),
                 dbAdaptor.getHBaseManager(), includeReferenceVariantsData);
+        writer.configure(getOptions());
+        return writer;
     }
 
     protected static class GroupedVariantsTask implements Task<ImmutablePair<Long, List<Variant>>, VcfSlice> {
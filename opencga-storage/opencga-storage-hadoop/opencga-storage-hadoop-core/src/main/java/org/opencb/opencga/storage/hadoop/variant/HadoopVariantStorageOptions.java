@@ -10,6 +10,16 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     HBASE_NAMESPACE("storage.hadoop.hbase.namespace"),
     EXPECTED_FILES_NUMBER("expected_files_number", 5000),
     DBADAPTOR_PHOENIX_FETCH_SIZE("storage.hadoop.phoenix.fetchSize", -1),
+    /**
+     * Split the native HBase queries by table region, and scan them concurrently.
+     * Results are returned in genomic order, unless the query options contain "sort=false".
+     */
+    DBADAPTOR_PARALLEL_SCAN("storage.hadoop.parallelScan", false),
+    DBADAPTOR_PARALLEL_SCAN_THREADS("storage.hadoop.parallelScan.threads", 4),
+    /**
+     * Number of results to prefetch for each concurrent scan.
+     */
+    DBADAPTOR_PARALLEL_SCAN_PREFETCH("storage.hadoop.parallelScan.prefetch", 1000),
 
     /////////////////////////
     // MapReduce configuration
@@ -79,6 +89,30 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     /////////////////////////
     SAMPLE_INDEX_TABLE_COMPRESSION("storage.hadoop.sampleIndex.table.compression", Compression.Algorithm.SNAPPY.getName()),
     SAMPLE_INDEX_TABLE_PRESPLIT_SIZE("storage.hadoop.sampleIndex.table.preSplit.samplesPerSplit", 15),
+    /**
+     * Read the sample indexes of multi-sample queries concurrently, and merge them in the query thread.
+     */
+    SAMPLE_INDEX_QUERY_PARALLEL("storage.hadoop.sampleIndex.query.parallel", false),
+    SAMPLE_INDEX_QUERY_PARALLEL_THREADS("storage.hadoop.sampleIndex.query.parallel.threads", 4),
+    /**
+     * Max number of variants to read ahead from each sample index.
+     */
+    SAMPLE_INDEX_QUERY_PARALLEL_READ_AHEAD("storage.hadoop.sampleIndex.query.parallel.readAhead", 10000),
+    /**
+     * Skip sample index rows in the region servers using the region and annotation summary columns.
+     * Requires the opencga-storage-hadoop-core jar in the classpath of the HBase region servers.
+     */
+    SAMPLE_INDEX_QUERY_SUMMARY_FILTER("storage.hadoop.sampleIndex.query.summaryFilter", false),
+    /**
+     * Filter and count the sample index rows of count queries in the region servers.
+     * Requires the opencga-storage-hadoop-core jar, and its dependencies, in the classpath of the HBase region servers.
+     */
+    SAMPLE_INDEX_QUERY_COUNT_FILTER("storage.hadoop.sampleIndex.query.countFilter", false),
+    /**
+     * Mark the annotated variants in the pending annotation table, and update only the sample index rows containing
+     * marked variants from the samples with an updated sample index annotation. Other samples are updated with a MapReduce.
+     */
+    SAMPLE_INDEX_ANNOTATION_INCREMENTAL("storage.hadoop.sampleIndex.annotation.incremental", false),
 
     /////////////////////////
     // Annotation index table  configuration
@@ -86,6 +120,36 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     ANNOTATION_INDEX_TABLE_COMPRESSION("storage.hadoop.annotationIndex.table.compression", Compression.Algorithm.SNAPPY.getName()),
     PENDING_ANNOTATION_TABLE_COMPRESSION("storage.hadoop.pendingAnnotation.table.compression", Compression.Algorithm.SNAPPY.getName()),
 
+    /////////////////////////
+    // HBase scanners configuration
+    /////////////////////////
+    /**
+     * Adapt the caching of the scanners to the speed of the consumer, and renew the scanner leases in background.
+     * The scanner is restarted from the last row when the caching needs to change.
+     */
+    SCANNER_ADAPTIVE("storage.hadoop.scanner.adaptive", false),
+    SCANNER_ADAPTIVE_MIN_CACHING("storage.hadoop.scanner.adaptive.minCaching", 10),
+    SCANNER_ADAPTIVE_MAX_CACHING("storage.hadoop.scanner.adaptive.maxCaching", 5000),
+
+    /////////////////////////
+    // HBase writers configuration
+    /////////////////////////
+    /**
+     * Group the mutations by region server, and write them from background threads. Several batches can be in flight at the same
+     * time, one per region server.
+     */
+    WRITE_ASYNC("storage.hadoop.write.async", false),
+    WRITE_ASYNC_THREADS("storage.hadoop.write.async.threads", 4),
+    /**
+     * Size of the write buffer of each writer, in bytes. In async mode, size of the buffer for each region server.
+     * If 0, use the HBase configuration "hbase.client.write.buffer".
+     */
+    WRITE_BUFFER_SIZE("storage.hadoop.write.bufferSize", 0),
+    /**
+     * Max size of the mutations submitted and not written yet, in async mode. Writes block when this limit is reached.
+     */
+    WRITE_MAX_IN_FLIGHT_BYTES("storage.hadoop.write.maxInFlightBytes", 64 * 1024 * 1024),
+
     /////////////////////////
     // Other
     /////////////////////////
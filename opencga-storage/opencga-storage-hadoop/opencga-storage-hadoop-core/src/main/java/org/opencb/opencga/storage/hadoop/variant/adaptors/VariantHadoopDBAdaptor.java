@@ -47,6 +47,7 @@ import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManag
 import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
 import org.opencb.opencga.storage.hadoop.auth.HBaseCredentials;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.utils.ParallelResultScanner;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
@@ -100,6 +101,9 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
     private final VariantHBaseQueryParser hbaseQueryParser;
     private final HBaseFileMetadataDBAdaptor variantFileMetadataDBAdaptor;
     private final int phoenixFetchSize;
+    private final boolean parallelScan;
+    private final int parallelScanThreads;
+    private final int parallelScanPrefetch;
     private boolean clientSideSkip;
     private HBaseManager hBaseManager;
 
@@ -120,7 +124,7 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         ObjectMap options = configuration.getVariantEngine(HadoopVariantStorageEngine.STORAGE_ENGINE_ID).getOptions();
         HBaseVariantStorageMetadataDBAdaptorFactory factory = new HBaseVariantStorageMetadataDBAdaptorFactory(
                 hBaseManager, tableNameGenerator.getMetaTableName(), conf);
-        this.studyConfigurationManager.set(new VariantStorageMetadataManager(factory));
+        this.studyConfigurationManager.set(new VariantStorageMetadataManager(factory, options));
         this.variantFileMetadataDBAdaptor = factory.buildFileMetadataDBAdaptor();
 
         clientSideSkip = !options.getBoolean(PhoenixHelper.PHOENIX_SERVER_OFFSET_AVAILABLE, true);
@@ -130,6 +134,15 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         phoenixFetchSize = options.getInt(
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.key(),
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.defaultValue());
+        parallelScan = options.getBoolean(
+                HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN.key(),
+                HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN.defaultValue());
+        parallelScanThreads = options.getInt(
+                HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN_THREADS.key(),
+                HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN_THREADS.defaultValue());
+        parallelScanPrefetch = options.getInt(
+                HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN_PREFETCH.key(),
+                HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN_PREFETCH.defaultValue());
 
         phoenixHelper = new VariantPhoenixHelper(genomeHelper);
 
@@ -437,13 +450,26 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
                     unknownGenotype = query.getString(UNKNOWN_GENOTYPE.key());
                 }
                 List<String> formats = getIncludeFormats(query);
-                Iterator<ResultScanner> resScans = scans.stream().map(scan -> {
-                    try {
-                        return hBaseManager.getScanner(variantTable, scan);
-                    } catch (IOException e) {
-                        throw VariantQueryException.internalException(e);
-                    }
-                }).iterator();
+                Iterator<ResultScanner> resScans;
+                // Reversed scans (order=descending) can not be split by region. Use the sequential scanners
+                boolean reversed = scans.stream().anyMatch(Scan::isReversed);
+                if (!reversed && options.getBoolean(HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN.key(), parallelScan)) {
+                    boolean sorted = !options.containsKey(QueryOptions.SORT) || options.getBoolean(QueryOptions.SORT);
+                    ParallelResultScanner scanner = new ParallelResultScanner(hBaseManager, variantTable, scans,
+                            options.getInt(HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN_THREADS.key(), parallelScanThreads),
+                            options.getInt(HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN_PREFETCH.key(), parallelScanPrefetch),
+                            sorted);
+                    logger.debug("Parallel scan with {} partitions. Sorted = {}", scanner.getPartitionsCount(), sorted);
+                    resScans = Collections.<ResultScanner>singletonList(scanner).iterator();
+                } else {
+                    resScans = scans.stream().map(scan -> {
+                        try {
+                            return hBaseManager.getScanner(variantTable, scan);
+                        } catch (IOException e) {
+                            throw VariantQueryException.internalException(e);
+                        }
+                    }).iterator();
+                }
 
                 VariantHBaseScanIterator iterator = new VariantHBaseScanIterator(
                         resScans, genomeHelper, studyConfigurationManager.get(), query, options, unknownGenotype, formats, selectElements);
@@ -26,18 +26,22 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
 import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.commons.run.Task;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.annotation.DefaultVariantAnnotationManager;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotatorException;
 import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VepAnnotationCheckpoint;
 import org.opencb.opencga.storage.hadoop.utils.CopyHBaseColumnDriver;
 import org.opencb.opencga.storage.hadoop.utils.DeleteHBaseColumnDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
@@ -171,7 +175,8 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
 
     @Override
     protected ParallelTaskRunner<VariantAnnotation, ?> buildLoadAnnotationParallelTaskRunner(
-            DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params) {
+            DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params,
+            VepAnnotationCheckpoint checkpoint) {
 
         if (VariantPhoenixHelper.DEFAULT_TABLE_TYPE == PTableType.VIEW
                 || params.getBoolean(HadoopVariantStorageOptions.VARIANT_TABLE_INDEXES_SKIP.key(), false)) {
@@ -184,15 +189,21 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
 
             Task<VariantAnnotation, Put> task = Task.join(hBaseConverter, annotationIndexDBLoader.asTask(true));
 
-            VariantAnnotationHadoopDBWriter writer = new VariantAnnotationHadoopDBWriter(
+            DataWriter<Put> writer = new VariantAnnotationHadoopDBWriter(
                     dbAdaptor.getHBaseManager(),
                     dbAdaptor.getTableNameGenerator(),
                     GenomeHelper.COLUMN_FAMILY_BYTES);
+            if (checkpoint != null) {
+                task = checkpoint.track(task, true);
+                writer = checkpoint.track(writer);
+            }
             return new ParallelTaskRunner<>(reader, task, writer, config);
         } else {
-            return new ParallelTaskRunner<>(reader,
-                    () -> dbAdaptor.newAnnotationLoader(new QueryOptions(params))
-                            .setProgressLogger(progressLogger), null, config);
+            return new ParallelTaskRunner<>(reader, () -> {
+                Task<VariantAnnotation, Object> loader = dbAdaptor.newAnnotationLoader(new QueryOptions(params))
+                        .setProgressLogger(progressLogger);
+                return checkpoint == null ? loader : checkpoint.track(loader, false);
+            }, null, config);
         }
     }
 
@@ -220,12 +231,36 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
             return;
         } else if (samples.isEmpty() || samples.size() == 1 && samples.get(0).equals(VariantQueryUtils.ALL)) {
             // Run on all pending samples
-            for (Integer studyId : studies) {
+            // Read from the hadoop configuration, as the PendingVariantsToAnnotateDBCleaner
+            boolean incremental = dbAdaptor.getHBaseManager().getConf().getBoolean(
+                    HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_INCREMENTAL.key(),
+                    HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_INCREMENTAL.defaultValue());
+            Map<Integer, List<Integer>> incrementalSamples = new HashMap<>();
+            // The markers are shared by all the studies. Update all the studies of the project.
+            for (Integer studyId : incremental ? metadataManager.getStudyIds() : studies) {
                 List<Integer> indexedSamples = metadataManager.getIndexedSamples(studyId);
-                if (!indexedSamples.isEmpty()) {
+                if (incremental) {
+                    List<Integer> readySamples = new ArrayList<>();
+                    List<Integer> pendingSamples = new ArrayList<>();
+                    for (Integer sampleId : indexedSamples) {
+                        SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+                        if (sampleMetadata.getStatus(SampleIndexAnnotationLoader.SAMPLE_INDEX_STATUS).equals(TaskMetadata.Status.READY)) {
+                            readySamples.add(sampleId);
+                        } else {
+                            pendingSamples.add(sampleId);
+                        }
+                    }
+                    incrementalSamples.put(studyId, readySamples);
+                    indexedSamples = pendingSamples;
+                }
+                if (!indexedSamples.isEmpty() && studies.contains(studyId)) {
                     indexAnnotationLoader.updateSampleAnnotation(studyId, indexedSamples, params);
                 }
             }
+            if (incremental) {
+                // Run even without samples to update, to clean the markers
+                indexAnnotationLoader.updateSampleAnnotationIncremental(incrementalSamples);
+            }
         } else if (samples.size() == 1 && samples.get(0).equals("force_all")) {
             // Run on all indexed samples
             for (Integer studyId : studies) {
@@ -145,7 +145,8 @@ public class DiscoverPendingVariantsToAnnotateDriver extends AbstractVariantsTab
             variants++;
             if (annotated) {
                 annotatedVariants++;
-                Delete delete = new Delete(value.getRow());
+                // Do not remove the sample index markers
+                Delete delete = new Delete(value.getRow()).addColumns(FAMILY, COLUMN);
                 context.write(key, delete);
             } else {
                 pendingVariants++;
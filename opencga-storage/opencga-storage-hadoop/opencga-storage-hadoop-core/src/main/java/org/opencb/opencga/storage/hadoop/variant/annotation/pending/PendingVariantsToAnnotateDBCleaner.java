@@ -1,8 +1,11 @@
 package org.opencb.opencga.storage.hadoop.variant.annotation.pending;
 
 import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
 import org.opencb.opencga.storage.hadoop.utils.AbstractHBaseDataWriter;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
 
 import java.io.IOException;
@@ -11,15 +14,24 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * Remove the annotated variants from the pending variants to annotate table.
+ * If {@link HadoopVariantStorageOptions#SAMPLE_INDEX_ANNOTATION_INCREMENTAL}, the annotated variants are marked as pending
+ * to update in the sample index.
+ *
  * Created on 13/02/19.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
-public class PendingVariantsToAnnotateDBCleaner extends AbstractHBaseDataWriter<byte[], Delete> {
+public class PendingVariantsToAnnotateDBCleaner extends AbstractHBaseDataWriter<byte[], Mutation> {
+
+    private final boolean markSampleIndex;
 
     public PendingVariantsToAnnotateDBCleaner(HBaseManager hBaseManager, String pendingAnnotationTable) {
         super(hBaseManager, pendingAnnotationTable);
         HBaseVariantTableNameGenerator.checkValidPendingAnnotationTableName(pendingAnnotationTable);
+        markSampleIndex = hBaseManager.getConf().getBoolean(
+                HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_INCREMENTAL.key(),
+                HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_INCREMENTAL.defaultValue());
     }
 
     @Override
@@ -33,14 +45,19 @@ public class PendingVariantsToAnnotateDBCleaner extends AbstractHBaseDataWriter<
     }
 
     @Override
-    protected List<Delete> convert(List<byte[]> batch) {
-        List<Delete> deletes = new ArrayList<>(batch.size());
+    protected List<Mutation> convert(List<byte[]> batch) {
+        List<Mutation> mutations = new ArrayList<>(markSampleIndex ? batch.size() * 2 : batch.size());
         for (byte[] rowKey : batch) {
-//            Delete delete = new Delete(rowKey)
-//                    .addColumn(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.COLUMN);
-            Delete delete = new Delete(rowKey);
-            deletes.add(delete);
+            if (markSampleIndex) {
+                mutations.add(new Delete(rowKey)
+                        .addColumns(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.COLUMN));
+                mutations.add(new Put(rowKey)
+                        .addColumn(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.SAMPLE_INDEX_COLUMN,
+                                PendingVariantsToAnnotateUtils.VALUE));
+            } else {
+                mutations.add(new Delete(rowKey));
+            }
         }
-        return deletes;
+        return mutations;
     }
 }
@@ -61,6 +61,8 @@ public class PendingVariantsToAnnotateReader extends AbstractHBaseDataReader<Var
             region = new Region(query.getString(VariantQueryParam.REGION.key()));
         }
         VariantHBaseQueryParser.addRegionFilter(scan, region);
+        // Skip variants only pending to update in the sample index
+        scan.addColumn(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.COLUMN);
         return scan;
     }
 
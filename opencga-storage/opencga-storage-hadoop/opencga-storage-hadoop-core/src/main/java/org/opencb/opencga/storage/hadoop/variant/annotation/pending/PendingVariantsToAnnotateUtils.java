@@ -22,7 +22,15 @@ import java.util.List;
  */
 public final class PendingVariantsToAnnotateUtils {
     public static final byte[] FAMILY = GenomeHelper.COLUMN_FAMILY_BYTES;
+    /**
+     * Variant pending to annotate.
+     */
     public static final byte[] COLUMN = Bytes.toBytes("v");
+    /**
+     * Variant annotated, pending to update in the sample index.
+     * See {@link org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions#SAMPLE_INDEX_ANNOTATION_INCREMENTAL}.
+     */
+    public static final byte[] SAMPLE_INDEX_COLUMN = Bytes.toBytes("s");
     public static final byte[] VALUE = new byte[0];
 
     private static Logger logger = LoggerFactory.getLogger(PendingVariantsToAnnotateUtils.class);
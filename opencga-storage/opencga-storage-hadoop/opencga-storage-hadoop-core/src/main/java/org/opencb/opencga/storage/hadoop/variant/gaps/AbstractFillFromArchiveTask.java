@@ -190,14 +190,13 @@ public abstract class AbstractFillFromArchiveTask implements Task<Result, Abstra
             if (vcfSlicePair == null) {
                 continue;
             }
+            // Index the slices once, and reuse them for all the variants of the file
+            StopWatch indexStopWatch = new StopWatch().start();
             VcfSlice nonRefVcfSlice = vcfSlicePair.getNonRefVcfSlice();
-            ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator = nonRefVcfSlice == null
-                    ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
-                    : nonRefVcfSlice.getRecordsList().listIterator();
+            VcfSliceIntervalIndex nonRefIndex = nonRefVcfSlice == null ? null : new VcfSliceIntervalIndex(nonRefVcfSlice);
             VcfSlice refVcfSlice = vcfSlicePair.getRefVcfSlice();
-            ListIterator<VcfSliceProtos.VcfRecord> refIterator = refVcfSlice == null
-                    ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
-                    : refVcfSlice.getRecordsList().listIterator();
+            VcfSliceIntervalIndex refIndex = refVcfSlice == null ? null : new VcfSliceIntervalIndex(refVcfSlice);
+            increment("BUILD_SLICE_INDEX", context.fileBatch, indexStopWatch);
 
 
             Set<Integer> sampleIds = fileToSampleIds.get(fileId);
@@ -206,7 +205,7 @@ public abstract class AbstractFillFromArchiveTask implements Task<Result, Abstra
 
                 StopWatch stopWatch = new StopWatch().start();
                 VariantOverlappingStatus overlappingStatus = fillGapsTask.fillGaps(variant, sampleIds, put, sampleIndexPuts, fileId,
-                        nonRefVcfSlice, nonRefIterator, refVcfSlice, refIterator);
+                        nonRefIndex, refIndex);
                 increment("OVERLAPPING_STATUS_" + String.valueOf(overlappingStatus), context.fileBatch, 1);
                 increment("OVERLAPPING_STATUS_" + String.valueOf(overlappingStatus), context.fileBatch, stopWatch);
             }
@@ -76,37 +76,45 @@ public class FillGapsTask {
                                              Integer fileId,
                                              VcfSliceProtos.VcfSlice nonRefVcfSlice, VcfSliceProtos.VcfSlice refVcfSlice) {
         return fillGaps(variant, missingSamples, put, sampleIndexPuts, fileId,
-                nonRefVcfSlice, nonRefVcfSlice.getRecordsList().listIterator(),
-                refVcfSlice, refVcfSlice.getRecordsList().listIterator());
+                nonRefVcfSlice == null ? null : new VcfSliceIntervalIndex(nonRefVcfSlice),
+                refVcfSlice == null ? null : new VcfSliceIntervalIndex(refVcfSlice));
     }
 
+    /**
+     * Fill the gaps of a variant, finding the overlapping records with the interval index of each slice.
+     * The indexes should be built once per slice, and reused for all the variants within the slice.
+     *
+     * @param variant           Variant to fill
+     * @param missingSamples    Samples to fill
+     * @param put               Put with the variant changes
+     * @param sampleIndexPuts   List of sample index puts
+     * @param fileId            File to read
+     * @param nonRefIndex       Index of the non ref VcfSlice of the file. May be null
+     * @param refIndex          Index of the ref VcfSlice of the file. May be null
+     * @return the overlapping status
+     */
     public VariantOverlappingStatus fillGaps(Variant variant, Set<Integer> missingSamples, Put put, List<Put> sampleIndexPuts,
-                                             Integer fileId,
-                                             VcfSliceProtos.VcfSlice nonRefVcfSlice, ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator,
-                                             VcfSliceProtos.VcfSlice refVcfSlice, ListIterator<VcfSliceProtos.VcfRecord> refIterator) {
-        final VariantOverlappingStatus overlappingStatus;
-
-        // Three scenarios:
-        //  Overlap with NO_VARIATION,
-        //  Overlap with another variant
-        //  No overlap
-
+                                             Integer fileId, VcfSliceIntervalIndex nonRefIndex, VcfSliceIntervalIndex refIndex) {
         List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> overlappingRecords = new ArrayList<>(1);
-        if (nonRefVcfSlice != null) {
-            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, nonRefVcfSlice, nonRefIterator, overlappingRecords);
+        if (nonRefIndex != null) {
+            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, nonRefIndex, overlappingRecords);
             if (isVariantAlreadyLoaded) {
                 return VariantOverlappingStatus.NONE;
             }
         }
-        if (refVcfSlice != null) {
-            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, refVcfSlice, refIterator, overlappingRecords);
+        if (refIndex != null) {
+            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, refIndex, overlappingRecords);
             if (isVariantAlreadyLoaded) {
-                String msg = "Found that the variant " + variant + " was already loaded in refVcfSlice!";
-//                throw new IllegalStateException(msg);
-                logger.warn(msg);
+                logger.warn("Found that the variant " + variant + " was already loaded in refVcfSlice!");
             }
         }
+        return fillGaps(variant, missingSamples, put, sampleIndexPuts, fileId, overlappingRecords);
+    }
 
+    private VariantOverlappingStatus fillGaps(Variant variant, Set<Integer> missingSamples, Put put, List<Put> sampleIndexPuts,
+                                              Integer fileId,
+                                              List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> overlappingRecords) {
+        final VariantOverlappingStatus overlappingStatus;
         final VcfSliceProtos.VcfRecord vcfRecord;
         final VcfSliceProtos.VcfSlice vcfSlice;
         if (overlappingRecords.isEmpty()) {
@@ -402,76 +410,40 @@ public class FillGapsTask {
         return StringUtils.contains(gt, '1');
     }
 
-    public boolean getOverlappingVariants(Variant variant, int fileId,
-                                          VcfSliceProtos.VcfSlice vcfSlice, ListIterator<VcfSliceProtos.VcfRecord> iterator,
+    /**
+     * Find the records overlapping the variant using the interval index of the slice.
+     * This does not depend on the order of the variants, and does not rescan the records of the slice.
+     *
+     * @param variant               Variant to fill
+     * @param fileId                File
+     * @param index                 Interval index of the VcfSlice
+     * @param overlappingRecords    List to add the overlapping records
+     * @return if the variant is already loaded in the slice
+     */
+    public boolean getOverlappingVariants(Variant variant, int fileId, VcfSliceIntervalIndex index,
                                           List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> overlappingRecords) {
+        VcfSliceProtos.VcfSlice vcfSlice = index.getVcfSlice();
         String chromosome = vcfSlice.getChromosome();
-        int position = vcfSlice.getPosition();
-        Integer resetPosition = null;
-        boolean isAlreadyPresent = false;
-        int firstIndex = iterator.nextIndex();
-        // Assume sorted VcfRecords
-        while (iterator.hasNext()) {
-            VcfSliceProtos.VcfRecord vcfRecord = iterator.next();
-            int start = VcfRecordProtoToVariantConverter.getStart(vcfRecord, position);
-            int end = VcfRecordProtoToVariantConverter.getEnd(vcfRecord, position);
-            String reference = vcfRecord.getReference();
-            String alternate = vcfRecord.getAlternate();
-            // If the VcfRecord starts after the variant, stop looking for variants
+        if (!StringUtils.equals(variant.getChromosome(), chromosome)) {
+            return false;
+        }
+        // Any overlapping record, including insertions at the same position, satisfies max(start, end) >= variant.start
+        // and start <= max(variant.start, variant.end)
+        int last = index.lastCandidate(Math.max(variant.getStart(), variant.getEnd()));
+        for (int i = index.firstCandidate(variant.getStart()); i <= last; i++) {
+            int start = index.getStart(i);
+            int end = index.getEnd(i);
             if (overlapsWith(variant, chromosome, start, end)) {
-                if (resetPosition == null) {
-                    resetPosition = Math.max(iterator.previousIndex() - 1, firstIndex);
-                }
-
-//                if (skipReferenceVariants && hasAllReferenceGenotype(vcfSlice, vcfRecord)) {
-//                    // Skip this variant
-//                    continue;
-//                }
-
+                VcfSliceProtos.VcfRecord vcfRecord = index.getRecord(i);
                 // If the same variant is present for this file in the VcfSlice, the variant is already loaded
-                if (isVariantAlreadyLoaded(variant, vcfSlice, vcfRecord, chromosome, start, end, reference, alternate)) {
-                    // Variant already loaded. Nothing to do!
-                    isAlreadyPresent = true;
-                    break;
+                if (isVariantAlreadyLoaded(variant, vcfSlice, vcfRecord, chromosome, start, end,
+                        vcfRecord.getReference(), vcfRecord.getAlternate())) {
+                    return true;
                 }
-
                 overlappingRecords.add(ImmutablePair.of(vcfSlice, vcfRecord));
-            } else if (isRegionAfterVariantStart(start, end, variant)) {
-                if (resetPosition == null) {
-                    resetPosition = Math.max(iterator.previousIndex() - 1, firstIndex);
-                }
-                // Shouldn't happen that the first VcfRecord from the iterator is beyond the variant to process,
-                // and is not the first VcfRecord from the slice.
-                // If so, there may be a bug, or the variants or the VcfSlice is not sorted
-                if (firstIndex != 0 && firstIndex == iterator.previousIndex()) {
-                    // This should never happen
-                    throw new IllegalStateException("Variants or VcfSlice not in order!"
-                            + " First next VcfRecord from iterator (index : " + firstIndex + ") "
-                            + chromosome + ':' + start + '-' + end + ':' + reference + ':' + alternate
-                            + " is after the current variant to process for file " + fileId
-                    );
-//                    // Something weird happened. Go back to the first position
-//                    while (iterator.hasPrevious()) {
-//                        iterator.previous();
-//                    }
-//                    firstIndex = 0;
-                } else {
-                    break;
-                }
-            }
-        }
-        if (resetPosition == null && !iterator.hasNext()) {
-            // If the iterator reaches the end without finding any point, reset the iterator
-            resetPosition = firstIndex;
-        }
-        // Send back the iterator
-        if (resetPosition != null) {
-//            logger.info("Reset from " + iterator.nextIndex() + " to " + resetPosition + ". fileId : " + fileId + " variant " + variant);
-            while (iterator.nextIndex() > resetPosition) {
-                iterator.previous();
             }
         }
-        return isAlreadyPresent;
+        return false;
     }
 
     /**
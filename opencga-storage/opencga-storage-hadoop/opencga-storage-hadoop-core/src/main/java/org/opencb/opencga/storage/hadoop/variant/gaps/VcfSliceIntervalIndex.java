@@ -0,0 +1,141 @@
+package org.opencb.opencga.storage.hadoop.variant.gaps;
+
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfRecord;
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfSlice;
+import org.opencb.biodata.tools.variant.converters.proto.VcfRecordProtoToVariantConverter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Interval index over the records of a {@link VcfSlice}. Built once per slice, and reused to find the records overlapping
+ * each of the variants to fill, without scanning the whole slice.
+ *
+ * The start and end of each record are decoded once, and stored in primitive arrays sorted by start. The running maximum of
+ * the record ends gives the first record that may overlap a position, and the sorted starts give the last one.
+ */
+public class VcfSliceIntervalIndex {
+
+    private final VcfSlice vcfSlice;
+    private final List<VcfRecord> records;
+    // Record index, sorted by start. Null if the records are already sorted.
+    private final int[] order;
+    private final int[] starts;
+    private final int[] ends;
+    // Running maximum of max(start, end). Insertions have end = start - 1
+    private final int[] maxEnds;
+
+    public VcfSliceIntervalIndex(VcfSlice vcfSlice) {
+        this.vcfSlice = vcfSlice;
+        records = vcfSlice.getRecordsList();
+        int size = records.size();
+        int position = vcfSlice.getPosition();
+
+        int[] recordStarts = new int[size];
+        int[] recordEnds = new int[size];
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            VcfRecord vcfRecord = records.get(i);
+            recordStarts[i] = VcfRecordProtoToVariantConverter.getStart(vcfRecord, position);
+            recordEnds[i] = VcfRecordProtoToVariantConverter.getEnd(vcfRecord, position);
+            if (i > 0 && recordStarts[i] < recordStarts[i - 1]) {
+                sorted = false;
+            }
+        }
+
+        if (sorted) {
+            order = null;
+            starts = recordStarts;
+            ends = recordEnds;
+        } else {
+            // Stable sort. Records with the same start keep the original order
+            Integer[] sortedIndexes = sortedIndexes(recordStarts);
+            order = new int[size];
+            starts = new int[size];
+            ends = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = sortedIndexes[i];
+                starts[i] = recordStarts[order[i]];
+                ends[i] = recordEnds[order[i]];
+            }
+        }
+
+        maxEnds = new int[size];
+        int maxEnd = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            maxEnd = Math.max(maxEnd, Math.max(starts[i], ends[i]));
+            maxEnds[i] = maxEnd;
+        }
+    }
+
+    private static Integer[] sortedIndexes(int[] values) {
+        Integer[] indexes = new Integer[values.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.comparingInt(i -> values[i]));
+        return indexes;
+    }
+
+    public VcfSlice getVcfSlice() {
+        return vcfSlice;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * First index that may contain a record ending at or after the given position.
+     * Any record before this index ends, and starts, before the position.
+     *
+     * @param position  Position
+     * @return First candidate index. {@link #size()} if none
+     */
+    public int firstCandidate(int position) {
+        int low = 0;
+        int high = maxEnds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEnds[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Last index with a record starting at or before the given position.
+     *
+     * @param position  Position
+     * @return Last candidate index. -1 if none
+     */
+    public int lastCandidate(int position) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    public int getEnd(int i) {
+        return ends[i];
+    }
+
+    public VcfRecord getRecord(int i) {
+        return records.get(order == null ? i : order[i]);
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
 import org.opencb.opencga.storage.core.io.bit.BitOutputStream;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSummaryFilter;
 
 import java.io.ByteArrayOutputStream;
 
@@ -16,6 +17,12 @@ public class AnnotationIndexPutBuilder {
     private final BitOutputStream ctBt;
     private final BitOutputStream popFreq;
     private int numVariants;
+    // Summary of all the variants. See SampleIndexSummaryFilter
+    private byte orSummary;
+    private byte andSummary;
+    private boolean anyIntergenic;
+    private short orCt;
+    private byte orBt;
 
     public AnnotationIndexPutBuilder() {
         this(50);
@@ -28,15 +35,22 @@ public class AnnotationIndexPutBuilder {
         this.ctBt = new BitOutputStream(size / 4);
         this.popFreq = new BitOutputStream(size / 2);
         numVariants = 0;
+        andSummary = (byte) 0xFF;
     }
 
     public AnnotationIndexPutBuilder add(AnnotationIndexEntry indexEntry) {
         numVariants++;
         annotation.write(indexEntry.getSummaryIndex());
+        orSummary |= indexEntry.getSummaryIndex();
+        andSummary &= indexEntry.getSummaryIndex();
 
-        if (!indexEntry.isIntergenic()) {
+        if (indexEntry.isIntergenic()) {
+            anyIntergenic = true;
+        } else {
             ct.write(Bytes.toBytes(indexEntry.getCtIndex()), 0, Short.BYTES);
             biotype.write(indexEntry.getBtIndex());
+            orCt |= indexEntry.getCtIndex();
+            orBt |= indexEntry.getBtIndex();
         }
         for (byte popFreqIndex : indexEntry.getPopFreqIndex()) {
             popFreq.write(popFreqIndex, AnnotationIndexConverter.POP_FREQ_SIZE);
@@ -67,6 +81,8 @@ public class AnnotationIndexPutBuilder {
         put.addColumn(family, SampleIndexSchema.toAnnotationCtBtIndexColumn(gt), ctBt.toByteArray());
 
         put.addColumn(family, SampleIndexSchema.toAnnotationPopFreqIndexColumn(gt), popFreq.toByteArray());
+        put.addColumn(family, SampleIndexSchema.toAnnotationSummaryColumn(gt),
+                SampleIndexSummaryFilter.annotationSummaryToBytes(numVariants, orSummary, andSummary, anyIntergenic, orCt, orBt));
         reset();
         return put;
     }
@@ -78,5 +94,10 @@ public class AnnotationIndexPutBuilder {
         ctBt.reset();
         popFreq.reset();
         numVariants = 0;
+        orSummary = 0;
+        andSummary = (byte) 0xFF;
+        anyIntergenic = false;
+        orCt = 0;
+        orBt = 0;
     }
 }
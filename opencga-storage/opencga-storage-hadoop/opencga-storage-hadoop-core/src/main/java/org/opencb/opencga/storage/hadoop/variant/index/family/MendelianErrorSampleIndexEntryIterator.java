@@ -85,6 +85,12 @@ public class MendelianErrorSampleIndexEntryIterator implements SampleIndexEntryI
         return nextGt;
     }
 
+    @Override
+    public int nextStart() {
+        fetchNextIfNeeded();
+        return next.getStart();
+    }
+
     /**
      * @return Gets the mendelian error code of the next variant.
      */
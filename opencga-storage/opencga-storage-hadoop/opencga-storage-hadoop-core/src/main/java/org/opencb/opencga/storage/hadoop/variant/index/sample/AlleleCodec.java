@@ -33,11 +33,19 @@ public class AlleleCodec {
 
     public static String[] decode(byte refAltCode) {
         return new String[]{
-                ALLELE_CODES[(refAltCode & 0b1100_0000) >>> 6],
-                ALLELE_CODES[(refAltCode & 0b0011_0000) >>> 4],
+                decodeReference(refAltCode),
+                decodeAlternate(refAltCode),
         };
     }
 
+    public static String decodeReference(byte refAltCode) {
+        return ALLELE_CODES[(refAltCode & 0b1100_0000) >>> 6];
+    }
+
+    public static String decodeAlternate(byte refAltCode) {
+        return ALLELE_CODES[(refAltCode & 0b0011_0000) >>> 4];
+    }
+
     public static byte encode(String allele) {
         switch (allele.charAt(0)) {
             case 'A':
@@ -94,7 +94,8 @@ public class HBaseToSampleIndexConverter implements Converter<Result, SampleInde
                 if (columnStartsWith(cell, MENDELIAN_ERROR_COLUMN_BYTES)) {
                     entry.setMendelianVariants(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
                 } else {
-                    String gt = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+                    String gt = SampleIndexGenotype.toGenotype(
+                            cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
                     SampleIndexGtEntry gtEntry = entry.getGtEntry(gt);
 
                     gtEntry.setVariants(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
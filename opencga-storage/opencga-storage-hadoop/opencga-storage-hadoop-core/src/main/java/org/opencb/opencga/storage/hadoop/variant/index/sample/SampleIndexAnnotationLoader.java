@@ -1,9 +1,9 @@
 package org.opencb.opencga.storage.hadoop.variant.index.sample;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.BufferedMutator;
-import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.*;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.ObjectMap;
@@ -16,6 +16,8 @@ import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.hadoop.utils.HBaseDataWriter;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.PendingVariantsToAnnotateUtils;
 import org.opencb.opencga.storage.hadoop.variant.executors.MRExecutor;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexDBAdaptor;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexEntry;
@@ -167,6 +169,101 @@ public class SampleIndexAnnotationLoader {
         postAnnotationLoad(studyId, samples);
     }
 
+    /**
+     * Update the annotation of the sample index rows containing variants annotated since the last update, marked in the pending
+     * annotation table by {@link org.opencb.opencga.storage.hadoop.variant.annotation.pending.PendingVariantsToAnnotateDBCleaner}.
+     * The given samples are expected to have an updated sample index annotation, other than the marked variants.
+     *
+     * The markers are read sorted, and grouped by sample index batch. All the samples of each batch are read with one multi-get,
+     * annotated and written. Then, the markers of the batch are removed, so an interrupted execution can be resumed from the
+     * last updated batch.
+     *
+     * @param studySamples Samples to update from each study
+     * @throws IOException on error reading or writing from HBase
+     */
+    public void updateSampleAnnotationIncremental(Map<Integer, List<Integer>> studySamples) throws IOException {
+        logger.info("Incremental update of sample index annotation of "
+                + studySamples.values().stream().mapToInt(List::size).sum() + " samples");
+        String pendingTableName = tableNameGenerator.getPendingAnnotationTableName();
+        PendingVariantsToAnnotateUtils.createTableIfNeeded(pendingTableName, hBaseManager);
+
+        Scan scan = new Scan();
+        scan.addColumn(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.SAMPLE_INDEX_COLUMN);
+        scan.setCacheBlocks(false);
+
+        ProgressLogger progressLogger = new ProgressLogger("Sample index annotation updated variants");
+        Map<Integer, BufferedMutator> mutators = new HashMap<>();
+        try (Table pendingTable = hBaseManager.getConnection().getTable(TableName.valueOf(pendingTableName));
+             ResultScanner scanner = pendingTable.getScanner(scan)) {
+            for (Integer studyId : studySamples.keySet()) {
+                mutators.put(studyId, hBaseManager.getConnection()
+                        .getBufferedMutator(TableName.valueOf(tableNameGenerator.getSampleIndexTableName(studyId))));
+            }
+
+            String chromosome = null;
+            int start = -1;
+            List<Delete> markers = new ArrayList<>();
+            for (Result result : scanner) {
+                Variant variant = VariantPhoenixKeyFactory.extractVariantFromVariantRowKey(result.getRow());
+                int batchStart = variant.getStart() - variant.getStart() % SampleIndexSchema.BATCH_SIZE;
+                if (!variant.getChromosome().equals(chromosome) || batchStart != start) {
+                    if (!markers.isEmpty()) {
+                        updateSampleAnnotationBatch(studySamples, mutators, pendingTable, chromosome, start, markers, progressLogger);
+                        markers = new ArrayList<>();
+                    }
+                    chromosome = variant.getChromosome();
+                    start = batchStart;
+                }
+                // Do not remove markers added after this read
+                Cell cell = result.getColumnLatestCell(PendingVariantsToAnnotateUtils.FAMILY,
+                        PendingVariantsToAnnotateUtils.SAMPLE_INDEX_COLUMN);
+                markers.add(new Delete(result.getRow())
+                        .addColumns(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.SAMPLE_INDEX_COLUMN,
+                                cell.getTimestamp()));
+            }
+            if (!markers.isEmpty()) {
+                updateSampleAnnotationBatch(studySamples, mutators, pendingTable, chromosome, start, markers, progressLogger);
+            }
+        } finally {
+            for (BufferedMutator mutator : mutators.values()) {
+                mutator.close();
+            }
+        }
+    }
+
+    private void updateSampleAnnotationBatch(Map<Integer, List<Integer>> studySamples, Map<Integer, BufferedMutator> mutators,
+                                             Table pendingTable, String chromosome, int start, List<Delete> markers,
+                                             ProgressLogger progressLogger) throws IOException {
+        int end = start + SampleIndexSchema.BATCH_SIZE;
+        List<Pair<Variant, AnnotationIndexEntry>> annotationEntries = annotationIndexDBAdaptor.get(chromosome, start, end);
+        annotationEntries.sort(Comparator.comparing(Pair::getKey, SampleIndexSchema.INTRA_CHROMOSOME_VARIANT_COMPARATOR));
+
+        int rows = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : studySamples.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            BufferedMutator mutator = mutators.get(entry.getKey());
+            Map<Integer, Map<String, List<Variant>>> sampleIndex = sampleDBAdaptor.queryByGt(entry.getKey(), entry.getValue(),
+                    chromosome, start);
+            for (Map.Entry<Integer, Map<String, List<Variant>>> sampleEntry : sampleIndex.entrySet()) {
+                Put put = annotate(chromosome, start, sampleEntry.getKey(), sampleEntry.getValue(), annotationEntries);
+                if (!put.isEmpty()) {
+                    mutator.mutate(put);
+                    rows++;
+                }
+            }
+            mutator.flush();
+        }
+
+        // Checkpoint. Remove the markers only after updating the sample index
+        int numVariants = markers.size();
+        pendingTable.delete(markers);
+        int updatedRows = rows;
+        progressLogger.increment(numVariants,
+                () -> "up to batch " + chromosome + ":" + start + "-" + end + ", " + updatedRows + " sample index rows updated");
+    }
+
     public void updateSampleAnnotationMultiSampleIterator(int studyId, List<Integer> samples) throws IOException, StorageEngineException {
         String sampleIndexTableName = tableNameGenerator.getSampleIndexTableName(studyId);
         Map<Integer, Iterator<Map<String, List<Variant>>>> sampleIterators = new HashMap<>(samples.size());
@@ -0,0 +1,244 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.QueryOperation;
+import org.opencb.opencga.storage.hadoop.variant.index.query.RangeQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery.PopulationFrequencyQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleFileIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexConfiguration.PopulationFrequencyRange;
+
+import java.io.*;
+import java.util.*;
+
+import static org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema.GENOTYPE_COUNT_PREFIX;
+
+/**
+ * Server side filter that applies the {@link SampleIndexEntryFilter} to each sample index row, and replaces the row with the
+ * number of matching variants. Rows without matching variants are skipped.
+ *
+ * The returned rows contain one single genotype count column, that can be read with
+ * {@link HBaseToSampleIndexConverter#convertToCount}. Only for queries without region or variant type filters,
+ * as the variants are not built. See {@link SampleIndexDBAdaptor#parseCountAndFilter}.
+ *
+ * This filter runs in the region servers, so it requires the opencga-storage-hadoop-core jar and its dependencies in the
+ * classpath of the region servers.
+ */
+public class SampleIndexCountFilter extends FilterBase {
+
+    private static final byte[] COUNT_PREFIX = Bytes.toBytes(GENOTYPE_COUNT_PREFIX);
+
+    private final SingleSampleIndexQuery query;
+    private final SampleIndexConfiguration configuration;
+    private final SampleIndexEntryFilter filter;
+    private final HBaseToSampleIndexConverter converter;
+    private boolean filterRow;
+
+    public SampleIndexCountFilter(SingleSampleIndexQuery query, SampleIndexConfiguration configuration) {
+        if (query.getVariantTypes() != null && !query.getVariantTypes().isEmpty()) {
+            throw new IllegalArgumentException("Unable to filter by variant type in " + getClass().getSimpleName());
+        }
+        this.query = query;
+        this.configuration = configuration;
+        filter = new SampleIndexEntryFilter(query);
+        converter = new HBaseToSampleIndexConverter(configuration);
+    }
+
+    @Override
+    public void reset() {
+        filterRow = false;
+    }
+
+    @Override
+    public ReturnCode filterKeyValue(Cell cell) {
+        return ReturnCode.INCLUDE;
+    }
+
+    @Override
+    public boolean hasFilterRow() {
+        return true;
+    }
+
+    @Override
+    public void filterRowCells(List<Cell> cells) {
+        Cell countCell = null;
+        for (Cell cell : cells) {
+            if (Bytes.startsWith(CellUtil.cloneQualifier(cell), COUNT_PREFIX)) {
+                countCell = cell;
+                break;
+            }
+        }
+        if (countCell == null) {
+            filterRow = true;
+            return;
+        }
+        int count = filter.filterAndCount(converter.convert(Result.create(cells)));
+        if (count == 0) {
+            filterRow = true;
+        } else {
+            cells.clear();
+            cells.add(new KeyValue(CellUtil.cloneRow(countCell), CellUtil.cloneFamily(countCell), CellUtil.cloneQualifier(countCell),
+                    countCell.getTimestamp(), Bytes.toBytes(count)));
+        }
+    }
+
+    @Override
+    public boolean filterRow() {
+        return filterRow;
+    }
+
+    @Override
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(query.getStudy());
+        out.writeUTF(query.getSample());
+        out.writeInt(query.getGenotypes().size());
+        for (String gt : query.getGenotypes()) {
+            out.writeUTF(gt);
+        }
+
+        SampleAnnotationIndexQuery annotationQuery = query.getAnnotationIndexQuery();
+        out.writeByte(annotationQuery.getAnnotationIndexMask());
+        out.writeByte(annotationQuery.getAnnotationIndex());
+        out.writeShort(annotationQuery.getConsequenceTypeMask());
+        out.writeByte(annotationQuery.getBiotypeMask());
+        out.writeUTF(annotationQuery.getPopulationFrequencyQueryOperator().name());
+        out.writeBoolean(annotationQuery.isPopulationFrequencyQueryPartial());
+        out.writeInt(annotationQuery.getPopulationFrequencyQueries().size());
+        for (PopulationFrequencyQuery pfQuery : annotationQuery.getPopulationFrequencyQueries()) {
+            out.writeInt(pfQuery.getPosition());
+            out.writeUTF(pfQuery.getStudy());
+            out.writeUTF(pfQuery.getPopulation());
+            writeRangeQuery(out, pfQuery);
+        }
+
+        SampleFileIndexQuery fileQuery = query.getSampleFileIndexQuery();
+        out.writeByte(fileQuery.getFileIndexMask());
+        writeBooleans(out, fileQuery.getValidFileIndex());
+
+        writeBooleans(out, query.hasFatherFilter() ? query.getFatherFilter() : null);
+        writeBooleans(out, query.hasMotherFilter() ? query.getMotherFilter() : null);
+        out.writeBoolean(query.getMendelianError());
+        out.writeBoolean(query.isOnlyDeNovo());
+
+        out.writeInt(configuration.getPopulationRanges().size());
+        for (PopulationFrequencyRange populationRange : configuration.getPopulationRanges()) {
+            out.writeUTF(populationRange.getStudy());
+            out.writeUTF(populationRange.getPopulation());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static SampleIndexCountFilter parseFrom(byte[] bytes) throws DeserializationException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            String study = in.readUTF();
+            String sample = in.readUTF();
+            int numGts = in.readInt();
+            List<String> gts = new ArrayList<>(numGts);
+            for (int i = 0; i < numGts; i++) {
+                gts.add(in.readUTF());
+            }
+
+            byte[] annotationIndexMask = new byte[]{in.readByte(), in.readByte()};
+            short ctMask = in.readShort();
+            byte btMask = in.readByte();
+            QueryOperation popFreqOperator = QueryOperation.valueOf(in.readUTF());
+            boolean popFreqPartial = in.readBoolean();
+            int numPopFreqQueries = in.readInt();
+            List<PopulationFrequencyQuery> popFreqQueries = new ArrayList<>(numPopFreqQueries);
+            for (int i = 0; i < numPopFreqQueries; i++) {
+                int position = in.readInt();
+                String pfStudy = in.readUTF();
+                String population = in.readUTF();
+                popFreqQueries.add(new PopulationFrequencyQuery(readRangeQuery(in), position, pfStudy, population));
+            }
+            SampleAnnotationIndexQuery annotationQuery = new SampleAnnotationIndexQuery(annotationIndexMask, ctMask, btMask,
+                    popFreqOperator, popFreqQueries, popFreqPartial);
+
+            byte fileIndexMask = in.readByte();
+            SampleFileIndexQuery fileQuery = new SampleFileIndexQuery(sample, fileIndexMask, null, null, readBooleans(in));
+
+            boolean[] fatherFilter = readBooleans(in);
+            boolean[] motherFilter = readBooleans(in);
+            boolean mendelianError = in.readBoolean();
+            boolean onlyDeNovo = in.readBoolean();
+
+            int numPopulationRanges = in.readInt();
+            SampleIndexConfiguration configuration = new SampleIndexConfiguration();
+            for (int i = 0; i < numPopulationRanges; i++) {
+                configuration.addPopulationRange(new PopulationFrequencyRange(in.readUTF(), in.readUTF()));
+            }
+
+            SampleIndexQuery query = new SampleIndexQuery(null, null, study, Collections.singletonMap(sample, gts),
+                    Collections.emptySet(),
+                    fatherFilter == null ? Collections.emptyMap() : Collections.singletonMap(sample, fatherFilter),
+                    motherFilter == null ? Collections.emptyMap() : Collections.singletonMap(sample, motherFilter),
+                    Collections.singletonMap(sample, fileQuery),
+                    annotationQuery,
+                    mendelianError ? Collections.singleton(sample) : Collections.emptySet(),
+                    onlyDeNovo, null);
+            return new SampleIndexCountFilter(query.forSample(sample, gts), configuration);
+        } catch (IOException | RuntimeException e) {
+            throw new DeserializationException(e);
+        }
+    }
+
+    private static void writeRangeQuery(DataOutputStream out, RangeQuery rangeQuery) throws IOException {
+        out.writeDouble(rangeQuery.getMinValueInclusive());
+        out.writeDouble(rangeQuery.getMaxValueExclusive());
+        out.writeByte(rangeQuery.getMinCodeInclusive());
+        out.writeByte(rangeQuery.getMaxCodeExclusive());
+        out.writeBoolean(rangeQuery.isExactQuery());
+    }
+
+    private static RangeQuery readRangeQuery(DataInputStream in) throws IOException {
+        return new RangeQuery(in.readDouble(), in.readDouble(), in.readByte(), in.readByte(), in.readBoolean());
+    }
+
+    private static void writeBooleans(DataOutputStream out, boolean[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(values.length);
+            for (boolean value : values) {
+                out.writeBoolean(value);
+            }
+        }
+    }
+
+    private static boolean[] readBooleans(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        boolean[] values = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readBoolean();
+        }
+        return values;
+    }
+
+    public SingleSampleIndexQuery getQuery() {
+        return query;
+    }
+
+    public SampleIndexConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{sample=" + query.getSample() + ", gts=" + query.getGenotypes() + '}';
+    }
+}
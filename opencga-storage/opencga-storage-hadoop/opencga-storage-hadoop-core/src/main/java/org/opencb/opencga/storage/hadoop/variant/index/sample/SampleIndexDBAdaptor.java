@@ -6,6 +6,8 @@ import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.CollectionUtils;
 import org.opencb.biodata.models.core.Region;
@@ -19,6 +21,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.QueryOperation;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.IntersectMultiVariantKeyIterator;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.PrefetchVariantDBIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.UnionMultiVariantKeyIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
@@ -33,8 +36,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_COUNT_FILTER;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PARALLEL;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PARALLEL_READ_AHEAD;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PARALLEL_THREADS;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SUMMARY_FILTER;
 import static org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantSqlQueryParser.DEFAULT_LOADED_GENOTYPES;
 import static org.opencb.opencga.storage.hadoop.variant.index.IndexUtils.EMPTY_MASK;
 
@@ -49,6 +59,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
     private final HBaseVariantTableNameGenerator tableNameGenerator;
     private final VariantStorageMetadataManager metadataManager;
     private final byte[] family;
+    private static final int READ_AHEAD_BATCH_SIZE = 500;
     private static Logger logger = LoggerFactory.getLogger(SampleIndexDBAdaptor.class);
     private SampleIndexQueryParser parser;
     private final SampleIndexConfiguration configuration;
@@ -117,6 +128,11 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                 }
             }
         }
+        ExecutorService executor = null;
+        if (isParallelQuery()) {
+            executor = readAhead(iterators, negatedIterators);
+        }
+
         VariantDBIterator iterator;
         if (operation.equals(QueryOperation.OR)) {
             logger.info("Union of " + iterators.size() + " sample indexes");
@@ -125,10 +141,63 @@ public class SampleIndexDBAdaptor implements VariantIterable {
             logger.info("Intersection of " + iterators.size() + " sample indexes plus " + negatedIterators.size() + " negated indexes");
             iterator = new IntersectMultiVariantKeyIterator(iterators, negatedIterators);
         }
+        if (executor != null) {
+            // Iterators are closed before shutting down the executor
+            iterator.addCloseable(executor::shutdownNow);
+        }
 
         return applyLimitSkip(iterator, options);
     }
 
+    private boolean isSummaryFilter() {
+        return hBaseManager.getConf().getBoolean(SAMPLE_INDEX_QUERY_SUMMARY_FILTER.key(), SAMPLE_INDEX_QUERY_SUMMARY_FILTER.defaultValue());
+    }
+
+    private boolean isCountFilter() {
+        return hBaseManager.getConf().getBoolean(SAMPLE_INDEX_QUERY_COUNT_FILTER.key(), SAMPLE_INDEX_QUERY_COUNT_FILTER.defaultValue());
+    }
+
+    private static void addFilter(Scan scan, Filter filter) {
+        if (scan.getFilter() == null) {
+            scan.setFilter(filter);
+        } else {
+            scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, scan.getFilter(), filter));
+        }
+    }
+
+    private boolean isParallelQuery() {
+        return hBaseManager.getConf().getBoolean(SAMPLE_INDEX_QUERY_PARALLEL.key(), SAMPLE_INDEX_QUERY_PARALLEL.defaultValue());
+    }
+
+    /**
+     * Replace the iterators with iterators reading ahead from a new thread pool.
+     *
+     * @param iterators         Iterators
+     * @param negatedIterators  Negated iterators
+     * @return Thread pool to shutdown after closing the iterators
+     */
+    private ExecutorService readAhead(List<VariantDBIterator> iterators, List<VariantDBIterator> negatedIterators) {
+        int numIterators = iterators.size() + negatedIterators.size();
+        int threads = hBaseManager.getConf().getInt(SAMPLE_INDEX_QUERY_PARALLEL_THREADS.key(),
+                SAMPLE_INDEX_QUERY_PARALLEL_THREADS.defaultValue());
+        int readAhead = hBaseManager.getConf().getInt(SAMPLE_INDEX_QUERY_PARALLEL_READ_AHEAD.key(),
+                SAMPLE_INDEX_QUERY_PARALLEL_READ_AHEAD.defaultValue());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, numIterators)), r -> {
+            Thread thread = new Thread(r, "sample-index-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int batchSize = Math.max(1, Math.min(READ_AHEAD_BATCH_SIZE, readAhead));
+        int batches = Math.max(1, readAhead / batchSize);
+        logger.info("Read ahead " + numIterators + " sample indexes with " + threads + " threads");
+        for (List<VariantDBIterator> list : Arrays.asList(iterators, negatedIterators)) {
+            list.replaceAll(it -> it == VariantDBIterator.EMPTY_ITERATOR
+                    ? it
+                    : new PrefetchVariantDBIterator(it, executor, batchSize, batches));
+        }
+        return executor;
+    }
+
     protected VariantDBIterator applyLimitSkip(VariantDBIterator iterator, QueryOptions options) {
         int limit = options.getInt(QueryOptions.LIMIT, -1);
         int skip = options.getInt(QueryOptions.SKIP, -1);
@@ -181,6 +250,37 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         });
     }
 
+    /**
+     * Read the same sample index batch from multiple samples with one single multi-get.
+     *
+     * @param study      Study
+     * @param samples    Samples to read
+     * @param chromosome Chromosome
+     * @param position   Any position within the batch
+     * @return Variants by genotype of each sample. Samples without variants in this batch are not returned.
+     * @throws IOException on error reading from HBase
+     */
+    protected Map<Integer, Map<String, List<Variant>>> queryByGt(int study, List<Integer> samples, String chromosome, int position)
+            throws IOException {
+        String tableName = tableNameGenerator.getSampleIndexTableName(study);
+
+        return hBaseManager.act(tableName, table -> {
+            List<Get> gets = new ArrayList<>(samples.size());
+            for (Integer sample : samples) {
+                gets.add(new Get(SampleIndexSchema.toRowKey(sample, chromosome, position)));
+            }
+            HBaseToSampleIndexConverter converter = new HBaseToSampleIndexConverter(configuration);
+            Result[] results = table.get(gets);
+            Map<Integer, Map<String, List<Variant>>> map = new HashMap<>(samples.size());
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] != null && !results[i].isEmpty()) {
+                    map.put(samples.get(i), converter.convertToMap(results[i]));
+                }
+            }
+            return map;
+        });
+    }
+
     public Iterator<Map<String, List<Variant>>> iteratorByGt(int study, int sample) throws IOException {
         String tableName = tableNameGenerator.getSampleIndexTableName(study);
 
@@ -266,6 +366,16 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                                     count += converter.convertToCount(result);
                                     result = scanner.next();
                                 }
+                            } else if (simpleCount && isCountFilter()) {
+                                // Filter and count in the region servers. Returns only the counters
+                                Scan scan = parseCountAndFilter(query, subRegion);
+                                addFilter(scan, new SampleIndexCountFilter(query, configuration));
+                                ResultScanner scanner = table.getScanner(scan);
+                                Result result = scanner.next();
+                                while (result != null) {
+                                    count += converter.convertToCount(result);
+                                    result = scanner.next();
+                                }
                             } else {
                                 SampleIndexEntryFilter filter = buildSampleIndexEntryFilter(query, subRegion);
                                 Scan scan;
@@ -401,9 +511,14 @@ public class SampleIndexDBAdaptor implements VariantIterable {
             scan.setStartRow(SampleIndexSchema.toRowKey(sampleId));
             scan.setStopRow(SampleIndexSchema.toRowKey(sampleId + 1));
         }
+        boolean summaryFilter = !onlyCount && !query.getMendelianError() && isSummaryFilter();
         // If genotypes are not defined, return ALL columns
         for (String gt : query.getGenotypes()) {
             scan.addColumn(family, SampleIndexSchema.toGenotypeCountColumn(gt));
+            if (summaryFilter) {
+                scan.addColumn(family, SampleIndexSchema.toRegionSummaryColumn(gt));
+                scan.addColumn(family, SampleIndexSchema.toAnnotationSummaryColumn(gt));
+            }
             if (!onlyCount) {
                 if (query.getMendelianError()) {
                     scan.addColumn(family, SampleIndexSchema.toMendelianErrorColumn());
@@ -440,6 +555,15 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         if (query.getMendelianError()) {
             scan.addColumn(family, SampleIndexSchema.toMendelianErrorColumn());
         }
+        if (summaryFilter) {
+            scan.setFilter(new SampleIndexSummaryFilter(
+                    region == null ? -1 : region.getStart(),
+                    region == null ? -1 : region.getEnd(),
+                    query.getAnnotationIndexMask(),
+                    query.getAnnotationIndex(),
+                    query.getAnnotationIndexQuery().getConsequenceTypeMask(),
+                    query.getAnnotationIndexQuery().getBiotypeMask()));
+        }
         scan.setCaching(hBaseManager.getConf().getInt("hbase.client.scanner.caching", 100));
 
         logger.info("StartRow = " + Bytes.toStringBinary(scan.getStartRow()) + " == "
@@ -449,7 +573,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         logger.info("columns = " + scan.getFamilyMap().getOrDefault(family, Collections.emptyNavigableSet())
                 .stream().map(Bytes::toString).collect(Collectors.joining(",")));
 //        logger.info("MaxResultSize = " + scan.getMaxResultSize());
-//        logger.info("Filters = " + scan.getFilter());
+        logger.info("Filters = " + scan.getFilter());
 //        logger.info("Batch = " + scan.getBatch());
         logger.info("Caching = " + scan.getCaching());
         logger.info("AnnotationIndex = " + IndexUtils.maskToString(query.getAnnotationIndexMask(), query.getAnnotationIndex()));
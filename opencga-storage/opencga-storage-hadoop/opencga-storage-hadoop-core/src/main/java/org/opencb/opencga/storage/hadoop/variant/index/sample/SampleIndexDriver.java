@@ -349,6 +349,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
         private Map<Integer, Map<String, ByteArrayOutputStream>> sampleGtMap = new HashMap<>();
         private Map<Integer, Map<String, Integer>> sampleGtCountMap = new HashMap<>();
         private Map<Integer, Map<String, ByteArrayOutputStream>> sampleFileIndexMap = new HashMap<>();
+        private Map<Integer, Map<String, List<Integer>>> sampleGtStartsMap = new HashMap<>();
 
         @Override
         protected void setup(Context context) throws IOException, InterruptedException {
@@ -445,6 +446,8 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
 
                         // Increase counters
                         sampleGtCountMap.computeIfAbsent(sampleId, k -> new HashMap<>()).merge(gt, 1, Integer::sum);
+                        sampleGtStartsMap.computeIfAbsent(sampleId, k -> new HashMap<>())
+                                .computeIfAbsent(gt, k -> new ArrayList<>()).add(variant.getStart());
 
                         // Add fileIndex value for this genotype
                         Byte fileIndex = null;
@@ -498,6 +501,14 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
                 });
                 gtsCount.clear();
 
+                sampleGtStartsMap.getOrDefault(sampleId, Collections.emptyMap()).forEach((gt, starts) -> {
+                    if (!starts.isEmpty()) {
+                        put.addColumn(family, SampleIndexSchema.toRegionSummaryColumn(gt),
+                                SampleIndexSummaryFilter.regionSummaryToBytes(starts));
+                        starts.clear();
+                    }
+                });
+
                 fileIndex.forEach((gt, stream) -> {
                     if (stream.size() > 0) {
                         // Copy byte array, as the ByteArrayOutputStream will be reset and reused!
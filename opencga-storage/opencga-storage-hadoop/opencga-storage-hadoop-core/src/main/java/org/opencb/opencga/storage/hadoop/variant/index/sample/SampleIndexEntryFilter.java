@@ -72,7 +72,7 @@ public class SampleIndexEntryFilter {
 
     public Collection<Variant> filter(SampleIndexEntry sampleIndexEntry) {
         if (query.getMendelianError()) {
-            return filterMendelian(sampleIndexEntry.mendelianIterator());
+            return filterMendelian(sampleIndexEntry.getChromosome(), sampleIndexEntry.mendelianIterator());
         } else {
             return filter(sampleIndexEntry, false);
         }
@@ -80,13 +80,13 @@ public class SampleIndexEntryFilter {
 
     public int filterAndCount(SampleIndexEntry sampleIndexEntry) {
         if (query.getMendelianError()) {
-            return filterMendelian(sampleIndexEntry.mendelianIterator()).size();
+            return filterMendelian(sampleIndexEntry.getChromosome(), sampleIndexEntry.mendelianIterator()).size();
         } else {
             return filter(sampleIndexEntry, true).size();
         }
     }
 
-    private Set<Variant> filterMendelian(MendelianErrorSampleIndexEntryIterator iterator) {
+    private Set<Variant> filterMendelian(String chromosome, MendelianErrorSampleIndexEntryIterator iterator) {
         Set<Variant> variants = new TreeSet<>(INTRA_CHROMOSOME_VARIANT_COMPARATOR);
 
         if (iterator != null) {
@@ -95,7 +95,7 @@ public class SampleIndexEntryFilter {
                 if (query.isOnlyDeNovo() && !isDeNovo(mendelianErrorCode)) {
                     iterator.skip();
                 } else {
-                    Variant variant = filter(iterator);
+                    Variant variant = filter(chromosome, iterator);
                     if (variant != null) {
                         variants.add(variant);
                     }
@@ -123,7 +123,7 @@ public class SampleIndexEntryFilter {
             ArrayList<Variant> variants = new ArrayList<>(variantIterator.getApproxSize());
             variantsByGt.add(variants);
             while (expectedResultsFromAnnotation.intValue() > 0 && variantIterator.hasNext()) {
-                Variant variant = filter(variantIterator, expectedResultsFromAnnotation);
+                Variant variant = filter(entry.getChromosome(), variantIterator, expectedResultsFromAnnotation);
                 if (variant != null) {
                     variants.add(variant);
                     numVariants++;
@@ -160,11 +160,11 @@ public class SampleIndexEntryFilter {
         return expectedResultsFromAnnotation;
     }
 
-    private Variant filter(SampleIndexEntryIterator variants) {
-        return filter(variants, new MutableInt(Integer.MAX_VALUE));
+    private Variant filter(String chromosome, SampleIndexEntryIterator variants) {
+        return filter(chromosome, variants, new MutableInt(Integer.MAX_VALUE));
     }
 
-    private Variant filter(SampleIndexEntryIterator variants, MutableInt expectedResultsFromAnnotation) {
+    private Variant filter(String chromosome, SampleIndexEntryIterator variants, MutableInt expectedResultsFromAnnotation) {
         // Either call to next() or to skip(), but no both
 
         AnnotationIndexEntry annotationIndexEntry = variants.nextAnnotationIndexEntry();
@@ -175,8 +175,11 @@ public class SampleIndexEntryFilter {
                 || testIndex(annotationIndexEntry.getSummaryIndex(), query.getAnnotationIndexMask(), query.getAnnotationIndex())) {
             expectedResultsFromAnnotation.decrement();
 
-            // Test other annotation index and popFreq (if any)
-            if (annotationIndexEntry == null || filterOtherAnnotFields(annotationIndexEntry) && filterPopFreq(annotationIndexEntry)) {
+            // Test region filter (if any), other annotation index and popFreq (if any)
+            // The region is tested reading the start from the index, without building the variant
+            if (filterRegion(chromosome, variants)
+                    && (annotationIndexEntry == null
+                    || filterOtherAnnotFields(annotationIndexEntry) && filterPopFreq(annotationIndexEntry))) {
 
                 // Test file index (if any)
                 if (filterFile(variants)) {
@@ -199,6 +202,10 @@ public class SampleIndexEntryFilter {
         return null;
     }
 
+    private boolean filterRegion(String chromosome, SampleIndexEntryIterator variants) {
+        return regionFilter == null || regionFilter.contains(chromosome, variants.nextStart());
+    }
+
     private boolean filterFile(SampleIndexEntryIterator variants) {
         if (query.getFileIndexMask() == EMPTY_MASK || !variants.hasFileIndex()) {
             return true;
@@ -316,13 +323,10 @@ public class SampleIndexEntryFilter {
     }
 
     private Variant filter(Variant variant) {
-        //Test region filter (if any)
-        if (regionFilter == null || regionFilter.contains(variant.getChromosome(), variant.getStart())) {
-
-            // Test type filter (if any)
-            if (CollectionUtils.isEmpty(query.getVariantTypes()) || query.getVariantTypes().contains(variant.getType())) {
-                return variant;
-            }
+        // Region filter already tested with filterRegion
+        // Test type filter (if any)
+        if (CollectionUtils.isEmpty(query.getVariantTypes()) || query.getVariantTypes().contains(variant.getType())) {
+            return variant;
         }
         return null;
     }
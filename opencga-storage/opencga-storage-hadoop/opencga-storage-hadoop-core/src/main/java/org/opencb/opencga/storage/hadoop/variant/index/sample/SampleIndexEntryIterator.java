@@ -34,6 +34,13 @@ public interface SampleIndexEntryIterator extends Iterator<Variant> {
      */
     String nextGenotype();
 
+    /**
+     * Read the start position of the next element directly from the index, without creating the Variant.
+     *
+     * @return the start of the next element.
+     */
+    int nextStart();
+
     boolean hasFileIndex();
 
     /**
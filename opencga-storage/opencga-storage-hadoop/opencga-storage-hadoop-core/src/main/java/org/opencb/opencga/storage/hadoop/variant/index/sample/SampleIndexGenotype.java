@@ -0,0 +1,84 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
+
+/**
+ * Most common genotypes found in the SampleIndex columns.
+ *
+ * Used to decode the genotype from the column qualifiers without creating a new String for each cell.
+ * Genotypes not present in this enum are decoded as regular strings.
+ */
+public enum SampleIndexGenotype {
+    HET_REF_UNPHASED("0/1"),
+    HOM_ALT_UNPHASED("1/1"),
+    HET_REF_01_PHASED("0|1"),
+    HET_REF_10_PHASED("1|0"),
+    HOM_ALT_PHASED("1|1"),
+    HEMI_ALT("1"),
+    MULTI_HET_UNPHASED("1/2"),
+    MULTI_HET_12_PHASED("1|2"),
+    MULTI_HET_21_PHASED("2|1"),
+    MULTI_HET_REF_UNPHASED("0/2"),
+    MULTI_HOM_UNPHASED("2/2"),
+    MISSING_HET("./1"),
+    NA(GenotypeClass.NA_GT_VALUE);
+
+    private static final SampleIndexGenotype[] VALUES = values();
+
+    private final String gt;
+    private final byte[] bytes;
+
+    SampleIndexGenotype(String gt) {
+        this.gt = gt;
+        this.bytes = Bytes.toBytes(gt);
+    }
+
+    public String getGt() {
+        return gt;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Find the genotype serialized in the given buffer.
+     *
+     * @param buffer    Buffer
+     * @param offset    Offset of the genotype in the buffer
+     * @param length    Length of the genotype
+     * @return          The SampleIndexGenotype, or null if it is not a known genotype
+     */
+    public static SampleIndexGenotype from(byte[] buffer, int offset, int length) {
+        for (SampleIndexGenotype genotype : VALUES) {
+            if (Bytes.equals(genotype.bytes, 0, genotype.bytes.length, buffer, offset, length)) {
+                return genotype;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode the genotype serialized in the given buffer.
+     * Known genotypes are returned as a shared String instance.
+     *
+     * @param buffer    Buffer
+     * @param offset    Offset of the genotype in the buffer
+     * @param length    Length of the genotype
+     * @return          The genotype
+     */
+    public static String toGenotype(byte[] buffer, int offset, int length) {
+        SampleIndexGenotype genotype = from(buffer, offset, length);
+        if (genotype == null) {
+            return Bytes.toString(buffer, offset, length);
+        } else {
+            return genotype.gt;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return gt;
+    }
+}
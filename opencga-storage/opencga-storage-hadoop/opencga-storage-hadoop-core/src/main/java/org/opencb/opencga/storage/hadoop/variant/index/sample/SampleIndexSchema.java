@@ -61,6 +61,9 @@ public final class SampleIndexSchema {
     static final String ANNOTATION_POP_FREQ_PREFIX = META_PREFIX + "PF_";
     static final byte[] ANNOTATION_POP_FREQ_PREFIX_BYTES = Bytes.toBytes(ANNOTATION_POP_FREQ_PREFIX);
 
+    static final String REGION_SUMMARY_PREFIX = META_PREFIX + "W_";
+    static final String ANNOTATION_ROW_SUMMARY_PREFIX = META_PREFIX + "AS_";
+
     static final String PENDING_VARIANT_PREFIX = META_PREFIX + "V_";
     static final byte[] PENDING_VARIANT_PREFIX_BYTES = Bytes.toBytes(PENDING_VARIANT_PREFIX);
 
@@ -170,12 +173,20 @@ public final class SampleIndexSchema {
         return Bytes.toBytes(ANNOTATION_POP_FREQ_PREFIX + genotype);
     }
 
+    public static byte[] toRegionSummaryColumn(String genotype) {
+        return Bytes.toBytes(REGION_SUMMARY_PREFIX + genotype);
+    }
+
+    public static byte[] toAnnotationSummaryColumn(String genotype) {
+        return Bytes.toBytes(ANNOTATION_ROW_SUMMARY_PREFIX + genotype);
+    }
+
     public static byte[] toFileIndexColumn(String genotype) {
         return Bytes.toBytes(FILE_PREFIX + genotype);
     }
 
     public static String getGt(Cell cell, byte[] prefix) {
-        return Bytes.toString(
+        return SampleIndexGenotype.toGenotype(
                 cell.getQualifierArray(),
                 cell.getQualifierOffset() + prefix.length,
                 cell.getQualifierLength() - prefix.length);
@@ -0,0 +1,254 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server side filter that skips the sample index rows that can not contain any variant matching the query, by reading the
+ * summary columns of each genotype.
+ *
+ * Region summary column: number of variants, and a bitmap with the windows of {@link #WINDOW_SIZE} containing any variant.
+ * Annotation summary column: number of variants, OR and AND of the annotation summary indexes, OR of the consequence type
+ * and biotype indexes, and a flag telling if any variant was intergenic.
+ *
+ * A summary is used only if it describes the same number of variants as the genotype count column, as the genotype could be
+ * modified without updating the summary (e.g. SampleIndexConsolidation). Rows without summaries are always returned.
+ *
+ * This filter runs in the region servers. Do not use any class not provided by HBase.
+ */
+public class SampleIndexSummaryFilter extends FilterBase {
+
+    public static final int WINDOW_SIZE = 10_000;
+    static final int NUM_WINDOWS = SampleIndexSchema.BATCH_SIZE / WINDOW_SIZE;
+    static final int REGION_SUMMARY_SIZE = Bytes.SIZEOF_INT + (NUM_WINDOWS + 7) / 8;
+    static final int ANNOTATION_SUMMARY_SIZE = Bytes.SIZEOF_INT + 3 + Bytes.SIZEOF_SHORT + 1;
+    private static final byte INTERGENIC_FLAG = 1;
+    private static final int SERIALIZED_SIZE = Bytes.SIZEOF_INT * 2 + 2 + Bytes.SIZEOF_SHORT + 1;
+
+    private static final byte[] COUNT_PREFIX = Bytes.toBytes(SampleIndexSchema.GENOTYPE_COUNT_PREFIX);
+    private static final byte[] REGION_SUMMARY_PREFIX = Bytes.toBytes(SampleIndexSchema.REGION_SUMMARY_PREFIX);
+    private static final byte[] ANNOTATION_SUMMARY_PREFIX = Bytes.toBytes(SampleIndexSchema.ANNOTATION_ROW_SUMMARY_PREFIX);
+
+    // Region filter. Inclusive. -1 if none
+    private final int start;
+    private final int end;
+    private final byte summaryMask;
+    private final byte summaryValue;
+    private final short ctMask;
+    private final byte btMask;
+
+    private boolean filterRow;
+
+    /**
+     * @param start         Start of the region. -1 for no region
+     * @param end           End of the region. -1 for no region
+     * @param summaryMask   Annotation summary index mask
+     * @param summaryValue  Annotation summary index value
+     * @param ctMask        Consequence type mask
+     * @param btMask        Biotype mask
+     */
+    public SampleIndexSummaryFilter(int start, int end, byte summaryMask, byte summaryValue, short ctMask, byte btMask) {
+        this.start = start;
+        this.end = end;
+        this.summaryMask = summaryMask;
+        this.summaryValue = summaryValue;
+        this.ctMask = ctMask;
+        this.btMask = btMask;
+    }
+
+    public static byte[] regionSummaryToBytes(Collection<Integer> starts) {
+        byte[] bytes = new byte[REGION_SUMMARY_SIZE];
+        Bytes.putInt(bytes, 0, starts.size());
+        for (Integer start : starts) {
+            int window = (start % SampleIndexSchema.BATCH_SIZE) / WINDOW_SIZE;
+            bytes[Bytes.SIZEOF_INT + window / 8] |= 1 << (window % 8);
+        }
+        return bytes;
+    }
+
+    public static byte[] annotationSummaryToBytes(int numVariants, byte orSummary, byte andSummary, boolean anyIntergenic,
+                                                  short orCt, byte orBt) {
+        byte[] bytes = new byte[ANNOTATION_SUMMARY_SIZE];
+        int offset = Bytes.putInt(bytes, 0, numVariants);
+        bytes[offset++] = orSummary;
+        bytes[offset++] = andSummary;
+        bytes[offset++] = anyIntergenic ? INTERGENIC_FLAG : 0;
+        offset = Bytes.putShort(bytes, offset, orCt);
+        bytes[offset] = orBt;
+        return bytes;
+    }
+
+    @Override
+    public void reset() {
+        filterRow = false;
+    }
+
+    @Override
+    public ReturnCode filterKeyValue(Cell cell) {
+        return ReturnCode.INCLUDE;
+    }
+
+    @Override
+    public boolean hasFilterRow() {
+        return true;
+    }
+
+    @Override
+    public void filterRowCells(List<Cell> cells) {
+        Map<String, Cell> counts = new HashMap<>();
+        Map<String, Cell> regionSummaries = new HashMap<>();
+        Map<String, Cell> annotationSummaries = new HashMap<>();
+        for (Cell cell : cells) {
+            if (columnStartsWith(cell, COUNT_PREFIX)) {
+                counts.put(getGt(cell, COUNT_PREFIX), cell);
+            } else if (columnStartsWith(cell, REGION_SUMMARY_PREFIX)) {
+                regionSummaries.put(getGt(cell, REGION_SUMMARY_PREFIX), cell);
+            } else if (columnStartsWith(cell, ANNOTATION_SUMMARY_PREFIX)) {
+                annotationSummaries.put(getGt(cell, ANNOTATION_SUMMARY_PREFIX), cell);
+            }
+        }
+        if (counts.isEmpty()) {
+            // Unable to filter
+            filterRow = false;
+            return;
+        }
+        int batchStart = batchStartFromRowKey(CellUtil.cloneRow(cells.get(0)));
+        filterRow = true;
+        for (Map.Entry<String, Cell> entry : counts.entrySet()) {
+            Cell countCell = entry.getValue();
+            int count = Bytes.toInt(countCell.getValueArray(), countCell.getValueOffset(), countCell.getValueLength());
+            if (testRegion(batchStart, count, regionSummaries.get(entry.getKey()))
+                    && testAnnotation(count, annotationSummaries.get(entry.getKey()))) {
+                filterRow = false;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public boolean filterRow() {
+        return filterRow;
+    }
+
+    /**
+     * @param batchStart    Start of the sample index batch
+     * @param count         Number of variants of the genotype
+     * @param summary       Region summary of the genotype
+     * @return  if the genotype may contain variants starting in the region
+     */
+    boolean testRegion(int batchStart, int count, Cell summary) {
+        if (start < 0 || !validSummary(summary, count, REGION_SUMMARY_SIZE)) {
+            return true;
+        }
+        int from = Math.max(start, batchStart) - batchStart;
+        int to = Math.min(end, batchStart + SampleIndexSchema.BATCH_SIZE - 1) - batchStart;
+        if (from > to) {
+            return false;
+        }
+        byte[] array = summary.getValueArray();
+        int offset = summary.getValueOffset() + Bytes.SIZEOF_INT;
+        for (int window = from / WINDOW_SIZE; window <= to / WINDOW_SIZE; window++) {
+            if ((array[offset + window / 8] & (1 << (window % 8))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Test necessary conditions for any variant of the genotype to match the annotation filters.
+     *
+     * @param count         Number of variants of the genotype
+     * @param summary       Annotation summary of the genotype
+     * @return  if the genotype may contain variants matching the annotation filters
+     */
+    boolean testAnnotation(int count, Cell summary) {
+        if (!validSummary(summary, count, ANNOTATION_SUMMARY_SIZE)) {
+            return true;
+        }
+        byte[] array = summary.getValueArray();
+        int offset = summary.getValueOffset() + Bytes.SIZEOF_INT;
+        byte orSummary = array[offset++];
+        byte andSummary = array[offset++];
+        boolean anyIntergenic = (array[offset++] & INTERGENIC_FLAG) != 0;
+        short orCt = Bytes.toShort(array, offset);
+        offset += Bytes.SIZEOF_SHORT;
+        byte orBt = array[offset];
+
+        // Bits expected to be 1 must be set in some variant. Bits expected to be 0 must be unset in some variant.
+        byte ones = (byte) (summaryMask & summaryValue);
+        byte zeros = (byte) (summaryMask & ~summaryValue);
+        if ((orSummary & ones) != ones || (andSummary & zeros) != 0) {
+            return false;
+        }
+        if (anyIntergenic) {
+            // Intergenic variants can not be filtered by CT nor BT
+            return true;
+        }
+        return (ctMask == 0 || (orCt & ctMask) != 0) && (btMask == 0 || (orBt & btMask) != 0);
+    }
+
+    private static boolean validSummary(Cell summary, int count, int size) {
+        return summary != null
+                && summary.getValueLength() == size
+                && Bytes.toInt(summary.getValueArray(), summary.getValueOffset(), Bytes.SIZEOF_INT) == count;
+    }
+
+    private static boolean columnStartsWith(Cell cell, byte[] prefix) {
+        return cell.getQualifierLength() >= prefix.length
+                && Bytes.equals(cell.getQualifierArray(), cell.getQualifierOffset(), prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static String getGt(Cell cell, byte[] prefix) {
+        return Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset() + prefix.length,
+                cell.getQualifierLength() - prefix.length);
+    }
+
+    /**
+     * Same as {@link SampleIndexSchema#batchStartFromRowKey}, without Phoenix. The batch is a PInteger: an int with the sign
+     * bit flipped.
+     *
+     * @param row   Row key
+     * @return      Batch start
+     */
+    static int batchStartFromRowKey(byte[] row) {
+        return (Bytes.toInt(row, row.length - Bytes.SIZEOF_INT) ^ Integer.MIN_VALUE) * SampleIndexSchema.BATCH_SIZE;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return ByteBuffer.allocate(SERIALIZED_SIZE)
+                .putInt(start)
+                .putInt(end)
+                .put(summaryMask)
+                .put(summaryValue)
+                .putShort(ctMask)
+                .put(btMask)
+                .array();
+    }
+
+    public static SampleIndexSummaryFilter parseFrom(byte[] bytes) throws DeserializationException {
+        if (bytes == null || bytes.length != SERIALIZED_SIZE) {
+            throw new DeserializationException("Unexpected " + SampleIndexSummaryFilter.class.getSimpleName() + " size");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new SampleIndexSummaryFilter(buffer.getInt(), buffer.getInt(), buffer.get(), buffer.get(), buffer.getShort(),
+                buffer.get());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{start=" + start + ", end=" + end
+                + ", summaryMask=" + summaryMask + ", summaryValue=" + summaryValue
+                + ", ctMask=" + ctMask + ", btMask=" + btMask + '}';
+    }
+}
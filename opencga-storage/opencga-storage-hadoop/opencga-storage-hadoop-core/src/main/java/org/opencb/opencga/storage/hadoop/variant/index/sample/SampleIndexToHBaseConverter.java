@@ -45,6 +45,8 @@ public class SampleIndexToHBaseConverter {
             put.addColumn(family, SampleIndexSchema.toGenotypeColumn(gt), variantsBytes);
             put.addColumn(family, SampleIndexSchema.toGenotypeCountColumn(gt), Bytes.toBytes(variants.size()));
             put.addColumn(family, SampleIndexSchema.toFileIndexColumn(gt), fileMask);
+            put.addColumn(family, SampleIndexSchema.toRegionSummaryColumn(gt),
+                    SampleIndexSummaryFilter.regionSummaryToBytes(variants.stream().map(Variant::getStart).collect(Collectors.toList())));
         }
 
 
@@ -71,6 +73,8 @@ public class SampleIndexToHBaseConverter {
             put.addColumn(family, SampleIndexSchema.toGenotypeColumn(gt), variantsBytes);
             put.addColumn(family, SampleIndexSchema.toGenotypeCountColumn(gt), Bytes.toBytes(variants.size()));
             put.addColumn(family, SampleIndexSchema.toFileIndexColumn(gt), fileMask);
+            put.addColumn(family, SampleIndexSchema.toRegionSummaryColumn(gt), SampleIndexSummaryFilter.regionSummaryToBytes(
+                    variants.stream().map(v -> v.getVariant().getStart()).collect(Collectors.toList())));
         }
 
         return put;
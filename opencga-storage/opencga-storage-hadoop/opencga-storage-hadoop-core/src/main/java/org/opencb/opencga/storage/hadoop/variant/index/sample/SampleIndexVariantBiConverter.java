@@ -181,6 +181,7 @@ public class SampleIndexVariantBiConverter {
         protected SampleIndexEntry.SampleIndexGtEntry gtEntry;
         private SampleIndexConfiguration configuration;
         private BitInputStream popFreq;
+        private byte[] popFreqIndex;
         private BitInputStream ctBtIndex;
         private int nonIntergenicCount;
 
@@ -206,6 +207,7 @@ public class SampleIndexVariantBiConverter {
                     : new BitInputStream(gtEntry.getPopulationFrequencyIndex(),
                     gtEntry.getPopulationFrequencyIndexOffset(),
                     gtEntry.getPopulationFrequencyIndexLength());
+            this.popFreqIndex = popFreq == null ? null : new byte[configuration.getPopulationRanges().size()];
             this.configuration = configuration;
         }
 
@@ -275,11 +277,9 @@ public class SampleIndexVariantBiConverter {
                 }
             }
 
-            byte[] popFreqIndex;
             if (popFreq != null) {
-                popFreqIndex = popFreq.readBytes(configuration.getPopulationRanges().size(), AnnotationIndexConverter.POP_FREQ_SIZE);
-            } else {
-                popFreqIndex = null;
+                // Reuse the popFreqIndex array, same as the annotationIndexEntry
+                popFreq.readBytes(popFreqIndex.length, AnnotationIndexConverter.POP_FREQ_SIZE, popFreqIndex, 0);
             }
             annotationIndexEntry.setPopFreqIndex(popFreqIndex);
 
@@ -334,6 +334,11 @@ public class SampleIndexVariantBiConverter {
             throw new NoSuchElementException("Empty iterator");
         }
 
+        @Override
+        public int nextStart() {
+            throw new NoSuchElementException("Empty iterator");
+        }
+
         @Override
         public boolean hasNext() {
             return false;
@@ -414,6 +419,16 @@ public class SampleIndexVariantBiConverter {
             return new Variant(variants.next());
         }
 
+        @Override
+        public int nextStart() {
+            String variant = variants.next();
+            variants.previous();
+            // Variant string format is {chr}:{start}:{ref}:{alt}
+            int startIdx = variant.indexOf(':') + 1;
+            int endIdx = variant.indexOf(':', startIdx);
+            return Integer.parseInt(endIdx < 0 ? variant.substring(startIdx) : variant.substring(startIdx, endIdx));
+        }
+
         public int getApproxSize() {
             return size;
         }
@@ -469,6 +484,11 @@ public class SampleIndexVariantBiConverter {
             return DUMMY_VARIANT;
         }
 
+        @Override
+        public int nextStart() {
+            throw new UnsupportedOperationException("Unable to read start from a count iterator");
+        }
+
         @Override
         public int getApproxSize() {
             return count;
@@ -529,6 +549,15 @@ public class SampleIndexVariantBiConverter {
             return variant;
         }
 
+        @Override
+        public int nextStart() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            // Encoded alleles are stored in the 4 most significant bits. Those are always 0 for non encoded alleles.
+            return batchStart + (read24bitInteger(bytes, currentOffset) & 0x0F_FF_FF);
+        }
+
         @Override
         public void skip() {
             nextAnnotationIndexEntry(); // ensure read annotation
@@ -576,10 +605,12 @@ public class SampleIndexVariantBiConverter {
     }
 
     private Variant toVariantEncodedAlleles(String chromosome, int batchStart, byte[] bytes, int offset) {
-        String[] refAlt = AlleleCodec.decode(bytes[offset]);
+        // Decode alleles one by one to avoid allocating a new array for each variant
+        String reference = AlleleCodec.decodeReference(bytes[offset]);
+        String alternate = AlleleCodec.decodeAlternate(bytes[offset]);
         int start = batchStart + (read24bitInteger(bytes, offset) & 0x0F_FF_FF);
 
-        return VariantPhoenixKeyFactory.buildVariant(chromosome, start, refAlt[0], refAlt[1], null);
+        return VariantPhoenixKeyFactory.buildVariant(chromosome, start, reference, alternate, null);
     }
 
     private Variant toVariant(String chromosome, int batchStart, byte[] bytes, int offset, int referenceLength, int alternateLength) {
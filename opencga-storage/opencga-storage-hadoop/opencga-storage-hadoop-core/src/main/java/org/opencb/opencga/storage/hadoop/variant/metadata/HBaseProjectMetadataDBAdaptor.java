@@ -139,4 +139,19 @@ public class HBaseProjectMetadataDBAdaptor extends AbstractHBaseDBAdaptor implem
         }
     }
 
+    @Override
+    public int getCounter(Integer studyId, String idType) throws StorageEngineException {
+        try {
+            ensureTableExists();
+            return hBaseManager.act(tableName, (table) -> {
+                byte[] column = getCounterColumn(studyId, idType);
+                Result result = table.get(new Get(getProjectRowKey()).addColumn(family, column));
+                byte[] value = result == null ? null : result.getValue(family, column);
+                return value == null ? 0 : (int) Bytes.toLong(value);
+            });
+        } catch (IOException e) {
+            throw new StorageEngineException("Error reading counter", e);
+        }
+    }
+
 }
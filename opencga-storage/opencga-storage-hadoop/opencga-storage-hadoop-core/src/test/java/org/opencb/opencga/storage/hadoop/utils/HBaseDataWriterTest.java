@@ -0,0 +1,85 @@
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.metrics.Counter;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest.HadoopExternalResource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HBaseDataWriterTest {
+
+    @Rule
+    public HadoopExternalResource hadoop = new HadoopExternalResource();
+
+    private HBaseManager hBaseManager;
+    private final byte[] family = Bytes.toBytes("0");
+
+    @Before
+    public void setUp() throws Exception {
+        hBaseManager = new HBaseManager(hadoop.getConf());
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        testWrite("test_sync", new ObjectMap());
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        testWrite("test_async", new ObjectMap()
+                .append(HadoopVariantStorageOptions.WRITE_ASYNC.key(), true)
+                .append(HadoopVariantStorageOptions.WRITE_BUFFER_SIZE.key(), 10 * 1024)
+                .append(HadoopVariantStorageOptions.WRITE_MAX_IN_FLIGHT_BYTES.key(), 50 * 1024));
+    }
+
+    private void testWrite(String tableName, ObjectMap options) throws Exception {
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+        Counter counter = MetricsRegistry.getDefault()
+                .counter(StageMetrics.PREFIX + "hbase_mutations_total", "Mutations written to HBase", "table", tableName);
+        long mutations = counter.get();
+
+        HBaseDataWriter<Put> writer = new HBaseDataWriter<>(hBaseManager, tableName);
+        writer.configure(options);
+        writer.open();
+        writer.pre();
+        int numRows = 10000;
+        for (int batch = 0; batch < 100; batch++) {
+            List<Put> puts = new ArrayList<>();
+            for (int i = batch; i < numRows; i += 100) {
+                puts.add(new Put(Bytes.toBytes(String.format("r_%05d", i))).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(i)));
+            }
+            writer.write(puts);
+        }
+        writer.post();
+        writer.close();
+
+        int count = 0;
+        try (ResultScanner scanner = hBaseManager.getScanner(tableName, new Scan())) {
+            for (Result result : scanner) {
+                assertEquals(Bytes.toString(result.getRow()), String.format("r_%05d", Bytes.toInt(result.getValue(family,
+                        Bytes.toBytes("value")))));
+                count++;
+            }
+        }
+        assertEquals(numRows, count);
+        if (options.getBoolean(HadoopVariantStorageOptions.WRITE_ASYNC.key())) {
+            assertEquals(numRows, counter.get() - mutations);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest.HadoopExternalResource;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ParallelResultScannerTest {
+
+    @Rule
+    public HadoopExternalResource hadoop = new HadoopExternalResource();
+
+    private HBaseManager hBaseManager;
+    private final byte[] family = Bytes.toBytes("0");
+    private final String tableName = "test_parallel_scan";
+
+    @Before
+    public void setUp() throws Exception {
+        hBaseManager = new HBaseManager(hadoop.getConf());
+        List<byte[]> splits = Arrays.asList(Bytes.toBytes("r_250"), Bytes.toBytes("r_500"), Bytes.toBytes("r_750"));
+        hBaseManager.createTableIfNeeded(tableName, family, splits, Compression.Algorithm.NONE);
+        hBaseManager.act(tableName, table -> {
+            List<Put> puts = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                puts.add(new Put(Bytes.toBytes(String.format("r_%03d", i))).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(i)));
+            }
+            table.put(puts);
+        });
+    }
+
+    @Test
+    public void testSplitByRegion() throws Exception {
+        Pair<byte[][], byte[][]> startEndKeys = new Pair<>(
+                new byte[][]{HConstants.EMPTY_START_ROW, Bytes.toBytes("r_250"), Bytes.toBytes("r_500")},
+                new byte[][]{Bytes.toBytes("r_250"), Bytes.toBytes("r_500"), HConstants.EMPTY_END_ROW});
+
+        List<Scan> scans = ParallelResultScanner.splitByRegion(Collections.singletonList(new Scan()), startEndKeys);
+        assertEquals(3, scans.size());
+
+        Scan scan = new Scan().setStartRow(Bytes.toBytes("r_100")).setStopRow(Bytes.toBytes("r_300"));
+        scans = ParallelResultScanner.splitByRegion(Collections.singletonList(scan), startEndKeys);
+        assertEquals(2, scans.size());
+        assertEquals("r_100", Bytes.toString(scans.get(0).getStartRow()));
+        assertEquals("r_250", Bytes.toString(scans.get(0).getStopRow()));
+        assertEquals("r_250", Bytes.toString(scans.get(1).getStartRow()));
+        assertEquals("r_300", Bytes.toString(scans.get(1).getStopRow()));
+    }
+
+    @Test
+    public void testSplitByRegionReversed() throws Exception {
+        Pair<byte[][], byte[][]> startEndKeys = new Pair<>(
+                new byte[][]{HConstants.EMPTY_START_ROW, Bytes.toBytes("r_250"), Bytes.toBytes("r_500")},
+                new byte[][]{Bytes.toBytes("r_250"), Bytes.toBytes("r_500"), HConstants.EMPTY_END_ROW});
+
+        Scan scan = new Scan().setStartRow(Bytes.toBytes("r_300")).setStopRow(Bytes.toBytes("r_100")).setReversed(true);
+        List<Scan> scans = ParallelResultScanner.splitByRegion(Collections.singletonList(scan), startEndKeys);
+        assertEquals(1, scans.size());
+        assertTrue(scans.get(0).isReversed());
+        assertEquals("r_300", Bytes.toString(scans.get(0).getStartRow()));
+        assertEquals("r_100", Bytes.toString(scans.get(0).getStopRow()));
+    }
+
+    @Test
+    public void testSortedReversed() throws Exception {
+        List<Scan> scans = Arrays.asList(
+                new Scan().setStartRow(Bytes.toBytes("r_800")).setStopRow(Bytes.toBytes("r_600")).setReversed(true),
+                new Scan().setStartRow(Bytes.toBytes("r_400")).setReversed(true));
+        List<String> rows = scan(scans, true);
+        // (r_600, r_800] and [r_000, r_400]
+        assertEquals(200 + 401, rows.size());
+        List<String> sortedRows = new ArrayList<>(rows);
+        sortedRows.sort(Comparator.reverseOrder());
+        assertEquals(sortedRows, rows);
+    }
+
+    @Test
+    public void testSorted() throws Exception {
+        List<Scan> scans = Arrays.asList(
+                new Scan().setStartRow(Bytes.toBytes("r_100")).setStopRow(Bytes.toBytes("r_600")),
+                new Scan().setStartRow(Bytes.toBytes("r_700")));
+        List<String> rows = scan(scans, true);
+        assertEquals(800, rows.size());
+        List<String> sortedRows = new ArrayList<>(rows);
+        Collections.sort(sortedRows);
+        assertEquals(sortedRows, rows);
+    }
+
+    @Test
+    public void testUnsorted() throws Exception {
+        List<String> rows = scan(Collections.singletonList(new Scan()), false);
+        assertEquals(1000, rows.size());
+        assertEquals(1000, new HashSet<>(rows).size());
+    }
+
+    private List<String> scan(List<Scan> scans, boolean sorted) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (ResultScanner scanner = new ParallelResultScanner(hBaseManager, tableName, scans, 2, 10, sorted)) {
+            for (Result result : scanner) {
+                rows.add(Bytes.toString(result.getRow()));
+            }
+        }
+        return rows;
+    }
+}
@@ -1,6 +1,7 @@
 package org.opencb.opencga.storage.hadoop.utils;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.UnknownScannerException;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
@@ -12,6 +13,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest.HadoopExternalResource;
 
 import java.util.Iterator;
@@ -77,4 +79,52 @@ public class PersistentResultScannerTest {
         assertEquals(100, i);
     }
 
+    @Test
+    public void testAdaptive() throws Exception {
+        byte[] family = Bytes.toBytes("0");
+        String tableName = "test_adaptive";
+
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+        hBaseManager.act(tableName, table -> {
+            for (int i1 = 0; i1 < 1000; i1++) {
+                table.put(new Put(Bytes.toBytes(String.format("r_%03d", i1))).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(i1)));
+            }
+        });
+
+        Configuration conf = new Configuration(hadoop.getConf());
+        conf.setBoolean(HadoopVariantStorageOptions.SCANNER_ADAPTIVE.key(), true);
+        conf.setInt(HadoopVariantStorageOptions.SCANNER_ADAPTIVE_MIN_CACHING.key(), 5);
+        conf.setInt(HadoopVariantStorageOptions.SCANNER_ADAPTIVE_MAX_CACHING.key(), 500);
+        conf.setInt(HConstants.HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD, 2000);
+        HBaseManager adaptiveHBaseManager = new HBaseManager(conf);
+
+        // Fast consumer. Increase caching
+        PersistentResultScanner scanner = (PersistentResultScanner) adaptiveHBaseManager.getScanner(tableName, new Scan().setCaching(10));
+        int i = 0;
+        for (Result result : scanner) {
+            assertEquals(String.format("r_%03d", i), Bytes.toString(result.getRow()));
+            i++;
+        }
+        scanner.close();
+        assertEquals(1000, i);
+        assertEquals(500, scanner.getCaching());
+        assertTrue(scanner.getScannersCount() > 1);
+
+        // Slow consumer. Decrease caching
+        scanner = (PersistentResultScanner) adaptiveHBaseManager.getScanner(tableName, new Scan().setCaching(120));
+        i = 0;
+        for (Result result : scanner) {
+            assertEquals(String.format("r_%03d", i), Bytes.toString(result.getRow()));
+            i++;
+            if (i < 100) {
+                Thread.sleep(20);
+            } else {
+                break;
+            }
+        }
+        scanner.close();
+        assertTrue(scanner.getCaching() < 120);
+        assertTrue(scanner.getScannersCount() > 1);
+    }
+
 }
\ No newline at end of file
@@ -13,7 +13,13 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.io.json.mixin.GenericRecordAvroJsonMixin;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeTrue;
 
 /**
@@ -87,4 +93,20 @@ public class HadoopVariantDBAdaptorNativeTest extends HadoopVariantDBAdaptorTest
         limitSkip(new Query(VariantQueryParam.REGION.key(), "1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20"), new QueryOptions(QueryOptions.SORT, true));
     }
 
+    @Test
+    public void testGetAllVariants_descending_parallelScan() {
+        List<String> ascending = query(new Query(), new QueryOptions()).getResults()
+                .stream().map(Variant::toString).collect(Collectors.toList());
+        QueryOptions options = new QueryOptions(QueryOptions.ORDER, QueryOptions.DESCENDING);
+        List<String> descending = query(new Query(), new QueryOptions(options)).getResults()
+                .stream().map(Variant::toString).collect(Collectors.toList());
+        List<String> parallelDescending = query(new Query(), new QueryOptions(options)
+                .append(HadoopVariantStorageOptions.DBADAPTOR_PARALLEL_SCAN.key(), true)).getResults()
+                .stream().map(Variant::toString).collect(Collectors.toList());
+
+        Collections.reverse(ascending);
+        assertEquals(ascending, descending);
+        assertEquals(descending, parallelDescending);
+    }
+
 }
@@ -1,5 +1,9 @@
 package org.opencb.opencga.storage.hadoop.variant.annotation;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.ClassRule;
@@ -8,17 +12,35 @@ import org.junit.rules.ExternalResource;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManager;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManagerTest;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotatorFactory;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
 import org.opencb.opencga.storage.hadoop.variant.VariantHbaseTestUtils;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
 import org.opencb.opencga.storage.hadoop.variant.annotation.pending.DiscoverPendingVariantsToAnnotateDriver;
 import org.opencb.opencga.storage.hadoop.variant.annotation.pending.PendingVariantsToAnnotateReader;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.PendingVariantsToAnnotateUtils;
+import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexEntry;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexAnnotationLoader;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexDBAdaptor;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -70,4 +92,130 @@ public class HadoopVariantAnnotationManagerTest extends VariantAnnotationManager
         Assert.assertEquals(0L, engine.annotate(new Query(), new ObjectMap()));
         Assert.assertEquals(variants, engine.annotate(new Query(), new ObjectMap(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true)));
     }
+
+    @Test
+    public void incrementalSampleIndexAnnotationTest() throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        VariantStorageMetadataManager metadataManager = engine.getMetadataManager();
+        Configuration conf = engine.getDBAdaptor().getHBaseManager().getConf();
+
+        runDefaultETL(getPlatinumFile(0), engine, null, new ObjectMap(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false));
+        int studyId = metadataManager.getStudyId(STUDY_NAME);
+        List<Integer> samples = metadataManager.getIndexedSamples(studyId);
+        // Sample index annotation is READY, but outdated. All the variants should be updated incrementally
+        SampleIndexAnnotationLoader.postAnnotationLoad(studyId, samples, metadataManager);
+
+        try {
+            conf.setBoolean(HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_INCREMENTAL.key(), true);
+            engine.annotate(new Query(), new ObjectMap("sampleIndexAnnotation", "skip"));
+            Assert.assertNotEquals(0, countSampleIndexMarkers(engine));
+            Assert.assertEquals(0, new PendingVariantsToAnnotateReader(engine.getDBAdaptor(), new Query()).stream().count());
+
+            engine.annotate(new Query(), new ObjectMap(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true));
+            Assert.assertEquals(0, countSampleIndexMarkers(engine));
+        } finally {
+            conf.unset(HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_INCREMENTAL.key());
+        }
+
+        List<Query> queries = Arrays.asList(
+                new Query(VariantQueryParam.ANNOT_BIOTYPE.key(), "protein_coding"),
+                new Query(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained"),
+                new Query(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:ALL<0.001"));
+        List<Long> incrementalCounts = countSampleIndex(engine, samples, queries);
+
+        List<String> sampleNames = new ArrayList<>();
+        for (Integer sample : samples) {
+            sampleNames.add(metadataManager.getSampleName(studyId, sample));
+        }
+        engine.sampleIndexAnnotate(STUDY_NAME, sampleNames, new ObjectMap());
+        Assert.assertEquals(countSampleIndex(engine, samples, queries), incrementalCounts);
+    }
+
+    @Test
+    public void loadVepAnnotationTest() throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        runDefaultETL(getPlatinumFile(0), engine, null, new ObjectMap(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false));
+        engine.annotate(new Query(), new ObjectMap(VariantStorageOptions.ANNOTATOR.key(), VariantAnnotatorFactory.AnnotationEngine.OTHER)
+                .append(VariantStorageOptions.ANNOTATOR_CLASS.key(), TestAnnotator.class.getName()));
+        Assert.assertEquals(0, getMissenseVariants(engine).size());
+
+        // VEP annotation for some SNVs
+        List<Variant> variants = engine.get(new Query(), new QueryOptions()).getResults()
+                .stream()
+                .filter(v -> v.getReference().length() == 1 && v.getAlternate().length() == 1)
+                .limit(50)
+                .collect(Collectors.toList());
+        Assert.assertFalse(variants.isEmpty());
+        StringBuilder sb = new StringBuilder();
+        for (Variant variant : variants) {
+            sb.append("{\"seq_region_name\":\"").append(variant.getChromosome())
+                    .append("\",\"start\":").append(variant.getStart())
+                    .append(",\"end\":").append(variant.getEnd())
+                    .append(",\"allele_string\":\"").append(variant.getReference()).append('/').append(variant.getAlternate())
+                    .append("\",\"most_severe_consequence\":\"missense_variant\"")
+                    .append(",\"transcript_consequences\":[{\"gene_symbol\":\"GENE\",\"biotype\":\"protein_coding\"")
+                    .append(",\"consequence_terms\":[\"missense_variant\"]}]}\n");
+        }
+        Path vepFile = Paths.get(newOutputUri()).resolve("variants.vep.json");
+        Files.write(vepFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        engine.annotate(new Query(), new ObjectMap(VariantStorageOptions.ANNOTATOR.key(), VariantAnnotatorFactory.AnnotationEngine.VEP)
+                .append(VariantAnnotationManager.LOAD_FILE, vepFile.toUri().toString()));
+
+        // The VEP annotation is loaded through the annotation index
+        Map<String, AnnotationIndexEntry> missenseVariants = getMissenseVariants(engine);
+        Assert.assertEquals(variants.size(), missenseVariants.size());
+        for (Variant variant : variants) {
+            AnnotationIndexEntry entry = missenseVariants.get(variant.toString());
+            Assert.assertNotNull(variant.toString(), entry);
+            Assert.assertTrue(variant.toString(), IndexUtils.testIndexAny(entry.getCtIndex(), AnnotationIndexConverter.CT_MISSENSE_VARIANT_MASK));
+        }
+        Assert.assertEquals(variants.size(), engine.count(new Query(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant"))
+                .first().longValue());
+    }
+
+    private Map<String, AnnotationIndexEntry> getMissenseVariants(HadoopVariantStorageEngine engine) throws IOException {
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        AnnotationIndexDBAdaptor annotationIndexDBAdaptor = new AnnotationIndexDBAdaptor(dbAdaptor.getHBaseManager(),
+                dbAdaptor.getTableNameGenerator().getAnnotationIndexTableName());
+        Map<String, AnnotationIndexEntry> entries = new HashMap<>();
+        annotationIndexDBAdaptor.iterator().forEachRemaining(pair -> {
+            if (IndexUtils.testIndexAny(pair.getValue().getSummaryIndex(), AnnotationIndexConverter.MISSENSE_VARIANT_MASK)) {
+                entries.put(pair.getKey().toString(), pair.getValue());
+            }
+        });
+        return entries;
+    }
+
+    private long countSampleIndexMarkers(HadoopVariantStorageEngine engine) throws Exception {
+        Scan scan = new Scan();
+        scan.addColumn(PendingVariantsToAnnotateUtils.FAMILY, PendingVariantsToAnnotateUtils.SAMPLE_INDEX_COLUMN);
+        return engine.getDBAdaptor().getHBaseManager().act(engine.getDBAdaptor().getTableNameGenerator().getPendingAnnotationTableName(),
+                table -> {
+                    long count = 0;
+                    try (ResultScanner scanner = table.getScanner(scan)) {
+                        for (Result ignored : scanner) {
+                            count++;
+                        }
+                    }
+                    return count;
+                });
+    }
+
+    private List<Long> countSampleIndex(HadoopVariantStorageEngine engine, List<Integer> samples, List<Query> queries)
+            throws Exception {
+        SampleIndexDBAdaptor sampleIndexDBAdaptor = engine.getSampleIndexDBAdaptor();
+        List<Long> counts = new ArrayList<>();
+        for (Integer sample : samples) {
+            String sampleName = engine.getMetadataManager().getSampleName(engine.getMetadataManager().getStudyId(STUDY_NAME), sample);
+            for (Query annotationQuery : queries) {
+                Query query = new Query(VariantQueryParam.STUDY.key(), STUDY_NAME).append(VariantQueryParam.SAMPLE.key(), sampleName);
+                query.putAll(annotationQuery);
+                counts.add(sampleIndexDBAdaptor.count(sampleIndexDBAdaptor.getSampleIndexQueryParser().parse(query)));
+            }
+        }
+        return counts;
+    }
 }
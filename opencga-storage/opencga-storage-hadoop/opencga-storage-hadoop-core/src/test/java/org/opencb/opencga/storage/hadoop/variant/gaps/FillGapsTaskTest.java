@@ -11,8 +11,10 @@ import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantBuilder;
 import org.opencb.biodata.models.variant.avro.VariantType;
 import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
+import org.opencb.biodata.models.variant.protobuf.VariantProto;
 import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos;
 import org.opencb.biodata.tools.variant.converters.proto.VariantToVcfSliceConverter;
+import org.opencb.biodata.tools.variant.converters.proto.VcfRecordProtoToVariantConverter;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
@@ -73,11 +75,12 @@ public class FillGapsTaskTest {
                 new Variant("1:29198:A:G")
         );
 
-        ListIterator<VcfSliceProtos.VcfRecord> iterator = vcfSlice.getRecordsList().listIterator();
+        VcfSliceIntervalIndex index = new VcfSliceIntervalIndex(vcfSlice);
         for (Variant variant : variants) {
             ArrayList<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> list = new ArrayList<>();
-            a.getOverlappingVariants(variant, 1, vcfSlice, iterator, list);
-//            System.out.println(variant + " iteratorIdx : " + iterator.nextIndex());
+            // Different chromosome
+            assertFalse(a.getOverlappingVariants(variant, 1, index, list));
+            assertTrue(list.isEmpty());
         }
     }
 
@@ -116,12 +119,109 @@ public class FillGapsTaskTest {
                 new Variant("2:182562947:C:A")
         );
 
-        ListIterator<VcfSliceProtos.VcfRecord> iterator = vcfSlice.getRecordsList().listIterator();
+        // Index of the overlapping records for each variant. Variants not in the map do not overlap with any record.
+        Map<String, List<Integer>> expectedOverlaps = new HashMap<>();
+        expectedOverlaps.put("2:182562572:TGT:-", Arrays.asList(0, 1, 2));
+        expectedOverlaps.put("2:182562574:TTTT:-", Arrays.asList(2));
+        expectedOverlaps.put("2:182562574:TTT:-", Arrays.asList(2));
+        expectedOverlaps.put("2:182562574:TT:-", Arrays.asList(2));
+        expectedOverlaps.put("2:182562574:T:-", Arrays.asList(2));
+        expectedOverlaps.put("2:182562574:-:T", Arrays.asList(0, 1));
+        expectedOverlaps.put("2:182562574:-:TT", Arrays.asList(0, 1));
+        expectedOverlaps.put("2:182562575:T:C", Arrays.asList(2));
+        expectedOverlaps.put("2:182562575:T:G", Arrays.asList(2));
+        expectedOverlaps.put("2:182562576:T:A", Arrays.asList(2));
+        expectedOverlaps.put("2:182562576:T:C", Arrays.asList(2));
+
+        VcfSliceIntervalIndex index = new VcfSliceIntervalIndex(vcfSlice);
         for (Variant variant : variants) {
+            List<VcfSliceProtos.VcfRecord> expected = expectedOverlaps.getOrDefault(variant.toString(), Collections.emptyList())
+                    .stream()
+                    .map(vcfSlice::getRecords)
+                    .collect(Collectors.toList());
             ArrayList<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> list = new ArrayList<>();
-            a.getOverlappingVariants(variant, 1, vcfSlice, iterator, list);
-//            System.out.println(variant + " iteratorIdx : " + iterator.nextIndex());
+            // Records without type are NO_VARIATION, so the variant is never already loaded
+            assertFalse(variant.toString(), a.getOverlappingVariants(variant, 1, index, list));
+            assertEquals(variant.toString(), expected, list.stream().map(Pair::getValue).collect(Collectors.toList()));
         }
+        assertTrue(expectedOverlaps.keySet().stream().allMatch(v -> variants.stream().anyMatch(variant -> variant.toString().equals(v))));
+    }
+
+    @Test
+    public void testGetOverlappingVariantsIndex() {
+        FillGapsTask a = new FillGapsTask(this.studyMetadata, new GenomeHelper(new Configuration()), true, false, metadataManager);
+
+        VcfSliceProtos.VcfSlice.Builder builder = buildVcfSlice(
+                "2:182562570:C:T",
+                "2:182562574-182562573::T",
+                "2:182562574-182562573::TT",
+                "2:182562574-182562576:TTT:",
+                "2:182562575:T:G",
+                "2:182562590:AAAAAAAAAAA:",
+                "2:182562595:G:A"
+        ).toBuilder();
+        for (int i = 0; i < builder.getRecordsCount(); i++) {
+            // Use the long deletion as a reference block
+            builder.setRecords(i, builder.getRecords(i).toBuilder()
+                    .setType(i == 5 ? VariantProto.VariantType.NO_VARIATION : VariantProto.VariantType.SNV));
+        }
+        VcfSliceProtos.VcfSlice vcfSlice = builder.build();
+        VcfSliceIntervalIndex index = new VcfSliceIntervalIndex(vcfSlice);
+        // Same records, unsorted
+        VcfSliceProtos.VcfSlice unsortedVcfSlice = vcfSlice.toBuilder().clearRecords()
+                .addAllRecords(vcfSlice.getRecordsList().subList(4, 7))
+                .addAllRecords(vcfSlice.getRecordsList().subList(0, 4))
+                .build();
+        VcfSliceIntervalIndex unsortedIndex = new VcfSliceIntervalIndex(unsortedVcfSlice);
+
+        List<Variant> variants = Arrays.asList(
+                new Variant("2:182562570:C:A"),
+                new Variant("2:182562572:TGT:"),
+                new Variant("2:182562574:TTTT:"),
+                new Variant("2:182562574:TTT:"),
+                new Variant("2:182562574::T"),
+                new Variant("2:182562574::TTT"),
+                new Variant("2:182562575:T:C"),
+                new Variant("2:182562575:T:G"),
+                new Variant("2:182562580:A:G"),
+                new Variant("2:182562592:A:G"),
+                new Variant("2:182562595:G:C"),
+                new Variant("2:182562610:G:A"),
+                new Variant("3:182562575:T:C")
+        );
+
+        // Compare with a linear scan of all the records, in reverse order
+        for (int i = variants.size() - 1; i >= 0; i--) {
+            Variant variant = variants.get(i);
+            List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> expected = new ArrayList<>();
+            boolean expectedAlreadyLoaded = false;
+            for (VcfSliceProtos.VcfRecord vcfRecord : vcfSlice.getRecordsList()) {
+                int start = VcfRecordProtoToVariantConverter.getStart(vcfRecord, vcfSlice.getPosition());
+                int end = VcfRecordProtoToVariantConverter.getEnd(vcfRecord, vcfSlice.getPosition());
+                if (FillGapsTask.overlapsWith(variant, vcfSlice.getChromosome(), start, end)) {
+                    if (vcfRecord.getType() != VariantProto.VariantType.NO_VARIATION && variant.sameGenomicVariant(
+                            new Variant(vcfSlice.getChromosome(), start, end, vcfRecord.getReference(), vcfRecord.getAlternate()))) {
+                        expectedAlreadyLoaded = true;
+                        break;
+                    }
+                    expected.add(Pair.of(vcfSlice, vcfRecord));
+                }
+            }
+
+            List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> list = new ArrayList<>();
+            assertEquals(variant.toString(), expectedAlreadyLoaded, a.getOverlappingVariants(variant, 1, index, list));
+            assertEquals(variant.toString(), expected, list);
+
+            list = new ArrayList<>();
+            assertEquals(variant.toString(), expectedAlreadyLoaded, a.getOverlappingVariants(variant, 1, unsortedIndex, list));
+            assertEquals(variant.toString(), expected.stream().map(Pair::getValue).collect(Collectors.toList()),
+                    list.stream().map(Pair::getValue).collect(Collectors.toList()));
+        }
+
+        List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> list = new ArrayList<>();
+        assertFalse(a.getOverlappingVariants(new Variant("2:182562592:A:G"), 1, index, list));
+        assertEquals(1, list.size());
+        assertEquals(VariantProto.VariantType.NO_VARIATION, list.get(0).getValue().getType());
     }
 
     private VcfSliceProtos.VcfSlice buildVcfSlice(String... variants) {
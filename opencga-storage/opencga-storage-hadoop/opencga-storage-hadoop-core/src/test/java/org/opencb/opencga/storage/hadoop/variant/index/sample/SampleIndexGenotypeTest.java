@@ -0,0 +1,28 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampleIndexGenotypeTest {
+
+    @Test
+    public void testFrom() {
+        for (SampleIndexGenotype genotype : SampleIndexGenotype.values()) {
+            byte[] bytes = Bytes.toBytes("_" + genotype.getGt() + "_");
+            assertEquals(genotype, SampleIndexGenotype.from(bytes, 1, bytes.length - 2));
+            assertSame(genotype.getGt(), SampleIndexGenotype.toGenotype(bytes, 1, bytes.length - 2));
+        }
+    }
+
+    @Test
+    public void testUnknownGenotype() {
+        byte[] bytes = Bytes.toBytes("1/3");
+        assertNull(SampleIndexGenotype.from(bytes, 0, bytes.length));
+        assertEquals("1/3", SampleIndexGenotype.toGenotype(bytes, 0, bytes.length));
+        // Prefix of a known genotype
+        assertNull(SampleIndexGenotype.from(bytes, 0, 2));
+        assertEquals("1/", SampleIndexGenotype.toGenotype(bytes, 0, 2));
+    }
+}
@@ -0,0 +1,117 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SampleIndexSummaryFilterTest {
+
+    private final byte[] family = Bytes.toBytes("0");
+    private final byte[] row = SampleIndexSchema.toRowKey(5, "1", 3_000_000);
+
+    @Test
+    public void testBatchStartFromRowKey() {
+        assertEquals(3_000_000, SampleIndexSummaryFilter.batchStartFromRowKey(row));
+        assertEquals(SampleIndexSchema.batchStartFromRowKey(row), SampleIndexSummaryFilter.batchStartFromRowKey(row));
+        byte[] row0 = SampleIndexSchema.toRowKey(5, "1", 10);
+        assertEquals(0, SampleIndexSummaryFilter.batchStartFromRowKey(row0));
+    }
+
+    @Test
+    public void testRegion() {
+        List<Cell> cells = new ArrayList<>();
+        cells.add(count("0/1", 2));
+        cells.add(regionSummary("0/1", 3_000_100, 3_520_000));
+
+        assertFalse(filterRow(regionFilter(3_000_000, 3_999_999), cells));
+        assertFalse(filterRow(regionFilter(3_000_100, 3_000_100), cells));
+        assertFalse(filterRow(regionFilter(3_525_000, 3_526_000), cells)); // Same window
+        assertFalse(filterRow(regionFilter(1, 3_000_200), cells));
+        assertTrue(filterRow(regionFilter(3_010_000, 3_519_999), cells));
+        assertTrue(filterRow(regionFilter(3_600_000, 5_000_000), cells));
+        assertTrue(filterRow(regionFilter(1, 2_999_999), cells));
+
+        // Any genotype may match
+        cells.add(count("1/1", 1));
+        cells.add(regionSummary("1/1", 3_600_000));
+        assertFalse(filterRow(regionFilter(3_600_000, 5_000_000), cells));
+    }
+
+    @Test
+    public void testOutdatedOrMissingSummary() {
+        // Summary from 2 variants. Count of 3 variants
+        List<Cell> cells = Arrays.asList(count("0/1", 3), regionSummary("0/1", 3_000_100, 3_520_000));
+        assertFalse(filterRow(regionFilter(3_600_000, 5_000_000), cells));
+
+        cells = Arrays.asList(count("0/1", 3));
+        assertFalse(filterRow(regionFilter(3_600_000, 5_000_000), cells));
+        assertFalse(filterRow(new SampleIndexSummaryFilter(-1, -1, (byte) 0xFF, (byte) 0xFF, (short) 0xFFFF, (byte) 0xFF), cells));
+    }
+
+    @Test
+    public void testAnnotation() {
+        // Two variants with summary 0b0011 and 0b0110. CT 0b01 and 0b10, BT 0b100
+        List<Cell> cells = Arrays.asList(count("0/1", 2), annotationSummary("0/1", 2, 0b0111, 0b0010, false, 0b11, 0b100));
+
+        assertFalse(filterRow(annotationFilter(0b0011, 0b0011, 0, 0), cells));
+        assertFalse(filterRow(annotationFilter(0b0101, 0b0100, 0, 0), cells));
+        // No variant with bit 2 unset
+        assertTrue(filterRow(annotationFilter(0b0010, 0b0000, 0, 0), cells));
+        // No variant with bit 3 set
+        assertTrue(filterRow(annotationFilter(0b1000, 0b1000, 0, 0), cells));
+
+        assertFalse(filterRow(annotationFilter(0, 0, 0b10, 0), cells));
+        assertTrue(filterRow(annotationFilter(0, 0, 0b100, 0), cells));
+        assertFalse(filterRow(annotationFilter(0, 0, 0, 0b100), cells));
+        assertTrue(filterRow(annotationFilter(0, 0, 0b1, 0b1), cells));
+
+        // Intergenic variants can not be filtered by CT nor BT
+        cells = Arrays.asList(count("0/1", 2), annotationSummary("0/1", 2, 0b0111, 0b0010, true, 0b11, 0b100));
+        assertFalse(filterRow(annotationFilter(0, 0, 0b100, 0b1), cells));
+        assertTrue(filterRow(annotationFilter(0b1000, 0b1000, 0b100, 0b1), cells));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        SampleIndexSummaryFilter filter = new SampleIndexSummaryFilter(100, 200, (byte) 3, (byte) 1, (short) 0xF0F0, (byte) 0x81);
+        assertEquals(filter.toString(), SampleIndexSummaryFilter.parseFrom(filter.toByteArray()).toString());
+    }
+
+    private boolean filterRow(SampleIndexSummaryFilter filter, List<Cell> cells) {
+        filter.reset();
+        for (Cell cell : cells) {
+            assertEquals(SampleIndexSummaryFilter.ReturnCode.INCLUDE, filter.filterKeyValue(cell));
+        }
+        filter.filterRowCells(new ArrayList<>(cells));
+        return filter.filterRow();
+    }
+
+    private SampleIndexSummaryFilter regionFilter(int start, int end) {
+        return new SampleIndexSummaryFilter(start, end, (byte) 0, (byte) 0, (short) 0, (byte) 0);
+    }
+
+    private SampleIndexSummaryFilter annotationFilter(int summaryMask, int summaryValue, int ctMask, int btMask) {
+        return new SampleIndexSummaryFilter(-1, -1, (byte) summaryMask, (byte) summaryValue, (short) ctMask, (byte) btMask);
+    }
+
+    private Cell count(String gt, int count) {
+        return new KeyValue(row, family, SampleIndexSchema.toGenotypeCountColumn(gt), Bytes.toBytes(count));
+    }
+
+    private Cell regionSummary(String gt, Integer... starts) {
+        return new KeyValue(row, family, SampleIndexSchema.toRegionSummaryColumn(gt),
+                SampleIndexSummaryFilter.regionSummaryToBytes(Arrays.asList(starts)));
+    }
+
+    private Cell annotationSummary(String gt, int count, int or, int and, boolean intergenic, int ct, int bt) {
+        return new KeyValue(row, family, SampleIndexSchema.toAnnotationSummaryColumn(gt),
+                SampleIndexSummaryFilter.annotationSummaryToBytes(count, (byte) or, (byte) and, intergenic, (short) ct, (byte) bt));
+    }
+}
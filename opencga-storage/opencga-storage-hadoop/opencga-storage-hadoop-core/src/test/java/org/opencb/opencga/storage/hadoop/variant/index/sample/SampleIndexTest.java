@@ -2,6 +2,7 @@ package org.opencb.opencga.storage.hadoop.variant.index.sample;
 
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Result;
@@ -33,6 +34,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.annotation.annotators.CellBaseRestVariantAnnotator;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
 import org.opencb.opencga.storage.hadoop.variant.VariantHbaseTestUtils;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
@@ -354,5 +356,38 @@ public class SampleIndexTest extends VariantStorageBaseTest implements HadoopVar
         }
     }
 
+    @Test
+    public void testServerSideFilters() throws Exception {
+        SampleIndexDBAdaptor sampleIndexDBAdaptor = ((HadoopVariantStorageEngine) variantStorageEngine).getSampleIndexDBAdaptor();
+        Configuration conf = dbAdaptor.getHBaseManager().getConf();
+        List<Query> queries = Arrays.asList(
+                new Query(ANNOT_BIOTYPE.key(), "protein_coding"),
+                new Query(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained"),
+                new Query(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant").append(ANNOT_BIOTYPE.key(), "nonsense_mediated_decay"),
+                new Query(ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:ALL<0.001"),
+                new Query(QUAL.key(), ">=30").append(FILTER.key(), "PASS"),
+                new Query(REGION.key(), "1:1000-16400000").append(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant"));
+        for (Query annotationQuery : queries) {
+            Query query = new Query(STUDY.key(), STUDY_NAME).append(SAMPLE.key(), "NA19600");
+            query.putAll(annotationQuery);
+            SampleIndexQuery indexQuery = sampleIndexDBAdaptor.getSampleIndexQueryParser().parse(new Query(query));
+
+            long expectedCount = sampleIndexDBAdaptor.count(indexQuery);
+            List<String> expectedVariants = sampleIndexDBAdaptor.iterator(indexQuery).toDataResult().getResults()
+                    .stream().map(Variant::toString).collect(toList());
+            try {
+                conf.setBoolean(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SUMMARY_FILTER.key(), true);
+                conf.setBoolean(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_COUNT_FILTER.key(), true);
+                String message = "query = " + annotationQuery.toJson();
+                assertEquals(message, expectedCount, sampleIndexDBAdaptor.count(indexQuery));
+                assertEquals(message, expectedVariants, sampleIndexDBAdaptor.iterator(indexQuery).toDataResult().getResults()
+                        .stream().map(Variant::toString).collect(toList()));
+            } finally {
+                conf.unset(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SUMMARY_FILTER.key());
+                conf.unset(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_COUNT_FILTER.key());
+            }
+        }
+    }
+
 
 }
\ No newline at end of file
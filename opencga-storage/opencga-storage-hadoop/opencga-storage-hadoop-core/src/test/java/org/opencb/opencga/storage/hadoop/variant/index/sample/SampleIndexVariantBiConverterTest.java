@@ -196,6 +196,9 @@ public class SampleIndexVariantBiConverterTest {
             } else {
                 assertEquals(-1, iterator.nextNonIntergenicIndex());
             }
+            if (!onlyCount) {
+                assertEquals(variants.get(i).getStart().intValue(), iterator.nextStart());
+            }
             if (i % 2 == 0) {
                 iterator.skip();
             } else {
@@ -0,0 +1,99 @@
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.bson.Document;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryFields;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the conversion between Variant and the MongoDB documents. No database is required.
+ *
+ * Run with: mvn test -P jmh -pl opencga-storage/opencga-storage-mongodb -Djmh.args=VariantConverterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantConverterBenchmark {
+
+    private static final String[] GENOTYPES = {"0/0", "0/0", "0/0", "0/1", "1/1"};
+
+    @Param({"10", "1000"})
+    public int numSamples;
+
+    private final VariantStringIdConverter idConverter = new VariantStringIdConverter();
+    private DocumentToVariantConverter converter;
+    private Variant variant;
+    private String variantId;
+    private Document document;
+
+    @Setup
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy("1").getId();
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(MongoDBVariantStorageOptions.DEFAULT_GENOTYPE.key(), "0/0");
+            return studyMetadata;
+        });
+        List<String> samples = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samples.add("S" + i);
+        }
+        int fileId = metadataManager.registerFile(studyId, "1", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        List<Integer> sampleIds = new ArrayList<>(numSamples);
+        for (String sample : samples) {
+            sampleIds.add(metadataManager.getSampleId(studyId, sample));
+        }
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+        VariantQueryFields variantQueryFields = new VariantQueryFields(studyMetadata, sampleIds, Collections.singletonList(fileId));
+
+        Random random = new Random(1);
+        variant = new Variant("1", 1000, 1000, "A", "C");
+        StudyEntry studyEntry = new StudyEntry(String.valueOf(fileId), String.valueOf(studyId));
+        studyEntry.setFormatAsString("GT");
+        for (String sample : samples) {
+            studyEntry.addSampleData(sample, Collections.singletonMap("GT", GENOTYPES[random.nextInt(GENOTYPES.length)]));
+        }
+        variant.addStudyEntry(studyEntry);
+        variantId = idConverter.buildId(variant);
+
+        converter = new DocumentToVariantConverter(
+                new DocumentToStudyVariantEntryConverter(
+                        true,
+                        new DocumentToSamplesConverter(metadataManager, variantQueryFields)),
+                new DocumentToVariantStatsConverter());
+        document = converter.convertToStorageType(variant);
+    }
+
+    @Benchmark
+    public String buildId() {
+        return idConverter.buildId(variant);
+    }
+
+    @Benchmark
+    public Variant buildVariant() {
+        return idConverter.buildVariant(variantId, variant.getEnd(), variant.getReference(), variant.getAlternate());
+    }
+
+    @Benchmark
+    public Document convertToStorageType() {
+        return converter.convertToStorageType(variant);
+    }
+
+    @Benchmark
+    public Variant convertToDataModelType() {
+        return converter.convertToDataModelType(document);
+    }
+}
@@ -80,6 +80,16 @@ public class MongoDBProjectMetadataDBAdaptor implements ProjectMetadataAdaptor {
         return generateId(idType, true);
     }
 
+    @Override
+    public int getCounter(Integer studyId, String idType) {
+        // Ignore study configuration. Same ID counter for all studies in the same database
+        String field = COUNTERS_FIELD + '.' + idType;
+        Document document = collection.find(QUERY, new Document(field, true), new QueryOptions()).first();
+        Document counters = document == null ? null : document.get(COUNTERS_FIELD, Document.class);
+        Integer counter = counters == null ? null : counters.getInteger(idType);
+        return counter == null ? 0 : counter;
+    }
+
     private int generateId(String idType, boolean retry) throws StorageEngineException {
         String field = COUNTERS_FIELD + '.' + idType;
         Document projection = new Document(field, true);
@@ -17,15 +17,22 @@
 package org.opencb.opencga.storage.mongodb.variant;
 
 import com.google.common.base.Throwables;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.log4j.Level;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 import org.opencb.commons.datastore.mongodb.MongoDataStoreManager;
 import org.opencb.opencga.core.common.MemoryUsageMonitor;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.config.DatabaseCredentials;
 import org.opencb.opencga.storage.core.StoragePipeline;
 import org.opencb.opencga.storage.core.StoragePipelineResult;
@@ -34,6 +41,7 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.StoragePipelineException;
 import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
@@ -53,6 +61,9 @@ import org.opencb.opencga.storage.mongodb.annotation.MongoDBVariantAnnotationMan
 import org.opencb.opencga.storage.mongodb.auth.MongoCredentials;
 import org.opencb.opencga.storage.mongodb.metadata.MongoDBVariantStorageMetadataDBAdaptorFactory;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantIdFormat;
+import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
 import org.opencb.opencga.storage.mongodb.variant.load.MongoVariantImporter;
 import org.opencb.opencga.storage.mongodb.variant.query.RegionVariantQueryExecutor;
 import org.opencb.opencga.storage.mongodb.variant.stats.MongoDBVariantStatisticsManager;
@@ -65,11 +76,13 @@ import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.RESUME;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
 import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.*;
+import static org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader.STAGE_TO_VARIANT_CONVERTER;
 
 /**
  * Created by imedina on 13/08/14.
@@ -226,6 +239,97 @@ public class MongoDBVariantStorageEngine extends VariantStorageEngine {
         }
     }
 
+    /**
+     * Migrate the "_id" of all the variant documents of this project to a different {@link VariantIdFormat}.
+     *
+     * Migrates the variants collection, the annotation snapshots and the stage collections. Documents are re-inserted with
+     * the new id and then removed, batch by batch. Documents already in the target format are skipped, so an interrupted
+     * migration can be resumed. This is an offline operation: no other operation should modify the project meanwhile.
+     *
+     * @param target    Target format
+     * @throws StorageEngineException if the ProjectMetadata can not be updated
+     */
+    public void migrateVariantIds(VariantIdFormat target) throws StorageEngineException {
+        VariantMongoDBAdaptor dbAdaptor = getDBAdaptor();
+        VariantStorageMetadataManager metadataManager = getMetadataManager();
+        ProjectMetadata projectMetadata = metadataManager.getProjectMetadata();
+        if (projectMetadata != null && VariantIdFormat.from(projectMetadata) == target
+                && projectMetadata.getAttributes().containsKey(VariantIdFormat.ATTRIBUTE)) {
+            logger.info("Variant ids already in format {}", target);
+            return;
+        }
+        StopWatch stopWatch = StopWatch.createStarted();
+
+        DocumentToVariantConverter variantConverter = new DocumentToVariantConverter().setIdFormat(target);
+        Function<Document, Document> variantMigration = document -> document
+                .append("_id", variantConverter.buildStorageId(variantConverter.convertToDataModelType(document)));
+        migrateVariantIds(dbAdaptor.getVariantsCollection(), dbAdaptor.getVariantsCollectionName(), target, variantMigration);
+        if (projectMetadata != null) {
+            for (ProjectMetadata.VariantAnnotationMetadata saved : projectMetadata.getAnnotation().getSaved()) {
+                String annotationCollectionName = dbAdaptor.getAnnotationCollectionName(saved.getName());
+                migrateVariantIds(dbAdaptor.getAnnotationCollection(saved.getName()), annotationCollectionName, target, variantMigration);
+            }
+        }
+
+        StageDocumentToVariantConverter stageConverter = new StageDocumentToVariantConverter(target);
+        Function<Document, Document> stageMigration = document -> {
+            Document newId = stageConverter.convertToStorageType(STAGE_TO_VARIANT_CONVERTER.convertToDataModelType(document));
+            document.remove(StageDocumentToVariantConverter.CHROMOSOME_FIELD);
+            document.remove(StageDocumentToVariantConverter.SV_CI_FIELD);
+            document.putAll(newId);
+            return document;
+        };
+        Set<String> stageCollections = new HashSet<>();
+        for (Integer studyId : metadataManager.getStudies().values()) {
+            String stageCollectionName = dbAdaptor.getStageCollectionName(studyId);
+            // Legacy stage collection may be shared by all the studies
+            if (stageCollections.add(stageCollectionName)) {
+                migrateVariantIds(dbAdaptor.getStageCollection(studyId), stageCollectionName, target, stageMigration);
+            }
+        }
+
+        metadataManager.updateProjectMetadata(pm -> {
+            pm.getAttributes().put(VariantIdFormat.ATTRIBUTE, target.name().toLowerCase());
+            return pm;
+        });
+        dbAdaptor.resetIdFormat();
+        logger.info("Migrated variant ids to format {} in {}", target, TimeUtils.durationToString(stopWatch));
+    }
+
+    private void migrateVariantIds(MongoDBCollection collection, String collectionName, VariantIdFormat target,
+                                   Function<Document, Document> migration) {
+        int batchSize = getOptions().getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(),
+                VariantStorageOptions.LOAD_BATCH_SIZE.defaultValue());
+        Bson otherFormat = Filters.type("_id", target == VariantIdFormat.BINARY ? BsonType.STRING : BsonType.BINARY);
+        ProgressLogger progressLogger = new ProgressLogger("Migrate variant ids from '" + collectionName + "':",
+                () -> collection.count(otherFormat).getNumMatches(), 200);
+        List<Object> oldIds = new ArrayList<>(batchSize);
+        List<Bson> queries = new ArrayList<>(batchSize);
+        List<Document> documents = new ArrayList<>(batchSize);
+        long migrated = 0;
+        try (MongoCursor<Document> cursor = collection.nativeQuery().find(otherFormat, new QueryOptions()).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                oldIds.add(document.get("_id"));
+                document = migration.apply(document);
+                queries.add(Filters.eq("_id", document.get("_id")));
+                documents.add(document);
+                if (documents.size() == batchSize || !cursor.hasNext()) {
+                    // First insert the new documents, then remove the old ones
+                    collection.update(queries, documents, new QueryOptions(MongoDBCollection.UPSERT, true)
+                            .append(MongoDBCollection.REPLACE, true));
+                    collection.remove(Filters.in("_id", oldIds), new QueryOptions(MongoDBCollection.MULTI, true));
+                    progressLogger.increment(documents.size());
+                    migrated += documents.size();
+                    oldIds.clear();
+                    queries.clear();
+                    documents.clear();
+                }
+            }
+        }
+        logger.info("Migrated {} documents from '{}'", migrated, collectionName);
+    }
+
     @Override
     public void loadVariantScore(URI scoreFile, String study, String scoreName, String cohort1, String cohort2,
                                  VariantScoreFormatDescriptor descriptor, ObjectMap options) {
@@ -476,7 +580,7 @@ public class MongoDBVariantStorageEngine extends VariantStorageEngine {
             MongoDataStore db = mongoDataStoreManager.get(
                     getMongoCredentials().getMongoDbName(),
                     getMongoCredentials().getMongoDBConfiguration());
-            metadataManager = new VariantStorageMetadataManager(new MongoDBVariantStorageMetadataDBAdaptorFactory(db, options));
+            metadataManager = new VariantStorageMetadataManager(new MongoDBVariantStorageMetadataDBAdaptorFactory(db, options), options);
             return metadataManager;
         }
     }
@@ -18,6 +18,9 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     COLLECTION_ANNOTATION("storage.mongodb.collection.annotation", "annot"),
     COLLECTION_TRASH("storage.mongodb.collection.trash", "trash"),
 
+    // Format of the variant ids for new projects. One of "string" or "binary". See VariantIdFormat
+    VARIANT_ID_FORMAT("storage.mongodb.variant.id.format", "string"),
+
     ALREADY_LOADED_VARIANTS("storage.mongodb.alreadyLoadedVariants", 0),
 
     PARALLEL_WRITE("storage.mongodb.parallelWrite", false),
@@ -36,8 +39,14 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     MERGE_IGNORE_OVERLAPPING_VARIANTS("storage.mongodb.merge.ignoreOverlappingVariants", false),   //Do not look for overlapping variants
     MERGE_PARALLEL_WRITE("storage.mongodb.merge.parallelWrite", false),
     MERGE_BATCH_SIZE("storage.mongodb.merge.batchSize", 10),          //Number of files to merge directly from first to second collection
+    MERGE_PARTITIONS("storage.mongodb.merge.partitions", 1),          //Number of stage regions to merge concurrently
+
+    GROUP_BY_THREADS("storage.mongodb.groupBy.threads", 4),           //Number of chromosomes aggregated concurrently in a groupBy
+    GROUP_BY_MAX_GROUPS("storage.mongodb.groupBy.maxGroups", 100000), //Max number of distinct groups of a groupBy
 
 
+    // Store the genotypes of each file packed by sample position, instead of a map of genotypes. See GenotypeColumnCodec
+    GENOTYPES_COLUMNAR("storage.mongodb.genotypes.columnar", false),
     EXTRA_GENOTYPE_FIELDS_COMPRESS("extra-fields.compress", true),    //Compress with gzip other sample information
     DEFAULT_GENOTYPE("defaultGenotype", Arrays.asList("0/0", "0|0"));
 
@@ -32,6 +32,7 @@ import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataReader;
 import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
@@ -39,6 +40,9 @@ import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.metrics.MetricsRegistry;
+import org.opencb.opencga.storage.core.metrics.StageMetrics;
+import org.opencb.opencga.storage.core.utils.AdaptiveParallelTaskRunner;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine.MergeMode;
 import org.opencb.opencga.storage.core.variant.VariantStoragePipeline;
 import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
@@ -63,6 +67,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -89,6 +96,8 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             VariantType.TRANSLOCATION
 //            VariantType.BREAKEND
     ));
+    // Minimum number of variants for each partition of the stage collection in a partitioned merge
+    private static final long MERGE_PARTITION_MIN_SIZE = 1000;
 
     private final VariantMongoDBAdaptor dbAdaptor;
     private final ObjectMap loadStats = new ObjectMap();
@@ -106,6 +115,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
     public URI preLoad(URI input, URI output) throws StorageEngineException {
         URI uri = super.preLoad(input, output);
+        dbAdaptor.initIdFormat(options);
         if (isResumeStage(options)) {
             logger.info("Resume stage load.");
             // Clean stage collection?
@@ -167,6 +177,15 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             studyMetadata.getAttributes().put(DEFAULT_GENOTYPE.key(), defaultGenotype);
         }
 
+        // 3) Determine GENOTYPES_COLUMNAR. Can not be changed once there are indexed files
+        if (getMetadataManager().getIndexedFiles(studyMetadata.getId()).isEmpty()) {
+            studyMetadata.getAttributes().put(GENOTYPES_COLUMNAR.key(),
+                    options.getBoolean(GENOTYPES_COLUMNAR.key(), GENOTYPES_COLUMNAR.defaultValue()));
+        } else {
+            options.put(GENOTYPES_COLUMNAR.key(), studyMetadata.getAttributes()
+                    .getBoolean(GENOTYPES_COLUMNAR.key(), GENOTYPES_COLUMNAR.defaultValue()));
+        }
+
         boolean loadSplitData = options.getBoolean(VariantStorageOptions.LOAD_SPLIT_DATA.key(),
                 VariantStorageOptions.LOAD_SPLIT_DATA.defaultValue());
         boolean newSampleBatch = checkCanLoadSampleBatch(getMetadataManager(), studyMetadata, fileId, loadSplitData);
@@ -331,12 +350,15 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                     .setNumTasks(loadThreads)
                     .setBatchSize(batchSize)
                     .setAbortOnFail(true).build();
+            StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.LOAD).newRun();
             if (isDirectLoadParallelWrite(options)) {
                 logger.info("Multi thread direct load... [{} readerThreads, {} writerThreads]", numReaders, loadThreads);
-                ptr = new ParallelTaskRunner<>(stageReader, variantMerger.then(loader), null, config);
+                ptr = AdaptiveParallelTaskRunner.newInstance(metrics.instrument(stageReader),
+                        metrics.instrument(variantMerger.then(loader)), null, config, options);
             } else {
                 logger.info("Multi thread direct load... [{} readerThreads, {} tasks, {} writerThreads]", numReaders, loadThreads, 1);
-                ptr = new ParallelTaskRunner<>(stageReader, variantMerger, loader, config);
+                ptr = AdaptiveParallelTaskRunner.newInstance(metrics.instrument(stageReader),
+                        metrics.instrument(variantMerger), metrics.instrument(loader), config, options);
             }
 
             // Run
@@ -354,6 +376,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             writeResult.setNonInsertedVariants(duplicatedVariantsDetector.getDiscardedVariants());
             loadStats.append("directLoad", true);
             loadStats.append("writeResult", writeResult);
+            loadStats.append("metrics", metrics.snapshot());
 
             fileMetadata.setId(String.valueOf(fileId));
             dbAdaptor.getMetadataManager().updateVariantFileMetadata(String.valueOf(studyId), fileMetadata);
@@ -401,7 +424,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
             //Runner
             ProgressLogger progressLogger = new ProgressLogger("Write variants in STAGE collection:", numRecords, 200);
-            MongoDBVariantStageConverterTask converterTask = new MongoDBVariantStageConverterTask(progressLogger);
+            MongoDBVariantStageConverterTask converterTask = new MongoDBVariantStageConverterTask(progressLogger, dbAdaptor.getIdFormat());
             MongoDBVariantStageLoader stageLoader =
                     new MongoDBVariantStageLoader(stageCollection, studyMetadata.getId(), fileId,
                             isResumeStage(options));
@@ -412,12 +435,15 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                     .setNumTasks(loadThreads)
                     .setBatchSize(batchSize)
                     .setAbortOnFail(true).build();
+            StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.LOAD).newRun();
             if (isStageParallelWrite(options)) {
                 logger.info("Multi thread stage load... [{} readerThreads, {} writerThreads]", numReaders, loadThreads);
-                ptr = new ParallelTaskRunner<>(variantReader, remapIdsTask.then(converterTask).then(stageLoader), null, config);
+                ptr = AdaptiveParallelTaskRunner.newInstance(metrics.instrument(variantReader),
+                        metrics.instrument(remapIdsTask.then(converterTask).then(stageLoader)), null, config, options);
             } else {
                 logger.info("Multi thread stage load... [{} readerThreads, {} tasks, {} writerThreads]", numReaders, loadThreads, 1);
-                ptr = new ParallelTaskRunner<>(variantReader, remapIdsTask.then(converterTask), stageLoader, config);
+                ptr = AdaptiveParallelTaskRunner.newInstance(metrics.instrument(variantReader),
+                        metrics.instrument(remapIdsTask.then(converterTask)), metrics.instrument(stageLoader), config, options);
             }
 
             Thread hook = new Thread(() -> {
@@ -441,6 +467,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             stageLoader.getWriteResult().setSkippedVariants(skippedVariants);
             loadStats.append(MERGE.key(), false);
             loadStats.append("stageWriteResult", stageLoader.getWriteResult());
+            loadStats.append("metrics", metrics.snapshot());
             options.put("skippedVariants", skippedVariants);
             logger.info("Stage Write result: {}", skippedVariants);
         } catch (ExecutionException | RuntimeException e) {
@@ -564,6 +591,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         int batchSize = options.getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(), VariantStorageOptions.LOAD_BATCH_SIZE.defaultValue());
         int loadThreads = options.getInt(VariantStorageOptions.LOAD_THREADS.key(), VariantStorageOptions.LOAD_THREADS.defaultValue());
         int capacity = options.getInt("blockingQueueCapacity", loadThreads * 2);
+        StageMetrics metrics = MetricsRegistry.getDefault().stage(StageMetrics.MERGE).newRun();
 
         if (options.getBoolean(MERGE_SKIP.key())) {
             // It was already merged, but still some work is needed. Exit to do postLoad step
@@ -581,7 +609,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             });
             Runtime.getRuntime().addShutdownHook(hook);
             try {
-                writeResult = mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata);
+                writeResult = mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata, metrics);
             } catch (Exception e) {
                 getMetadataManager().atomicSetStatus(getStudyId(), TaskMetadata.Status.ERROR, MERGE.key(), fileIds);
                 throw e;
@@ -606,6 +634,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         logger.info("Write result: {}", writeResult.toJson());
         loadStats.append(MERGE.key(), true);
         loadStats.append("mergeWriteResult", writeResult);
+        loadStats.append("mergeMetrics", metrics.snapshot());
 
         long end = System.currentTimeMillis();
         logger.info("end - start = " + (end - start) / 1000.0 + "s");
@@ -636,7 +665,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
     }
 
     private MongoDBVariantWriteResult mergeByChromosome(List<Integer> fileIds, int batchSize, int loadThreads,
-                                                        StudyMetadata studyMetadata)
+                                                        StudyMetadata studyMetadata, StageMetrics metrics)
             throws StorageEngineException {
         MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
         MongoDBVariantStageReader reader = new MongoDBVariantStageReader(stageCollection, studyMetadata.getId());
@@ -659,17 +688,32 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                 dbAdaptor.getVariantsCollection(), stageCollection, dbAdaptor.getStudiesCollection(),
                 studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger);
 
-        ParallelTaskRunner<Document, MongoDBOperations> ptrMerge;
+        int numPartitions = options.getInt(MERGE_PARTITIONS.key(), MERGE_PARTITIONS.defaultValue());
+        List<MongoDBVariantStageReader> readers;
+        if (numPartitions > 1) {
+            StopWatch stopWatch = StopWatch.createStarted();
+            readers = reader.split(numPartitions, MERGE_PARTITION_MIN_SIZE);
+            logger.info("Split stage collection in " + readers.size() + " partitions in " + TimeUtils.durationToString(stopWatch));
+        } else {
+            readers = Collections.singletonList(reader);
+        }
+        // The merger and the loader are thread safe, and shared between all the partitions
+        int partitionThreads = Math.max(1, loadThreads / readers.size());
+        List<ParallelTaskRunner<Document, MongoDBOperations>> ptrs = new ArrayList<>(readers.size());
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
                 .setReadQueuePutTimeout(20 * 60)
-                .setNumTasks(loadThreads)
+                .setNumTasks(partitionThreads)
                 .setBatchSize(batchSize)
                 .setAbortOnFail(true).build();
         try {
-            if (isMergeParallelWrite(options)) {
-                ptrMerge = new ParallelTaskRunner<>(reader, variantMerger.then(variantLoader), null, config);
-            } else {
-                ptrMerge = new ParallelTaskRunner<>(reader, variantMerger, variantLoader, config);
+            for (MongoDBVariantStageReader partitionReader : readers) {
+                if (isMergeParallelWrite(options)) {
+                    ptrs.add(AdaptiveParallelTaskRunner.newInstance(metrics.instrument(partitionReader),
+                            metrics.instrument(variantMerger.then(variantLoader)), null, config, options));
+                } else {
+                    ptrs.add(AdaptiveParallelTaskRunner.newInstance(metrics.instrument(partitionReader),
+                            metrics.instrument(variantMerger), metrics.instrument(variantLoader), config, options));
+                }
             }
         } catch (RuntimeException e) {
             throw new StorageEngineException("Error while creating ParallelTaskRunner", e);
@@ -677,7 +721,12 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
         try {
             logger.info("Merging files " + fileIds);
-            ptrMerge.run();
+            if (ptrs.size() == 1) {
+                ptrs.get(0).run();
+            } else {
+                logger.info("Merge " + ptrs.size() + " partitions concurrently, with " + partitionThreads + " threads each");
+                runConcurrently(ptrs);
+            }
         } catch (ExecutionException e) {
             logger.info("Write result: {}", variantLoader.getResult());
             throw new StorageEngineException("Error while executing LoadVariants in ParallelTaskRunner", e);
@@ -685,6 +734,28 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         return variantLoader.getResult();
     }
 
+    private void runConcurrently(List<? extends ParallelTaskRunner<?, ?>> ptrs) throws ExecutionException, StorageEngineException {
+        ExecutorService executor = Executors.newFixedThreadPool(ptrs.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>(ptrs.size());
+            for (ParallelTaskRunner<?, ?> ptr : ptrs) {
+                futures.add(executor.submit(() -> {
+                    ptr.run();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageEngineException("Interrupted while merging partitions", e);
+        } finally {
+            // Abort the remaining partitions, if any
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public URI postLoad(URI input, URI output) throws StorageEngineException {
 
@@ -18,11 +18,14 @@ package org.opencb.opencga.storage.mongodb.variant.adaptors;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.MongoClient;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import htsjdk.variant.vcf.VCFConstants;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.StopWatch;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -39,9 +42,11 @@ import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 import org.opencb.commons.datastore.mongodb.MongoDataStoreManager;
 import org.opencb.commons.datastore.mongodb.MongoPersistentCursor;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.results.VariantQueryResult;
 import org.opencb.opencga.storage.core.config.StorageEngineConfiguration;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
@@ -61,7 +66,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static com.mongodb.client.model.Filters.*;
@@ -94,6 +101,8 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
     private VariantStorageMetadataManager metadataManager;
     private final ObjectMap configuration;
+    private volatile VariantIdFormat idFormat;
+    private final AtomicReference<ExecutorService> groupByExecutor = new AtomicReference<>();
 //    private CacheManager cacheManager;
 
     private static Logger logger = LoggerFactory.getLogger(VariantMongoDBAdaptor.class);
@@ -129,7 +138,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
                 ? new ObjectMap()
                 : storageEngineConfiguration.getOptions();
 
-        queryParser = new VariantMongoDBQueryParser(variantStorageMetadataManager);
+        queryParser = new VariantMongoDBQueryParser(variantStorageMetadataManager, this::getIdFormat);
         NUMBER_INSTANCES.incrementAndGet();
     }
 
@@ -137,15 +146,74 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         return variantsCollection;
     }
 
+    public String getVariantsCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Format of the "_id" of the variants and stage documents of this project. Read from the {@link ProjectMetadata} once.
+     *
+     * @return VariantIdFormat
+     */
+    public VariantIdFormat getIdFormat() {
+        VariantIdFormat format = idFormat;
+        if (format == null) {
+            format = VariantIdFormat.from(metadataManager.getProjectMetadata());
+            idFormat = format;
+        }
+        return format;
+    }
+
+    /**
+     * Ensure the variant id format is stored in the {@link ProjectMetadata}.
+     * The configured format is only used if the project does not have any variant yet.
+     * Otherwise, projects without format use {@link VariantIdFormat#STRING}.
+     *
+     * @param options   Options with the configured VARIANT_ID_FORMAT. Defaults to the storage engine configuration
+     * @return Format to use
+     * @throws StorageEngineException if the ProjectMetadata can not be updated
+     */
+    public VariantIdFormat initIdFormat(ObjectMap options) throws StorageEngineException {
+        ProjectMetadata projectMetadata = metadataManager.getProjectMetadata();
+        if (projectMetadata == null || !projectMetadata.getAttributes().containsKey(VariantIdFormat.ATTRIBUTE)) {
+            VariantIdFormat format;
+            if (variantsCollection.count().getNumMatches() == 0) {
+                format = VariantIdFormat.parse(options.getString(VARIANT_ID_FORMAT.key(),
+                        configuration.getString(VARIANT_ID_FORMAT.key(), VARIANT_ID_FORMAT.defaultValue())));
+            } else {
+                format = VariantIdFormat.STRING;
+            }
+            projectMetadata = metadataManager.updateProjectMetadata(pm -> {
+                if (!pm.getAttributes().containsKey(VariantIdFormat.ATTRIBUTE)) {
+                    pm.getAttributes().put(VariantIdFormat.ATTRIBUTE, format.name().toLowerCase());
+                }
+                return pm;
+            });
+        }
+        idFormat = VariantIdFormat.from(projectMetadata);
+        return idFormat;
+    }
+
+    /**
+     * Reset the cached variant id format. Used after migrating the ids.
+     */
+    public void resetIdFormat() {
+        idFormat = null;
+    }
+
     public MongoDBCollection getStageCollection(int studyId) {
+        return db.getCollection(getStageCollectionName(studyId));
+    }
+
+    public String getStageCollectionName(int studyId) {
         String stageCollectionName = configuration.getString(COLLECTION_STAGE.key(), COLLECTION_STAGE.defaultValue());
         // Ensure retro-compatibility.
         // If a "stage" collection exists, continue using one single stage collection for all the studies.
         // Otherwise, build the stage collection name as: 'stage_study_<study-id>'
         if (db.getCollectionNames().contains(stageCollectionName)) {
-            return db.getCollection(stageCollectionName);
+            return stageCollectionName;
         } else {
-            return db.getCollection(stageCollectionName + "_study_" + studyId);
+            return stageCollectionName + "_study_" + studyId;
         }
     }
 
@@ -242,10 +310,10 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         MongoDBCollection stageCollection = getStageCollection(studyId);
         int updatedStageDocuments = 0;
         try (MongoCursor<Document> cursor = findIterable.iterator()) {
-            List<String> ids = new ArrayList<>(batchSize);
+            List<Object> ids = new ArrayList<>(batchSize);
             int i = 0;
             while (cursor.hasNext()) {
-                ids.add(cursor.next().getString("_id"));
+                ids.add(cursor.next().get("_id"));
                 Bson updateStage = combine(
                         pull(StageDocumentToVariantConverter.STUDY_FILE_FIELD, studyId.toString()),
                         unset(studyId.toString()));
@@ -407,12 +475,12 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
         long deletedDocuments = 0;
         int deleteBatchSize = 1000;
-        List<String> documentsToDelete = new ArrayList<>(deleteBatchSize);
+        List<Object> documentsToDelete = new ArrayList<>(deleteBatchSize);
         List<Document> documentsToInsert = new ArrayList<>(deleteBatchSize);
 
         while (iterator.hasNext()) {
             Document next = iterator.next();
-            documentsToDelete.add(next.getString("_id"));
+            documentsToDelete.add(next.get("_id"));
             next.append(DocumentToTrashVariantConverter.TIMESTAMP_FIELD, ts);
             documentsToInsert.add(next);
             if (documentsToDelete.size() == deleteBatchSize || !iterator.hasNext()) {
@@ -742,12 +810,18 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 //        System.out.println(sort.toString());
 
         long dbTimeStart = System.currentTimeMillis();
-        DataResult output = variantsCollection.aggregate(/*"$histogram", */Arrays.asList(match, group, sort), options);
+        List<Document> output = new ArrayList<>();
+        try (MongoCursor<Document> cursor = variantsCollection.nativeQuery()
+                .aggregate(/*"$histogram", */Arrays.asList(match, group, sort), options)
+                .allowDiskUse(true)
+                .iterator()) {
+            cursor.forEachRemaining(output::add);
+        }
         long dbTimeEnd = System.currentTimeMillis();
 
         Map<Long, Document> ids = new HashMap<>();
         // Create DBObject for intervals with features inside them
-        for (Document intervalObj : (List<Document>) output.getResults()) {
+        for (Document intervalObj : output) {
             Long auxId = Math.round((Double) intervalObj.get("_id")); //is double
 
             Document intervalVisited = ids.get(auxId);
@@ -798,118 +872,240 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
     @Override
     public DataResult groupBy(Query query, String field, QueryOptions options) {
+        return groupBy(query, Collections.singletonList(field), options);
+    }
+
+    /**
+     * Group the variants by one or more fields from the consequence types of the annotation, counting the number of variants of
+     * each group. Fields from the same consequence type are grouped together.
+     *
+     * The aggregation is executed for each chromosome with variants matching the query in parallel, streaming the results with a
+     * cursor, and allowing the use of disk in the server. Partial results are merged, sorted, skipped and limited in the client.
+     * Chromosomes are aggregated by a thread pool shared by all the groupBy queries of this adaptor, with
+     * {@link org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions#GROUP_BY_THREADS} threads.
+     *
+     * Accepted options:
+     *  - count : If false, include the list of variants of each group in the field "values". Only for one field.
+     *  - order : Sort groups by count. 1 = ascending, -1 = descending
+     *  - skip, limit : Default limit is 10.
+     *  - {@link org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions#GROUP_BY_MAX_GROUPS} : Fail if the number
+     *  of groups is larger than this value.
+     *
+     * @param query     Query to be executed
+     * @param fields    Fields to group by. One of "gene", "ensemblGene", "ct", "consequence_type". Otherwise, gene name.
+     * @param options   Query options
+     * @return List of groups, with the value of the fields in "id", and the number of variants in "count".
+     */
+    @Override
+    public DataResult groupBy(Query query, List<String> fields, QueryOptions options) {
+        StopWatch stopWatch = StopWatch.createStarted();
+        if (fields == null || fields.isEmpty()) {
+            throw new VariantQueryException("Missing fields to group by");
+        }
         if (options == null) {
             options = new QueryOptions();
-        } else {
-            options = new QueryOptions(options); // Copy given QueryOptions.
         }
 
-        String documentPath;
-        String unwindPath;
-        int numUnwinds = 2;
-        switch (field) {
-            case "gene":
-            case "ensemblGene":
-                documentPath = DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CT_ENSEMBL_GENE_ID_FIELD;
-                unwindPath = DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD;
-
-                break;
-            case "ct":
-            case "consequence_type":
-                documentPath = DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CT_SO_ACCESSION_FIELD;
-                unwindPath = DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD;
-                numUnwinds = 3;
-                break;
-            default:
-                documentPath = DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CT_GENE_NAME_FIELD;
-                unwindPath = DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD;
-                break;
-        }
+        boolean count = fields.size() > 1 || options.getBoolean("count", false);
+        int order = options.getInt("order", -1);
+        int skip = Math.max(options.getInt(QueryOptions.SKIP, 0), 0);
+        int limit = options.getInt(QueryOptions.LIMIT, -1) > 0 ? options.getInt(QueryOptions.LIMIT) : 10;
+        int maxGroups = options.getInt(GROUP_BY_MAX_GROUPS.key(),
+                configuration.getInt(GROUP_BY_MAX_GROUPS.key(), GROUP_BY_MAX_GROUPS.defaultValue()));
+        long timeout = options.getLong(QueryOptions.TIMEOUT, 0);
 
         Document mongoQuery = queryParser.parseQuery(query);
+        List<Bson> groupByStages = buildGroupByStages(fields, !count);
+        // Only the chromosomes with variants matching the query
+        List<String> chromosomes = variantsCollection.distinct(DocumentToVariantConverter.CHROMOSOME_FIELD, mongoQuery, String.class)
+                .getResults();
+
+        Map<Object, Document> groups = new HashMap<>();
+        ExecutorService executor = getGroupByExecutor();
+        List<Future<Map<Object, Document>>> futures = new ArrayList<>(chromosomes.size());
+        try {
+            for (String chromosome : chromosomes) {
+                List<Bson> operations = new ArrayList<>(groupByStages.size() + 1);
+                operations.add(Aggregates.match(and(mongoQuery, eq(DocumentToVariantConverter.CHROMOSOME_FIELD, chromosome))));
+                operations.addAll(groupByStages);
+                futures.add(executor.submit(() -> groupByPartition(operations, fields, maxGroups, timeout)));
+            }
+            for (Future<Map<Object, Document>> future : futures) {
+                future.get().forEach((id, group) -> groups.merge(id, group, (group1, group2) -> {
+                    group1.put("count", group1.getInteger("count") + group2.getInteger("count"));
+                    if (group1.containsKey("values")) {
+                        group1.get("values", List.class).addAll(group2.get("values", List.class));
+                    }
+                    return group1;
+                }));
+                checkMaxGroups(groups.size(), maxGroups);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw VariantQueryException.internalException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw VariantQueryException.internalException(e);
+            }
+        } finally {
+            // Cancel the pending partitions on error. Does nothing if all of them are done
+            for (Future<Map<Object, Document>> future : futures) {
+                future.cancel(true);
+            }
+        }
 
-        boolean count = options.getBoolean("count", false);
-        int order = options.getInt("order", -1);
-
-        Document project;
-        Document projectAndCount;
-        if (count) {
-            project = new Document("$project", new Document("field", "$" + documentPath));
-            projectAndCount = new Document("$project", new Document()
-                    .append("id", "$_id")
-                    .append("_id", 0)
-                    .append("count", new Document("$size", "$values")));
-        } else {
-            project = new Document("$project", new Document()
-                    .append("field", "$" + documentPath)
-                    //.append("_id._id", "$_id")
-                    .append("_id.start", "$" + DocumentToVariantConverter.START_FIELD)
-                    .append("_id.end", "$" + DocumentToVariantConverter.END_FIELD)
-                    .append("_id.chromosome", "$" + DocumentToVariantConverter.CHROMOSOME_FIELD)
-                    .append("_id.alternate", "$" + DocumentToVariantConverter.ALTERNATE_FIELD)
-                    .append("_id.reference", "$" + DocumentToVariantConverter.REFERENCE_FIELD)
-                    .append("_id.ids", "$" + DocumentToVariantConverter.IDS_FIELD));
-            projectAndCount = new Document("$project", new Document()
-                    .append("id", "$_id")
-                    .append("_id", 0)
-                    .append("values", "$values")
-                    .append("count", new Document("$size", "$values")));
+        // Sort by count. Break ties by id, so the same query always returns the same groups
+        Comparator<Document> comparator = Comparator.comparing(group -> group.getInteger("count"));
+        if (order < 0) {
+            comparator = comparator.reversed();
         }
+        comparator = comparator.thenComparing(group -> String.valueOf(group.get("id")));
+        List<Document> results = groups.values()
+                .stream()
+                .sorted(comparator)
+                .skip(skip)
+                .limit(limit)
+                .collect(Collectors.toList());
 
-        Document match = new Document("$match", mongoQuery);
-        Document unwindField = new Document("$unwind", "$field");
-        Document notNull = new Document("$match", new Document("field", new Document("$ne", null)));
-        Document groupAndAddToSet = new Document("$group", new Document("_id", "$field")
-                .append("values", new Document("$addToSet", "$_id"))); // sum, count, avg, ...?
-        Document sort = new Document("$sort", new Document("count", order)); // 1 = ascending, -1 = descending
+        logger.debug("Group by {} : {} groups from {} chromosomes in {}", fields, groups.size(), chromosomes.size(),
+                TimeUtils.durationToString(stopWatch));
+        return new DataResult<>((int) stopWatch.getTime(), Collections.emptyList(), results.size(), results, groups.size());
+    }
 
-        int skip = options.getInt(QueryOptions.SKIP, -1);
-        Document skipStep = skip > 0 ? new Document("$skip", skip) : null;
+    /**
+     * Build the stages of the group by aggregation, after the $match.
+     *
+     * Unwind the consequence types, project each field as "f0", "f1", ... and group twice: first by variant and fields, to count
+     * each variant only once, and then by fields.
+     *
+     * @param fields    Fields to group by
+     * @param values    Include the list of variants of each group
+     * @return          Aggregation stages
+     */
+    /**
+     * Thread pool shared by all the groupBy queries from this adaptor.
+     * Bounded by {@link org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions#GROUP_BY_THREADS},
+     * and shut down when the adaptor is closed.
+     *
+     * @return ExecutorService
+     */
+    private ExecutorService getGroupByExecutor() {
+        if (groupByExecutor.get() == null) {
+            synchronized (groupByExecutor) {
+                if (groupByExecutor.get() == null) {
+                    int threads = Math.max(1, configuration.getInt(GROUP_BY_THREADS.key(), GROUP_BY_THREADS.defaultValue()));
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(),
+                            new BasicThreadFactory.Builder()
+                                    .namingPattern("variant-mongodb-groupby-%s")
+                                    .daemon(true)
+                                    .build());
+                    executor.allowCoreThreadTimeOut(true);
+                    groupByExecutor.set(executor);
+                }
+            }
+        }
+        return groupByExecutor.get();
+    }
 
-        int limit = options.getInt(QueryOptions.LIMIT, -1) > 0 ? options.getInt(QueryOptions.LIMIT) : 10;
-        options.remove(QueryOptions.LIMIT); // Remove limit or Datastore will add a new limit step
-        Document limitStep = new Document("$limit", limit);
-
-        List<Bson> operations = new LinkedList<>();
-        operations.add(match);
-        operations.add(project);
-        for (int i = 0; i < numUnwinds; i++) {
-            operations.add(unwindField);
+    private List<Bson> buildGroupByStages(List<String> fields, boolean values) {
+        String ctPath = DocumentToVariantConverter.ANNOTATION_FIELD + '.' + DocumentToVariantAnnotationConverter.CONSEQUENCE_TYPE_FIELD;
+        List<Bson> stages = new ArrayList<>();
+        stages.add(new Document("$unwind", '$' + ctPath));
+
+        Document project = new Document();
+        Document notNull = new Document();
+        Document groupId = new Document();
+        List<Bson> arrayUnwinds = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String key = "f" + i;
+            String subField;
+            switch (fields.get(i)) {
+                case "gene":
+                case "ensemblGene":
+                    subField = DocumentToVariantAnnotationConverter.CT_ENSEMBL_GENE_ID_FIELD;
+                    break;
+                case "ct":
+                case "consequence_type":
+                    subField = DocumentToVariantAnnotationConverter.CT_SO_ACCESSION_FIELD;
+                    // List of SO terms of the consequence type
+                    arrayUnwinds.add(new Document("$unwind", '$' + key));
+                    break;
+                default:
+                    subField = DocumentToVariantAnnotationConverter.CT_GENE_NAME_FIELD;
+                    break;
+            }
+            project.append(key, '$' + ctPath + '.' + subField);
+            notNull.append(key, new Document("$ne", null));
+            groupId.append(key, '$' + key);
         }
-        operations.add(notNull);
-        operations.add(groupAndAddToSet);
-        operations.add(projectAndCount);
-        operations.add(sort);
-        if (skipStep != null) {
-            operations.add(skipStep);
+        if (values) {
+            project.append("v", new Document()
+                    .append("start", "$" + DocumentToVariantConverter.START_FIELD)
+                    .append("end", "$" + DocumentToVariantConverter.END_FIELD)
+                    .append("chromosome", "$" + DocumentToVariantConverter.CHROMOSOME_FIELD)
+                    .append("alternate", "$" + DocumentToVariantConverter.ALTERNATE_FIELD)
+                    .append("reference", "$" + DocumentToVariantConverter.REFERENCE_FIELD)
+                    .append("ids", "$" + DocumentToVariantConverter.IDS_FIELD));
         }
-        operations.add(limitStep);
-        logger.debug("db." + collectionName + ".aggregate( " + operations + " )");
-        DataResult<Document> queryResult = variantsCollection.aggregate(operations, options);
-
-//            List<Map<String, Object>> results = new ArrayList<>(queryResult.getResults().size());
-//            results.addAll(queryResult.getResults().stream().map(dbObject -> new ObjectMap("id", dbObject.get("_id")).append("count",
-// dbObject.get("count"))).collect(Collectors.toList()));
+        stages.add(new Document("$project", project));
+        stages.addAll(arrayUnwinds);
+        stages.add(new Document("$match", notNull));
+
+        Document groupByVariant = new Document("_id", new Document("g", groupId).append("id", "$_id"));
+        Document groupByFields = new Document("_id", "$_id.g").append("count", new Document("$sum", 1));
+        if (values) {
+            groupByVariant.append("v", new Document("$first", "$v"));
+            groupByFields.append("values", new Document("$push", "$v"));
+        }
+        stages.add(new Document("$group", groupByVariant));
+        stages.add(new Document("$group", groupByFields));
+        return stages;
+    }
 
-        return queryResult;
+    private Map<Object, Document> groupByPartition(List<Bson> operations, List<String> fields, int maxGroups, long timeout) {
+        logger.debug("db.{}.aggregate( {} )", collectionName, operations);
+        AggregateIterable<Document> iterable = variantsCollection.nativeQuery()
+                .aggregate(operations, new QueryOptions())
+                .allowDiskUse(true)
+                .batchSize(1000);
+        if (timeout > 0) {
+            iterable.maxTime(timeout, TimeUnit.MILLISECONDS);
+        }
+        Map<Object, Document> groups = new HashMap<>();
+        try (MongoCursor<Document> cursor = iterable.iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                Document groupId = document.get("_id", Document.class);
+                Object id;
+                if (fields.size() == 1) {
+                    id = groupId.get("f0");
+                } else {
+                    Document multiFieldId = new Document();
+                    for (int i = 0; i < fields.size(); i++) {
+                        multiFieldId.append(fields.get(i), groupId.get("f" + i));
+                    }
+                    id = multiFieldId;
+                }
+                Document group = new Document("id", id);
+                if (document.containsKey("values")) {
+                    group.append("values", document.get("values"));
+                }
+                group.append("count", document.getInteger("count"));
+                groups.put(id, group);
+                checkMaxGroups(groups.size(), maxGroups);
+            }
+        }
+        return groups;
     }
 
-    @Override
-    public DataResult groupBy(Query query, List<String> fields, QueryOptions options) {
-        String warningMsg = "Unimplemented VariantMongoDBAdaptor::groupBy list of fields. Using field[0] : '" + fields.get(0) + "'";
-        logger.warn(warningMsg);
-        DataResult queryResult = groupBy(query, fields.get(0), options);
-        queryResult.setEvents(Collections.singletonList(new Event(Event.Type.WARNING, warningMsg)));
-        return queryResult;
+    private static void checkMaxGroups(int numGroups, int maxGroups) {
+        if (maxGroups > 0 && numGroups > maxGroups) {
+            throw new VariantQueryException("Too many groups. Found more than " + maxGroups + " groups. Use a more restrictive "
+                    + "query, or increase the value of " + GROUP_BY_MAX_GROUPS.key());
+        }
     }
 
     @Override
@@ -960,7 +1156,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             // )
 
             if (!cohorts.isEmpty()) {
-                String id = variantConverter.buildStorageId(new Variant(wrapper.getChromosome(), wrapper.getStart(), wrapper.getEnd(),
+                Object id = variantConverter.buildStorageId(new Variant(wrapper.getChromosome(), wrapper.getStart(), wrapper.getEnd(),
                         wrapper.getReference(), wrapper.getAlternate()).setSv(wrapper.getSv()));
 
                 Document find = new Document("_id", id);
@@ -1031,7 +1227,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         StopWatch watch = StopWatch.createStarted();
         DocumentToVariantConverter variantConverter = getDocumentToVariantConverter(new Query(), queryOptions);
         for (VariantAnnotation variantAnnotation : variantAnnotations) {
-            String id;
+            Object id;
             if (variantAnnotation.getAdditionalAttributes() != null
                     && variantAnnotation.getAdditionalAttributes().containsKey(GROUP_NAME.key())) {
                 String variantString = variantAnnotation.getAdditionalAttributes()
@@ -1079,6 +1275,10 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
     @Override
     public void close() throws IOException {
+        ExecutorService groupByExecutor = this.groupByExecutor.getAndSet(null);
+        if (groupByExecutor != null) {
+            groupByExecutor.shutdownNow();
+        }
         if (closeConnection) {
             mongoManager.close();
         }
@@ -1119,7 +1319,8 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             annotationIds = Collections.emptyMap();
         }
         return new DocumentToVariantConverter(studyEntryConverter,
-                new DocumentToVariantStatsConverter(metadataManager), returnedStudies, annotationIds);
+                new DocumentToVariantStatsConverter(metadataManager), returnedStudies, annotationIds)
+                .setIdFormat(getIdFormat());
     }
 
     public void createIndexes(QueryOptions options) {
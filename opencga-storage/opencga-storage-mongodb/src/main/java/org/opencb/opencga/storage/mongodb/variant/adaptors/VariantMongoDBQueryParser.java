@@ -48,6 +48,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -56,6 +57,7 @@ import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.SEAR
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
 import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.DEFAULT_GENOTYPE;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter.INDEX_FIELD;
 
 /**
@@ -67,13 +69,19 @@ public class VariantMongoDBQueryParser {
 
     public static final String OVERLAPPED_FILES_ONLY = "overlappedFilesOnly";
     public static final VariantStringIdConverter STRING_ID_CONVERTER = new VariantStringIdConverter();
+    public static final VariantBinaryIdConverter BINARY_ID_CONVERTER = new VariantBinaryIdConverter();
     protected static Logger logger = LoggerFactory.getLogger(VariantMongoDBQueryParser.class);
     private final VariantStorageMetadataManager metadataManager;
+    private final Supplier<VariantIdFormat> idFormat;
     //    private final CellBaseUtils cellBaseUtils;
 
     public VariantMongoDBQueryParser(VariantStorageMetadataManager variantStorageMetadataManager) {
-        this.metadataManager = variantStorageMetadataManager;
+        this(variantStorageMetadataManager, () -> VariantIdFormat.STRING);
+    }
 
+    public VariantMongoDBQueryParser(VariantStorageMetadataManager variantStorageMetadataManager, Supplier<VariantIdFormat> idFormat) {
+        this.metadataManager = variantStorageMetadataManager;
+        this.idFormat = idFormat;
     }
 
     protected Document parseQuery(final Query originalQuery) {
@@ -113,9 +121,10 @@ public class VariantMongoDBQueryParser {
 
             if (!variantQueryXref.getVariants().isEmpty()) {
                 nonGeneRegionFilter = true;
-                List<String> mongoIds = new ArrayList<>(variantQueryXref.getVariants().size());
+                boolean binaryIds = idFormat.get() == VariantIdFormat.BINARY;
+                List<Object> mongoIds = new ArrayList<>(variantQueryXref.getVariants().size());
                 for (Variant variant : variantQueryXref.getVariants()) {
-                    mongoIds.add(STRING_ID_CONVERTER.buildId(variant));
+                    mongoIds.add(binaryIds ? BINARY_ID_CONVERTER.buildId(variant) : STRING_ID_CONVERTER.buildId(variant));
                 }
                 if (mongoIds.size() == 1) {
                     builder.or(new QueryBuilder().and("_id").is(mongoIds.get(0)).get());
@@ -679,6 +688,12 @@ public class VariantMongoDBQueryParser {
             Set<List<Integer>> fileIdGroupsFromSamples = Collections.emptySet();
             Set<Integer> fileIdsFromSamples = Collections.emptySet();
             if (!genotypesFilter.isEmpty()) {
+                if (defaultStudy != null && DocumentToSamplesConverter.isGenotypesColumnar(defaultStudy)) {
+                    throw VariantQueryException.unsupportedVariantQueryFilter(isValidParam(query, GENOTYPE) ? GENOTYPE : SAMPLE,
+                            MongoDBVariantStorageEngine.STORAGE_ENGINE_ID,
+                            "Genotypes of study '" + defaultStudy.getName() + "' are stored with "
+                                    + GENOTYPES_COLUMNAR.key() + "=true");
+                }
                 fileIdGroupsFromSamples = new HashSet<>();
                 fileIdsFromSamples = new HashSet<>();
 
@@ -1134,6 +1149,10 @@ public class VariantMongoDBQueryParser {
                     if (format.equals(GT)) {
                         projection.put(DocumentToVariantConverter.STUDIES_FIELD + '.'
                                 + DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD, 1);
+                        projection.put(DocumentToVariantConverter.STUDIES_FIELD + '.'
+                                + DocumentToStudyVariantEntryConverter.FILES_FIELD + '.'
+                                + DocumentToStudyVariantEntryConverter.SAMPLE_DATA_FIELD + '.'
+                                + DocumentToSamplesConverter.GENOTYPES_COLUMN_FIELD, 1);
                     } else {
                         projection.put(DocumentToVariantConverter.STUDIES_FIELD + '.'
                                 + DocumentToStudyVariantEntryConverter.FILES_FIELD + '.'
@@ -1690,13 +1709,23 @@ public class VariantMongoDBQueryParser {
 //                    regionObject.put(DocumentToVariantConverter.CHROMOSOME_FIELD, region.getChromosome());
 //                }
 
-                int end = region.getEnd();
-                if (end < Integer.MAX_VALUE) { // Avoid overflow
-                    end++;
+                if (idFormat.get() == VariantIdFormat.BINARY) {
+                    regionObject.put("_id", new Document()
+                            .append("$gte", VariantBinaryIdConverter.buildId(region.getChromosome(), region.getStart()))
+                            .append("$lt", VariantBinaryIdConverter.buildId(region.getChromosome(), region.getEnd() + 1L)));
+                    if (VariantBinaryIdConverter.isHashedChromosome(region.getChromosome())) {
+                        // Discard variants from other chromosomes with the same hash
+                        regionObject.put(DocumentToVariantConverter.CHROMOSOME_FIELD, region.getChromosome());
+                    }
+                } else {
+                    int end = region.getEnd();
+                    if (end < Integer.MAX_VALUE) { // Avoid overflow
+                        end++;
+                    }
+                    regionObject.put("_id", new Document()
+                            .append("$gte", VariantStringIdConverter.buildId(region.getChromosome(), region.getStart()))
+                            .append("$lt", VariantStringIdConverter.buildId(region.getChromosome(), end)));
                 }
-                regionObject.put("_id", new Document()
-                        .append("$gte", VariantStringIdConverter.buildId(region.getChromosome(), region.getStart()))
-                        .append("$lt", VariantStringIdConverter.buildId(region.getChromosome(), end)));
 
                 objects[i] = regionObject;
                 i++;
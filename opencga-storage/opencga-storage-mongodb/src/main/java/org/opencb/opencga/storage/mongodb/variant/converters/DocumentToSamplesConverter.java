@@ -51,6 +51,10 @@ import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOp
 public class DocumentToSamplesConverter extends AbstractDocumentConverter {
 
     public static final String UNKNOWN_FIELD = ".";
+    /**
+     * Packed genotypes within the sample data of each file. See {@link MongoDBVariantStorageOptions#GENOTYPES_COLUMNAR}.
+     */
+    public static final String GENOTYPES_COLUMN_FIELD = "_gt";
 
     private final Map<Integer, StudyMetadata> studyMetadatas;
     private final Map<Integer, BiMap<String, Integer>> __studySamplesId; //Inverse map from "sampleIds". Do not use directly, can be null
@@ -172,7 +176,10 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         BiMap<String, Integer> sampleIds = getIndexedSamplesIdMap(studyId);
         final LinkedHashMap<String, Integer> samplesPositionToReturn = getSamplesPosition(studyMetadata);
 
-        boolean excludeGenotypes = !object.containsKey(DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD)
+        boolean columnar = isGenotypesColumnar(studyMetadata);
+        boolean excludeGenotypes = (columnar
+                ? !containsGenotypesColumn(object)
+                : !object.containsKey(DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD))
                 || studyMetadata.getAttributes().getBoolean(VariantStorageOptions.EXCLUDE_GENOTYPES.key(),
                 VariantStorageOptions.EXCLUDE_GENOTYPES.defaultValue());
         boolean compressExtraParams = studyMetadata.getAttributes()
@@ -253,7 +260,22 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         // "0|1" : [ 41, 311, 342, 358, 881, 898, 903 ]
         // genotypes[41], genotypes[311], etc, will be set to "0|1"
         Map<Integer, String> idSamples = getIndexedSamplesIdMap(studyId).inverse();
-        if (!excludeGenotypes) {
+        if (!excludeGenotypes && columnar) {
+            // Only the samples with a non default genotype are decoded
+            for (Map.Entry<Integer, Document> entry : files.entrySet()) {
+                Document sampleData = entry.getValue().get(DocumentToStudyVariantEntryConverter.SAMPLE_DATA_FIELD, Document.class);
+                if (sampleData == null || !sampleData.containsKey(GENOTYPES_COLUMN_FIELD)) {
+                    continue;
+                }
+                List<Integer> samplesInFile = getSamplesInFile(studyId, Math.abs(entry.getKey()));
+                GenotypeColumnCodec.decode(sampleData.get(GENOTYPES_COLUMN_FIELD, Binary.class).getData(), (samplePosition, genotype) -> {
+                    String sampleName = idSamples.get(samplesInFile.get(samplePosition));
+                    if (sampleName != null) {
+                        samplesData.get(samplesPositionToReturn.get(sampleName)).set(0, genotype);
+                    }
+                });
+            }
+        } else if (!excludeGenotypes) {
             Document mongoGenotypes = (Document) object.get(DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD);
             for (Map.Entry<String, Object> dbo : mongoGenotypes.entrySet()) {
                 final String genotype;
@@ -393,6 +415,7 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
                     if (sampleData != null) {
                         extraFieldsSet.addAll(sampleData.keySet());
                     }
+                    extraFieldsSet.remove(GENOTYPES_COLUMN_FIELD);
                 }
             }
             extraFields = new ArrayList<>(extraFieldsSet.size());
@@ -492,7 +515,20 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         }
 
         if (!excludeGenotypes) {
-            mongoSamples.append(DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD, mongoGenotypes);
+            if (isGenotypesColumnar(studyMetadata)) {
+                // Genotypes of the samples of this file, in the order of the file
+                List<String> genotypes = new ArrayList<>(samplesInFile.size());
+                for (String sampleName : samplesInFile) {
+                    Integer samplePosition = studyEntry.getSamplesPosition().get(sampleName);
+                    String genotype = samplePosition == null || gtIdx == null
+                            ? null
+                            : studyEntry.getSamplesData().get(samplePosition).get(gtIdx);
+                    genotypes.add(genotype == null ? "." : genotype);
+                }
+                otherFields.append(GENOTYPES_COLUMN_FIELD, GenotypeColumnCodec.encode(genotypes, defaultGenotype));
+            } else {
+                mongoSamples.append(DocumentToStudyVariantEntryConverter.GENOTYPES_FIELD, mongoGenotypes);
+            }
         }
 
 
@@ -576,6 +612,23 @@ public class DocumentToSamplesConverter extends AbstractDocumentConverter {
         return mongoSamples;
     }
 
+    public static boolean isGenotypesColumnar(StudyMetadata studyMetadata) {
+        return studyMetadata.getAttributes().getBoolean(MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR.key(),
+                MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR.defaultValue());
+    }
+
+    private boolean containsGenotypesColumn(Document object) {
+        if (object.containsKey(DocumentToStudyVariantEntryConverter.FILES_FIELD)) {
+            for (Document file : getList(object, DocumentToStudyVariantEntryConverter.FILES_FIELD)) {
+                Document sampleData = file.get(DocumentToStudyVariantEntryConverter.SAMPLE_DATA_FIELD, Document.class);
+                if (sampleData != null && sampleData.containsKey(GENOTYPES_COLUMN_FIELD)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public void setIncludeSamples(Map<Integer, List<Integer>> includeSamples) {
         this.includeSamples = includeSamples == null ? null : new HashMap<>(includeSamples.size());
         if (includeSamples != null) {
@@ -169,6 +169,8 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
     private DocumentToVariantAnnotationConverter variantAnnotationConverter;
     private DocumentToVariantStatsConverter statsConverter;
     private final VariantStringIdConverter idConverter = new VariantStringIdConverter();
+    private final VariantBinaryIdConverter binaryIdConverter = new VariantBinaryIdConverter();
+    private VariantIdFormat idFormat = VariantIdFormat.STRING;
 
     // Add default variant ID if it is missing. Use CHR:POS:REF:ALT
     private boolean addDefaultId;
@@ -464,12 +466,18 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         return mongoVariant;
     }
 
-    public String buildStorageId(Variant v) {
+    public Object buildStorageId(Variant v) {
+        if (idFormat == VariantIdFormat.BINARY) {
+            return binaryIdConverter.buildId(v);
+        }
         return idConverter.buildId(v);
 //        return buildStorageId(v.getChromosome(), v.getStart(), v.getReference(), v.getAlternate());
     }
 
-    public String buildStorageId(String chromosome, int start, String reference, String alternate) {
+    public Object buildStorageId(String chromosome, int start, String reference, String alternate) {
+        if (idFormat == VariantIdFormat.BINARY) {
+            return binaryIdConverter.buildId(chromosome, start, reference, alternate);
+        }
         return idConverter.buildId(chromosome, start, reference, alternate);
 //
 //        StringBuilder builder = new StringBuilder(chromosome);
@@ -497,6 +505,15 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
 //        return builder.toString();
     }
 
+    public VariantIdFormat getIdFormat() {
+        return idFormat;
+    }
+
+    public DocumentToVariantConverter setIdFormat(VariantIdFormat idFormat) {
+        this.idFormat = idFormat;
+        return this;
+    }
+
     public static List<String> toShortFieldName(VariantField field) {
         return FIELDS_MAP.get(field);
     }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Packs the genotypes of the samples of one file into a byte array, indexed by the position of the sample in the file.
+ * Alternative to the map of genotypes to sample ids, see {@link MongoDBVariantStorageOptions#GENOTYPES_COLUMNAR}.
+ *
+ * Format, where all the integers are unsigned varints:
+ * LAYOUT(1) NUM_SAMPLES NUM_GENOTYPES (LENGTH UTF8_GENOTYPE)* CODES
+ *
+ * Where the dictionary of genotypes does not contain the default genotypes. Code 0 is the default genotype,
+ * and code N is the Nth genotype of the dictionary.
+ * Where CODES, for the layout {@link #RLE}, is a list of pairs (NUM_DEFAULT CODE), with the number of samples
+ * with the default genotype before each sample with a non default genotype. Trailing default genotypes are not written.
+ * For the layout {@link #DENSE}, it contains one code per sample.
+ * The encoder writes the shortest of both layouts.
+ */
+public final class GenotypeColumnCodec {
+
+    public static final byte RLE = 1;
+    public static final byte DENSE = 2;
+
+    /**
+     * Consumer of the non default genotypes of a column.
+     */
+    @FunctionalInterface
+    public interface GenotypeConsumer {
+        /**
+         * @param samplePosition    Position of the sample in the file
+         * @param genotype          Genotype of the sample
+         */
+        void accept(int samplePosition, String genotype);
+    }
+
+    private GenotypeColumnCodec() {
+    }
+
+    /**
+     * Encode the genotypes of the samples of a file.
+     *
+     * @param genotypes         Genotype of each sample, in the order of the samples in the file
+     * @param defaultGenotypes  Genotypes not to be written
+     * @return Packed genotypes
+     */
+    public static byte[] encode(List<String> genotypes, Set<String> defaultGenotypes) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] codes = new int[genotypes.size()];
+        int nonDefault = 0;
+        for (int i = 0; i < codes.length; i++) {
+            String genotype = genotypes.get(i);
+            if (!defaultGenotypes.contains(genotype)) {
+                codes[i] = dictionary.computeIfAbsent(genotype, gt -> dictionary.size() + 1);
+                nonDefault++;
+            }
+        }
+
+        ByteArrayOutputStream rle = new ByteArrayOutputStream();
+        writeHeader(rle, RLE, codes.length, dictionary.keySet());
+        writeVarint(rle, nonDefault);
+        int run = 0;
+        for (int code : codes) {
+            if (code == 0) {
+                run++;
+            } else {
+                writeVarint(rle, run);
+                writeVarint(rle, code);
+                run = 0;
+            }
+        }
+        // The dense layout needs at least one byte per sample
+        if (rle.size() <= codes.length) {
+            return rle.toByteArray();
+        }
+
+        ByteArrayOutputStream dense = new ByteArrayOutputStream();
+        writeHeader(dense, DENSE, codes.length, dictionary.keySet());
+        for (int code : codes) {
+            writeVarint(dense, code);
+        }
+        return dense.size() < rle.size() ? dense.toByteArray() : rle.toByteArray();
+    }
+
+    /**
+     * Decode the non default genotypes of a column.
+     *
+     * @param data      Packed genotypes
+     * @param consumer  Consumer of the samples with a non default genotype
+     * @return Number of samples in the column
+     */
+    public static int decode(byte[] data, GenotypeConsumer consumer) {
+        int[] offset = {1};
+        byte layout = data[0];
+        int numSamples = readVarint(data, offset);
+        String[] dictionary = new String[readVarint(data, offset) + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            int length = readVarint(data, offset);
+            dictionary[i] = new String(data, offset[0], length, StandardCharsets.UTF_8);
+            offset[0] += length;
+        }
+        switch (layout) {
+            case RLE:
+                int pairs = readVarint(data, offset);
+                int position = 0;
+                for (int i = 0; i < pairs; i++) {
+                    position += readVarint(data, offset);
+                    consumer.accept(position, dictionary[readVarint(data, offset)]);
+                    position++;
+                }
+                break;
+            case DENSE:
+                for (int i = 0; i < numSamples; i++) {
+                    int code = readVarint(data, offset);
+                    if (code != 0) {
+                        consumer.accept(i, dictionary[code]);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown genotype column layout " + layout);
+        }
+        return numSamples;
+    }
+
+    private static void writeHeader(ByteArrayOutputStream os, byte layout, int numSamples, Collection<String> dictionary) {
+        os.write(layout);
+        writeVarint(os, numSamples);
+        writeVarint(os, dictionary.size());
+        for (String genotype : dictionary) {
+            byte[] bytes = genotype.getBytes(StandardCharsets.UTF_8);
+            writeVarint(os, bytes.length);
+            os.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream os, int value) {
+        while ((value & ~0x7F) != 0) {
+            os.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        os.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[offset[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
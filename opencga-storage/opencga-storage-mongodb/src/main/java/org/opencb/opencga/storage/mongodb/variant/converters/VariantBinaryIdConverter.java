@@ -0,0 +1,278 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.bson.types.Binary;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.StructuralVariation;
+import org.opencb.commons.utils.CryptoUtils;
+
+/**
+ * Creates a sorted binary key for MongoDB. Alternative to {@link VariantStringIdConverter}.
+ *
+ * Format, with a fixed length of {@link #LENGTH} bytes:
+ * CHR(4) POS(4) ALLELES(12)
+ *
+ * Where CHR is a big-endian code of the chromosome. Numeric chromosomes use their number, so they sort numerically,
+ * followed by X, Y and MT. Any other chromosome uses a hash of the name, with the highest bit set.
+ * Where POS is the start of the variant, as a big-endian unsigned integer.
+ * Where ALLELES contains the length of the reference and the alternate, followed by the bases packed in 2 bits,
+ * if both alleles contain only ACGT and have up to {@link #MAX_PACKED_BASES} bases in total.
+ * Otherwise, the first byte is {@link #HASHED_ALLELES}, followed by the beginning of a SHA1 of the alleles.
+ *
+ * MongoDB sorts binary values by length before comparing the content, so all the ids must have the same length
+ * to be able to query by range.
+ */
+public class VariantBinaryIdConverter {
+
+    public static final int LENGTH = 20;
+    public static final int MAX_PACKED_BASES = 40;
+    public static final int HASHED_ALLELES = 0xFF;
+
+    private static final int CHR_OFFSET = 0;
+    private static final int POS_OFFSET = 4;
+    private static final int ALLELES_OFFSET = 8;
+    private static final int BASES_OFFSET = ALLELES_OFFSET + 2;
+
+    private static final int MAX_NUMERIC_CHROMOSOME = 0xFFFF;
+    private static final int CHR_X = MAX_NUMERIC_CHROMOSOME + 1;
+    private static final int CHR_Y = MAX_NUMERIC_CHROMOSOME + 2;
+    private static final int CHR_MT = MAX_NUMERIC_CHROMOSOME + 3;
+    private static final int HASHED_CHROMOSOME = 0x80000000;
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    public Binary buildId(Variant variant) {
+        return buildId(variant.getChromosome(), variant.getStart(), variant.getReference(), variant.getAlternate(), variant.getSv());
+    }
+
+    public Binary buildId(String chromosome, int start, String reference, String alternate) {
+        return buildId(chromosome, start, reference, alternate, null);
+    }
+
+    private Binary buildId(String chromosome, int start, String reference, String alternate, StructuralVariation sv) {
+        byte[] id = new byte[LENGTH];
+        putInt(id, CHR_OFFSET, chromosomeCode(chromosome));
+        putInt(id, POS_OFFSET, start);
+
+        reference = normalizeAllele(reference);
+        alternate = normalizeAllele(VariantStringIdConverter.buildSVAlternate(alternate, sv));
+        boolean validSV = VariantStringIdConverter.validSV(sv);
+        if (!validSV && reference.length() + alternate.length() <= MAX_PACKED_BASES && isACGT(reference) && isACGT(alternate)) {
+            id[ALLELES_OFFSET] = (byte) reference.length();
+            id[ALLELES_OFFSET + 1] = (byte) alternate.length();
+            int bit = 0;
+            bit = pack(id, reference, bit);
+            pack(id, alternate, bit);
+        } else {
+            StringBuilder sb = new StringBuilder(reference).append(VariantStringIdConverter.SEPARATOR_CHAR).append(alternate);
+            if (validSV) {
+                // Confidence intervals are part of the variant identity, as in the string ids
+                sb.append(VariantStringIdConverter.SEPARATOR_CHAR).append(sv.getCiStartLeft())
+                        .append(VariantStringIdConverter.SEPARATOR_CHAR).append(sv.getCiStartRight())
+                        .append(VariantStringIdConverter.SEPARATOR_CHAR).append(sv.getCiEndLeft())
+                        .append(VariantStringIdConverter.SEPARATOR_CHAR).append(sv.getCiEndRight());
+            }
+            byte[] sha1 = CryptoUtils.encryptSha1(sb.toString());
+            id[ALLELES_OFFSET] = (byte) HASHED_ALLELES;
+            System.arraycopy(sha1, 0, id, ALLELES_OFFSET + 1, LENGTH - ALLELES_OFFSET - 1);
+        }
+        return new Binary(id);
+    }
+
+    /**
+     * Build the lowest id for a given position. Used as bound for range queries.
+     *
+     * @param chromosome    Chromosome
+     * @param start         Position. Can be up to 2^32-1, to build the upper bound of a chromosome.
+     * @return Lowest id for this position
+     */
+    public static Binary buildId(String chromosome, long start) {
+        byte[] id = new byte[LENGTH];
+        putInt(id, CHR_OFFSET, chromosomeCode(chromosome));
+        putInt(id, POS_OFFSET, (int) Math.min(start, 0xFFFFFFFFL));
+        return new Binary(id);
+    }
+
+    /**
+     * Build a variant from the id, and the other fields stored in the document.
+     *
+     * @param id            Binary id
+     * @param chromosome    Chromosome, if stored in the document. Required only if the chromosome is hashed.
+     * @param end           End
+     * @param reference     Reference, as stored in the document
+     * @param alternate     Alternate, as stored in the document, including the SV insertion sequences.
+     * @param sv            StructuralVariation confidence intervals, if any
+     * @return Variant
+     */
+    public Variant buildVariant(Object id, String chromosome, int end, String reference, String alternate, StructuralVariation sv) {
+        byte[] bytes = getBytes(id);
+        if (chromosome == null) {
+            chromosome = getChromosome(bytes);
+            if (chromosome == null) {
+                throw new IllegalArgumentException("Missing chromosome for variant with hashed chromosome code");
+            }
+        }
+        return VariantStringIdConverter.buildVariant(chromosome, getStart(bytes), end, reference, alternate, sv);
+    }
+
+    public static byte[] getBytes(Object id) {
+        if (id instanceof Binary) {
+            return ((Binary) id).getData();
+        } else if (id instanceof byte[]) {
+            return (byte[]) id;
+        } else {
+            throw new IllegalArgumentException("Expected binary variant id. Got " + (id == null ? null : id.getClass()));
+        }
+    }
+
+    /**
+     * @param id    Binary id
+     * @return Chromosome, or null if the chromosome is hashed
+     */
+    public static String getChromosome(byte[] id) {
+        int code = getInt(id, CHR_OFFSET);
+        if ((code & HASHED_CHROMOSOME) != 0) {
+            return null;
+        }
+        switch (code) {
+            case CHR_X:
+                return "X";
+            case CHR_Y:
+                return "Y";
+            case CHR_MT:
+                return "MT";
+            default:
+                return Integer.toString(code);
+        }
+    }
+
+    public static boolean isHashedChromosome(String chromosome) {
+        return (chromosomeCode(chromosome) & HASHED_CHROMOSOME) != 0;
+    }
+
+    public static int getStart(byte[] id) {
+        return getInt(id, POS_OFFSET);
+    }
+
+    /**
+     * @param id    Binary id
+     * @return Reference, or null if the alleles are hashed
+     */
+    public static String getReference(byte[] id) {
+        if ((id[ALLELES_OFFSET] & 0xFF) == HASHED_ALLELES) {
+            return null;
+        }
+        return unpack(id, 0, id[ALLELES_OFFSET]);
+    }
+
+    /**
+     * @param id    Binary id
+     * @return Alternate, or null if the alleles are hashed
+     */
+    public static String getAlternate(byte[] id) {
+        if ((id[ALLELES_OFFSET] & 0xFF) == HASHED_ALLELES) {
+            return null;
+        }
+        return unpack(id, id[ALLELES_OFFSET], id[ALLELES_OFFSET + 1]);
+    }
+
+    private static int chromosomeCode(String chromosome) {
+        int length = chromosome.length();
+        if (length > 0 && length <= 5 && chromosome.charAt(0) != '0') {
+            int code = 0;
+            for (int i = 0; i < length; i++) {
+                int digit = chromosome.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    code = -1;
+                    break;
+                }
+                code = code * 10 + digit;
+            }
+            if (code > 0 && code <= MAX_NUMERIC_CHROMOSOME) {
+                return code;
+            }
+        }
+        switch (chromosome) {
+            case "X":
+                return CHR_X;
+            case "Y":
+                return CHR_Y;
+            case "MT":
+                return CHR_MT;
+            default:
+                return HASHED_CHROMOSOME | (chromosome.hashCode() & 0x7FFFFFFF);
+        }
+    }
+
+    private static String normalizeAllele(String allele) {
+        return allele.equals("-") ? "" : allele;
+    }
+
+    private static boolean isACGT(String allele) {
+        for (int i = 0; i < allele.length(); i++) {
+            if (baseCode(allele.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int baseCode(char base) {
+        switch (base) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    private static int pack(byte[] id, String allele, int bit) {
+        for (int i = 0; i < allele.length(); i++, bit += 2) {
+            id[BASES_OFFSET + bit / 8] |= baseCode(allele.charAt(i)) << (6 - bit % 8);
+        }
+        return bit;
+    }
+
+    private static String unpack(byte[] id, int from, int length) {
+        char[] bases = new char[length];
+        for (int i = 0; i < length; i++) {
+            int bit = (from + i) * 2;
+            bases[i] = BASES[(id[BASES_OFFSET + bit / 8] >> (6 - bit % 8)) & 0x3];
+        }
+        return new String(bases);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24
+                | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8
+                | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,63 @@
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bson.types.Binary;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+
+/**
+ * Format of the "_id" of the documents from the variants and stage collections.
+ *
+ * All the documents from a project use the same format, stored in the {@link ProjectMetadata} attributes.
+ * Projects without this attribute use the {@link #STRING} format.
+ *
+ * @see VariantStringIdConverter
+ * @see VariantBinaryIdConverter
+ */
+public enum VariantIdFormat {
+    /**
+     * Sortable string "CHR:POS:REF:ALT".
+     */
+    STRING,
+    /**
+     * Fixed length binary id, with chromosome code, position and packed alleles.
+     */
+    BINARY;
+
+    public static final String ATTRIBUTE = MongoDBVariantStorageOptions.VARIANT_ID_FORMAT.key();
+
+    public static VariantIdFormat parse(String format) {
+        if (StringUtils.isEmpty(format)) {
+            return STRING;
+        }
+        try {
+            return valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown variant id format '" + format + "'. Expected one of "
+                    + StringUtils.join(values(), ", ").toLowerCase(), e);
+        }
+    }
+
+    public static VariantIdFormat from(ProjectMetadata projectMetadata) {
+        if (projectMetadata == null || projectMetadata.getAttributes() == null) {
+            return STRING;
+        }
+        return parse(projectMetadata.getAttributes().getString(ATTRIBUTE));
+    }
+
+    /**
+     * Detect the format of a stored id.
+     *
+     * @param id Value of the "_id" field
+     * @return Format of the id
+     */
+    public static VariantIdFormat of(Object id) {
+        if (id instanceof Binary || id instanceof byte[]) {
+            return BINARY;
+        } else if (id instanceof String) {
+            return STRING;
+        } else {
+            throw new IllegalArgumentException("Unknown variant id type " + (id == null ? null : id.getClass()));
+        }
+    }
+}
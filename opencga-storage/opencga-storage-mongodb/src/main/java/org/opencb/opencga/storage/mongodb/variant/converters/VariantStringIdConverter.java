@@ -59,10 +59,22 @@ public class VariantStringIdConverter {
     protected static final char INS_SEQ_SEPARATOR = '_';
 
     public Variant buildVariant(String variantId, int end, String reference, String alternate) {
-        String[] split = variantId.split(SEPARATOR, -1);
-        String chr = split[CHR].trim();
-        int start = Integer.parseInt(split[POS].trim());
-        StructuralVariation sv = buildSv(split, reference, alternate);
+        // Avoid splitting the whole id. Only structural variants with confidence intervals have more than 4 fields.
+        int chrEnd = variantId.indexOf(SEPARATOR_CHAR);
+        int posEnd = variantId.indexOf(SEPARATOR_CHAR, chrEnd + 1);
+        if (chrEnd < 0 || posEnd < 0) {
+            throw new IllegalArgumentException("Malformed variant id '" + variantId + "'");
+        }
+        StructuralVariation sv = null;
+        if (countSeparators(variantId, chrEnd) == SV_SPLIT_LENGTH - 1) {
+            sv = buildSv(variantId.split(SEPARATOR, -1), reference, alternate);
+        }
+        String chr = variantId.substring(0, chrEnd).trim();
+        int start = parseInt(variantId, chrEnd + 1, posEnd);
+        return buildVariant(chr, start, end, reference, alternate, sv);
+    }
+
+    static Variant buildVariant(String chr, int start, int end, String reference, String alternate, StructuralVariation sv) {
         if (StringUtils.contains(alternate, INS_SEQ_SEPARATOR)) {
             String[] alternateSplit = StringUtils.splitPreserveAllTokens(alternate, INS_SEQ_SEPARATOR);
             alternate = alternateSplit[0];
@@ -82,17 +94,46 @@ public class VariantStringIdConverter {
         return variant;
     }
 
+    public static StructuralVariation buildSv(Integer ciStartLeft, Integer ciStartRight, Integer ciEndLeft, Integer ciEndRight,
+                                              String reference, String alternate) {
+        Breakend breakend = VariantBuilder.parseBreakend(reference, alternate);
+        return new StructuralVariation(ciStartLeft, ciStartRight, ciEndLeft, ciEndRight,
+                VariantBuilder.getCopyNumberFromAlternate(alternate),
+                null, null, null, breakend);
+    }
+
+    private static int countSeparators(String variantId, int from) {
+        int count = 0;
+        for (int i = from; i >= 0; i = variantId.indexOf(SEPARATOR_CHAR, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int parseInt(String value, int from, int to) {
+        int i = from;
+        while (i < to && value.charAt(i) == ' ') {
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("Empty position in variant id '" + value + "'");
+        }
+        int result = 0;
+        for (; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid position in variant id '" + value + "'");
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
     private StructuralVariation buildSv(String[] split, String reference, String alternate) {
         if (split.length == SV_SPLIT_LENGTH) {
             try {
-                Breakend breakend = VariantBuilder.parseBreakend(reference, alternate);
-                return new  StructuralVariation(
-                        getInt(split, CI_POS_L),
-                        getInt(split, CI_POS_R),
-                        getInt(split, CI_END_L),
-                        getInt(split, CI_END_R),
-                        VariantBuilder.getCopyNumberFromAlternate(alternate),
-                        null, null, null, breakend);
+                return buildSv(getInt(split, CI_POS_L), getInt(split, CI_POS_R), getInt(split, CI_END_L), getInt(split, CI_END_R),
+                        reference, alternate);
             } catch (RuntimeException e) {
                 for (String s : split) {
                     // If any of the splits is non printable, the variantId had 4 colons in the SHA1
@@ -166,7 +207,7 @@ public class VariantStringIdConverter {
         return stringBuilder.toString();
     }
 
-    public String buildSVAlternate(String alternate, StructuralVariation sv) {
+    public static String buildSVAlternate(String alternate, StructuralVariation sv) {
         if (sv != null) {
             if (StringUtils.isNotEmpty(sv.getLeftSvInsSeq()) || StringUtils.isNotEmpty(sv.getRightSvInsSeq())) {
                 alternate = alternate + INS_SEQ_SEPARATOR + sv.getLeftSvInsSeq() + INS_SEQ_SEPARATOR + sv.getRightSvInsSeq();
@@ -175,7 +216,7 @@ public class VariantStringIdConverter {
         return alternate;
     }
 
-    private void reduce(StringBuilder stringBuilder, String allele, StructuralVariation sv) {
+    private static void reduce(StringBuilder stringBuilder, String allele, StructuralVariation sv) {
         // FIXME: Use the same method to reduce long alleles from all variants
         if (!validSV(sv)) {
             stringBuilder.append(new String(CryptoUtils.encryptSha1(allele)));
@@ -193,7 +234,7 @@ public class VariantStringIdConverter {
      * @param sv StructuralVariation object
      * @return true if it should be serialized
      */
-    private boolean validSV(StructuralVariation sv) {
+    static boolean validSV(StructuralVariation sv) {
         if (sv == null) {
             return false;
         } else {
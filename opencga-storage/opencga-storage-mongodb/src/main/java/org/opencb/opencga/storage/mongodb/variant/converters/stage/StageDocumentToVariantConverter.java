@@ -18,9 +18,15 @@ package org.opencb.opencga.storage.mongodb.variant.converters.stage;
 
 import org.bson.Document;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.StructuralVariation;
 import org.opencb.commons.datastore.core.ComplexTypeConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantBinaryIdConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantIdFormat;
 import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Created by jacobo on 18/05/17.
  */
@@ -32,25 +38,70 @@ public class StageDocumentToVariantConverter implements ComplexTypeConverter<Var
     public static final String ALT_FIELD = "alt";
     public static final String STUDY_FILE_FIELD = "_i";
     public static final String SECONDARY_ALTERNATES_FIELD = "alts";
-    private VariantStringIdConverter idConverter = new VariantStringIdConverter();
+    // Only for binary ids
+    public static final String CHROMOSOME_FIELD = "chr";
+    public static final String SV_CI_FIELD = "ci";
+    private final VariantStringIdConverter idConverter = new VariantStringIdConverter();
+    private final VariantBinaryIdConverter binaryIdConverter = new VariantBinaryIdConverter();
+    private final VariantIdFormat idFormat;
+
+    public StageDocumentToVariantConverter() {
+        this(VariantIdFormat.STRING);
+    }
+
+    public StageDocumentToVariantConverter(VariantIdFormat idFormat) {
+        this.idFormat = idFormat;
+    }
 
     @Override
     public Variant convertToDataModelType(Document object) {
-        return idConverter.buildVariant(object.getString(ID_FIELD),
-                object.getInteger(END_FIELD),
-                object.getString(REF_FIELD),
-                object.getString(ALT_FIELD));
+        Object id = object.get(ID_FIELD);
+        if (id instanceof String) {
+            return idConverter.buildVariant((String) id,
+                    object.getInteger(END_FIELD),
+                    object.getString(REF_FIELD),
+                    object.getString(ALT_FIELD));
+        } else {
+            String alternate = object.getString(ALT_FIELD);
+            StructuralVariation sv = null;
+            List<?> ci = object.get(SV_CI_FIELD, List.class);
+            if (ci != null) {
+                sv = VariantStringIdConverter.buildSv((Integer) ci.get(0), (Integer) ci.get(1), (Integer) ci.get(2), (Integer) ci.get(3),
+                        object.getString(REF_FIELD), alternate);
+            }
+            return binaryIdConverter.buildVariant(id,
+                    object.getString(CHROMOSOME_FIELD),
+                    object.getInteger(END_FIELD),
+                    object.getString(REF_FIELD),
+                    alternate, sv);
+        }
     }
 
     @Override
     public Document convertToStorageType(Variant variant) {
-        return new Document(ID_FIELD, idConverter.buildId(variant))
+        Document document;
+        if (idFormat == VariantIdFormat.BINARY) {
+            document = new Document(ID_FIELD, binaryIdConverter.buildId(variant));
+            if (VariantBinaryIdConverter.isHashedChromosome(variant.getChromosome())) {
+                document.append(CHROMOSOME_FIELD, variant.getChromosome());
+            }
+            StructuralVariation sv = variant.getSv();
+            if (sv != null && (sv.getCiStartLeft() != null || sv.getCiStartRight() != null
+                    || sv.getCiEndLeft() != null || sv.getCiEndRight() != null)) {
+                document.append(SV_CI_FIELD, Arrays.asList(sv.getCiStartLeft(), sv.getCiStartRight(),
+                        sv.getCiEndLeft(), sv.getCiEndRight()));
+            }
+        } else {
+            document = new Document(ID_FIELD, idConverter.buildId(variant));
+        }
+        return document
                 .append(REF_FIELD, variant.getReference())
                 // Add left and right SvInsSeq to the alternate
-                .append(ALT_FIELD, idConverter.buildSVAlternate(variant.getAlternate(), variant.getSv()))
+                .append(ALT_FIELD, VariantStringIdConverter.buildSVAlternate(variant.getAlternate(), variant.getSv()))
                 .append(END_FIELD, variant.getEnd());
     }
 
-
-
+    public VariantIdFormat getIdFormat() {
+        return idFormat;
+    }
 }
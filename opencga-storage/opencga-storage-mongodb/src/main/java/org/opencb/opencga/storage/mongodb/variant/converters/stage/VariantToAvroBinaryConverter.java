@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.storage.mongodb.variant.converters.stage;
 
+import org.apache.avro.Schema;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
@@ -30,7 +31,10 @@ import org.opencb.commons.datastore.core.ComplexTypeConverter;
 import org.opencb.commons.utils.CompressionUtils;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * Created on 27/06/16.
@@ -39,20 +43,96 @@ import java.util.zip.DataFormatException;
  */
 public class VariantToAvroBinaryConverter implements ComplexTypeConverter<Variant, Binary> {
 
+    public static final String ANNOTATION_FIELD = "annotation";
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
     private SpecificDatumWriter<VariantAvro> writer = new SpecificDatumWriter<>(VariantAvro.getClassSchema());
-    private SpecificDatumReader<VariantAvro> reader = new SpecificDatumReader<>(VariantAvro.getClassSchema());
+    private final SpecificDatumReader<VariantAvro> reader;
+    // Decompression buffers and decoders are reused between calls. The converter is shared between threads.
+    private final ThreadLocal<DecoderContext> decoderContext = ThreadLocal.withInitial(DecoderContext::new);
+
+    public VariantToAvroBinaryConverter() {
+        this(true);
+    }
+
+    /**
+     * @param includeAnnotation Decode the annotation of the variants. If false, the annotation is skipped without being
+     *                          deserialized, and the returned variants have no annotation.
+     */
+    public VariantToAvroBinaryConverter(boolean includeAnnotation) {
+        Schema schema = VariantAvro.getClassSchema();
+        if (includeAnnotation) {
+            reader = new SpecificDatumReader<>(schema);
+        } else {
+            reader = new SpecificDatumReader<>(schema, projectionWithoutTrailingField(schema, ANNOTATION_FIELD));
+        }
+    }
+
+    private static class DecoderContext {
+        private final Inflater inflater = new Inflater();
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private BinaryDecoder decoder;
+
+        /**
+         * Decompress the data into the reused buffer.
+         *
+         * @param data  Compressed data
+         * @return      Length of the decompressed data
+         * @throws DataFormatException if the data is not valid
+         */
+        private int inflate(byte[] data) throws DataFormatException {
+            inflater.reset();
+            inflater.setInput(data);
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    byte[] newBuffer = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, newBuffer, 0, length);
+                    buffer = newBuffer;
+                }
+                int read = inflater.inflate(buffer, length, buffer.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Unexpected end of compressed variant");
+                }
+                length += read;
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Build a reader schema without the given field. Avro skips the fields missing in the reader schema.
+     * Only the last field can be removed, as the specific records are filled by the position of the fields in the reader schema.
+     *
+     * @param schema    Record schema
+     * @param fieldName Field to remove
+     * @return          Reader schema, or the same schema if the field is not the last one
+     */
+    private static Schema projectionWithoutTrailingField(Schema schema, String fieldName) {
+        List<Schema.Field> schemaFields = schema.getFields();
+        Schema.Field last = schemaFields.get(schemaFields.size() - 1);
+        if (!last.name().equals(fieldName)) {
+            // Unable to skip this field. Read the whole record
+            return schema;
+        }
+        List<Schema.Field> fields = new ArrayList<>(schemaFields.size() - 1);
+        for (Schema.Field field : schemaFields.subList(0, schemaFields.size() - 1)) {
+            fields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultValue(), field.order()));
+        }
+        Schema projection = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), schema.isError());
+        projection.setFields(fields);
+        return projection;
+    }
 
     @Override
     public Variant convertToDataModelType(Binary object) {
-        BinaryDecoder decoder = null;
+        DecoderContext context = decoderContext.get();
         try {
-            byte[] data = object.getData();
-            data = CompressionUtils.decompress(data);
-            InputStream is = new ByteArrayInputStream(data);
-//                is = new GZIPInputStream(is);
-            decoder = DecoderFactory.get().directBinaryDecoder(is, decoder);
+            int length = context.inflate(object.getData());
+            // Decode directly from the decompression buffer. Decoded strings and collections do not reference the buffer
+            context.decoder = DecoderFactory.get().binaryDecoder(context.buffer, 0, length, context.decoder);
 
-            return new Variant(reader.read(null, decoder));
+            return new Variant(reader.read(null, context.decoder));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (DataFormatException e) {
@@ -27,6 +27,7 @@ import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.biodata.tools.variant.metadata.VariantMetadataManager;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataWriter;
@@ -40,6 +41,7 @@ import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesCo
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantStatsConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantIdFormat;
 
 import java.io.IOException;
 import java.net.URI;
@@ -57,9 +59,11 @@ import java.util.stream.Collectors;
 public class MongoVariantImporter extends VariantImporter {
 
     private final MongoDBCollection variantsCollection;
+    private final VariantMongoDBAdaptor dbAdaptor;
 
     public MongoVariantImporter(VariantMongoDBAdaptor dbAdaptor) {
         super(dbAdaptor);
+        this.dbAdaptor = dbAdaptor;
         this.variantsCollection = dbAdaptor.getVariantsCollection();
     }
 
@@ -79,8 +83,9 @@ public class MongoVariantImporter extends VariantImporter {
         VariantReader variantReader = new VariantAvroReader(input.toAbsolutePath().toFile(), samplesPositions);
 
         ProgressLogger progressLogger = new ProgressLogger("Loaded variants");
+        VariantIdFormat idFormat = dbAdaptor.initIdFormat(new ObjectMap());
         ParallelTaskRunner.Task<Variant, Document> converterTask =
-                new VariantToDocumentConverter(studyConfigurations, metadata, progressLogger);
+                new VariantToDocumentConverter(studyConfigurations, metadata, idFormat, progressLogger);
 
         DataWriter<Document> writer = new MongoDBVariantDocumentDBWriter(variantsCollection);
 
@@ -105,11 +110,12 @@ public class MongoVariantImporter extends VariantImporter {
         private final Map<String, String> fileIdRemap;
         private ProgressLogger progressLogger;
 
-        VariantToDocumentConverter(List<StudyConfiguration> studies, VariantMetadata metadata, ProgressLogger progressLogger) {
+        VariantToDocumentConverter(List<StudyConfiguration> studies, VariantMetadata metadata, VariantIdFormat idFormat,
+                                   ProgressLogger progressLogger) {
             DocumentToSamplesConverter samplesConverter = new DocumentToSamplesConverter(studies);
             DocumentToStudyVariantEntryConverter studyConverter = new DocumentToStudyVariantEntryConverter(false, samplesConverter);
             DocumentToVariantStatsConverter statsConverter = new DocumentToVariantStatsConverter();
-            variantConverter = new DocumentToVariantConverter(studyConverter, statsConverter);
+            variantConverter = new DocumentToVariantConverter(studyConverter, statsConverter).setIdFormat(idFormat);
             this.studiesIdRemap = new HashMap<>();
             this.fileIdRemap = new HashMap<>();
             VariantMetadataManager metadataManager = new VariantMetadataManager().setVariantMetadata(metadata);
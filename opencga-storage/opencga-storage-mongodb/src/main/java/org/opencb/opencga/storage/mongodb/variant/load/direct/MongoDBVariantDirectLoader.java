@@ -29,11 +29,14 @@ public class MongoDBVariantDirectLoader implements DataWriter<MongoDBOperations>
 
     private final MongoDBVariantStageLoader stageLoader;
     private final MongoDBVariantMergeLoader variantsLoader;
+    private final DocumentToVariantConverter variantConverter = new DocumentToVariantConverter();
+    private final StageDocumentToVariantConverter stageConverter;
 
     public MongoDBVariantDirectLoader(VariantMongoDBAdaptor dbAdaptor, final StudyMetadata studyMetadata, int fileId,
                                       boolean resume, ProgressLogger progressLogger) {
         MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
         stageLoader = new MongoDBVariantStageLoader(stageCollection, studyMetadata.getId(), fileId, resume, true);
+        stageConverter = new StageDocumentToVariantConverter(dbAdaptor.getIdFormat());
         variantsLoader = new MongoDBVariantMergeLoader(
                 dbAdaptor.getVariantsCollection(),
                 stageCollection,
@@ -74,8 +77,8 @@ public class MongoDBVariantDirectLoader implements DataWriter<MongoDBOperations>
         LinkedListMultimap<Document, Binary> map = LinkedListMultimap.create();
         for (MongoDBOperations mongoDBOperations : batch) {
             for (Document document : mongoDBOperations.getNewStudy().getVariants()) {
-                Variant variant = new DocumentToVariantConverter().convertToDataModelType(document);
-                Document stageDocument = new StageDocumentToVariantConverter().convertToStorageType(variant);
+                Variant variant = variantConverter.convertToDataModelType(document);
+                Document stageDocument = stageConverter.convertToStorageType(variant);
                 map.put(stageDocument, null);
             }
         }
@@ -25,6 +25,8 @@ import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.ComplexTypeConverter;
 import org.opencb.commons.run.Task;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStoragePipeline;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantIdFormat;
+import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
 
 import java.util.Collections;
 import java.util.List;
@@ -43,15 +45,26 @@ public class MongoDBVariantStageConverterTask implements Task<Variant, ListMulti
     private final ProgressLogger progressLogger;
     private final AtomicLong skippedVariants;
     private ComplexTypeConverter<Variant, Binary> variantConverter;
+    private final StageDocumentToVariantConverter stageConverter;
 
     public MongoDBVariantStageConverterTask(ProgressLogger progressLogger) {
         this(progressLogger, VARIANT_CONVERTER_DEFAULT);
     }
 
+    public MongoDBVariantStageConverterTask(ProgressLogger progressLogger, VariantIdFormat idFormat) {
+        this(progressLogger, VARIANT_CONVERTER_DEFAULT, new StageDocumentToVariantConverter(idFormat));
+    }
+
     public MongoDBVariantStageConverterTask(ProgressLogger progressLogger, ComplexTypeConverter<Variant, Binary> variantConverter) {
+        this(progressLogger, variantConverter, STAGE_TO_VARIANT_CONVERTER);
+    }
+
+    public MongoDBVariantStageConverterTask(ProgressLogger progressLogger, ComplexTypeConverter<Variant, Binary> variantConverter,
+                                            StageDocumentToVariantConverter stageConverter) {
         this.progressLogger = progressLogger;
         skippedVariants = new AtomicLong(0);
         this.variantConverter = variantConverter;
+        this.stageConverter = stageConverter;
     }
 
     @Override
@@ -81,7 +94,7 @@ public class MongoDBVariantStageConverterTask implements Task<Variant, ListMulti
                 continue;
             }
             Binary binary = variantConverter.convertToStorageType(variant);
-            Document id = STAGE_TO_VARIANT_CONVERTER.convertToStorageType(variant);
+            Document id = stageConverter.convertToStorageType(variant);
 
             ids.put(id, binary);
         }
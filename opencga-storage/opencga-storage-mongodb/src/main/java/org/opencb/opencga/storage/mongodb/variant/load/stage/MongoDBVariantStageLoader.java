@@ -107,7 +107,7 @@ public class MongoDBVariantStageLoader implements DataWriter<ListMultimap<Docume
         final long start = System.nanoTime();
 
         MongoDBVariantWriteResult result = new MongoDBVariantWriteResult();
-        Set<String> retryKeys = updateMongo(ids, result, null);
+        Set<Object> retryKeys = updateMongo(ids, result, null);
         if (!retryKeys.isEmpty()) {
             updateMongo(ids, result, retryKeys);
         }
@@ -144,17 +144,17 @@ public class MongoDBVariantStageLoader implements DataWriter<ListMultimap<Docume
      * @return              List of non updated documents.
      * @throws MongoBulkWriteException if the exception was not a DuplicatedKeyException (e:11000)
      */
-    private Set<String> updateMongo(ListMultimap<Document, Binary> values, MongoDBVariantWriteResult result, Set<String> retryIds) {
+    private Set<Object> updateMongo(ListMultimap<Document, Binary> values, MongoDBVariantWriteResult result, Set<Object> retryIds) {
 
-        Set<String> nonInsertedIds = Collections.emptySet();
+        Set<Object> nonInsertedIds = Collections.emptySet();
         if (values.isEmpty()) {
             return nonInsertedIds;
         }
-        List<String> ids = new ArrayList<>(retryIds != null ? retryIds.size() : values.size());
+        List<Object> ids = new ArrayList<>(retryIds != null ? retryIds.size() : values.size());
         List<Bson> queries = new ArrayList<>(retryIds != null ? retryIds.size() : values.size());
         List<Bson> updates = new ArrayList<>(retryIds != null ? retryIds.size() : values.size());
         for (Document id : values.keySet()) {
-            String mongoId = id.getString(StageDocumentToVariantConverter.ID_FIELD);
+            Object mongoId = id.get(StageDocumentToVariantConverter.ID_FIELD);
             if (retryIds == null || retryIds.contains(mongoId)) {
                 ids.add(mongoId);
                 List<Binary> binaryList = values.get(id);
@@ -172,6 +172,15 @@ public class MongoDBVariantStageLoader implements DataWriter<ListMultimap<Docume
                 bsons.add(setOnInsert(StageDocumentToVariantConverter.END_FIELD, id.get(StageDocumentToVariantConverter.END_FIELD)));
                 bsons.add(setOnInsert(StageDocumentToVariantConverter.REF_FIELD, id.get(StageDocumentToVariantConverter.REF_FIELD)));
                 bsons.add(setOnInsert(StageDocumentToVariantConverter.ALT_FIELD, id.get(StageDocumentToVariantConverter.ALT_FIELD)));
+                // Only present with binary ids
+                if (id.containsKey(StageDocumentToVariantConverter.CHROMOSOME_FIELD)) {
+                    bsons.add(setOnInsert(StageDocumentToVariantConverter.CHROMOSOME_FIELD,
+                            id.get(StageDocumentToVariantConverter.CHROMOSOME_FIELD)));
+                }
+                if (id.containsKey(StageDocumentToVariantConverter.SV_CI_FIELD)) {
+                    bsons.add(setOnInsert(StageDocumentToVariantConverter.SV_CI_FIELD,
+                            id.get(StageDocumentToVariantConverter.SV_CI_FIELD)));
+                }
                 updates.add(combine(bsons));
             }
         }
@@ -199,7 +208,7 @@ public class MongoDBVariantStageLoader implements DataWriter<ListMultimap<Docume
             nonInsertedIds = new HashSet<>();
             for (BulkWriteError writeError : e.getWriteErrors()) {
                 if (ErrorCategory.fromErrorCode(writeError.getCode()).equals(ErrorCategory.DUPLICATE_KEY)) { //Dup Key error code
-                    String id = ids.get(writeError.getIndex());
+                    Object id = ids.get(writeError.getIndex());
                     nonInsertedIds.add(id);
                     LOGGER.warn("Catch error : {}. DupKey exception inserting '{}'. Retry!",
                             writeError.toString(), id);
@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.storage.mongodb.variant.load.stage;
 
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Sorts;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -24,7 +25,9 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoPersistentCursor;
 import org.opencb.commons.io.DataReader;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantBinaryIdConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +38,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static com.mongodb.client.model.Filters.*;
-import static org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter.STUDY_FILE_FIELD;
+import static org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter.*;
 
 /**
  * DataReader for Variant stage collection.
@@ -51,6 +54,10 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
     private final int studyId;
     private Collection<Integer> fileIds;
     private final Collection<String> chromosomes;
+    /** First variant id of the partition, inclusive. */
+    private Object fromId;
+    /** First variant id of the next partition, exclusive. */
+    private Object toId;
     private MongoPersistentCursor iterator;
     private Document next = null;   // Pending variant
 
@@ -73,6 +80,82 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         return this;
     }
 
+    /**
+     * Read only a range of the stage collection.
+     *
+     * @param fromId    First variant id, inclusive. Null to read from the beginning
+     * @param toId      Last variant id, exclusive. Null to read until the end
+     * @return this
+     */
+    public MongoDBVariantStageReader setRange(Object fromId, Object toId) {
+        this.fromId = fromId;
+        this.toId = toId;
+        return this;
+    }
+
+    /**
+     * Split the stage collection in contiguous ranges of variants of similar size, to be merged concurrently.
+     *
+     * The boundaries between partitions are placed only between variants that do not overlap, following the same
+     * criteria as {@link #read(int)}, so overlapping variants are always read in the same batch by the same reader.
+     * This requires a full scan of the variant ids from the stage collection.
+     *
+     * @param numPartitions Maximum number of partitions
+     * @param minPartitionSize Minimum number of variants per partition
+     * @return One reader for each partition, with the same configuration as this reader
+     */
+    public List<MongoDBVariantStageReader> split(int numPartitions, long minPartitionSize) {
+        long numVariants = countNumVariants();
+        numPartitions = (int) Math.min(numPartitions, numVariants / Math.max(1, minPartitionSize));
+        if (numPartitions <= 1) {
+            return Collections.singletonList(this);
+        }
+        long partitionSize = (numVariants + numPartitions - 1) / numPartitions;
+
+        List<Object> boundaries = new ArrayList<>(numPartitions - 1);
+        Bson projection = Projections.include(ID_FIELD, END_FIELD, REF_FIELD, ALT_FIELD, CHROMOSOME_FIELD, SV_CI_FIELD);
+        MongoPersistentCursor cursor = new MongoPersistentCursor(stageCollection, getQuery(), projection,
+                new QueryOptions(QueryOptions.SORT, Sorts.ascending(ID_FIELD)));
+        try {
+            long count = 0;
+            String chr = null;
+            int start = 0;
+            int end = 0;
+            while (cursor.hasNext() && boundaries.size() < numPartitions - 1) {
+                Document document = cursor.next();
+                Variant variant = MongoDBVariantStageLoader.STAGE_TO_VARIANT_CONVERTER.convertToDataModelType(document);
+                if (chr != null && variant.overlapWith(chr, start, end, true)) {
+                    start = Math.min(start, variant.getStart());
+                    end = Math.max(end, variant.getEnd());
+                } else {
+                    if (count >= partitionSize) {
+                        boundaries.add(document.get(ID_FIELD));
+                        count = 0;
+                    }
+                    chr = variant.getChromosome();
+                    start = variant.getStart();
+                    end = variant.getEnd();
+                }
+                count++;
+            }
+        } finally {
+            cursor.close();
+        }
+
+        List<MongoDBVariantStageReader> readers = new ArrayList<>(boundaries.size() + 1);
+        Object from = fromId;
+        for (Object boundary : boundaries) {
+            readers.add(copy().setRange(from, boundary));
+            from = boundary;
+        }
+        readers.add(copy().setRange(from, toId));
+        return readers;
+    }
+
+    private MongoDBVariantStageReader copy() {
+        return new MongoDBVariantStageReader(stageCollection, studyId, chromosomes).setFileIds(fileIds);
+    }
+
     public long countNumVariants() {
         return stageCollection.nativeQuery().count(getQuery());
     }
@@ -120,12 +203,18 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         } else {
             studyFilter = eq(STUDY_FILE_FIELD, String.valueOf(studyId));
         }
-        Bson bson;
-        if (chrFilters.isEmpty()) {
-            bson = studyFilter;
-        } else {
-            bson = and(studyFilter, or(chrFilters)); // Be in any of these chromosomes
+        List<Bson> filters = new ArrayList<>(4);
+        filters.add(studyFilter);
+        if (!chrFilters.isEmpty()) {
+            filters.add(or(chrFilters)); // Be in any of these chromosomes
+        }
+        if (fromId != null) {
+            filters.add(gte(ID_FIELD, fromId));
         }
+        if (toId != null) {
+            filters.add(lt(ID_FIELD, toId));
+        }
+        Bson bson = filters.size() == 1 ? studyFilter : and(filters);
         logger.debug("stage filter: " +  bson.toBsonDocument(Document.class, com.mongodb.MongoClient.getDefaultCodecRegistry()));
         return bson;
     }
@@ -134,10 +223,18 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         if (chromosome == null || chromosome.isEmpty()) {
             return;
         }
-        chromosome = VariantStringIdConverter.convertChromosome(chromosome);
+        String chrPrefix = VariantStringIdConverter.convertChromosome(chromosome);
         chrFilters.add(and(
-                gte("_id", chromosome + VariantStringIdConverter.SEPARATOR_CHAR),
-                lt("_id", chromosome + (char) (VariantStringIdConverter.SEPARATOR_CHAR + 1))));
+                gte("_id", chrPrefix + VariantStringIdConverter.SEPARATOR_CHAR),
+                lt("_id", chrPrefix + (char) (VariantStringIdConverter.SEPARATOR_CHAR + 1))));
+        // Binary ids never match a string range, and vice versa. Add both to support any VariantIdFormat
+        Bson binaryFilter = and(
+                gte("_id", VariantBinaryIdConverter.buildId(chromosome, 0)),
+                lt("_id", VariantBinaryIdConverter.buildId(chromosome, 1L << 32)));
+        if (VariantBinaryIdConverter.isHashedChromosome(chromosome)) {
+            binaryFilter = and(binaryFilter, eq(StageDocumentToVariantConverter.CHROMOSOME_FIELD, chromosome));
+        }
+        chrFilters.add(binaryFilter);
     }
 
     @Override
@@ -39,8 +39,8 @@ public class MongoDBOperations {
 
     // Stage documents to cleanup
 //    private List<Pair<Bson, Bson>> cleanFromStage = new ArrayList<>();
-    private final List<String> documentsToCleanStudies = new ArrayList<>();
-    private final List<String> documentsToCleanFiles = new ArrayList<>();
+    private final List<Object> documentsToCleanStudies = new ArrayList<>();
+    private final List<Object> documentsToCleanFiles = new ArrayList<>();
     private final StageSecondaryAlternates secondaryAlternates = new StageSecondaryAlternates();
 
     private int skipped = 0;
@@ -64,11 +64,11 @@ public class MongoDBOperations {
         return existingStudy;
     }
 
-    public List<String> getDocumentsToCleanStudies() {
+    public List<Object> getDocumentsToCleanStudies() {
         return documentsToCleanStudies;
     }
 
-    public List<String> getDocumentsToCleanFiles() {
+    public List<Object> getDocumentsToCleanFiles() {
         return documentsToCleanFiles;
     }
 
@@ -127,14 +127,14 @@ public class MongoDBOperations {
 
     // Document may exist, study does not exist
     public class NewStudy {
-        private final List<String> ids = new LinkedList<>();
+        private final List<Object> ids = new LinkedList<>();
         private final List<Bson> queries = new LinkedList<>();
         private final List<Bson> updates = new LinkedList<>();
         // Used if the document does not exist
         // This collection may be smaller than the previous collections
         private final List<Document> variants = new LinkedList<>();
 
-        public List<String> getIds() {
+        public List<Object> getIds() {
             return ids;
         }
 
@@ -153,11 +153,11 @@ public class MongoDBOperations {
 
     // Document and study exist
     public class ExistingStudy {
-        private final List<String> ids = new LinkedList<>();
+        private final List<Object> ids = new LinkedList<>();
         private final List<Bson> queries = new LinkedList<>();
         private final List<Bson> updates = new LinkedList<>();
 
-        public List<String> getIds() {
+        public List<Object> getIds() {
             return ids;
         }
 
@@ -172,11 +172,11 @@ public class MongoDBOperations {
 
     // Secondary alternates to be updated in the stage collection
     class StageSecondaryAlternates {
-        private final List<String> ids = new LinkedList<>();
+        private final List<Object> ids = new LinkedList<>();
         private final List<Bson> queries = new LinkedList<>();
         private final List<Bson> updates = new LinkedList<>();
 
-        List<String> getIds() {
+        List<Object> getIds() {
             return ids;
         }
 
@@ -273,10 +273,10 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         } catch (MongoBulkWriteException e) {
             // Add upserted documents
             newVariants += e.getWriteResult().getUpserts().size();
-            Set<String> duplicatedNonInsertedId = new HashSet<>();
+            Set<Object> duplicatedNonInsertedId = new HashSet<>();
             for (BulkWriteError writeError : e.getWriteErrors()) {
                 if (ErrorCategory.fromErrorCode(writeError.getCode()).equals(ErrorCategory.DUPLICATE_KEY)) {
-                    String id = newStudy.getIds().get(writeError.getIndex());
+                    Object id = newStudy.getIds().get(writeError.getIndex());
                     duplicatedNonInsertedId.add(id);
                     logger.warn("Catch error : {}. DupKey exception inserting '{}'. Retry!",
                             writeError.toString(), id);
@@ -291,11 +291,11 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                 // Assume unordered bulk
                 // Remove inserted variants
                 logger.warn("Retry! " + e);
-                Iterator<String> iteratorId = newStudy.getIds().iterator();
+                Iterator<Object> iteratorId = newStudy.getIds().iterator();
                 Iterator<?> iteratorQuery = newStudy.getQueries().iterator();
                 Iterator<?> iteratorUpdate = newStudy.getUpdates().iterator();
                 while (iteratorId.hasNext()) {
-                    String id = iteratorId.next();
+                    Object id = iteratorId.next();
                     iteratorQuery.next();
                     iteratorUpdate.next();
                     if (!duplicatedNonInsertedId.contains(id)) {
@@ -312,11 +312,11 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         return newVariants;
     }
 
-    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<String> queryIds) {
+    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<Object> queryIds) {
         onUpdateError(updateName, update, queries, queryIds, variantsCollection);
     }
 
-    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<String> queryIds,
+    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<Object> queryIds,
                                  MongoDBCollection collection) {
         logger.error("(Updated " + updateName + " variants = " + queries.size() + " ) != "
                 + "(ModifiedCount = " + update.getNumUpdated() + "). MatchedCount:" + update.getNumMatches());
@@ -327,13 +327,13 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         for (DataResult<Document> r : queryResults) {
             logger.info("result: '{}'", r);
             if (!r.getResults().isEmpty()) {
-                String id = r.first().get("_id", String.class);
+                Object id = r.first().get("_id");
                 boolean remove = queryIds.remove(id);
                 logger.info("remove({}): {}", id, remove);
             }
         }
         StringBuilder sb = new StringBuilder("Missing Variant for update : ");
-        for (String id : queryIds) {
+        for (Object id : queryIds) {
             logger.error("Missing Variant '" + id + '\'');
             sb.append('\'').append(id).append("', ");
         }
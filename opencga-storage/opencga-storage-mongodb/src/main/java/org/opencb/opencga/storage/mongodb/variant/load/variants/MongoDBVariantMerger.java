@@ -41,10 +41,12 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStoragePipeline;
+import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.stage.VariantToAvroBinaryConverter;
 import org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader;
 import org.opencb.opencga.storage.mongodb.variant.search.MongoDBVariantSearchIndexUtils;
 import org.slf4j.Logger;
@@ -60,7 +62,6 @@ import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVa
 import static org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter.ID_FIELD;
 import static org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter.SECONDARY_ALTERNATES_FIELD;
 import static org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader.STAGE_TO_VARIANT_CONVERTER;
-import static org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader.VARIANT_CONVERTER_DEFAULT;
 
 /**
  * Created on 07/04/16.
@@ -237,6 +238,8 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
     private boolean checkOverlappings;
     private final DocumentToVariantConverter variantConverter;
     private final DocumentToStudyVariantEntryConverter studyConverter;
+    /** Reads the variants from the stage collection. The annotation is never merged, so it is skipped. */
+    private final VariantToAvroBinaryConverter stageVariantConverter = new VariantToAvroBinaryConverter(false);
     private final StudyMetadata studyMetadata;
     private final boolean excludeGenotypes;
 
@@ -272,6 +275,9 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
         DocumentToSamplesConverter samplesConverter = new DocumentToSamplesConverter(dbAdaptor.getMetadataManager(), this.studyMetadata);
         studyConverter = new DocumentToStudyVariantEntryConverter(false, samplesConverter);
         variantConverter = new DocumentToVariantConverter(studyConverter, null);
+        if (dbAdaptor instanceof VariantMongoDBAdaptor) {
+            variantConverter.setIdFormat(((VariantMongoDBAdaptor) dbAdaptor).getIdFormat());
+        }
         samplesPositionMap = new HashMap<>();
         sampleNamesInFile = new HashMap<>();
         fileIdsMap = new HashMap<>();
@@ -698,10 +704,10 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
                                          int skipped, int duplicated) {
         if (newStudy && duplicated > 0 && (missing + skipped + duplicated) == fileIds.size()) {
 //            System.out.println("duplicated: document.getString(\"_id\") = " + document.getString("_id"));
-            mongoDBOps.getDocumentsToCleanStudies().add(document.getString("_id"));
+            mongoDBOps.getDocumentsToCleanStudies().add(document.get("_id"));
         } else {
             if (missing != fileIds.size()) {
-                mongoDBOps.getDocumentsToCleanFiles().add(document.getString("_id"));
+                mongoDBOps.getDocumentsToCleanFiles().add(document.get("_id"));
             } // else {
             //     logger.debug("Nothing to clean in variant " + document.getString("_id") + " , " + fileIds);
             // }
@@ -975,7 +981,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
 
     private Variant getFileVariantFromStage(Object o) {
         if (o instanceof Binary) {
-            return VARIANT_CONVERTER_DEFAULT.convertToDataModelType((Binary) o);
+            return stageVariantConverter.convertToDataModelType((Binary) o);
         } else if (o instanceof Variant) {
 //            Variant original = (Variant) o;
 //            Variant copy = new Variant(VariantAvro.newBuilder(original.getImpl()).build());
@@ -1063,7 +1069,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
     protected void updateMongoDBOperations(Variant emptyVar, List<String> ids, List<Document> fileDocuments,
                                            int alternatesFromStage, List<Document> secondaryAlternates, Document gts,
                                            boolean newStudy, boolean newVariant, MongoDBOperations mongoDBOps) {
-        final String id;
+        final Object id;
 
         if (!excludeGenotypes) {
             mongoDBOps.getGenotypes().addAll(gts.keySet());
@@ -1105,7 +1111,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
 
 
                     mongoDBOps.getNewStudy().getVariants().add(variantDocument);
-                    id = variantDocument.getString("_id");
+                    id = variantDocument.get("_id");
                 } else {
                     id = variantConverter.buildStorageId(emptyVar);
                 }
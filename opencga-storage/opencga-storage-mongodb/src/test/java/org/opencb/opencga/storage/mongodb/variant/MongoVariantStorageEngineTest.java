@@ -28,6 +28,9 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.opencb.biodata.formats.io.FileFormatException;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -47,9 +50,15 @@ import org.opencb.opencga.storage.core.variant.VariantStorageEngineTest;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManagerTest.TestAnnotator;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotatorFactory;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantIdFormat;
 import org.opencb.opencga.storage.mongodb.variant.exceptions.MongoVariantStorageEngineException;
 import org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader;
 import org.opencb.opencga.storage.mongodb.variant.protobuf.VariantMongoDBProto;
@@ -774,6 +783,29 @@ public class MongoVariantStorageEngineTest extends VariantStorageEngineTest impl
                 getVariantStorageEngine().getDBAdaptor().getVariantsCollection());
     }
 
+    @Test
+    public void mergePartitioned() throws Exception {
+        URI file1 = getResourceUri("1000g_batches/1-500.filtered.10k.chr22.phase3_shapeit2_mvncall_integrated_v5.20130502.genotypes.vcf.gz");
+        URI file2 = getResourceUri("1000g_batches/501-1000.filtered.10k.chr22.phase3_shapeit2_mvncall_integrated_v5.20130502.genotypes.vcf.gz");
+
+        for (URI file : Arrays.asList(file1, file2)) {
+            runDefaultETL(file, getVariantStorageEngine(), new StudyMetadata(1, "s1"), new ObjectMap()
+                    .append(VariantStorageOptions.ANNOTATE.key(), false)
+                    .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                    .append(MongoDBVariantStorageOptions.STAGE.key(), true)
+                    .append(MongoDBVariantStorageOptions.MERGE.key(), true)
+                    .append(MongoDBVariantStorageOptions.MERGE_PARTITIONS.key(), 4));
+            runDefaultETL(file, getVariantStorageEngine("2"), new StudyMetadata(1, "s1"), new ObjectMap()
+                    .append(VariantStorageOptions.ANNOTATE.key(), false)
+                    .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                    .append(MongoDBVariantStorageOptions.STAGE.key(), true)
+                    .append(MongoDBVariantStorageOptions.MERGE.key(), true));
+        }
+
+        compareCollections(getVariantStorageEngine("2").getDBAdaptor().getVariantsCollection(),
+                getVariantStorageEngine().getDBAdaptor().getVariantsCollection());
+    }
+
     @Test
     public void concurrentMerge() throws Exception {
         StudyMetadata studyMetadata1 = new StudyMetadata(1, "s1");
@@ -1238,4 +1270,167 @@ public class MongoVariantStorageEngineTest extends VariantStorageEngineTest impl
                 });
 
     }
+
+    @Test
+    public void binaryVariantIdFormatTest() throws Exception {
+        MongoDBVariantStorageEngine variantStorageEngine = getVariantStorageEngine();
+        StudyMetadata studyMetadata = newStudyMetadata();
+        runDefaultETL(smallInputUri, variantStorageEngine, studyMetadata, new ObjectMap()
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                .append(MongoDBVariantStorageOptions.VARIANT_ID_FORMAT.key(), "binary"));
+
+        variantStorageEngine.getOptions()
+                .append(VariantStorageOptions.ANNOTATOR_CLASS.key(), TestAnnotator.class.getName())
+                .append(VariantStorageOptions.ANNOTATOR.key(), VariantAnnotatorFactory.AnnotationEngine.OTHER);
+        variantStorageEngine.annotate(new Query(), new ObjectMap(TestAnnotator.ANNOT_KEY, "v1"));
+        variantStorageEngine.saveAnnotation("v1", new ObjectMap());
+
+        checkVariantIdFormat(variantStorageEngine, studyMetadata.getId(), VariantIdFormat.BINARY);
+        List<Variant> variants = variantStorageEngine.get(new Query(), new QueryOptions()).getResults();
+        assertNotEquals(0, variants.size());
+        checkVariantIdQueries(variantStorageEngine, variants);
+
+        variantStorageEngine.migrateVariantIds(VariantIdFormat.STRING);
+        checkVariantIdFormat(variantStorageEngine, studyMetadata.getId(), VariantIdFormat.STRING);
+        checkVariantIdQueries(variantStorageEngine, variants);
+
+        variantStorageEngine.migrateVariantIds(VariantIdFormat.BINARY);
+        checkVariantIdFormat(variantStorageEngine, studyMetadata.getId(), VariantIdFormat.BINARY);
+        checkVariantIdQueries(variantStorageEngine, variants);
+    }
+
+    private void checkVariantIdFormat(MongoDBVariantStorageEngine variantStorageEngine, int studyId, VariantIdFormat format)
+            throws Exception {
+        VariantMongoDBAdaptor dbAdaptor = variantStorageEngine.getDBAdaptor();
+        assertEquals(format, dbAdaptor.getIdFormat());
+        assertEquals(format, VariantIdFormat.from(variantStorageEngine.getMetadataManager().getProjectMetadata()));
+        assertNotEquals(0, dbAdaptor.getVariantsCollection().count().getNumMatches());
+        assertNotEquals(0, dbAdaptor.getAnnotationCollection("v1").count().getNumMatches());
+        for (MongoDBCollection collection : Arrays.asList(dbAdaptor.getVariantsCollection(), dbAdaptor.getAnnotationCollection("v1"),
+                dbAdaptor.getStageCollection(studyId))) {
+            for (Document document : collection.nativeQuery().find(new Document(), new QueryOptions(QueryOptions.INCLUDE, "_id"))) {
+                assertEquals(collection.toString(), format, VariantIdFormat.of(document.get("_id")));
+            }
+        }
+    }
+
+    private void checkVariantIdQueries(MongoDBVariantStorageEngine variantStorageEngine, List<Variant> variants) throws Exception {
+        assertEquals(variants.size(), variantStorageEngine.count(new Query()).first().intValue());
+
+        // Query by id
+        for (int i = 0; i < variants.size(); i += 10) {
+            Variant variant = variants.get(i);
+            List<Variant> result = variantStorageEngine.get(new Query(VariantQueryParam.ID.key(), variant.toString()), new QueryOptions())
+                    .getResults();
+            assertEquals(variant.toString(), 1, result.size());
+            assertEquals(variant.toString(), result.get(0).toString());
+            assertEquals("an id -- v1", result.get(0).getAnnotation().getId());
+        }
+
+        // Query by chromosome
+        Map<String, Set<String>> variantsByChromosome = variants.stream()
+                .collect(Collectors.groupingBy(Variant::getChromosome, Collectors.mapping(Variant::toString, Collectors.toSet())));
+        for (Map.Entry<String, Set<String>> entry : variantsByChromosome.entrySet()) {
+            Query query = new Query(VariantQueryParam.REGION.key(), entry.getKey());
+            Set<String> result = variantStorageEngine.get(query, new QueryOptions()).getResults()
+                    .stream().map(Variant::toString).collect(Collectors.toSet());
+            assertEquals(entry.getValue(), result);
+            assertEquals(entry.getValue().size(), variantStorageEngine.getAnnotation("v1", query, null).getResults().size());
+        }
+
+        // Query by region. Must return all the variants within the region, and only variants overlapping the region
+        Variant first = variants.get(0);
+        Region region = new Region(first.getChromosome(), first.getStart(), first.getStart() + 100000);
+        Query regionQuery = new Query(VariantQueryParam.REGION.key(), region.toString());
+        Set<String> result = variantStorageEngine.get(regionQuery, new QueryOptions()).getResults()
+                .stream().map(Variant::toString).collect(Collectors.toSet());
+        assertNotEquals(0, result.size());
+        for (Variant variant : variants) {
+            boolean overlaps = variant.getChromosome().equals(region.getChromosome())
+                    && variant.getStart() <= region.getEnd() && variant.getEnd() >= region.getStart();
+            boolean contained = variant.getChromosome().equals(region.getChromosome())
+                    && variant.getStart() >= region.getStart() && variant.getEnd() <= region.getEnd();
+            if (contained) {
+                assertThat(result, hasItem(variant.toString()));
+            } else if (!overlaps) {
+                assertThat(result, not(hasItem(variant.toString())));
+            }
+        }
+    }
+
+    @Test
+    public void columnarGenotypesTest() throws Exception {
+        URI file1 = getResourceUri("1000g_batches/1-500.filtered.10k.chr22.phase3_shapeit2_mvncall_integrated_v5.20130502.genotypes.vcf.gz");
+        URI file2 = getResourceUri("1000g_batches/501-1000.filtered.10k.chr22.phase3_shapeit2_mvncall_integrated_v5.20130502.genotypes.vcf.gz");
+
+        ObjectMap options = new ObjectMap()
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false);
+        for (URI file : Arrays.asList(file1, file2)) {
+            runDefaultETL(file, getVariantStorageEngine(), new StudyMetadata(1, "s1"), new ObjectMap(options)
+                    .append(MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR.key(), true));
+            runDefaultETL(file, getVariantStorageEngine("_map"), new StudyMetadata(1, "s1"), options);
+        }
+        MongoDBVariantStorageEngine columnarEngine = getVariantStorageEngine();
+        MongoDBVariantStorageEngine mapEngine = getVariantStorageEngine("_map");
+        assertTrue(columnarEngine.getMetadataManager().getStudyMetadata("s1").getAttributes()
+                .getBoolean(MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR.key()));
+        assertFalse(mapEngine.getMetadataManager().getStudyMetadata("s1").getAttributes()
+                .getBoolean(MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR.key()));
+
+        // Genotypes are not stored in the "gt" map
+        for (Document document : columnarEngine.getDBAdaptor().getVariantsCollection().nativeQuery()
+                .find(new Document(), new QueryOptions(QueryOptions.LIMIT, 100))) {
+            for (Document study : (List<Document>) document.get(DocumentToVariantConverter.STUDIES_FIELD, List.class)) {
+                assertFalse(study.containsKey(GENOTYPES_FIELD));
+            }
+        }
+
+        List<String> samples = new ArrayList<>(mapEngine.getMetadataManager().getIndexedSamplesMap(1).keySet());
+        assertEquals(1000, samples.size());
+        checkSameSampleData(mapEngine, columnarEngine, new Query());
+        checkSameSampleData(mapEngine, columnarEngine, new Query(VariantQueryParam.INCLUDE_SAMPLE.key(),
+                samples.get(0) + "," + samples.get(samples.size() - 1)));
+
+        // Genotype filters are not supported in columnar studies
+        for (VariantQueryParam param : Arrays.asList(VariantQueryParam.GENOTYPE, VariantQueryParam.SAMPLE)) {
+            String value = param == VariantQueryParam.GENOTYPE ? samples.get(0) + ":0/1" : samples.get(0);
+            try {
+                columnarEngine.get(new Query(param.key(), value), new QueryOptions());
+                fail("Expected unsupported filter " + param.key());
+            } catch (VariantQueryException e) {
+                assertThat(e.getMessage(), startsWith(VariantQueryException.unsupportedVariantQueryFilter(param,
+                        MongoDBVariantStorageEngine.STORAGE_ENGINE_ID).getMessage()));
+                assertThat(e.getMessage(), containsString(MongoDBVariantStorageOptions.GENOTYPES_COLUMNAR.key()));
+            }
+        }
+    }
+
+    private void checkSameSampleData(VariantStorageEngine expectedEngine, VariantStorageEngine actualEngine, Query query)
+            throws Exception {
+        Map<String, Variant> expectedVariants = new HashMap<>();
+        try (VariantDBIterator iterator = expectedEngine.iterator(query, new QueryOptions())) {
+            iterator.forEachRemaining(v -> expectedVariants.put(v.toString(), v));
+        }
+        assertNotEquals(0, expectedVariants.size());
+
+        int count = 0;
+        try (VariantDBIterator iterator = actualEngine.iterator(query, new QueryOptions())) {
+            while (iterator.hasNext()) {
+                Variant variant = iterator.next();
+                Variant expectedVariant = expectedVariants.get(variant.toString());
+                assertNotNull(variant.toString(), expectedVariant);
+                StudyEntry study = variant.getStudies().get(0);
+                StudyEntry expectedStudy = expectedVariant.getStudies().get(0);
+                assertEquals(variant.toString(), expectedStudy.getOrderedSamplesName(), study.getOrderedSamplesName());
+                assertEquals(variant.toString(), expectedStudy.getSampleDataKeys(), study.getSampleDataKeys());
+                for (String sample : expectedStudy.getOrderedSamplesName()) {
+                    assertEquals(variant + " " + sample, expectedStudy.getSampleData(sample), study.getSampleData(sample));
+                }
+                count++;
+            }
+        }
+        assertEquals(expectedVariants.size(), count);
+    }
 }
@@ -2,10 +2,24 @@ package org.opencb.opencga.storage.mongodb.variant.adaptors;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptorTest;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created on 22/12/17.
@@ -24,6 +38,49 @@ public class VariantMongoDBAdaptorTest extends VariantDBAdaptorTest implements M
         logLevel("info");
     }
 
+    @Test
+    public void groupByGeneAndConsequenceType() {
+        DataResult<Map<String, Object>> genes = dbAdaptor.groupBy(new Query(), "gene",
+                new QueryOptions(QueryOptions.LIMIT, 100000).append("count", true));
+        Map<Object, Integer> geneCounts = new HashMap<>();
+        for (Map<String, Object> result : genes.getResults()) {
+            // Only counts
+            assertFalse(result.containsKey("values"));
+            geneCounts.put(result.get("id"), ((Number) result.get("count")).intValue());
+        }
+
+        DataResult<Map<String, Object>> result = dbAdaptor.groupBy(new Query(), Arrays.asList("gene", "ct"),
+                new QueryOptions(QueryOptions.LIMIT, 100));
+        assertEquals(100, result.getNumResults());
+        assertTrue(result.getNumMatches() > 100);
+        int previousCount = Integer.MAX_VALUE;
+        for (Map<String, Object> group : result.getResults()) {
+            Map<String, Object> id = (Map<String, Object>) group.get("id");
+            int count = ((Number) group.get("count")).intValue();
+            // Multiple fields never include the variants
+            assertFalse(group.containsKey("values"));
+            assertTrue(count <= previousCount);
+            assertTrue(count <= geneCounts.get(id.get("gene")));
+            previousCount = count;
+        }
+    }
+
+    @Test
+    public void groupByMaxGroups() {
+        DataResult<Map<String, Object>> result = dbAdaptor.groupBy(new Query(), "gene", new QueryOptions(QueryOptions.LIMIT, 10)
+                .append(MongoDBVariantStorageOptions.GROUP_BY_MAX_GROUPS.key(), 100000));
+        assertEquals(10, result.getNumResults());
+        for (Map<String, Object> group : result.getResults()) {
+            // Not a count. Include the variants of each group
+            assertTrue(group.containsKey("values"));
+            assertEquals(((Number) group.get("count")).intValue(), ((List<?>) group.get("values")).size());
+        }
+
+        thrown.expect(VariantQueryException.class);
+        thrown.expectMessage("Too many groups");
+        dbAdaptor.groupBy(new Query(), "gene", new QueryOptions(MongoDBVariantStorageOptions.GROUP_BY_MAX_GROUPS.key(), 1));
+    }
+
     @Override
     public void after() throws IOException {
         super.after();
@@ -0,0 +1,62 @@
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GenotypeColumnCodecTest {
+
+    private static final Set<String> DEFAULT_GENOTYPES = new HashSet<>(Arrays.asList("0/0", "0|0"));
+
+    @Test
+    public void rle() {
+        List<String> genotypes = new ArrayList<>(Collections.nCopies(10000, "0/0"));
+        genotypes.set(0, "0/1");
+        genotypes.set(300, "1/1");
+        genotypes.set(301, "0|0");
+        genotypes.set(5000, "./.");
+        genotypes.set(9998, "0/1");
+
+        byte[] data = GenotypeColumnCodec.encode(genotypes, DEFAULT_GENOTYPES);
+        assertEquals(GenotypeColumnCodec.RLE, data[0]);
+        assertTrue(data.length < 50);
+        checkDecode(genotypes, data);
+    }
+
+    @Test
+    public void dense() {
+        List<String> genotypes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            genotypes.add(i % 3 == 0 ? "0/0" : i % 3 == 1 ? "0/1" : "1/1");
+        }
+
+        byte[] data = GenotypeColumnCodec.encode(genotypes, DEFAULT_GENOTYPES);
+        assertEquals(GenotypeColumnCodec.DENSE, data[0]);
+        checkDecode(genotypes, data);
+    }
+
+    @Test
+    public void empty() {
+        checkDecode(Collections.emptyList(), GenotypeColumnCodec.encode(Collections.emptyList(), DEFAULT_GENOTYPES));
+
+        List<String> genotypes = Collections.nCopies(100, "0|0");
+        byte[] data = GenotypeColumnCodec.encode(genotypes, DEFAULT_GENOTYPES);
+        checkDecode(genotypes, data);
+        GenotypeColumnCodec.decode(data, (position, genotype) -> fail());
+    }
+
+    private static void checkDecode(List<String> genotypes, byte[] data) {
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < genotypes.size(); i++) {
+            if (!DEFAULT_GENOTYPES.contains(genotypes.get(i))) {
+                expected.put(i, genotypes.get(i));
+            }
+        }
+        Map<Integer, String> actual = new HashMap<>();
+        int numSamples = GenotypeColumnCodec.decode(data, actual::put);
+        assertEquals(genotypes.size(), numSamples);
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,113 @@
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VariantBinaryIdConverterTest {
+
+    private final VariantBinaryIdConverter converter = new VariantBinaryIdConverter();
+
+    @Test
+    public void snv() {
+        Variant v = new Variant("1", 1000, 1000, "A", "C");
+        byte[] id = converter.buildId(v).getData();
+        assertEquals(VariantBinaryIdConverter.LENGTH, id.length);
+        assertEquals("1", VariantBinaryIdConverter.getChromosome(id));
+        assertEquals(1000, VariantBinaryIdConverter.getStart(id));
+        assertEquals("A", VariantBinaryIdConverter.getReference(id));
+        assertEquals("C", VariantBinaryIdConverter.getAlternate(id));
+        assertEquals(v, converter.buildVariant(id, null, 1000, "A", "C", null));
+    }
+
+    @Test
+    public void indel() {
+        Variant v = new Variant("X", 1000, 1002, "", "CAT");
+        byte[] id = converter.buildId(v).getData();
+        assertEquals("X", VariantBinaryIdConverter.getChromosome(id));
+        assertEquals("", VariantBinaryIdConverter.getReference(id));
+        assertEquals("CAT", VariantBinaryIdConverter.getAlternate(id));
+        assertEquals(v, converter.buildVariant(id, null, 1002, "", "CAT", null));
+        assertArrayEquals(id, converter.buildId("X", 1000, "-", "CAT").getData());
+    }
+
+    @Test
+    public void longAlleles() {
+        String alt = "ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGT";
+        Variant v = new Variant("22", 1000, 1002, "TAG", alt);
+        byte[] id = converter.buildId(v).getData();
+        assertEquals(VariantBinaryIdConverter.LENGTH, id.length);
+        assertNull(VariantBinaryIdConverter.getReference(id));
+        assertNull(VariantBinaryIdConverter.getAlternate(id));
+        assertEquals(1000, VariantBinaryIdConverter.getStart(id));
+        assertFalse(Arrays.equals(id, converter.buildId("22", 1000, "TAG", alt + "A").getData()));
+
+        // Largest packed variant
+        String ref = "ACGTACGTACGTACGTACGT";
+        id = converter.buildId("22", 1000, ref, ref).getData();
+        assertEquals(ref, VariantBinaryIdConverter.getReference(id));
+        assertEquals(ref, VariantBinaryIdConverter.getAlternate(id));
+    }
+
+    @Test
+    public void symbolic() {
+        Variant v = new Variant("1", 1000, 2000, "A", "<CN5>");
+        v.getSv().setCiStartLeft(999);
+        v.getSv().setCiStartRight(1010);
+        byte[] id = converter.buildId(v).getData();
+        assertNull(VariantBinaryIdConverter.getAlternate(id));
+
+        Variant v2 = new Variant("1", 1000, 2000, "A", "<CN5>");
+        assertFalse(Arrays.equals(id, converter.buildId(v2).getData()));
+    }
+
+    @Test
+    public void hashedChromosome() {
+        Variant v = new Variant("chr1_KI270706v1_random", 1000, 1000, "A", "C");
+        byte[] id = converter.buildId(v).getData();
+        assertTrue(VariantBinaryIdConverter.isHashedChromosome(v.getChromosome()));
+        assertNull(VariantBinaryIdConverter.getChromosome(id));
+        assertEquals(v, converter.buildVariant(id, v.getChromosome(), 1000, "A", "C", null));
+        assertTrue(VariantBinaryIdConverter.isHashedChromosome("01"));
+        assertFalse(VariantBinaryIdConverter.isHashedChromosome("MT"));
+    }
+
+    @Test
+    public void sortOrder() {
+        List<byte[]> ids = new ArrayList<>();
+        ids.add(VariantBinaryIdConverter.buildId("1", 0).getData());
+        ids.add(converter.buildId("1", 2, "A", "C").getData());
+        ids.add(converter.buildId("1", 1000, "A", "C").getData());
+        ids.add(converter.buildId("1", 1000, "A", "T").getData());
+        ids.add(converter.buildId("1", 1000, "AC", "").getData());
+        ids.add(converter.buildId("1", 100000, "A", "C").getData());
+        ids.add(VariantBinaryIdConverter.buildId("1", Integer.MAX_VALUE + 1L).getData());
+        ids.add(converter.buildId("2", 1, "A", "C").getData());
+        ids.add(converter.buildId("10", 1, "A", "C").getData());
+        ids.add(converter.buildId("X", 1, "A", "C").getData());
+        ids.add(converter.buildId("Y", 1, "A", "C").getData());
+        ids.add(converter.buildId("MT", 1, "A", "C").getData());
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue("Wrong order at " + i, compare(ids.get(i - 1), ids.get(i)) < 0);
+        }
+    }
+
+    /**
+     * Same order as MongoDB for binary values of the same length and subtype.
+     */
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
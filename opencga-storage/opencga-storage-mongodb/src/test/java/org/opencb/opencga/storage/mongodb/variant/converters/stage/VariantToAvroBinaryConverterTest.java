@@ -0,0 +1,78 @@
+package org.opencb.opencga.storage.mongodb.variant.converters.stage;
+
+import org.bson.types.Binary;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class VariantToAvroBinaryConverterTest {
+
+    @Test
+    public void testConvert() {
+        VariantToAvroBinaryConverter converter = new VariantToAvroBinaryConverter();
+        Variant variant = createVariant(10);
+
+        Variant decoded = converter.convertToDataModelType(converter.convertToStorageType(variant));
+        assertEquals(variant.toJson(), decoded.toJson());
+        assertNotNull(decoded.getAnnotation());
+    }
+
+    @Test
+    public void testSkipAnnotation() {
+        VariantToAvroBinaryConverter converter = new VariantToAvroBinaryConverter(false);
+        Variant variant = createVariant(10);
+
+        Variant decoded = converter.convertToDataModelType(converter.convertToStorageType(variant));
+        assertNull(decoded.getAnnotation());
+        variant.setAnnotation(null);
+        assertEquals(variant.toJson(), decoded.toJson());
+    }
+
+    @Test
+    public void testReuseBuffers() {
+        VariantToAvroBinaryConverter converter = new VariantToAvroBinaryConverter();
+        // Alternate small and large variants, larger than the initial buffer
+        List<Variant> variants = Arrays.asList(createVariant(1), createVariant(5000), createVariant(2), createVariant(10000));
+        List<Binary> binaries = new ArrayList<>();
+        for (Variant variant : variants) {
+            binaries.add(converter.convertToStorageType(variant));
+        }
+        for (int i = 0; i < variants.size(); i++) {
+            assertEquals(variants.get(i).toJson(), converter.convertToDataModelType(binaries.get(i)).toJson());
+        }
+    }
+
+    private static Variant createVariant(int numSamples) {
+        Variant variant = new Variant("1", 1000, 1000, "A", "C");
+        variant.setNames(Collections.singletonList("rs1234"));
+        StudyEntry studyEntry = new StudyEntry("1", Collections.emptyList(), Collections.singletonList("GT"));
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("QUAL", "50");
+        studyEntry.setFiles(Collections.singletonList(new FileEntry("1", "1000:A:C", attributes)));
+        LinkedHashMap<String, Integer> samplesPosition = new LinkedHashMap<>();
+        List<List<String>> samplesData = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samplesPosition.put("S" + i, i);
+            samplesData.add(Collections.singletonList(i % 2 == 0 ? "0/1" : "0/0"));
+        }
+        studyEntry.setSamplesPosition(samplesPosition);
+        studyEntry.setSamplesData(samplesData);
+        variant.addStudyEntry(studyEntry);
+
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setChromosome("1");
+        annotation.setStart(1000);
+        annotation.setReference("A");
+        annotation.setAlternate("C");
+        annotation.setId("rs1234");
+        annotation.setConsequenceTypes(Collections.emptyList());
+        variant.setAnnotation(annotation);
+        return variant;
+    }
+}